@@ -16,6 +16,7 @@ import org.apache.commons.collections.SetUtils;
 import org.apache.jena.vocabulary.OWL2;
 import org.apache.jena.vocabulary.RDF;
 import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.CoverageBudget;
 import org.dice_research.cel.expression.Junction;
 import org.dice_research.cel.expression.NamedClass;
 import org.dice_research.cel.expression.ScoredCEComparatorForRefinement;
@@ -23,14 +24,19 @@ import org.dice_research.cel.expression.ScoredClassExpression;
 import org.dice_research.cel.io.IntermediateResultPrinter;
 import org.dice_research.cel.io.LearningProblem;
 import org.dice_research.cel.io.csv.CSVIntermediateResultPrinter;
+import org.dice_research.cel.io.csv.CSVQueryMetricsPrinter;
 import org.dice_research.cel.io.json.JSONLearningProblemReader;
 import org.dice_research.cel.refine.RefinementOperator;
 import org.dice_research.cel.refine.SuggestorBasedRefinementOperator;
 import org.dice_research.cel.refine.suggest.ExtendedSuggestor;
+import org.dice_research.cel.refine.suggest.LearningProblemHandle;
+import org.dice_research.cel.refine.suggest.ScoreBound;
 import org.dice_research.cel.refine.suggest.SelectionScores;
 import org.dice_research.cel.refine.suggest.SparqlBasedSuggestor;
 import org.dice_research.cel.score.*;
 import org.dice_research.cel.sparql.InstanceRetriever;
+import org.dice_research.cel.sparql.QueryMetricsRegistry;
+import org.dice_research.cel.sparql.QueryMetricsSnapshot;
 import org.dice_research.topicmodeling.commons.collections.TopDoubleObjectCollection;
 import org.dice_research.topicmodeling.commons.collections.TopIntObjectCollection;
 import org.slf4j.Logger;
@@ -40,12 +46,44 @@ public class PruneCEL {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PruneCEL.class);
 
+    /**
+     * The number of top expressions that are kept during the search.
+     */
+    protected static final int NUMBER_OF_TOP_EXPRESSIONS = 10;
+    /**
+     * The default maximum number of bytes that the example coverages of the
+     * expressions in the queue may use.
+     */
+    public static final long DEFAULT_MAX_COVERAGE_MEMORY = 64L * 1024L * 1024L;
+
     protected ExtendedSuggestor suggestor;
     protected DescriptionLogic logic;
     protected ScoreCalculatorFactory calculatorFactory;
     protected int maxIterations = 0;
     protected long maxTime = 0L;
     protected boolean skipNonImprovingStmts = false;
+    /**
+     * Flag indicating whether the classification score of the worst of the top
+     * expressions should be used as bound for the suggestions (see
+     * {@link SuggestorBasedRefinementOperator#setScoreBound(ScoreBound)}).
+     */
+    protected boolean scoreBoundPushdown = false;
+    /**
+     * The registry of the metrics of the queries that the suggestor sends or
+     * {@code null} if there is no such registry.
+     */
+    protected QueryMetricsRegistry queryMetrics = null;
+    /**
+     * The retriever that is used to determine the example coverages of the
+     * expressions or {@code null} if coverages are not used (see
+     * {@link SuggestorBasedRefinementOperator#setCoverageRetriever(InstanceRetriever)}).
+     */
+    protected InstanceRetriever coverageRetriever = null;
+    /**
+     * The maximum number of bytes that the example coverages of the expressions
+     * in the queue may use.
+     */
+    protected long maxCoverageMemory = DEFAULT_MAX_COVERAGE_MEMORY;
 
     protected boolean recursiveProblemSolving = false;
     protected InstanceRetriever retriever = null;
@@ -75,12 +113,16 @@ public class PruneCEL {
             OutputStream logStream, IntermediateResultPrinter iResultPrinter) {
         long startTime = System.currentTimeMillis();
         long timeToStop = startTime + maxTime;
-        return findClassExpression(positive, negative, logStream, iResultPrinter, startTime, timeToStop);
+        // Tell the suggestor when the learning problem ends so that it can free its resources
+        try (LearningProblemHandle problem = suggestor.beginProblem(positive, negative)) {
+            return findClassExpression(positive, negative, logStream, iResultPrinter, startTime, timeToStop);
+        }
     }
 
     public List<ScoredClassExpression> findClassExpression(Collection<String> positive, Collection<String> negative,
             OutputStream logStream, IntermediateResultPrinter iResultPrinter, long startTime, long timeToStop) {
-        TopDoubleObjectCollection<ScoredClassExpression> topExpressions = new TopDoubleObjectCollection<>(10, false);
+        TopDoubleObjectCollection<ScoredClassExpression> topExpressions = new TopDoubleObjectCollection<>(
+                NUMBER_OF_TOP_EXPRESSIONS, false);
         Set<ScoredClassExpression> seenExpressions = new HashSet<>();
         Queue<ScoredClassExpression> queue = new PriorityQueue<ScoredClassExpression>(
                 new ScoredCEComparatorForRefinement());
@@ -89,9 +131,9 @@ public class PruneCEL {
 
         TopIntObjectCollection<ScoredClassExpression> mostPreciseExpressions = new TopIntObjectCollection<>(10, false);
 
-        RefinementOperator rho = new SuggestorBasedRefinementOperator(suggestor, logic, scoreCalculator, positive,
-                negative);
-        ((SuggestorBasedRefinementOperator) rho).setLogStream(logStream);
+        CoverageBudget coverageBudget = new CoverageBudget(maxCoverageMemory, new ScoredCEComparatorForRefinement());
+        RefinementOperator rho = createRefinementOperator(scoreCalculator, positive, negative, logStream,
+                coverageBudget);
 
         Collection<ScoredClassExpression> newExpressions;
         ScoredClassExpression nextBestExpression;
@@ -114,10 +156,12 @@ public class PruneCEL {
                 // 4. We haven't reached the maximum amount of time that we are allowed to use
                 (maxTime == 0 || (System.currentTimeMillis() < timeToStop))) {
             nextBestExpression = queue.poll();
+            updateScoreBound(rho, topExpressions, scoreCalculator, positive.size(), negative.size());
             LOGGER.info("Refining rScore={}, cScore={}, ce={}", nextBestExpression.getRefinementScore(),
                     nextBestExpression.getClassificationScore(), nextBestExpression.getClassExpression());
             // Refine this expression
             newExpressions = rho.refine(nextBestExpression);
+            coverageBudget.release(nextBestExpression);
             // Check the expressions
             for (ScoredClassExpression newExpression : newExpressions) {
                 // If 1) we haven't seen this before AND 2a) we are configured to not further
@@ -128,10 +172,14 @@ public class PruneCEL {
                         || (nextBestExpression.getClassificationScore() < newExpression.getClassificationScore())
                         || (newExpression.isAddedEdge()))) {
                     queue.add(newExpression);
+                    coverageBudget.add(newExpression);
                     topExpressions.add(newExpression.getClassificationScore(), newExpression);
                     if (recursiveProblemSolving && (getPrecision(newExpression) >= precisionThreshold)) {
                         mostPreciseExpressions.add(newExpression.getPosCount(), newExpression);
                     }
+                } else {
+                    // The expression won't be refined, i.e., its coverage is not needed
+                    newExpression.setCoverage(null);
                 }
             }
             iterationCount++;
@@ -147,8 +195,11 @@ public class PruneCEL {
                 remainingPositives.removeAll(selectedInstances);
                 LOGGER.info("Trying to solve the remaining sub problem recursively for the remaining {} positives ...",
                         remainingPositives.size());
-                List<ScoredClassExpression> subProblemResults = findClassExpression(remainingPositives, negative,
-                        logStream, iResultPrinter, timeToCallRecursion, timeToStop);
+                List<ScoredClassExpression> subProblemResults;
+                try (LearningProblemHandle subProblem = suggestor.beginProblem(remainingPositives, negative)) {
+                    subProblemResults = findClassExpression(remainingPositives, negative, logStream, iResultPrinter,
+                            timeToCallRecursion, timeToStop);
+                }
                 if (subProblemResults.size() > 0) {
                     ClassExpression newExpression = new Junction(false, mostPrecise.getClassExpression(),
                             subProblemResults.get(0).getClassExpression());
@@ -163,6 +214,11 @@ public class PruneCEL {
             }
         }
         LOGGER.info("Stopping search. Saw {} expressions.", seenExpressions.size());
+        if (coverageRetriever != null) {
+            LOGGER.info("Dropped {} example coverages to stay within the budget of {} bytes ({} bytes reserved for "
+                    + "the coverages of atoms).", coverageBudget.getDroppedCoverages(), coverageBudget.getMaxBytes(),
+                    coverageBudget.getReservedBytes());
+        }
         return Stream.of(topExpressions.getObjects()).map(o -> (ScoredClassExpression) o).toList();
     }
 
@@ -208,6 +264,119 @@ public class PruneCEL {
         this.skipNonImprovingStmts = skipNonImprovingStmts;
     }
 
+    /**
+     * @return the scoreBoundPushdown
+     */
+    public boolean isScoreBoundPushdown() {
+        return scoreBoundPushdown;
+    }
+
+    /**
+     * @param scoreBoundPushdown the scoreBoundPushdown to set
+     */
+    public void setScoreBoundPushdown(boolean scoreBoundPushdown) {
+        this.scoreBoundPushdown = scoreBoundPushdown;
+    }
+
+    /**
+     * @return the registry of the metrics of the queries that the suggestor sends
+     *         or {@code null}
+     */
+    public QueryMetricsRegistry getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * @param queryMetrics the registry of the metrics of the queries that the
+     *                     suggestor sends
+     */
+    public void setQueryMetrics(QueryMetricsRegistry queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    /**
+     * @return the retriever that is used to determine the example coverages of the
+     *         expressions or {@code null} if coverages are not used
+     */
+    public InstanceRetriever getCoverageRetriever() {
+        return coverageRetriever;
+    }
+
+    /**
+     * Enables the example coverages of the expressions. If an expression carries
+     * its coverage, the refinements that add an atom to its root can be scored
+     * without asking the suggestor. The coverages of the expressions with the
+     * lowest rank in the queue are dropped if the coverages would use more than
+     * the given number of bytes.
+     *
+     * @param coverageRetriever the retriever that is used to determine the
+     *                          example coverages or {@code null} if coverages
+     *                          should not be used
+     * @param maxCoverageMemory the maximum number of bytes that the coverages of
+     *                          the expressions in the queue may use
+     */
+    public void setCoverageRetriever(InstanceRetriever coverageRetriever, long maxCoverageMemory) {
+        this.coverageRetriever = coverageRetriever;
+        this.maxCoverageMemory = maxCoverageMemory;
+    }
+
+    /**
+     * Creates the refinement operator of a search. If coverages are enabled, the
+     * operator uses the {@link #coverageRetriever} and reserves the memory of its
+     * atom coverages in the given budget.
+     *
+     * @param scoreCalculator the calculator that scores the refined expressions
+     * @param positive        the positive examples
+     * @param negative        the negative examples
+     * @param logStream       the stream to which the refinements are logged or
+     *                        {@code null}
+     * @param coverageBudget  the budget that limits the coverages of the search
+     * @return the refinement operator
+     */
+    protected SuggestorBasedRefinementOperator createRefinementOperator(ScoreCalculator scoreCalculator,
+            Collection<String> positive, Collection<String> negative, OutputStream logStream,
+            CoverageBudget coverageBudget) {
+        SuggestorBasedRefinementOperator rho = new SuggestorBasedRefinementOperator(suggestor, logic,
+                scoreCalculator, positive, negative);
+        rho.setLogStream(logStream);
+        rho.setCoverageRetriever(coverageRetriever);
+        rho.setCoverageBudget(coverageBudget);
+        return rho;
+    }
+
+    /**
+     * Creates a snapshot of the query metrics. The metrics of a single learning
+     * problem are the difference of the snapshots taken before and after solving
+     * it (see {@link QueryMetricsSnapshot#subtract(QueryMetricsSnapshot)}).
+     *
+     * @return the snapshot or {@code null} if no registry has been set
+     */
+    public QueryMetricsSnapshot snapshotQueryMetrics() {
+        return (queryMetrics == null) ? null : queryMetrics.snapshot();
+    }
+
+    /**
+     * Hands the classification score of the worst top expression as bound to the
+     * given refinement operator if the score bound pushdown is enabled and the
+     * collection of top expressions is complete.
+     *
+     * @param rho             the refinement operator
+     * @param topExpressions  the current top expressions
+     * @param scoreCalculator the score calculator of the learning problem
+     * @param numPositives    the number of positive examples
+     * @param numNegatives    the number of negative examples
+     */
+    protected void updateScoreBound(RefinementOperator rho,
+            TopDoubleObjectCollection<ScoredClassExpression> topExpressions, ScoreCalculator scoreCalculator,
+            int numPositives, int numNegatives) {
+        if (scoreBoundPushdown && (rho instanceof SuggestorBasedRefinementOperator)
+                && (topExpressions.size() >= NUMBER_OF_TOP_EXPRESSIONS)) {
+            ((SuggestorBasedRefinementOperator) rho).setScoreBound(ScoreBound.create(scoreCalculator,
+                    topExpressions.values[topExpressions.size() - 1], numPositives, numNegatives,
+                    logic.supportsComplexConceptNegation()));
+        }
+    }
+
     protected double getPrecision(ScoredClassExpression ce) {
         // Avoid division by 0
         if (ce.getPosCount() == 0) {
@@ -247,6 +416,9 @@ public class PruneCEL {
             // PruneCEL cel = new SingleThreadRecursivePruneCEL(suggestor, logic, factory,
             // suggestor);
             PruneCEL cel = new SimpleRecursivePruneCEL(suggestor, logic, factory, suggestor);
+            cel.setQueryMetrics(suggestor.getQueryMetrics());
+            // XXX (Optional) score refinements of the root based on example coverages
+            cel.setCoverageRetriever(suggestor, DEFAULT_MAX_COVERAGE_MEMORY);
             // XXX Max iterations of the refinement
             //cel.setMaxIterations(1000);
             // XXX Maximum time (in ms)
@@ -273,7 +445,9 @@ public class PruneCEL {
             // Collection<LearningProblem> problems =
             // reader.readProblems("LPs/QA/TandF_MST5_reverse.json");
 
-            try (PrintStream pout = new PrintStream("results.txt")) {
+            try (PrintStream pout = new PrintStream("results.txt");
+                    CSVQueryMetricsPrinter metricsPrinter = new CSVQueryMetricsPrinter(
+                            new PrintStream("results-query-metrics.csv"))) {
 //                for (int i = 0; i < names.size(); ++i) {
                 for (LearningProblem problem : problems) {
                     if (printLogs) {
@@ -282,11 +456,11 @@ public class PruneCEL {
                                 CSVIntermediateResultPrinter irp = new CSVIntermediateResultPrinter(
                                         new PrintStream(problem.getName() + ".csv"))) {
                             runSearch(problem.getName(), problem.getPositiveExamples(), problem.getNegativeExamples(),
-                                    cel, pout, logStream, irp);
+                                    cel, pout, logStream, irp, metricsPrinter);
                         }
                     } else {
                         runSearch(problem.getName(), problem.getPositiveExamples(), problem.getNegativeExamples(), cel,
-                                pout, null, null);
+                                pout, null, null, metricsPrinter);
                     }
                 }
 //                }
@@ -306,12 +480,22 @@ public class PruneCEL {
 
     public static void runSearch(String name, List<String> positive, List<String> negative, PruneCEL cel,
             PrintStream pout, OutputStream logStream, IntermediateResultPrinter iResultPrinter) {
+        runSearch(name, positive, negative, cel, pout, logStream, iResultPrinter, null);
+    }
+
+    public static void runSearch(String name, List<String> positive, List<String> negative, PruneCEL cel,
+            PrintStream pout, OutputStream logStream, IntermediateResultPrinter iResultPrinter,
+            CSVQueryMetricsPrinter metricsPrinter) {
         System.out.println("Starting " + name);
+        QueryMetricsSnapshot metricsBefore = cel.snapshotQueryMetrics();
         long time = System.currentTimeMillis();
         List<ScoredClassExpression> expressions = cel.findClassExpression(positive, negative, logStream,
                 iResultPrinter);
         time = System.currentTimeMillis() - time;
         printClassExpressions(expressions, name, time, pout);
+        if ((metricsPrinter != null) && (metricsBefore != null)) {
+            metricsPrinter.printMetrics(name, cel.snapshotQueryMetrics().subtract(metricsBefore));
+        }
     }
 
     public static void printClassExpressions(List<ScoredClassExpression> expressions, String name, long runtime,
@@ -5,7 +5,9 @@ import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.jena.vocabulary.OWL2;
 import org.apache.jena.vocabulary.RDF;
@@ -15,7 +17,9 @@ import org.dice_research.cel.expression.ScoredClassExpression;
 import org.dice_research.cel.io.IntermediateResultPrinter;
 import org.dice_research.cel.io.LearningProblem;
 import org.dice_research.cel.io.csv.CSVIntermediateResultPrinter;
+import org.dice_research.cel.io.csv.CSVQueryMetricsPrinter;
 import org.dice_research.cel.io.json.JSONLearningProblemReader;
+import org.dice_research.cel.refine.suggest.CachingSuggestor;
 import org.dice_research.cel.refine.suggest.SelectionScores;
 import org.dice_research.cel.refine.suggest.SparqlBasedSuggestor;
 import org.dice_research.cel.score.AccuracyCalculator;
@@ -24,11 +28,19 @@ import org.dice_research.cel.score.BalancedAccuracyCalculator;
 import org.dice_research.cel.score.F1MeasureCalculator;
 import org.dice_research.cel.score.LengthBasedRefinementScorer;
 import org.dice_research.cel.score.ScoreCalculatorFactory;
+import org.dice_research.cel.sparql.QueryMetricsSnapshot;
 
 public class PruneCEL_CLI {
 
     private static boolean isHeaderPrinted = false;
     private static ClassExpression currentClassExpression = null;
+    /**
+     * Suggestion caches for the single endpoints and suggestor settings (see
+     * {@link SparqlBasedSuggestor#describeSuggestionSettings()}). They are kept
+     * across the single runs since the same problems are solved with different
+     * configurations that do not influence the suggestions.
+     */
+    private static Map<String, CachingSuggestor> suggestionCaches = new HashMap<>();
 
     public static void main(String[] args) throws Exception {
 
@@ -38,6 +50,8 @@ public class PruneCEL_CLI {
         // "http://localhost:9080/sparql" QALD10
 
         int n = 2;
+        // XXX Score the refinements of the root based on example coverages
+        boolean useCoverages = true;
 
         String[] binaryStrings = {"01", "11"};
         for (String binaryString : binaryStrings) {
@@ -64,15 +78,15 @@ public class PruneCEL_CLI {
 
                 runPruneCEL("http://localhost:3030/Family/sparql", "ALC", accuracyfunction, true, true, 1000000, 60000,
                         Recursive, SetSkipNone, "/home/quannian/Ontolearn_KG/LPs/Family/lps.json",
-                        "/home/quannian/Ontolearn_KG/Results/Family/" + result + ".csv", false);
+                        "/home/quannian/Ontolearn_KG/Results/Family/" + result + ".csv", false, useCoverages);
 
                 runPruneCEL("http://localhost:3030/Mutagenesis/sparql", "ALC", accuracyfunction, true, true, 1000000,
                         60000, Recursive, SetSkipNone, "/home/quannian/Ontolearn_KG/LPs/Mutagenesis/lps.json",
-                        "/home/quannian/Ontolearn_KG/Results/Mutagenesis/" + result + ".csv", false);
+                        "/home/quannian/Ontolearn_KG/Results/Mutagenesis/" + result + ".csv", false, useCoverages);
 
                 runPruneCEL("http://localhost:3030/Carcinogenesis/sparql", "ALC", accuracyfunction, true, true, 1000000,
                         60000, Recursive, SetSkipNone, "/home/quannian/Ontolearn_KG/LPs/Carcinogenesis/lps.json",
-                        "/home/quannian/Ontolearn_KG/Results/Carcinogenesis/" + result + ".csv", false);
+                        "/home/quannian/Ontolearn_KG/Results/Carcinogenesis/" + result + ".csv", false, useCoverages);
 
             }
 
@@ -82,8 +96,8 @@ public class PruneCEL_CLI {
 
     public static void runPruneCEL(String spqrql_endpoint, String description_logic, int accuracyfunction,
             boolean punishlongexpression, boolean AvoidPickySolutionsDecorator, int iteration, int time,
-            boolean recursive, boolean setSkipNonImprovingStmts, String tfjson, String saveplace, boolean cluster)
-            throws Exception {
+            boolean recursive, boolean setSkipNonImprovingStmts, String tfjson, String saveplace, boolean cluster,
+            boolean useCoverages) throws Exception {
 
         boolean isbascore = false;
         boolean isf1score = false;
@@ -127,15 +141,25 @@ public class PruneCEL_CLI {
 
             boolean printLogs = false;
 
+            // Reuse the suggestions of previous runs with the same endpoint and suggestor
+            // settings (the settings have to be complete at this point)
+            CachingSuggestor cachingSuggestor = suggestionCaches.computeIfAbsent(
+                    endpoint + " " + suggestor.describeSuggestionSettings(), k -> new CachingSuggestor(suggestor));
+            cachingSuggestor.setDecorated(suggestor);
+
             // recursive: find cluster by prototype itself
             PruneCEL cel = null;
             if (recursive) {
                 //cel = new RecursivePruneCEL(suggestor, logic, factory, suggestor);
-                cel = new SimpleRecursivePruneCEL(suggestor, logic, factory, suggestor);
+                cel = new SimpleRecursivePruneCEL(cachingSuggestor, logic, factory, cachingSuggestor);
             } else {
-                cel = new PruneCEL(suggestor, logic, factory);
+                cel = new PruneCEL(cachingSuggestor, logic, factory);
 
             }
+            cel.setQueryMetrics(suggestor.getQueryMetrics());
+            if (useCoverages) {
+                cel.setCoverageRetriever(cachingSuggestor, PruneCEL.DEFAULT_MAX_COVERAGE_MEMORY);
+            }
 
             // XXX Max iterations of the refinement
             cel.setMaxIterations(iteration);
@@ -157,7 +181,11 @@ public class PruneCEL_CLI {
             JSONLearningProblemReader reader = new JSONLearningProblemReader();
             Collection<LearningProblem> problems = reader.readProblems(tfjson);
 
-            try (PrintStream pout = new PrintStream(saveplace)) {
+            // The query metrics are stored next to the results
+            String metricsFile = (saveplace.endsWith(".csv") ? saveplace.substring(0, saveplace.length() - 4)
+                    : saveplace) + "-query-metrics.csv";
+            try (PrintStream pout = new PrintStream(saveplace);
+                    CSVQueryMetricsPrinter metricsPrinter = new CSVQueryMetricsPrinter(new PrintStream(metricsFile))) {
 //                for (int i = 0; i < names.size(); ++i) {
                 for (LearningProblem problem : problems) {
                     if (printLogs) {
@@ -166,11 +194,11 @@ public class PruneCEL_CLI {
                                 CSVIntermediateResultPrinter irp = new CSVIntermediateResultPrinter(
                                         new PrintStream(problem.getName() + ".csv"))) {
                             runSearch(problem.getName(), problem.getPositiveExamples(), problem.getNegativeExamples(),
-                                    cel, pout, logStream, irp, isbascore, isf1score, isacscore);
+                                    cel, pout, logStream, irp, metricsPrinter, isbascore, isf1score, isacscore);
                         }
                     } else {
                         runSearch(problem.getName(), problem.getPositiveExamples(), problem.getNegativeExamples(), cel,
-                                pout, null, null, isbascore, isf1score, isacscore);
+                                pout, null, null, metricsPrinter, isbascore, isf1score, isacscore);
                     }
                 }
                 StringBuilder statistics = new StringBuilder();
@@ -179,7 +207,8 @@ public class PruneCEL_CLI {
                         .append(isacscore).append(", IsPunishLongExpression:").append(punishlongexpression)
                         .append(", IsAvoidPickySolutionsDecorator:").append(AvoidPickySolutionsDecorator)
                         .append(", Isrecursive:").append(recursive).append(", IssetSkipNonImprovingStmts:")
-                        .append(setSkipNonImprovingStmts).append(", usecluster:").append(cluster);
+                        .append(setSkipNonImprovingStmts).append(", usecluster:").append(cluster)
+                        .append(", IsUseCoverages:").append(useCoverages);
                 pout.println(statistics.toString());
                 if (cluster) {
 
@@ -205,13 +234,17 @@ public class PruneCEL_CLI {
     }
 
     public static void runSearch(String name, List<String> positive, List<String> negative, PruneCEL cel,
-            PrintStream pout, OutputStream logStream, IntermediateResultPrinter iResultPrinter, boolean isbascore,
-            boolean isf1score, boolean isacscore) {
+            PrintStream pout, OutputStream logStream, IntermediateResultPrinter iResultPrinter,
+            CSVQueryMetricsPrinter metricsPrinter, boolean isbascore, boolean isf1score, boolean isacscore) {
         System.out.println("Starting " + name);
+        QueryMetricsSnapshot metricsBefore = cel.snapshotQueryMetrics();
         long time = System.currentTimeMillis();
         List<ScoredClassExpression> expressions = cel.findClassExpression(positive, negative, logStream,
                 iResultPrinter);
         time = System.currentTimeMillis() - time;
+        if ((metricsPrinter != null) && (metricsBefore != null)) {
+            metricsPrinter.printMetrics(name, cel.snapshotQueryMetrics().subtract(metricsBefore));
+        }
         String number_of_positive = Integer.toString(positive.size());
         String number_of_negative = Integer.toString(negative.size());
 
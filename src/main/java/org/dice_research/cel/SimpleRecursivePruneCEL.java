@@ -11,14 +11,15 @@ import java.util.stream.Stream;
 
 import org.apache.commons.collections.SetUtils;
 import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.CoverageBudget;
 import org.dice_research.cel.expression.Junction;
 import org.dice_research.cel.expression.NamedClass;
 import org.dice_research.cel.expression.ScoredCEComparatorForRefinement;
 import org.dice_research.cel.expression.ScoredClassExpression;
 import org.dice_research.cel.io.IntermediateResultPrinter;
 import org.dice_research.cel.refine.RefinementOperator;
-import org.dice_research.cel.refine.SuggestorBasedRefinementOperator;
 import org.dice_research.cel.refine.suggest.ExtendedSuggestor;
+import org.dice_research.cel.refine.suggest.LearningProblemHandle;
 import org.dice_research.cel.refine.suggest.SelectionScores;
 import org.dice_research.cel.score.ScoreCalculator;
 import org.dice_research.cel.score.ScoreCalculatorFactory;
@@ -48,7 +49,8 @@ public class SimpleRecursivePruneCEL extends PruneCEL {
     public List<ScoredClassExpression> findClassExpression(Collection<String> positive, Collection<String> negative,
             OutputStream logStream, IntermediateResultPrinter iResultPrinter, long timeToStop, int localMaxIterations) {
         LOGGER.info("Starting search with {} positives and {} negatives.", positive.size(), negative.size());
-        TopDoubleObjectCollection<ScoredClassExpression> topExpressions = new TopDoubleObjectCollection<>(10, false);
+        TopDoubleObjectCollection<ScoredClassExpression> topExpressions = new TopDoubleObjectCollection<>(
+                NUMBER_OF_TOP_EXPRESSIONS, false);
         Set<ScoredClassExpression> seenExpressions = new HashSet<>();
         Queue<ScoredClassExpression> queue = new PriorityQueue<ScoredClassExpression>(
                 new ScoredCEComparatorForRefinement());
@@ -57,9 +59,9 @@ public class SimpleRecursivePruneCEL extends PruneCEL {
 
         TopIntObjectCollection<ScoredClassExpression> mostPreciseExpressions = new TopIntObjectCollection<>(10, false);
 
-        RefinementOperator rho = new SuggestorBasedRefinementOperator(suggestor, logic, scoreCalculator, positive,
-                negative);
-        ((SuggestorBasedRefinementOperator) rho).setLogStream(logStream);
+        CoverageBudget coverageBudget = new CoverageBudget(maxCoverageMemory, new ScoredCEComparatorForRefinement());
+        RefinementOperator rho = createRefinementOperator(scoreCalculator, positive, negative, logStream,
+                coverageBudget);
 
         Set<String> subProblemKeys = new HashSet<>();
         Collection<ScoredClassExpression> newExpressions;
@@ -84,8 +86,10 @@ public class SimpleRecursivePruneCEL extends PruneCEL {
             nextBestExpression = queue.poll();
             LOGGER.info("Refining rScore={}, cScore={}, ce={}", nextBestExpression.getRefinementScore(),
                     nextBestExpression.getClassificationScore(), nextBestExpression.getClassExpression());
+            updateScoreBound(rho, topExpressions, scoreCalculator, positive.size(), negative.size());
             // Refine this expression
             newExpressions = rho.refine(nextBestExpression);
+            coverageBudget.release(nextBestExpression);
             // Check the expressions
             for (ScoredClassExpression newExpression : newExpressions) {
                 // If 1) we haven't seen this before AND 2a) we are configured to not further
@@ -96,11 +100,15 @@ public class SimpleRecursivePruneCEL extends PruneCEL {
                         || (nextBestExpression.getClassificationScore() < newExpression.getClassificationScore())
                         || (newExpression.isAddedEdge()))) {
                     queue.add(newExpression);
+                    coverageBudget.add(newExpression);
                     topExpressions.add(newExpression.getClassificationScore(), newExpression);
                     if ((getPrecision(newExpression) >= precisionThreshold) && (newExpression.getPosCount() > 1)
                             && (newExpression.getPosCount() < (positive.size() - 1))) {
                         mostPreciseExpressions.add(newExpression.getPosCount(), newExpression);
                     }
+                } else {
+                    // The expression won't be refined, i.e., its coverage is not needed
+                    newExpression.setCoverage(null);
                 }
             }
             if (mostPreciseExpressions.size() > 0) {
@@ -125,8 +133,12 @@ public class SimpleRecursivePruneCEL extends PruneCEL {
                         LOGGER.info(
                                 "Trying to solve the remaining sub problem recursively for the remaining {} positives ...",
                                 remainingPositives.size());
-                        List<ScoredClassExpression> subProblemResults = findClassExpression(remainingPositives,
-                                negative, logStream, iResultPrinter, timeToStop, MAX_ITERATIONS_FOR_RECURSION);
+                        List<ScoredClassExpression> subProblemResults;
+                        try (LearningProblemHandle subProblem = suggestor.beginProblem(remainingPositives,
+                                negative)) {
+                            subProblemResults = findClassExpression(remainingPositives, negative, logStream,
+                                    iResultPrinter, timeToStop, MAX_ITERATIONS_FOR_RECURSION);
+                        }
                         if (subProblemResults.size() > 1) {
                             ClassExpression newExpression = new Junction(false, mostPrecise.getClassExpression(),
                                     subProblemResults.get(0).getClassExpression());
@@ -0,0 +1,81 @@
+package org.dice_research.cel.expression;
+
+import java.util.Arrays;
+
+/**
+ * A visitor that creates a canonical String representation of a class
+ * expression. In contrast to {@link ClassExpression#toString()}, the
+ * representation does not depend on the order in which the children of a
+ * {@link Junction} are iterated. Hence, two expressions are equal if and only
+ * if their canonical forms are equal, which makes the canonical form suitable
+ * as (compact) key for caches.
+ *
+ * <p>
+ * This implementation is stateless and, hence, thread-safe.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class CanonicalFormCreator implements ClassExpressionVisitingCreator<String> {
+
+    /**
+     * Creates the canonical form of the given class expression.
+     *
+     * @param ce the class expression
+     * @return the canonical String representation of the given expression
+     */
+    public String createCanonicalForm(ClassExpression ce) {
+        return ce.accept(this);
+    }
+
+    @Override
+    public String visitNamedClass(NamedClass node) {
+        StringBuilder builder = new StringBuilder(node.getName().length() + 3);
+        if (node.isNegated()) {
+            builder.append('¬');
+        }
+        builder.append('<');
+        builder.append(node.getName());
+        builder.append('>');
+        return builder.toString();
+    }
+
+    @Override
+    public String visitJunction(Junction node) {
+        String[] children = new String[node.getChildren().size()];
+        int pos = 0;
+        for (ClassExpression child : node.getChildren()) {
+            children[pos] = child.accept(this);
+            ++pos;
+        }
+        // Sort the children to make the representation independent of their order
+        Arrays.sort(children);
+        StringBuilder builder = new StringBuilder();
+        builder.append('(');
+        builder.append(node.isConjunction() ? '⊓' : '⊔');
+        for (int i = 0; i < children.length; ++i) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(children[i]);
+        }
+        builder.append(')');
+        return builder.toString();
+    }
+
+    @Override
+    public String visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(node.isExists() ? '∃' : '∀');
+        if (node.isInverted()) {
+            builder.append('^');
+        }
+        builder.append('<');
+        builder.append(node.getRole());
+        builder.append(">.");
+        builder.append(node.getTailExpression().accept(this));
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.dice_research.cel.expression;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Limits the memory that is used by the {@link ExampleCoverage} instances of
+ * the expressions in a search queue. If the coverages of the added expressions
+ * exceed the budget, the coverages of the expressions with the lowest rank are
+ * dropped. An expression without coverage can still be refined, its coverage
+ * simply has to be retrieved again.
+ *
+ * <p>
+ * Released expressions are not removed from the priority queue right away,
+ * since this would need a linear search. Instead, they are removed from the
+ * set of accounted expressions and skipped when they are polled. The queue is
+ * compacted when it contains more released than accounted expressions.
+ * </p>
+ *
+ * <p>
+ * Note that this implementation is <b>not thread-safe</b>!
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class CoverageBudget {
+
+    /**
+     * The maximum number of bytes that the coverages may use.
+     */
+    protected long maxBytes;
+    /**
+     * The number of bytes that the coverages of the added expressions and the
+     * reserved coverages use.
+     */
+    protected long usedBytes = 0;
+    /**
+     * The number of bytes of coverages that are not attached to an expression of
+     * the queue and that cannot be dropped (see {@link #reserve(long)}).
+     */
+    protected long reservedBytes = 0;
+    /**
+     * The expressions with coverage, ordered from the lowest to the highest rank.
+     * May contain expressions that have already been released.
+     */
+    protected PriorityQueue<ScoredClassExpression> expressions;
+    /**
+     * The expressions whose coverages are currently accounted for.
+     */
+    protected Set<ScoredClassExpression> accounted = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * The number of coverages that have been dropped.
+     */
+    protected long droppedCoverages = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes   the maximum number of bytes that the coverages may use
+     * @param comparator the comparator of the search queue, i.e., the
+     *                   comparator that returns the best expression first
+     */
+    public CoverageBudget(long maxBytes, Comparator<ScoredClassExpression> comparator) {
+        super();
+        this.maxBytes = maxBytes;
+        this.expressions = new PriorityQueue<>(comparator.reversed());
+    }
+
+    /**
+     * Accounts for the coverage of the given expression (if it has one) and drops
+     * coverages of the lowest ranked expressions until the used memory fits into
+     * the budget again.
+     *
+     * @param expression an expression that has been added to the search queue
+     */
+    public void add(ScoredClassExpression expression) {
+        if ((expression.getCoverage() == null) || !accounted.add(expression)) {
+            return;
+        }
+        expressions.add(expression);
+        usedBytes += expression.getCoverage().getSizeInBytes();
+        dropCoverages();
+    }
+
+    /**
+     * Reserves memory for a coverage that is used during the whole search, e.g.,
+     * the coverage of an atom that is added to the refined expressions. Reserved
+     * memory is never freed. Instead, the coverages of the lowest ranked
+     * expressions are dropped until the used memory fits into the budget again.
+     *
+     * @param bytes the number of bytes that should be reserved
+     */
+    public void reserve(long bytes) {
+        reservedBytes += bytes;
+        usedBytes += bytes;
+        dropCoverages();
+    }
+
+    /**
+     * Drops the coverages of the lowest ranked expressions until the used memory
+     * fits into the budget or there are no coverages left that could be dropped.
+     */
+    protected void dropCoverages() {
+        ScoredClassExpression worst;
+        while ((usedBytes > maxBytes) && !expressions.isEmpty()) {
+            worst = expressions.poll();
+            // Skip expressions that have already been released
+            if (accounted.remove(worst)) {
+                usedBytes -= worst.getCoverage().getSizeInBytes();
+                worst.setCoverage(null);
+                ++droppedCoverages;
+            }
+        }
+    }
+
+    /**
+     * Releases the coverage of the given expression, e.g., after it has been
+     * removed from the search queue and refined.
+     *
+     * @param expression the expression that does not need its coverage anymore
+     */
+    public void release(ScoredClassExpression expression) {
+        if (accounted.remove(expression)) {
+            usedBytes -= expression.getCoverage().getSizeInBytes();
+            // Remove the released expressions from the queue once they dominate it
+            if (expressions.size() > 2 * accounted.size()) {
+                expressions.removeIf(e -> !accounted.contains(e));
+            }
+        }
+        expression.setCoverage(null);
+    }
+
+    /**
+     * @return the maximum number of bytes that the coverages may use
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of bytes that the coverages of the added expressions
+     *         and the reserved coverages currently use
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the number of bytes that have been reserved for coverages that
+     *         cannot be dropped
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * @return the number of coverages that have been dropped to stay within the
+     *         budget
+     */
+    public long getDroppedCoverages() {
+        return droppedCoverages;
+    }
+}
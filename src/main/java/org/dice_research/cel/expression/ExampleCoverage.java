@@ -0,0 +1,178 @@
+package org.dice_research.cel.expression;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The examples of a learning problem that are selected by a class expression.
+ * The positive and negative examples are represented as bitsets over their
+ * positions in the example collections of the learning problem. Hence, the
+ * coverage of a conjunction, disjunction or negation can be derived from the
+ * coverage of its parts without asking the knowledge base again. Instances of
+ * this class are immutable.
+ *
+ * <p>
+ * Like the counts of the suggestors, an example that occurs several times in
+ * the same example collection is only counted once.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ExampleCoverage {
+
+    /**
+     * Rough size of the objects that surround the two bitsets in bytes.
+     */
+    protected static final int OBJECT_OVERHEAD = 64;
+
+    protected final BitSet positives;
+    protected final BitSet negatives;
+    /**
+     * The examples that can be selected, i.e., the complement of an empty
+     * coverage.
+     */
+    protected final BitSet positiveUniverse;
+    protected final BitSet negativeUniverse;
+    protected final int posCount;
+    protected final int negCount;
+
+    protected ExampleCoverage(BitSet positives, BitSet negatives, BitSet positiveUniverse,
+            BitSet negativeUniverse) {
+        super();
+        this.positives = positives;
+        this.negatives = negatives;
+        this.positiveUniverse = positiveUniverse;
+        this.negativeUniverse = negativeUniverse;
+        this.posCount = positives.cardinality();
+        this.negCount = negatives.cardinality();
+    }
+
+    /**
+     * Creates the coverage of the given instances.
+     *
+     * @param instances the instances that are selected by a class expression
+     * @param positive  the positive examples of the learning problem
+     * @param negative  the negative examples of the learning problem
+     * @return the coverage of the instances
+     */
+    public static ExampleCoverage create(Set<String> instances, Collection<String> positive,
+            Collection<String> negative) {
+        BitSet positiveUniverse = new BitSet(positive.size());
+        BitSet positives = createBitSet(instances, positive, positiveUniverse);
+        BitSet negativeUniverse = new BitSet(negative.size());
+        BitSet negatives = createBitSet(instances, negative, negativeUniverse);
+        return new ExampleCoverage(positives, negatives, positiveUniverse, negativeUniverse);
+    }
+
+    protected static BitSet createBitSet(Set<String> instances, Collection<String> examples, BitSet universe) {
+        BitSet bits = new BitSet(examples.size());
+        Set<String> seen = new HashSet<>();
+        int id = 0;
+        for (String example : examples) {
+            // Duplicates are only counted once
+            if (seen.add(example)) {
+                universe.set(id);
+                if (instances.contains(example)) {
+                    bits.set(id);
+                }
+            }
+            ++id;
+        }
+        return bits;
+    }
+
+    /**
+     * @param other the coverage of another class expression of the same learning
+     *              problem
+     * @return the coverage of the conjunction of both class expressions
+     */
+    public ExampleCoverage and(ExampleCoverage other) {
+        BitSet pos = (BitSet) positives.clone();
+        pos.and(other.positives);
+        BitSet neg = (BitSet) negatives.clone();
+        neg.and(other.negatives);
+        return new ExampleCoverage(pos, neg, positiveUniverse, negativeUniverse);
+    }
+
+    /**
+     * @param other the coverage of another class expression of the same learning
+     *              problem
+     * @return the coverage of the disjunction of both class expressions
+     */
+    public ExampleCoverage or(ExampleCoverage other) {
+        BitSet pos = (BitSet) positives.clone();
+        pos.or(other.positives);
+        BitSet neg = (BitSet) negatives.clone();
+        neg.or(other.negatives);
+        return new ExampleCoverage(pos, neg, positiveUniverse, negativeUniverse);
+    }
+
+    /**
+     * @param other the coverage of another class expression of the same learning
+     *              problem
+     * @return the examples of this coverage that are not part of the other
+     *         coverage
+     */
+    public ExampleCoverage andNot(ExampleCoverage other) {
+        BitSet pos = (BitSet) positives.clone();
+        pos.andNot(other.positives);
+        BitSet neg = (BitSet) negatives.clone();
+        neg.andNot(other.negatives);
+        return new ExampleCoverage(pos, neg, positiveUniverse, negativeUniverse);
+    }
+
+    /**
+     * @return the coverage of the negation of the class expression
+     */
+    public ExampleCoverage negate() {
+        BitSet pos = (BitSet) positiveUniverse.clone();
+        pos.andNot(positives);
+        BitSet neg = (BitSet) negativeUniverse.clone();
+        neg.andNot(negatives);
+        return new ExampleCoverage(pos, neg, positiveUniverse, negativeUniverse);
+    }
+
+    /**
+     * @return the number of selected positive examples
+     */
+    public int getPosCount() {
+        return posCount;
+    }
+
+    /**
+     * @return the number of selected negative examples
+     */
+    public int getNegCount() {
+        return negCount;
+    }
+
+    /**
+     * @return {@code true} if no example is selected
+     */
+    public boolean isEmpty() {
+        return (posCount == 0) && (negCount == 0);
+    }
+
+    /**
+     * @return the approximate number of bytes this coverage occupies (the
+     *         universes are shared by all coverages of a learning problem and are
+     *         not counted)
+     */
+    public long getSizeInBytes() {
+        return OBJECT_OVERHEAD + ((positives.size() + negatives.size()) >> 3);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ExampleCoverage [posCount=");
+        builder.append(posCount);
+        builder.append(", negCount=");
+        builder.append(negCount);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package org.dice_research.cel.expression;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dictionary that maps IRIs (and other names of classes and roles) to dense
+ * int ids. Class expressions and suggestions store these ids instead of the
+ * Strings, i.e., every IRI is stored only once, and comparing or hashing
+ * expressions is based on int values. The Strings are only needed at the
+ * boundaries, e.g., when queries are created or expressions are printed.
+ *
+ * <p>
+ * The dictionary is shared by all expressions of the JVM (see
+ * {@link #getInstance()}) and ids are never removed. This class is
+ * thread-safe.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class IriDictionary {
+
+    /**
+     * The id that represents {@code null}.
+     */
+    public static final int NULL_ID = -1;
+
+    protected static final int INITIAL_CAPACITY = 1024;
+
+    private static final IriDictionary INSTANCE = new IriDictionary();
+
+    /**
+     * @return the dictionary that is used by the class expressions
+     */
+    public static IriDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    protected Map<String, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * The IRIs indexed by their ids. The array is replaced when it grows.
+     */
+    protected volatile String[] iris = new String[INITIAL_CAPACITY];
+    protected int size = 0;
+
+    /**
+     * Returns the id of the given IRI. If the IRI is not known, yet, a new id is
+     * assigned to it.
+     *
+     * @param iri the IRI (may be {@code null})
+     * @return the id of the IRI or {@link #NULL_ID} if the IRI is {@code null}
+     */
+    public int encode(String iri) {
+        if (iri == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(iri);
+        if (id == null) {
+            id = ids.computeIfAbsent(iri, this::add);
+        }
+        return id;
+    }
+
+    protected synchronized int add(String iri) {
+        if (size == iris.length) {
+            iris = Arrays.copyOf(iris, size * 2);
+        }
+        iris[size] = iri;
+        return size++;
+    }
+
+    /**
+     * @param iri the IRI
+     * @return the id of the IRI or {@link #NULL_ID} if the IRI is {@code null} or
+     *         has no id
+     */
+    public int getId(String iri) {
+        if (iri == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(iri);
+        return (id == null) ? NULL_ID : id;
+    }
+
+    /**
+     * @param id the id of an IRI
+     * @return the IRI or {@code null} if the id is {@link #NULL_ID}
+     */
+    public String decode(int id) {
+        if (id == NULL_ID) {
+            return null;
+        }
+        return iris[id];
+    }
+
+    /**
+     * @return the number of IRIs in the dictionary
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -7,7 +7,10 @@ public class NamedClass implements ClassExpression {
     public static final NamedClass TOP = new NamedClass("⊤");
     public static final NamedClass BOTTOM = new NamedClass("⊥");
 
-    protected String name;
+    /**
+     * The id of the name in the {@link IriDictionary}.
+     */
+    protected int nameId;
     protected boolean negated;
 
     public NamedClass(String name) {
@@ -20,7 +23,13 @@ public class NamedClass implements ClassExpression {
         if (name.isEmpty()) {
             throw new IllegalArgumentException("Got an empty name for a named class.");
         }
-        this.name = name;
+        this.nameId = IriDictionary.getInstance().encode(name);
+        this.negated = negated;
+    }
+
+    protected NamedClass(int nameId, boolean negated) {
+        super();
+        this.nameId = nameId;
         this.negated = negated;
     }
 
@@ -28,7 +37,7 @@ public class NamedClass implements ClassExpression {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        result = prime * result + nameId;
         result = prime * result + (negated ? 1231 : 1237);
         return result;
     }
@@ -42,10 +51,7 @@ public class NamedClass implements ClassExpression {
         if (getClass() != obj.getClass())
             return false;
         NamedClass other = (NamedClass) obj;
-        if (name == null) {
-            if (other.name != null)
-                return false;
-        } else if (!name.equals(other.name))
+        if (nameId != other.nameId)
             return false;
         if (negated != other.negated)
             return false;
@@ -55,9 +61,9 @@ public class NamedClass implements ClassExpression {
     @Override
     public String toString() {
         if (isNegated()) {
-            return '¬' + name;
+            return '¬' + getName();
         } else {
-            return name;
+            return getName();
         }
     }
 
@@ -66,12 +72,12 @@ public class NamedClass implements ClassExpression {
         if (isNegated()) {
             builder.append('¬');
         }
-        builder.append(name);
+        builder.append(getName());
     }
 
     @Override
     public ClassExpression deepCopy() {
-        return new NamedClass(this.name, this.negated);
+        return new NamedClass(this.nameId, this.negated);
     }
 
     @Override
@@ -88,14 +94,21 @@ public class NamedClass implements ClassExpression {
      * @return the name
      */
     public String getName() {
-        return name;
+        return IriDictionary.getInstance().decode(nameId);
+    }
+
+    /**
+     * @return the id of the name in the {@link IriDictionary}
+     */
+    public int getNameId() {
+        return nameId;
     }
 
     /**
      * @param name the name to set
      */
     public void setName(String name) {
-        this.name = name;
+        this.nameId = IriDictionary.getInstance().encode(name);
     }
 
     /**
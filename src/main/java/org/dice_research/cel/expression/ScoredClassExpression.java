@@ -12,6 +12,11 @@ public class ScoredClassExpression {
     protected int posCount;
     protected int negCount;
     protected boolean addedEdge = false;
+    /**
+     * The examples that are selected by the class expression or {@code null} if
+     * they are not known (or have been dropped to save memory).
+     */
+    protected ExampleCoverage coverage = null;
 
     public ScoredClassExpression(ClassExpression classExpression, double classificationScore, double refinementScore,
             int posCount, int negCount, boolean addedEdge) {
@@ -144,6 +149,22 @@ public class ScoredClassExpression {
         this.addedEdge = addedEdge;
     }
 
+    /**
+     * @return the examples that are selected by the class expression or
+     *         {@code null} if they are not known
+     */
+    public ExampleCoverage getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * @param coverage the examples that are selected by the class expression
+     *                 (or {@code null} to drop them)
+     */
+    public void setCoverage(ExampleCoverage coverage) {
+        this.coverage = coverage;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
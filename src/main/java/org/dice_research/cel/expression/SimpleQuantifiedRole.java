@@ -9,14 +9,26 @@ package org.dice_research.cel.expression;
 public class SimpleQuantifiedRole implements ClassExpression {
 
     private boolean isExists;
-    private String role;
+    /**
+     * The id of the role in the {@link IriDictionary}.
+     */
+    private int roleId;
     private boolean isInverted;
     private ClassExpression tailExpression;
 
     public SimpleQuantifiedRole(boolean isExists, String role, boolean isInverted, ClassExpression tailExpression) {
         super();
         this.isExists = isExists;
-        this.role = role;
+        this.roleId = IriDictionary.getInstance().encode(role);
+        this.isInverted = isInverted;
+        this.tailExpression = tailExpression;
+    }
+
+    protected SimpleQuantifiedRole(boolean isExists, int roleId, boolean isInverted,
+            ClassExpression tailExpression) {
+        super();
+        this.isExists = isExists;
+        this.roleId = roleId;
         this.isInverted = isInverted;
         this.tailExpression = tailExpression;
     }
@@ -53,14 +65,21 @@ public class SimpleQuantifiedRole implements ClassExpression {
      * @return the role
      */
     public String getRole() {
-        return role;
+        return IriDictionary.getInstance().decode(roleId);
+    }
+
+    /**
+     * @return the id of the role in the {@link IriDictionary}
+     */
+    public int getRoleId() {
+        return roleId;
     }
 
     /**
      * @param role the role to set
      */
     public void setRole(String role) {
-        this.role = role;
+        this.roleId = IriDictionary.getInstance().encode(role);
     }
 
     /**
@@ -84,7 +103,7 @@ public class SimpleQuantifiedRole implements ClassExpression {
         } else {
             builder.append('∀');
         }
-        builder.append(role);
+        builder.append(getRole());
         if (isInverted) {
             builder.append('-');
         }
@@ -102,7 +121,7 @@ public class SimpleQuantifiedRole implements ClassExpression {
         int result = 1;
         result = prime * result + (isExists ? 1231 : 1237);
         result = prime * result + (isInverted ? 1231 : 1237);
-        result = prime * result + ((role == null) ? 0 : role.hashCode());
+        result = prime * result + roleId;
         result = prime * result + ((tailExpression == null) ? 0 : tailExpression.hashCode());
         return result;
     }
@@ -120,10 +139,7 @@ public class SimpleQuantifiedRole implements ClassExpression {
             return false;
         if (isInverted != other.isInverted)
             return false;
-        if (role == null) {
-            if (other.role != null)
-                return false;
-        } else if (!role.equals(other.role))
+        if (roleId != other.roleId)
             return false;
         if (tailExpression == null) {
             if (other.tailExpression != null)
@@ -135,7 +151,7 @@ public class SimpleQuantifiedRole implements ClassExpression {
 
     @Override
     public ClassExpression deepCopy() {
-        return new SimpleQuantifiedRole(isExists, role, isInverted, tailExpression.deepCopy());
+        return new SimpleQuantifiedRole(isExists, roleId, isInverted, tailExpression.deepCopy());
     }
 
     @Override
@@ -0,0 +1,389 @@
+package org.dice_research.cel.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Writes an {@link InMemoryGraph} into a compact binary file and loads it
+ * again. A loaded snapshot memory-maps its node dictionary (see
+ * {@link MappedNodeTable}) and all adjacency and type arrays. Hence, a graph
+ * that has been converted once can be loaded without parsing RDF and without
+ * copying the arrays into the heap. Only the properties and the bitmaps of the
+ * graph are read into the heap.
+ *
+ * <p>
+ * The file starts with a header (magic number, version, number of sections,
+ * length of the longest term) followed by the offset and length of every
+ * section. All sections are aligned to 8 bytes. Note that a single int or long
+ * section can not be larger than 2 GiB since it is mapped as a single buffer.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class GraphSnapshot {
+
+    /**
+     * The file extension of graph snapshots.
+     */
+    public static final String FILE_EXTENSION = ".cgs";
+    /**
+     * "PCELSNAP" as ASCII bytes.
+     */
+    public static final long MAGIC = 0x5043454C534E4150L;
+    public static final int VERSION = 1;
+
+    protected static final int PROPERTIES = 0;
+    protected static final int TERM_OFFSETS = 1;
+    protected static final int TERMS = 2;
+    protected static final int SORTED_NODES = 3;
+    protected static final int OUT_OFFSETS = 4;
+    protected static final int OUT_PROPERTIES = 5;
+    protected static final int OUT_TARGETS = 6;
+    protected static final int IN_OFFSETS = 7;
+    protected static final int IN_PROPERTIES = 8;
+    protected static final int IN_SOURCES = 9;
+    protected static final int CLASS_NODES = 10;
+    protected static final int NODE_CLASSES = 11;
+    protected static final int TYPE_OFFSETS = 12;
+    protected static final int TYPES = 13;
+    protected static final int BITMAPS = 14;
+    protected static final int NUMBER_OF_SECTIONS = 15;
+
+    /**
+     * Magic number, version, number of sections, length of the longest term and
+     * padding.
+     */
+    protected static final int FIXED_HEADER_SIZE = Long.BYTES + 4 * Integer.BYTES;
+    protected static final int HEADER_SIZE = FIXED_HEADER_SIZE + NUMBER_OF_SECTIONS * 2 * Long.BYTES;
+    protected static final int ALIGNMENT = 8;
+    protected static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Writes the given graph to the given file.
+     *
+     * @param graph the graph that should be written
+     * @param file  the path of the snapshot file
+     * @throws IOException if the file can not be written
+     */
+    public static void write(InMemoryGraph graph, String file) throws IOException {
+        // Encode the dictionary
+        int numberOfNodes = graph.getNumberOfNodes();
+        if (((long) numberOfNodes + 1) * Long.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The graph has too many nodes for a snapshot.");
+        }
+        byte[][] terms = new byte[numberOfNodes][];
+        int maxTermLength = 0;
+        for (int i = 0; i < numberOfNodes; ++i) {
+            terms[i] = NodeTermCodec.encode(graph.getNode(i));
+            maxTermLength = Math.max(maxTermLength, terms[i].length);
+        }
+        int[] sortedNodes = sortByTerms(terms);
+
+        try (SectionWriter writer = new SectionWriter(FileChannel.open(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            writer.beginSection(PROPERTIES);
+            writer.putInt(graph.getNumberOfProperties());
+            for (int p = 0; p < graph.getNumberOfProperties(); ++p) {
+                byte[] bytes = graph.getProperty(p).getBytes(StandardCharsets.UTF_8);
+                writer.putInt(bytes.length);
+                writer.put(bytes);
+            }
+            writer.endSection(PROPERTIES);
+
+            writer.beginSection(TERM_OFFSETS);
+            long offset = 0;
+            for (int i = 0; i < numberOfNodes; ++i) {
+                writer.putLong(offset);
+                offset += terms[i].length;
+            }
+            writer.putLong(offset);
+            writer.endSection(TERM_OFFSETS);
+
+            writer.beginSection(TERMS);
+            for (int i = 0; i < numberOfNodes; ++i) {
+                writer.put(terms[i]);
+            }
+            writer.endSection(TERMS);
+            terms = null;
+
+            writer.putInts(SORTED_NODES, IntBuffer.wrap(sortedNodes));
+            writer.putInts(OUT_OFFSETS, graph.getOutOffsets());
+            writer.putInts(OUT_PROPERTIES, graph.getOutProperties());
+            writer.putInts(OUT_TARGETS, graph.getOutTargets());
+            writer.putInts(IN_OFFSETS, graph.getInOffsets());
+            writer.putInts(IN_PROPERTIES, graph.getInProperties());
+            writer.putInts(IN_SOURCES, graph.getInSources());
+            writer.putInts(CLASS_NODES, graph.getClassNodes());
+            writer.putInts(NODE_CLASSES, graph.getNodeClasses());
+            writer.putInts(TYPE_OFFSETS, graph.getTypeOffsets());
+            writer.putInts(TYPES, graph.getTypes());
+
+            writer.beginSection(BITMAPS);
+            for (int p = 0; p < graph.getNumberOfProperties(); ++p) {
+                writer.putBitmap(graph.getSubjects(p));
+                writer.putBitmap(graph.getObjects(p));
+            }
+            for (int c = 0; c < graph.getNumberOfClasses(); ++c) {
+                writer.putBitmap(graph.getClassExtension(c));
+            }
+            writer.putBitmap(graph.getDeclaredClasses());
+            writer.endSection(BITMAPS);
+
+            writer.writeHeader(maxTermLength);
+        }
+    }
+
+    /**
+     * @return the ids of the given terms sorted by the unsigned bytes of the
+     *         terms
+     */
+    protected static int[] sortByTerms(byte[][] terms) {
+        Integer[] ids = new Integer[terms.length];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = i;
+        }
+        Arrays.sort(ids, (a, b) -> Arrays.compareUnsigned(terms[a], terms[b]));
+        int[] sortedIds = new int[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            sortedIds[i] = ids[i];
+        }
+        return sortedIds;
+    }
+
+    /**
+     * Loads the graph from the given snapshot file.
+     *
+     * @param file the path of the snapshot file
+     * @return the loaded graph
+     * @throws UncheckedIOException     if the file can not be read
+     * @throws IllegalArgumentException if the file is not a graph snapshot
+     */
+    public static InMemoryGraph load(String file) {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, FIXED_HEADER_SIZE);
+            if (header.getLong() != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a graph snapshot.");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(
+                        "Got a graph snapshot with the unsupported version " + version + ".");
+            }
+            int numberOfSections = header.getInt();
+            if (numberOfSections != NUMBER_OF_SECTIONS) {
+                throw new IllegalArgumentException("Got a graph snapshot with " + numberOfSections
+                        + " sections while " + NUMBER_OF_SECTIONS + " are expected.");
+            }
+            int maxTermLength = header.getInt();
+            LongBuffer sectionTable = channel
+                    .map(MapMode.READ_ONLY, FIXED_HEADER_SIZE, HEADER_SIZE - FIXED_HEADER_SIZE).asLongBuffer();
+            long[] offsets = new long[NUMBER_OF_SECTIONS];
+            long[] lengths = new long[NUMBER_OF_SECTIONS];
+            for (int i = 0; i < NUMBER_OF_SECTIONS; ++i) {
+                offsets[i] = sectionTable.get();
+                lengths[i] = sectionTable.get();
+            }
+
+            ByteBuffer buffer = channel.map(MapMode.READ_ONLY, offsets[PROPERTIES], lengths[PROPERTIES]);
+            String[] properties = new String[buffer.getInt()];
+            Map<String, Integer> propertyIds = new HashMap<>();
+            for (int p = 0; p < properties.length; ++p) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                properties[p] = new String(bytes, StandardCharsets.UTF_8);
+                propertyIds.put(properties[p], p);
+            }
+
+            ByteBuffer[] terms = new ByteBuffer[(int) ((lengths[TERMS] + MappedNodeTable.CHUNK_SIZE - 1)
+                    / MappedNodeTable.CHUNK_SIZE)];
+            long chunkStart;
+            for (int i = 0; i < terms.length; ++i) {
+                chunkStart = i * MappedNodeTable.CHUNK_SIZE;
+                terms[i] = channel.map(MapMode.READ_ONLY, offsets[TERMS] + chunkStart,
+                        Math.min(lengths[TERMS] - chunkStart, MappedNodeTable.CHUNK_SIZE + maxTermLength));
+            }
+            NodeTable nodes = new MappedNodeTable(
+                    channel.map(MapMode.READ_ONLY, offsets[TERM_OFFSETS], lengths[TERM_OFFSETS]).asLongBuffer(),
+                    terms, mapInts(channel, offsets, lengths, SORTED_NODES));
+
+            buffer = channel.map(MapMode.READ_ONLY, offsets[BITMAPS], lengths[BITMAPS]);
+            RoaringBitmap[] subjects = new RoaringBitmap[properties.length];
+            RoaringBitmap[] objects = new RoaringBitmap[properties.length];
+            for (int p = 0; p < properties.length; ++p) {
+                subjects[p] = readBitmap(buffer);
+                objects[p] = readBitmap(buffer);
+            }
+            IntBuffer classNodes = mapInts(channel, offsets, lengths, CLASS_NODES);
+            RoaringBitmap[] classExtensions = new RoaringBitmap[classNodes.limit()];
+            for (int c = 0; c < classExtensions.length; ++c) {
+                classExtensions[c] = readBitmap(buffer);
+            }
+            RoaringBitmap declaredClasses = readBitmap(buffer);
+
+            return new InMemoryGraph(nodes, properties, propertyIds, mapInts(channel, offsets, lengths, OUT_OFFSETS),
+                    mapInts(channel, offsets, lengths, OUT_PROPERTIES), mapInts(channel, offsets, lengths, OUT_TARGETS),
+                    mapInts(channel, offsets, lengths, IN_OFFSETS), mapInts(channel, offsets, lengths, IN_PROPERTIES),
+                    mapInts(channel, offsets, lengths, IN_SOURCES), subjects, objects, classNodes,
+                    mapInts(channel, offsets, lengths, NODE_CLASSES), classExtensions,
+                    mapInts(channel, offsets, lengths, TYPE_OFFSETS), mapInts(channel, offsets, lengths, TYPES),
+                    declaredClasses);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't load graph snapshot " + file + ".", e);
+        }
+    }
+
+    protected static IntBuffer mapInts(FileChannel channel, long[] offsets, long[] lengths, int section)
+            throws IOException {
+        return channel.map(MapMode.READ_ONLY, offsets[section], lengths[section]).asIntBuffer();
+    }
+
+    protected static RoaringBitmap readBitmap(ByteBuffer buffer) throws IOException {
+        int size = buffer.getInt();
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.deserialize(buffer.slice(buffer.position(), size));
+        buffer.position(buffer.position() + size);
+        return bitmap;
+    }
+
+    /**
+     * Writes the sections of a snapshot through a buffer into a file channel and
+     * keeps track of their positions.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class SectionWriter implements Closeable {
+
+        protected FileChannel channel;
+        protected ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        /**
+         * The position in the file at which the content of the buffer starts.
+         */
+        protected long bufferStart = HEADER_SIZE;
+        protected long[] offsets = new long[NUMBER_OF_SECTIONS];
+        protected long[] lengths = new long[NUMBER_OF_SECTIONS];
+
+        public SectionWriter(FileChannel channel) {
+            super();
+            this.channel = channel;
+        }
+
+        public long position() {
+            return bufferStart + buffer.position();
+        }
+
+        public void beginSection(int section) throws IOException {
+            // Pad the previous section
+            while ((position() % ALIGNMENT) != 0) {
+                ensureCapacity(1);
+                buffer.put((byte) 0);
+            }
+            offsets[section] = position();
+        }
+
+        public void endSection(int section) throws IOException {
+            lengths[section] = position() - offsets[section];
+        }
+
+        public void putInt(int value) throws IOException {
+            ensureCapacity(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        public void putLong(long value) throws IOException {
+            ensureCapacity(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        public void put(byte[] bytes) throws IOException {
+            int written = 0;
+            int length;
+            while (written < bytes.length) {
+                ensureCapacity(1);
+                length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        /**
+         * Writes the given values as a single section.
+         */
+        public void putInts(int section, IntBuffer values) throws IOException {
+            if ((long) values.limit() * Integer.BYTES > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The graph is too large for a snapshot.");
+            }
+            beginSection(section);
+            for (int i = 0; i < values.limit(); ++i) {
+                putInt(values.get(i));
+            }
+            endSection(section);
+        }
+
+        public void putBitmap(RoaringBitmap bitmap) throws IOException {
+            int size = bitmap.serializedSizeInBytes();
+            ensureCapacity(Integer.BYTES + size);
+            buffer.putInt(size);
+            bitmap.serialize(buffer);
+        }
+
+        protected void ensureCapacity(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+                if (buffer.capacity() < bytes) {
+                    buffer = ByteBuffer.allocate(bytes);
+                }
+            }
+        }
+
+        protected void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bufferStart += channel.write(buffer, bufferStart);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Flushes the sections and writes the header in front of them.
+         */
+        public void writeHeader(int maxTermLength) throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(NUMBER_OF_SECTIONS);
+            header.putInt(maxTermLength);
+            header.putInt(0);
+            for (int i = 0; i < NUMBER_OF_SECTIONS; ++i) {
+                header.putLong(offsets[i]);
+                header.putLong(lengths[i]);
+            }
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
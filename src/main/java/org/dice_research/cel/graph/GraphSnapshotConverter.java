@@ -0,0 +1,36 @@
+package org.dice_research.cel.graph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts an RDF file into a {@link GraphSnapshot} that can be loaded with
+ * {@link InMemoryGraph#load(String)} without parsing the RDF file again.
+ * N-Triples and N-Quads files are parsed with the {@link ParallelGraphLoader}.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class GraphSnapshotConverter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphSnapshotConverter.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: GraphSnapshotConverter <rdf-file> <snapshot-file>");
+            return;
+        }
+        String output = args[1];
+        if (!output.endsWith(GraphSnapshot.FILE_EXTENSION)) {
+            LOGGER.warn("The snapshot file does not end with {} and won't be recognized by InMemoryGraph.load.",
+                    GraphSnapshot.FILE_EXTENSION);
+        }
+        long start = System.currentTimeMillis();
+        InMemoryGraph graph = new ParallelGraphLoader().load(args[0]);
+        LOGGER.info("Loaded {} nodes and {} edges in {}ms.", graph.getNumberOfNodes(), graph.getNumberOfEdges(),
+                System.currentTimeMillis() - start);
+        start = System.currentTimeMillis();
+        GraphSnapshot.write(graph, output);
+        LOGGER.info("Wrote snapshot {} in {}ms.", output, System.currentTimeMillis() - start);
+    }
+}
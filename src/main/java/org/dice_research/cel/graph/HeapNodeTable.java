@@ -0,0 +1,45 @@
+package org.dice_research.cel.graph;
+
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * A {@link NodeTable} that keeps all nodes on the heap.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class HeapNodeTable implements NodeTable {
+
+    /**
+     * The nodes indexed by their ids.
+     */
+    protected Node[] nodes;
+    /**
+     * The mapping of nodes to their ids.
+     */
+    protected Map<Node, Integer> nodeIds;
+
+    public HeapNodeTable(Node[] nodes, Map<Node, Integer> nodeIds) {
+        super();
+        this.nodes = nodes;
+        this.nodeIds = nodeIds;
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+
+    @Override
+    public Node getNode(int id) {
+        return nodes[id];
+    }
+
+    @Override
+    public int getId(Node node) {
+        Integer id = nodeIds.get(node);
+        return (id == null) ? -1 : id;
+    }
+}
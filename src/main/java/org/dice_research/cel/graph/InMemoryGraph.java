@@ -0,0 +1,431 @@
+package org.dice_research.cel.graph;
+
+import java.nio.IntBuffer;
+import java.util.Map;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RDFParser;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * An immutable, in-memory representation of an RDF graph that is optimized for
+ * the evaluation of class expressions with bitset operations. All nodes
+ * (IRIs, blank nodes and literals) get dense ids. The edges are stored in a
+ * compressed sparse row (CSR) layout in both directions, i.e., for every node
+ * the outgoing edges are sorted by property and target and the incoming edges
+ * are sorted by property and source. In addition, the graph keeps
+ * {@link RoaringBitmap} instances with the extensions of all classes and the
+ * subjects and objects of all properties.
+ *
+ * <p>
+ * Every object of an {@code rdf:type} triple and every node that is declared as
+ * {@code owl:Class} is a class with a dense class id. Note that the
+ * {@code rdf:type} triples are kept as edges as well.
+ * </p>
+ *
+ * <p>
+ * Instances are created with an {@link InMemoryGraphBuilder} (see
+ * {@link #load(String)} and {@link #create(Model)}) or are loaded from a
+ * {@link GraphSnapshot}. In the latter case, the nodes and the int buffers of
+ * the graph are memory-mapped. The buffers that are returned by the getters of
+ * this class must not be changed.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class InMemoryGraph {
+
+    /**
+     * The nodes of the graph and their ids.
+     */
+    protected NodeTable nodes;
+    /**
+     * The IRIs of the properties indexed by their ids.
+     */
+    protected String[] properties;
+    /**
+     * The mapping of property IRIs to their ids.
+     */
+    protected Map<String, Integer> propertyIds;
+    /**
+     * The offsets of the outgoing edges of the single nodes (length = number of
+     * nodes + 1).
+     */
+    protected IntBuffer outOffsets;
+    protected IntBuffer outProperties;
+    protected IntBuffer outTargets;
+    /**
+     * The offsets of the incoming edges of the single nodes (length = number of
+     * nodes + 1).
+     */
+    protected IntBuffer inOffsets;
+    protected IntBuffer inProperties;
+    protected IntBuffer inSources;
+    /**
+     * The subjects of the single properties.
+     */
+    protected RoaringBitmap[] subjects;
+    /**
+     * The objects of the single properties.
+     */
+    protected RoaringBitmap[] objects;
+    /**
+     * The node ids of the classes indexed by their class ids.
+     */
+    protected IntBuffer classNodes;
+    /**
+     * The class ids of the nodes or -1 if a node is not a class.
+     */
+    protected IntBuffer nodeClasses;
+    /**
+     * The instances of the single classes.
+     */
+    protected RoaringBitmap[] classExtensions;
+    /**
+     * The offsets of the class ids of the single nodes in {@link #types} (length
+     * = number of nodes + 1).
+     */
+    protected IntBuffer typeOffsets;
+    /**
+     * The ids of the classes of the nodes sorted by node.
+     */
+    protected IntBuffer types;
+    /**
+     * The ids of the classes that are declared as {@code owl:Class}.
+     */
+    protected RoaringBitmap declaredClasses;
+
+    protected InMemoryGraph(NodeTable nodes, String[] properties, Map<String, Integer> propertyIds,
+            IntBuffer outOffsets, IntBuffer outProperties, IntBuffer outTargets, IntBuffer inOffsets,
+            IntBuffer inProperties, IntBuffer inSources, RoaringBitmap[] subjects, RoaringBitmap[] objects,
+            IntBuffer classNodes, IntBuffer nodeClasses, RoaringBitmap[] classExtensions, IntBuffer typeOffsets,
+            IntBuffer types, RoaringBitmap declaredClasses) {
+        super();
+        this.nodes = nodes;
+        this.properties = properties;
+        this.propertyIds = propertyIds;
+        this.outOffsets = outOffsets;
+        this.outProperties = outProperties;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inProperties = inProperties;
+        this.inSources = inSources;
+        this.subjects = subjects;
+        this.objects = objects;
+        this.classNodes = classNodes;
+        this.nodeClasses = nodeClasses;
+        this.classExtensions = classExtensions;
+        this.typeOffsets = typeOffsets;
+        this.types = types;
+        this.declaredClasses = declaredClasses;
+    }
+
+    /**
+     * Loads the graph from the given RDF file. The language of the file is
+     * derived from its name. Files with the {@link GraphSnapshot#FILE_EXTENSION}
+     * are loaded as {@link GraphSnapshot}.
+     *
+     * @param file the path or URL of the file
+     * @return the loaded graph
+     */
+    public static InMemoryGraph load(String file) {
+        if (file.endsWith(GraphSnapshot.FILE_EXTENSION)) {
+            return GraphSnapshot.load(file);
+        }
+        InMemoryGraphBuilder builder = new InMemoryGraphBuilder();
+        RDFParser.source(file).parse(builder);
+        return builder.build();
+    }
+
+    /**
+     * Creates a graph with the triples of the given model.
+     *
+     * @param model the model that should be copied
+     * @return the created graph
+     */
+    public static InMemoryGraph create(Model model) {
+        InMemoryGraphBuilder builder = new InMemoryGraphBuilder();
+        model.getGraph().find().forEachRemaining(builder::triple);
+        return builder.build();
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int getNumberOfNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the number of (distinct) triples
+     */
+    public int getNumberOfEdges() {
+        return outTargets.limit();
+    }
+
+    /**
+     * @param node the node
+     * @return the id of the node or -1 if the graph does not contain it
+     */
+    public int getNodeId(Node node) {
+        return nodes.getId(node);
+    }
+
+    /**
+     * @param iri the IRI of a node
+     * @return the id of the node or -1 if the graph does not contain it
+     */
+    public int getNodeId(String iri) {
+        return getNodeId(NodeFactory.createURI(iri));
+    }
+
+    /**
+     * @param id the id of a node
+     * @return the node
+     */
+    public Node getNode(int id) {
+        return nodes.getNode(id);
+    }
+
+    /**
+     * @return the number of properties
+     */
+    public int getNumberOfProperties() {
+        return properties.length;
+    }
+
+    /**
+     * @param iri the IRI of a property
+     * @return the id of the property or -1 if the graph does not contain it
+     */
+    public int getPropertyId(String iri) {
+        Integer id = propertyIds.get(iri);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * @param id the id of a property
+     * @return the IRI of the property
+     */
+    public String getProperty(int id) {
+        return properties[id];
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int getNumberOfClasses() {
+        return classNodes.limit();
+    }
+
+    /**
+     * @param iri the IRI of a class
+     * @return the class id or -1 if the graph does not contain such a class
+     */
+    public int getClassId(String iri) {
+        int nodeId = getNodeId(iri);
+        return (nodeId < 0) ? -1 : nodeClasses.get(nodeId);
+    }
+
+    /**
+     * @param classId the id of a class
+     * @return the node of the class
+     */
+    public Node getClassNode(int classId) {
+        return nodes.getNode(classNodes.get(classId));
+    }
+
+    /**
+     * @param classId the id of a class
+     * @return the instances of the class
+     */
+    public RoaringBitmap getClassExtension(int classId) {
+        return classExtensions[classId];
+    }
+
+    /**
+     * @param classId the id of a class
+     * @return {@code true} if the class is declared as {@code owl:Class}
+     */
+    public boolean isDeclaredClass(int classId) {
+        return declaredClasses.contains(classId);
+    }
+
+    /**
+     * @param property the id of a property
+     * @return the nodes that have an outgoing edge with the given property
+     */
+    public RoaringBitmap getSubjects(int property) {
+        return subjects[property];
+    }
+
+    /**
+     * @param property the id of a property
+     * @return the nodes that have an incoming edge with the given property
+     */
+    public RoaringBitmap getObjects(int property) {
+        return objects[property];
+    }
+
+    /**
+     * Determines the neighbors of the given nodes that are connected via the
+     * given property.
+     *
+     * @param nodes    the nodes
+     * @param property the id of the property
+     * @param inverted {@code false} if the targets of the outgoing edges should
+     *                 be returned or {@code true} if the sources of the incoming
+     *                 edges should be returned
+     * @return the neighbors
+     */
+    public RoaringBitmap getNeighbors(RoaringBitmap nodes, int property, boolean inverted) {
+        IntBuffer offsets = inverted ? inOffsets : outOffsets;
+        IntBuffer edgeProperties = inverted ? inProperties : outProperties;
+        IntBuffer neighbors = inverted ? inSources : outTargets;
+        int numberOfNodes = getNumberOfNodes();
+        RoaringBitmap result = new RoaringBitmap();
+        IntIterator iterator = nodes.getIntIterator();
+        int node;
+        int start;
+        int end;
+        while (iterator.hasNext()) {
+            node = iterator.next();
+            // Nodes that are not part of the graph (e.g., unknown examples) do not have
+            // edges
+            if (node >= numberOfNodes) {
+                break;
+            }
+            start = findFirst(edgeProperties, offsets.get(node), offsets.get(node + 1), property);
+            end = findFirst(edgeProperties, start, offsets.get(node + 1), property + 1);
+            if (start < end) {
+                addAll(result, neighbors, start, end);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the values of the given range to the given bitmap.
+     */
+    protected static void addAll(RoaringBitmap bitmap, IntBuffer values, int from, int to) {
+        if (values.hasArray()) {
+            bitmap.addN(values.array(), values.arrayOffset() + from, to - from);
+        } else {
+            for (int i = from; i < to; ++i) {
+                bitmap.add(values.get(i));
+            }
+        }
+    }
+
+    /**
+     * Determines the first position within the given sorted range that has a
+     * value &gt;= the given value.
+     */
+    protected static int findFirst(IntBuffer values, int from, int to, int value) {
+        int low = from;
+        int high = to;
+        int middle;
+        while (low < high) {
+            middle = (low + high) >>> 1;
+            if (values.get(middle) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the offsets of the outgoing edges of the single nodes in
+     *         {@link #getOutProperties()}
+     */
+    public IntBuffer getOutOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * @return the properties of the outgoing edges sorted by node and property
+     */
+    public IntBuffer getOutProperties() {
+        return outProperties;
+    }
+
+    /**
+     * @return the targets of the outgoing edges sorted by node, property and
+     *         target
+     */
+    public IntBuffer getOutTargets() {
+        return outTargets;
+    }
+
+    /**
+     * @return the offsets of the incoming edges of the single nodes in
+     *         {@link #getInProperties()}
+     */
+    public IntBuffer getInOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * @return the properties of the incoming edges sorted by node and property
+     */
+    public IntBuffer getInProperties() {
+        return inProperties;
+    }
+
+    /**
+     * @return the sources of the incoming edges sorted by node, property and
+     *         source
+     */
+    public IntBuffer getInSources() {
+        return inSources;
+    }
+
+    /**
+     * @return the offsets of the classes of the single nodes in
+     *         {@link #getTypes()}
+     */
+    public IntBuffer getTypeOffsets() {
+        return typeOffsets;
+    }
+
+    /**
+     * @return the ids of the classes of the nodes sorted by node
+     */
+    public IntBuffer getTypes() {
+        return types;
+    }
+
+    /**
+     * @return the node ids of the classes indexed by their class ids
+     */
+    public IntBuffer getClassNodes() {
+        return classNodes;
+    }
+
+    /**
+     * @return the class ids of the nodes or -1 if a node is not a class
+     */
+    public IntBuffer getNodeClasses() {
+        return nodeClasses;
+    }
+
+    /**
+     * @return the ids of the classes that are declared as {@code owl:Class}
+     */
+    public RoaringBitmap getDeclaredClasses() {
+        return declaredClasses;
+    }
+
+    /**
+     * @return the nodes of the graph
+     */
+    public NodeTable getNodeTable() {
+        return nodes;
+    }
+}
@@ -0,0 +1,344 @@
+package org.dice_research.cel.graph;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Collects triples and creates an {@link InMemoryGraph} from them. The builder
+ * can be used as {@link org.apache.jena.riot.system.StreamRDF} to load a graph
+ * directly from a parser. Quads are added to the graph as triples, i.e., the
+ * created graph is the union of all graphs. Duplicate triples are removed when
+ * the graph is built.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class InMemoryGraphBuilder extends StreamRDFBase {
+
+    protected static final int INITIAL_CAPACITY = 1024;
+
+    protected Map<Node, Integer> nodeIds = new HashMap<>();
+    protected List<Node> nodes = new ArrayList<>();
+    protected Map<String, Integer> propertyIds = new HashMap<>();
+    protected List<String> properties = new ArrayList<>();
+    protected int[] subjectIds = new int[INITIAL_CAPACITY];
+    protected int[] propertyIdsOfTriples = new int[INITIAL_CAPACITY];
+    protected int[] objectIds = new int[INITIAL_CAPACITY];
+    protected int numberOfTriples = 0;
+    /**
+     * Flag that enables the sorting of the adjacency lists in parallel.
+     */
+    protected boolean parallel = false;
+
+    @Override
+    public void triple(Triple triple) {
+        add(triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        add(quad.getSubject(), quad.getPredicate(), quad.getObject());
+    }
+
+    /**
+     * Adds the given triple.
+     *
+     * @param subject   the subject of the triple
+     * @param predicate the predicate of the triple
+     * @param object    the object of the triple
+     */
+    public void add(Node subject, Node predicate, Node object) {
+        if (numberOfTriples == subjectIds.length) {
+            int capacity = subjectIds.length * 2;
+            subjectIds = Arrays.copyOf(subjectIds, capacity);
+            propertyIdsOfTriples = Arrays.copyOf(propertyIdsOfTriples, capacity);
+            objectIds = Arrays.copyOf(objectIds, capacity);
+        }
+        subjectIds[numberOfTriples] = getNodeId(subject);
+        propertyIdsOfTriples[numberOfTriples] = getPropertyId(predicate.getURI());
+        objectIds[numberOfTriples] = getNodeId(object);
+        ++numberOfTriples;
+    }
+
+    /**
+     * Adds the given triples whose nodes and properties have already been
+     * encoded (see {@link #setDictionary(Map, List, Map, List)}).
+     *
+     * @param subjects      the ids of the subjects
+     * @param predicates    the ids of the properties
+     * @param objects       the ids of the objects
+     * @param numberOfAdded the number of triples that should be added
+     */
+    protected void addEncoded(int[] subjects, int[] predicates, int[] objects, int numberOfAdded) {
+        if (numberOfTriples + numberOfAdded > subjectIds.length) {
+            int capacity = Math.max(subjectIds.length * 2, numberOfTriples + numberOfAdded);
+            subjectIds = Arrays.copyOf(subjectIds, capacity);
+            propertyIdsOfTriples = Arrays.copyOf(propertyIdsOfTriples, capacity);
+            objectIds = Arrays.copyOf(objectIds, capacity);
+        }
+        System.arraycopy(subjects, 0, subjectIds, numberOfTriples, numberOfAdded);
+        System.arraycopy(predicates, 0, propertyIdsOfTriples, numberOfTriples, numberOfAdded);
+        System.arraycopy(objects, 0, objectIds, numberOfTriples, numberOfAdded);
+        numberOfTriples += numberOfAdded;
+    }
+
+    /**
+     * Replaces the dictionary of the builder, e.g., with a dictionary that has
+     * been filled by several threads.
+     *
+     * @param nodeIds     the mapping of nodes to their ids
+     * @param nodes       the nodes indexed by their ids
+     * @param propertyIds the mapping of property IRIs to their ids
+     * @param properties  the property IRIs indexed by their ids
+     */
+    protected void setDictionary(Map<Node, Integer> nodeIds, List<Node> nodes, Map<String, Integer> propertyIds,
+            List<String> properties) {
+        this.nodeIds = nodeIds;
+        this.nodes = nodes;
+        this.propertyIds = propertyIds;
+        this.properties = properties;
+    }
+
+    protected int getNodeId(Node node) {
+        Integer id = nodeIds.get(node);
+        if (id == null) {
+            id = nodes.size();
+            nodeIds.put(node, id);
+            nodes.add(node);
+        }
+        return id;
+    }
+
+    protected int getPropertyId(String iri) {
+        Integer id = propertyIds.get(iri);
+        if (id == null) {
+            id = properties.size();
+            propertyIds.put(iri, id);
+            properties.add(iri);
+        }
+        return id;
+    }
+
+    /**
+     * @return the number of triples that have been added so far (including
+     *         duplicates)
+     */
+    public int getNumberOfTriples() {
+        return numberOfTriples;
+    }
+
+    /**
+     * @return whether the adjacency lists are sorted in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @param parallel whether the adjacency lists should be sorted in parallel
+     *                 when the graph is built
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Creates the graph from the triples that have been added so far.
+     *
+     * @return the created graph
+     */
+    public InMemoryGraph build() {
+        int numberOfNodes = nodes.size();
+        int numberOfProperties = properties.size();
+        // Outgoing edges sorted by subject, property and object
+        int[] outOffsets = new int[numberOfNodes + 1];
+        long[] outEdges = createSortedEdges(subjectIds, propertyIdsOfTriples, objectIds, numberOfTriples,
+                outOffsets, parallel);
+        int[] outProperties = new int[outEdges.length];
+        int[] outTargets = new int[outEdges.length];
+        // Derive the incoming edges from the (deduplicated) outgoing edges
+        int[] sources = new int[outEdges.length];
+        for (int node = 0; node < numberOfNodes; ++node) {
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; ++i) {
+                outProperties[i] = (int) (outEdges[i] >>> 32);
+                outTargets[i] = (int) outEdges[i];
+                sources[i] = node;
+            }
+        }
+        outEdges = null;
+        int[] inOffsets = new int[numberOfNodes + 1];
+        long[] inEdges = createSortedEdges(outTargets, outProperties, sources, sources.length, inOffsets,
+                parallel);
+        sources = null;
+        int[] inProperties = new int[inEdges.length];
+        int[] inSources = new int[inEdges.length];
+        for (int i = 0; i < inEdges.length; ++i) {
+            inProperties[i] = (int) (inEdges[i] >>> 32);
+            inSources[i] = (int) inEdges[i];
+        }
+        inEdges = null;
+
+        RoaringBitmap[] subjects = new RoaringBitmap[numberOfProperties];
+        RoaringBitmap[] objects = new RoaringBitmap[numberOfProperties];
+        for (int p = 0; p < numberOfProperties; ++p) {
+            subjects[p] = new RoaringBitmap();
+            objects[p] = new RoaringBitmap();
+        }
+        for (int node = 0; node < numberOfNodes; ++node) {
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; ++i) {
+                subjects[outProperties[i]].add(node);
+            }
+            for (int i = inOffsets[node]; i < inOffsets[node + 1]; ++i) {
+                objects[inProperties[i]].add(node);
+            }
+        }
+
+        // Determine the classes
+        Integer typeProperty = propertyIds.get(RDF.type.getURI());
+        Integer owlClassNode = nodeIds.get(NodeFactory.createURI(OWL.Class.getURI()));
+        int[] nodeClasses = new int[numberOfNodes];
+        Arrays.fill(nodeClasses, -1);
+        List<Integer> classNodeList = new ArrayList<>();
+        RoaringBitmap declaredClasses = new RoaringBitmap();
+        if (typeProperty != null) {
+            for (int node = 0; node < numberOfNodes; ++node) {
+                for (int i = outOffsets[node]; i < outOffsets[node + 1]; ++i) {
+                    if (outProperties[i] == typeProperty) {
+                        addClass(outTargets[i], nodeClasses, classNodeList);
+                        if ((owlClassNode != null) && (outTargets[i] == owlClassNode)) {
+                            declaredClasses.add(addClass(node, nodeClasses, classNodeList));
+                        }
+                    }
+                }
+            }
+        }
+        int[] classNodes = new int[classNodeList.size()];
+        for (int i = 0; i < classNodes.length; ++i) {
+            classNodes[i] = classNodeList.get(i);
+        }
+        RoaringBitmap[] classExtensions = new RoaringBitmap[classNodes.length];
+        for (int c = 0; c < classNodes.length; ++c) {
+            classExtensions[c] = new RoaringBitmap();
+        }
+        int[] typeOffsets = new int[numberOfNodes + 1];
+        int numberOfTypes = 0;
+        if (typeProperty != null) {
+            for (int node = 0; node < numberOfNodes; ++node) {
+                for (int i = outOffsets[node]; i < outOffsets[node + 1]; ++i) {
+                    if (outProperties[i] == typeProperty) {
+                        ++numberOfTypes;
+                    }
+                }
+            }
+        }
+        int[] types = new int[numberOfTypes];
+        int pos = 0;
+        for (int node = 0; node < numberOfNodes; ++node) {
+            typeOffsets[node] = pos;
+            if (typeProperty != null) {
+                for (int i = outOffsets[node]; i < outOffsets[node + 1]; ++i) {
+                    if (outProperties[i] == typeProperty) {
+                        types[pos] = nodeClasses[outTargets[i]];
+                        classExtensions[types[pos]].add(node);
+                        ++pos;
+                    }
+                }
+            }
+        }
+        typeOffsets[numberOfNodes] = pos;
+        for (RoaringBitmap bitmap : subjects) {
+            bitmap.runOptimize();
+        }
+        for (RoaringBitmap bitmap : objects) {
+            bitmap.runOptimize();
+        }
+        for (RoaringBitmap bitmap : classExtensions) {
+            bitmap.runOptimize();
+        }
+
+        return new InMemoryGraph(new HeapNodeTable(nodes.toArray(new Node[numberOfNodes]), nodeIds),
+                properties.toArray(new String[numberOfProperties]), propertyIds, IntBuffer.wrap(outOffsets),
+                IntBuffer.wrap(outProperties), IntBuffer.wrap(outTargets), IntBuffer.wrap(inOffsets),
+                IntBuffer.wrap(inProperties), IntBuffer.wrap(inSources), subjects, objects, IntBuffer.wrap(classNodes),
+                IntBuffer.wrap(nodeClasses), classExtensions, IntBuffer.wrap(typeOffsets), IntBuffer.wrap(types),
+                declaredClasses);
+    }
+
+    protected static int addClass(int node, int[] nodeClasses, List<Integer> classNodeList) {
+        if (nodeClasses[node] < 0) {
+            nodeClasses[node] = classNodeList.size();
+            classNodeList.add(node);
+        }
+        return nodeClasses[node];
+    }
+
+    /**
+     * Groups the given edges by their keys and sorts the edges of every key by
+     * their property and target. Duplicate edges are removed.
+     *
+     * @param keys            the node ids by which the edges are grouped
+     * @param edgeProperties  the property ids of the edges
+     * @param targets         the node ids of the other ends of the edges
+     * @param numberOfEdges   the number of edges
+     * @param offsets         the array to which the offsets of the single keys
+     *                        will be written (length = number of nodes + 1)
+     * @param parallel        whether the edges of the single keys should be
+     *                        sorted in parallel
+     * @return the edges as ({@code property << 32 | target}) values
+     */
+    protected static long[] createSortedEdges(int[] keys, int[] edgeProperties, int[] targets, int numberOfEdges,
+            int[] offsets, boolean parallel) {
+        int numberOfNodes = offsets.length - 1;
+        // Counting sort by key
+        for (int i = 0; i < numberOfEdges; ++i) {
+            ++offsets[keys[i] + 1];
+        }
+        for (int node = 0; node < numberOfNodes; ++node) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] positions = Arrays.copyOf(offsets, numberOfNodes);
+        long[] edges = new long[numberOfEdges];
+        for (int i = 0; i < numberOfEdges; ++i) {
+            edges[positions[keys[i]]++] = (((long) edgeProperties[i]) << 32) | (targets[i] & 0xFFFFFFFFL);
+        }
+        positions = null;
+        // Sort the edges of every node
+        if (parallel) {
+            IntStream.range(0, numberOfNodes).parallel()
+                    .forEach(node -> Arrays.sort(edges, offsets[node], offsets[node + 1]));
+        } else {
+            for (int node = 0; node < numberOfNodes; ++node) {
+                Arrays.sort(edges, offsets[node], offsets[node + 1]);
+            }
+        }
+        // Remove duplicates
+        int write = 0;
+        int start;
+        for (int node = 0; node < numberOfNodes; ++node) {
+            start = offsets[node];
+            offsets[node] = write;
+            for (int i = start; i < offsets[node + 1]; ++i) {
+                if ((i == start) || (edges[i] != edges[i - 1])) {
+                    edges[write] = edges[i];
+                    ++write;
+                }
+            }
+        }
+        offsets[numberOfNodes] = write;
+        return (write == edges.length) ? edges : Arrays.copyOf(edges, write);
+    }
+}
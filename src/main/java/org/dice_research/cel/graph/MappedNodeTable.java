@@ -0,0 +1,101 @@
+package org.dice_research.cel.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * A {@link NodeTable} that reads the nodes from the memory-mapped dictionary
+ * of a {@link GraphSnapshot}. The nodes are stored as encoded terms (see
+ * {@link NodeTermCodec}) and are only decoded when they are requested. Hence,
+ * the table does not occupy heap memory apart from the decoded nodes.
+ *
+ * <p>
+ * The terms are split into chunks of {@link #CHUNK_SIZE} bytes since a single
+ * buffer can not address more than 2 GiB. Each chunk overlaps with the next
+ * chunk by the length of the longest term, i.e., every term can be read from
+ * the chunk in which it starts.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class MappedNodeTable implements NodeTable {
+
+    /**
+     * The number of term bytes that start in a single chunk.
+     */
+    public static final long CHUNK_SIZE = 1L << 30;
+
+    /**
+     * The offsets of the single terms (and the end of the last term) in the term
+     * bytes.
+     */
+    protected LongBuffer termOffsets;
+    /**
+     * The chunks of the term bytes.
+     */
+    protected ByteBuffer[] terms;
+    /**
+     * The ids of the nodes sorted by their encoded terms.
+     */
+    protected IntBuffer sortedNodes;
+
+    public MappedNodeTable(LongBuffer termOffsets, ByteBuffer[] terms, IntBuffer sortedNodes) {
+        super();
+        this.termOffsets = termOffsets;
+        this.terms = terms;
+        this.sortedNodes = sortedNodes;
+    }
+
+    @Override
+    public int size() {
+        return sortedNodes.limit();
+    }
+
+    @Override
+    public Node getNode(int id) {
+        return NodeTermCodec.decode(getTerm(id));
+    }
+
+    /**
+     * @param id the id of a node
+     * @return the encoded term of the node
+     */
+    protected byte[] getTerm(int id) {
+        long start = termOffsets.get(id);
+        byte[] term = new byte[(int) (termOffsets.get(id + 1) - start)];
+        terms[(int) (start / CHUNK_SIZE)].get((int) (start % CHUNK_SIZE), term);
+        return term;
+    }
+
+    @Override
+    public int getId(Node node) {
+        byte[] term;
+        try {
+            term = NodeTermCodec.encode(node);
+        } catch (IllegalArgumentException e) {
+            // a node that can not be encoded can not be part of the table
+            return -1;
+        }
+        int low = 0;
+        int high = sortedNodes.limit() - 1;
+        int middle;
+        int comparison;
+        while (low <= high) {
+            middle = (low + high) >>> 1;
+            comparison = Arrays.compareUnsigned(getTerm(sortedNodes.get(middle)), term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return sortedNodes.get(middle);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,30 @@
+package org.dice_research.cel.graph;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * The mapping between the nodes of an {@link InMemoryGraph} and their dense
+ * ids.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public interface NodeTable {
+
+    /**
+     * @return the number of nodes
+     */
+    public int size();
+
+    /**
+     * @param id the id of a node
+     * @return the node
+     */
+    public Node getNode(int id);
+
+    /**
+     * @param node the node
+     * @return the id of the node or -1 if the table does not contain it
+     */
+    public int getId(Node node);
+}
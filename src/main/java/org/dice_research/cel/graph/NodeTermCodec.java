@@ -0,0 +1,109 @@
+package org.dice_research.cel.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * Encodes nodes as compact byte sequences for the dictionary of a
+ * {@link GraphSnapshot}. The first byte determines the kind of the node:
+ *
+ * <ul>
+ * <li>{@code 'I'}: an IRI followed by its UTF-8 bytes</li>
+ * <li>{@code 'B'}: a blank node followed by the UTF-8 bytes of its label</li>
+ * <li>{@code 'L'}: a literal with language tag followed by the length of the
+ * lexical form (int), the lexical form and the language tag</li>
+ * <li>{@code 'T'}: a typed literal followed by the length of the lexical form
+ * (int), the lexical form and the IRI of the datatype</li>
+ * </ul>
+ *
+ * Two nodes are equal if and only if their encodings are equal.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class NodeTermCodec {
+
+    public static final byte IRI = 'I';
+    public static final byte BLANK_NODE = 'B';
+    public static final byte LANG_LITERAL = 'L';
+    public static final byte TYPED_LITERAL = 'T';
+
+    /**
+     * Encodes the given node.
+     *
+     * @param node the node that should be encoded
+     * @return the encoded node
+     * @throws IllegalArgumentException if the node is not an IRI, blank node or
+     *                                  literal
+     */
+    public static byte[] encode(Node node) {
+        if (node.isURI()) {
+            return encode(IRI, node.getURI());
+        } else if (node.isBlank()) {
+            return encode(BLANK_NODE, node.getBlankNodeLabel());
+        } else if (node.isLiteral()) {
+            String lang = node.getLiteralLanguage();
+            if ((lang != null) && !lang.isEmpty()) {
+                return encode(LANG_LITERAL, node.getLiteralLexicalForm(), lang);
+            } else {
+                return encode(TYPED_LITERAL, node.getLiteralLexicalForm(), node.getLiteralDatatypeURI());
+            }
+        } else {
+            throw new IllegalArgumentException("Got an unsupported node " + node + ".");
+        }
+    }
+
+    protected static byte[] encode(byte kind, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + bytes.length);
+        buffer.put(kind);
+        buffer.put(bytes);
+        return buffer.array();
+    }
+
+    protected static byte[] encode(byte kind, String lexicalForm, String suffix) {
+        byte[] lexBytes = lexicalForm.getBytes(StandardCharsets.UTF_8);
+        byte[] suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Integer.BYTES + lexBytes.length + suffixBytes.length);
+        buffer.put(kind);
+        buffer.putInt(lexBytes.length);
+        buffer.put(lexBytes);
+        buffer.put(suffixBytes);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes the given bytes.
+     *
+     * @param bytes the encoded node
+     * @return the decoded node
+     * @throws IllegalArgumentException if the bytes do not start with a known
+     *                                  kind of node
+     */
+    public static Node decode(byte[] bytes) {
+        switch (bytes[0]) {
+        case IRI:
+            return NodeFactory.createURI(new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8));
+        case BLANK_NODE:
+            return NodeFactory.createBlankNode(new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8));
+        case LANG_LITERAL: // falls through
+        case TYPED_LITERAL: {
+            int lexLength = ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt();
+            int suffixStart = 1 + Integer.BYTES + lexLength;
+            String lexicalForm = new String(bytes, 1 + Integer.BYTES, lexLength, StandardCharsets.UTF_8);
+            String suffix = new String(bytes, suffixStart, bytes.length - suffixStart, StandardCharsets.UTF_8);
+            if (bytes[0] == LANG_LITERAL) {
+                return NodeFactory.createLiteral(lexicalForm, suffix);
+            } else {
+                return NodeFactory.createLiteral(lexicalForm, TypeMapper.getInstance().getSafeTypeByName(suffix));
+            }
+        }
+        default:
+            throw new IllegalArgumentException("Got an unknown kind of node " + bytes[0] + ".");
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package org.dice_research.cel.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads an {@link InMemoryGraph} from a line-based RDF file (N-Triples or
+ * N-Quads) with several threads. The file is split into chunks at line breaks
+ * and the chunks are parsed in parallel. Every chunk is encoded into its own
+ * buffer of node and property ids using a shared, thread-safe dictionary. The
+ * buffers are merged into an {@link InMemoryGraphBuilder} in the order of the
+ * chunks, which sorts the adjacency lists of the graph in parallel.
+ *
+ * <p>
+ * Files in other formats (e.g., Turtle) or compressed files can not be split
+ * and are loaded with {@link InMemoryGraph#load(String)}. Blank node labels are
+ * kept as given since all chunks belong to the same document. Note that the ids
+ * of the nodes depend on the order in which the chunks are parsed.
+ * </p>
+ *
+ * <p>
+ * While the file is parsed, the progress (triples, triples/s and heap usage) is
+ * logged every {@link #progressInterval} milliseconds.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ParallelGraphLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelGraphLoader.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+    public static final long DEFAULT_PROGRESS_INTERVAL = 10000;
+
+    protected static final String[] COMPRESSION_EXTENSIONS = { ".gz", ".bz2", ".xz", ".sz", ".zst" };
+    protected static final int BOUNDARY_SEARCH_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Rough number of bytes of a line that is used to estimate the number of
+     * triples of a chunk.
+     */
+    protected static final int ESTIMATED_LINE_LENGTH = 128;
+    protected static final long MEBIBYTE = 1024 * 1024;
+
+    /**
+     * The number of threads that parse chunks.
+     */
+    protected int numberOfThreads;
+    /**
+     * The (minimum) number of bytes of a chunk.
+     */
+    protected int chunkSize = DEFAULT_CHUNK_SIZE;
+    /**
+     * The time between two progress messages in milliseconds.
+     */
+    protected long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    protected Map<Node, Integer> nodeIds;
+    protected AtomicInteger nextNodeId;
+    protected Map<String, Integer> propertyIds;
+    protected AtomicInteger nextPropertyId;
+
+    protected AtomicLong parsedTriples = new AtomicLong();
+    protected AtomicLong parsedBytes = new AtomicLong();
+    protected long fileSize = 0;
+    protected long startTime = 0;
+    protected long parsingTime = 0;
+    protected long buildingTime = 0;
+
+    /**
+     * Constructor that uses one thread per available processor.
+     */
+    public ParallelGraphLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelGraphLoader(int numberOfThreads) {
+        super();
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * @param file the path of an RDF file
+     * @return {@code true} if the file can be split into chunks and parsed in
+     *         parallel
+     */
+    public static boolean isSplittable(String file) {
+        for (String extension : COMPRESSION_EXTENSIONS) {
+            if (file.endsWith(extension)) {
+                return false;
+            }
+        }
+        Lang lang = RDFLanguages.filenameToLang(file);
+        return ((Lang.NTRIPLES.equals(lang)) || (Lang.NQUADS.equals(lang))) && Files.isRegularFile(Paths.get(file));
+    }
+
+    /**
+     * Loads the graph from the given RDF file. If the file can not be split (see
+     * {@link #isSplittable(String)}), it is loaded with
+     * {@link InMemoryGraph#load(String)}.
+     *
+     * @param file the path of the RDF file
+     * @return the loaded graph
+     * @throws IOException if the file can not be read
+     */
+    public InMemoryGraph load(String file) throws IOException {
+        parsedTriples.set(0);
+        parsedBytes.set(0);
+        startTime = System.currentTimeMillis();
+        if (!isSplittable(file)) {
+            LOGGER.info("{} can not be split into chunks. It will be loaded with a single thread.", file);
+            InMemoryGraph graph = InMemoryGraph.load(file);
+            parsedTriples.set(graph.getNumberOfEdges());
+            parsingTime = System.currentTimeMillis() - startTime;
+            buildingTime = 0;
+            return graph;
+        }
+        Lang lang = RDFLanguages.filenameToLang(file);
+        nodeIds = new ConcurrentHashMap<>();
+        nextNodeId = new AtomicInteger();
+        propertyIds = new ConcurrentHashMap<>();
+        nextPropertyId = new AtomicInteger();
+        InMemoryGraphBuilder builder = new InMemoryGraphBuilder();
+        builder.setParallel(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            long[] boundaries = findChunkBoundaries(channel, chunkSize);
+            LOGGER.info("Parsing {} ({} MiB) in {} chunks with {} threads...", file, fileSize / MEBIBYTE,
+                    boundaries.length - 1, numberOfThreads);
+            reporter.scheduleAtFixedRate(this::logProgress, progressInterval, progressInterval,
+                    TimeUnit.MILLISECONDS);
+            // Limit the number of parsed chunks that wait for the merge
+            int maxPendingChunks = 2 * numberOfThreads;
+            Deque<Future<ChunkBuffer>> pendingChunks = new ArrayDeque<>();
+            int nextChunk = 0;
+            ChunkBuffer buffer;
+            while ((nextChunk < boundaries.length - 1) || !pendingChunks.isEmpty()) {
+                while ((nextChunk < boundaries.length - 1) && (pendingChunks.size() < maxPendingChunks)) {
+                    final long start = boundaries[nextChunk];
+                    final long end = boundaries[nextChunk + 1];
+                    pendingChunks.add(executor.submit(() -> parseChunk(channel, start, end, lang)));
+                    ++nextChunk;
+                }
+                buffer = pendingChunks.poll().get();
+                builder.addEncoded(buffer.subjects, buffer.predicates, buffer.objects, buffer.size);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + file + ".", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new IOException("Couldn't parse " + file + ".", e.getCause());
+            }
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+        parsingTime = System.currentTimeMillis() - startTime;
+        logProgress();
+
+        Node[] nodes = new Node[nodeIds.size()];
+        nodeIds.forEach((node, id) -> nodes[id] = node);
+        String[] properties = new String[propertyIds.size()];
+        propertyIds.forEach((property, id) -> properties[id] = property);
+        builder.setDictionary(nodeIds, new ArrayList<>(Arrays.asList(nodes)), propertyIds,
+                new ArrayList<>(Arrays.asList(properties)));
+        long buildStart = System.currentTimeMillis();
+        InMemoryGraph graph = builder.build();
+        buildingTime = System.currentTimeMillis() - buildStart;
+        LOGGER.info("Built the graph with {} nodes and {} edges in {}ms. Heap: {} MiB used.",
+                graph.getNumberOfNodes(), graph.getNumberOfEdges(), buildingTime, getUsedHeap() / MEBIBYTE);
+        return graph;
+    }
+
+    /**
+     * Determines the positions at which the given file is split into chunks.
+     * Every chunk ends with a line break (or the end of the file).
+     *
+     * @return the start positions of the chunks followed by the size of the file
+     */
+    protected static long[] findChunkBoundaries(FileChannel channel, int chunkSize) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_BUFFER_SIZE);
+        long position = chunkSize;
+        boolean found;
+        int read;
+        while (position < size) {
+            found = false;
+            while (!found && (position < size)) {
+                buffer.clear();
+                read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; (i < read) && !found; ++i) {
+                    if (buffer.get(i) == '\n') {
+                        position += i + 1;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    position += read;
+                }
+            }
+            if (found && (position < size)) {
+                boundaries.add(position);
+            }
+            position += chunkSize;
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    protected ChunkBuffer parseChunk(FileChannel channel, long start, long end, Lang lang) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        long position = start;
+        int read;
+        while (bytes.hasRemaining()) {
+            read = channel.read(bytes, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        ChunkBuffer buffer = new ChunkBuffer(1 + (bytes.position() / ESTIMATED_LINE_LENGTH));
+        RDFParser.create().source(new ByteArrayInputStream(bytes.array(), 0, bytes.position())).lang(lang)
+                .labelToNode(LabelToNode.createUseLabelAsGiven()).parse(buffer);
+        parsedTriples.addAndGet(buffer.size);
+        parsedBytes.addAndGet(end - start);
+        return buffer;
+    }
+
+    protected int getNodeId(Node node) {
+        Integer id = nodeIds.get(node);
+        if (id == null) {
+            id = nodeIds.computeIfAbsent(node, n -> nextNodeId.getAndIncrement());
+        }
+        return id;
+    }
+
+    protected int getPropertyId(String iri) {
+        Integer id = propertyIds.get(iri);
+        if (id == null) {
+            id = propertyIds.computeIfAbsent(iri, p -> nextPropertyId.getAndIncrement());
+        }
+        return id;
+    }
+
+    protected void logProgress() {
+        long triples = parsedTriples.get();
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        LOGGER.info("Parsed {} triples ({} of {} MiB) with {} triples/s. Heap: {} MiB used.", triples,
+                parsedBytes.get() / MEBIBYTE, fileSize / MEBIBYTE, (triples * 1000) / elapsed,
+                getUsedHeap() / MEBIBYTE);
+    }
+
+    /**
+     * @return the number of bytes of the heap that are currently used
+     */
+    public static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return the number of triples that have been parsed by the last call of
+     *         {@link #load(String)} (including duplicates)
+     */
+    public long getParsedTriples() {
+        return parsedTriples.get();
+    }
+
+    /**
+     * @return the time the last call of {@link #load(String)} needed to parse
+     *         the file in milliseconds
+     */
+    public long getParsingTime() {
+        return parsingTime;
+    }
+
+    /**
+     * @return the time the last call of {@link #load(String)} needed to build
+     *         the graph from the parsed triples in milliseconds
+     */
+    public long getBuildingTime() {
+        return buildingTime;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * The encoded triples of a single chunk.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected class ChunkBuffer extends StreamRDFBase {
+
+        protected int[] subjects;
+        protected int[] predicates;
+        protected int[] objects;
+        protected int size = 0;
+
+        public ChunkBuffer(int capacity) {
+            super();
+            subjects = new int[capacity];
+            predicates = new int[capacity];
+            objects = new int[capacity];
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            add(triple.getSubject(), triple.getPredicate(), triple.getObject());
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            add(quad.getSubject(), quad.getPredicate(), quad.getObject());
+        }
+
+        protected void add(Node subject, Node predicate, Node object) {
+            if (size == subjects.length) {
+                int capacity = subjects.length * 2;
+                subjects = Arrays.copyOf(subjects, capacity);
+                predicates = Arrays.copyOf(predicates, capacity);
+                objects = Arrays.copyOf(objects, capacity);
+            }
+            subjects[size] = getNodeId(subject);
+            predicates[size] = getPropertyId(predicate.getURI());
+            objects[size] = getNodeId(object);
+            ++size;
+        }
+    }
+}
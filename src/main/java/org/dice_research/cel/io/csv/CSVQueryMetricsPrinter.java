@@ -0,0 +1,77 @@
+package org.dice_research.cel.io.csv;
+
+import java.io.PrintStream;
+
+import org.dice_research.cel.sparql.QueryMetricsRegistry;
+import org.dice_research.cel.sparql.QueryMetricsSnapshot;
+
+/**
+ * Prints the query metrics of learning problems as CSV with one line per
+ * problem and query type. Query types without queries are omitted.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class CSVQueryMetricsPrinter implements AutoCloseable {
+
+    protected PrintStream pout;
+
+    public CSVQueryMetricsPrinter(PrintStream pout) {
+        this.pout = pout;
+        pout.print("problem,type,count,rows,queryBytes,errors,timeouts,avgLatencyMs,p50Ms,p90Ms,p99Ms");
+        for (long bucket : QueryMetricsRegistry.LATENCY_BUCKETS) {
+            pout.print(",le");
+            pout.print(bucket);
+            pout.print("ms");
+        }
+        pout.println(",inf");
+    }
+
+    public void printMetrics(String problemName, QueryMetricsSnapshot metrics) {
+        for (QueryMetricsSnapshot.Entry entry : metrics.getEntries()) {
+            if (entry.getCount() > 0) {
+                pout.print(problemName);
+                pout.print(',');
+                pout.print(entry.getType());
+                pout.print(',');
+                pout.print(entry.getCount());
+                pout.print(',');
+                pout.print(entry.getRows());
+                pout.print(',');
+                pout.print(entry.getQueryBytes());
+                pout.print(',');
+                pout.print(entry.getErrors());
+                pout.print(',');
+                pout.print(entry.getTimeouts());
+                pout.print(',');
+                pout.print(entry.getAverageLatency());
+                pout.print(',');
+                printPercentile(entry.getLatencyPercentile(0.5));
+                pout.print(',');
+                printPercentile(entry.getLatencyPercentile(0.9));
+                pout.print(',');
+                printPercentile(entry.getLatencyPercentile(0.99));
+                for (long value : entry.getLatencyHistogram()) {
+                    pout.print(',');
+                    pout.print(value);
+                }
+                pout.println();
+            }
+        }
+        pout.flush();
+    }
+
+    protected void printPercentile(long value) {
+        if (value == Long.MAX_VALUE) {
+            pout.print("inf");
+        } else {
+            pout.print(value);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        pout.close();
+    }
+
+}
@@ -2,9 +2,11 @@ package org.dice_research.cel.refine;
 
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.collections.SetUtils;
@@ -12,17 +14,22 @@ import org.apache.commons.io.IOUtils;
 import org.dice_research.cel.DescriptionLogic;
 import org.dice_research.cel.expression.ClassExpression;
 import org.dice_research.cel.expression.ClassExpressionVisitor;
+import org.dice_research.cel.expression.CoverageBudget;
+import org.dice_research.cel.expression.ExampleCoverage;
 import org.dice_research.cel.expression.Junction;
 import org.dice_research.cel.expression.NamedClass;
 import org.dice_research.cel.expression.NegatingVisitor;
 import org.dice_research.cel.expression.ScoredClassExpression;
 import org.dice_research.cel.expression.SimpleQuantifiedRole;
 import org.dice_research.cel.refine.suggest.ClassExpressionUpdater;
+import org.dice_research.cel.refine.suggest.ContextSuggestions;
 import org.dice_research.cel.refine.suggest.ExtendedSuggestor;
+import org.dice_research.cel.refine.suggest.ScoreBound;
 import org.dice_research.cel.refine.suggest.ScoredIRI;
 import org.dice_research.cel.refine.suggest.SelectionScores;
 import org.dice_research.cel.refine.suggest.Suggestor;
 import org.dice_research.cel.score.ScoreCalculator;
+import org.dice_research.cel.sparql.InstanceRetriever;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +70,33 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
      * process. It is mainly used for debugging.
      */
     protected OutputStream logStream;
+    /**
+     * An optional bound that is handed to the suggestor together with the
+     * requested contexts to avoid the retrieval of suggestions that cannot
+     * reach a certain score. It is {@code null} if all suggestions should be
+     * retrieved.
+     */
+    protected ScoreBound scoreBound;
+    /**
+     * An optional retriever that is used to determine the examples that are
+     * covered by the refined expressions and the single atoms (classes, negated
+     * classes and roles). If it is set, refinements that add an atom to the root
+     * of an expression are scored locally based on these coverages instead of
+     * asking the suggestor. It is {@code null} if coverages should not be used.
+     */
+    protected InstanceRetriever coverageRetriever;
+    /**
+     * The atoms that can be added to an expression together with their coverage
+     * or {@code null} if they haven't been retrieved, yet. The coverage of a
+     * single atom is retrieved when it is used for the first time (see
+     * {@link #getAtomCoverage(CoveredAtom)}).
+     */
+    protected List<CoveredAtom> coveredAtoms;
+    /**
+     * An optional budget in which the memory of the retrieved atom coverages is
+     * reserved. It is {@code null} if the memory is not accounted for.
+     */
+    protected CoverageBudget coverageBudget;
 
     /**
      * Constructor.
@@ -88,12 +122,90 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
     public Set<ScoredClassExpression> refine(ScoredClassExpression nextBestExpression) {
         RecursivlyRefiningVisitor visitor = new RecursivlyRefiningVisitor(this, positive.size(), negative.size(),
                 logic);
+        visitor.setParentCoverage(getCoverage(nextBestExpression));
         nextBestExpression.getClassExpression().accept(visitor);
+        visitor.addRequestedSuggestions();
         Set<ScoredClassExpression> results = visitor.getResults();
         logRefinementResults(nextBestExpression.getClassExpression(), results);
         return results;
     }
 
+    /**
+     * Returns the coverage of the given expression. If the expression does not
+     * have a coverage, it is retrieved.
+     *
+     * @param expression the expression that should be refined
+     * @return the coverage of the expression or {@code null} if coverages are not
+     *         used
+     */
+    protected ExampleCoverage getCoverage(ScoredClassExpression expression) {
+        if ((coverageRetriever == null) || NamedClass.TOP.equals(expression.getClassExpression())) {
+            return null;
+        }
+        if (expression.getCoverage() == null) {
+            return ExampleCoverage.create(
+                    coverageRetriever.retrieveInstances(expression.getClassExpression(), positive, negative),
+                    positive, negative);
+        }
+        return expression.getCoverage();
+    }
+
+    /**
+     * Returns the atoms that can be added to an expression. The atoms are
+     * retrieved from the suggestor the first time this method is called. Their
+     * coverages are not retrieved before they are needed (see
+     * {@link #getAtomCoverage(CoveredAtom)}).
+     *
+     * @return the atoms
+     */
+    protected synchronized List<CoveredAtom> getCoveredAtoms() {
+        if (coveredAtoms == null) {
+            ContextSuggestions suggestions = new ContextSuggestions(Suggestor.CONTEXT_POSITION_MARKER, true,
+                    logic.supportsAtomicNegation(), true);
+            suggestor.suggest(positive, negative, Collections.singletonList(suggestions));
+            List<CoveredAtom> atoms = new ArrayList<>();
+            if (suggestions.getClasses() != null) {
+                for (ScoredIRI suggestion : suggestions.getClasses()) {
+                    atoms.add(new CoveredAtom(new NamedClass(suggestion.getIri()), suggestion, CoveredAtom.CLASS));
+                }
+            }
+            if (suggestions.getNegatedClasses() != null) {
+                for (ScoredIRI suggestion : suggestions.getNegatedClasses()) {
+                    atoms.add(new CoveredAtom(new NamedClass(suggestion.getIri(), true), suggestion,
+                            CoveredAtom.NEGATED_CLASS));
+                }
+            }
+            if (suggestions.getProperties() != null) {
+                for (ScoredIRI suggestion : suggestions.getProperties()) {
+                    atoms.add(new CoveredAtom(new SimpleQuantifiedRole(true, suggestion.getIri(),
+                            suggestion.isInverted(), NamedClass.TOP), suggestion, CoveredAtom.ROLE));
+                }
+            }
+            LOGGER.debug("Retrieved {} atoms.", atoms.size());
+            coveredAtoms = atoms;
+        }
+        return coveredAtoms;
+    }
+
+    /**
+     * Returns the coverage of the given atom. The coverage is retrieved the first
+     * time it is requested and its memory is reserved in the
+     * {@link #coverageBudget} (if there is one).
+     *
+     * @param atom the atom
+     * @return the coverage of the atom
+     */
+    protected synchronized ExampleCoverage getAtomCoverage(CoveredAtom atom) {
+        if (atom.coverage == null) {
+            atom.coverage = ExampleCoverage.create(coverageRetriever.retrieveInstances(atom.atom, positive, negative),
+                    positive, negative);
+            if (coverageBudget != null) {
+                coverageBudget.reserve(atom.coverage.getSizeInBytes());
+            }
+        }
+        return atom.coverage;
+    }
+
     /**
      * Logs the given refinement results, i.e., the given base expression and the
      * set of refinements are written to the {@link #logStream}, if the stream is
@@ -131,6 +243,69 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
         this.logStream = logStream;
     }
 
+    /**
+     * @return the bound that is handed to the suggestor or {@code null} if there
+     *         is no such bound
+     */
+    public ScoreBound getScoreBound() {
+        return scoreBound;
+    }
+
+    /**
+     * Sets a bound that is handed to the suggestor together with the requested
+     * contexts. Suggestions that do not fulfill the bound may not be retrieved.
+     * Note that this may prune suggestions which would only lead to good
+     * expressions after further refinements (e.g., by adding a disjunction).
+     *
+     * @param scoreBound the bound that should be handed to the suggestor or
+     *                   {@code null} if all suggestions should be retrieved
+     */
+    public void setScoreBound(ScoreBound scoreBound) {
+        this.scoreBound = scoreBound;
+    }
+
+    /**
+     * @return the retriever that is used to determine the coverages of
+     *         expressions or {@code null} if coverages are not used
+     */
+    public InstanceRetriever getCoverageRetriever() {
+        return coverageRetriever;
+    }
+
+    /**
+     * Sets a retriever that is used to determine the examples that are covered by
+     * expressions. If it is set, refinements that add an atom to the root of an
+     * expression are scored based on the coverage of the expression and the
+     * coverage of the atom, and the created expressions carry their coverage.
+     *
+     * @param coverageRetriever the retriever or {@code null} if coverages should
+     *                          not be used
+     */
+    public synchronized void setCoverageRetriever(InstanceRetriever coverageRetriever) {
+        this.coverageRetriever = coverageRetriever;
+        this.coveredAtoms = null;
+    }
+
+    /**
+     * @return the budget in which the memory of the atom coverages is reserved or
+     *         {@code null} if the memory is not accounted for
+     */
+    public CoverageBudget getCoverageBudget() {
+        return coverageBudget;
+    }
+
+    /**
+     * Sets a budget in which the memory of the atom coverages is reserved (see
+     * {@link CoverageBudget#reserve(long)}). The budget should be the one that
+     * limits the coverages of the expressions in the search queue.
+     *
+     * @param coverageBudget the budget or {@code null} if the memory should not
+     *                       be accounted for
+     */
+    public void setCoverageBudget(CoverageBudget coverageBudget) {
+        this.coverageBudget = coverageBudget;
+    }
+
     /**
      * An implementation of the visitor pattern, that creates a copy of a given
      * class expression while at the same time searching and replacing a given sub
@@ -146,6 +321,13 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
      * results in the visitor's result set.
      * </p>
      * 
+     * <p>
+     * The suggestions for the single contexts are not retrieved while visiting
+     * the expression. Instead, the contexts are collected and the suggestions for
+     * all of them are retrieved at once when {@link #addRequestedSuggestions()} is
+     * called.
+     * </p>
+     * 
      * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
      *
      */
@@ -159,6 +341,16 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
         protected int numberOfNegatives;
         protected ClassExpression parentNode = null;
         protected DescriptionLogic logic;
+        /**
+         * The contexts for which suggestions have been requested but not retrieved,
+         * yet.
+         */
+        protected List<RequestedContext> requestedContexts = new ArrayList<>();
+        /**
+         * The coverage of the expression that is refined or {@code null} if it is
+         * not known.
+         */
+        protected ExampleCoverage parentCoverage = null;
 
         public RecursivlyRefiningVisitor(SuggestorBasedRefinementOperator parentOperator, int numberOfPositives,
                 int numberOfNegatives, DescriptionLogic logic) {
@@ -169,17 +361,33 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
             this.logic = logic;
         }
 
-        protected void addResult(ScoredIRI suggestion, ClassExpression newNode, boolean addedEdge) {
+        protected void addResult(ClassExpression context, ScoredIRI suggestion, ClassExpression newNode,
+                boolean addedEdge) {
             // Add the suggestion
             ClassExpression newExpression = ClassExpressionUpdater.update(context, Suggestor.CONTEXT_POSITION_MARKER,
                     newNode);
             addResult(newExpression, suggestion, addedEdge);
         }
 
+        protected void addResult(ClassExpression newExpression, ExampleCoverage coverage, boolean addedEdge) {
+            ScoredClassExpression scoredExpression = parentOperator.scoreCalculator.score(newExpression,
+                    coverage.getPosCount(), coverage.getNegCount(), addedEdge);
+            scoredExpression.setCoverage(coverage);
+            results.add(scoredExpression);
+            if (logic.supportsComplexConceptNegation()) {
+                // Add its negation
+                ExampleCoverage negatedCoverage = coverage.negate();
+                scoredExpression = parentOperator.scoreCalculator.score(negator.negateExpression(newExpression),
+                        negatedCoverage.getPosCount(), negatedCoverage.getNegCount(), addedEdge);
+                scoredExpression.setCoverage(negatedCoverage);
+                results.add(scoredExpression);
+            }
+        }
+
         protected void addResult(ClassExpression newExpression, SelectionScores scores, boolean addedEdge) {
             // Check results for sanity
             if ((scores.getPosCount() < 0) || (scores.getPosCount() > numberOfPositives) || (scores.getNegCount() < 0)
-                    || (scores.getPosCount() > numberOfNegatives)) {
+                    || (scores.getNegCount() > numberOfNegatives)) {
                 LOGGER.error("Got wrong counts: #positives={}, #negatives={}, expression={}, scores={}",
                         numberOfPositives, numberOfNegatives, newExpression, scores);
             }
@@ -192,45 +400,70 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
             }
         }
 
-        protected void addContextBasedClassSuggestions(final Set<String> blacklist) {
-            Collection<ScoredIRI> suggestions = parentOperator.suggestor.suggestClass(parentOperator.positive,
-                    parentOperator.negative, context);
-            suggestions.stream().filter(s -> !blacklist.contains(s.getIri()))
-                    .forEach(s -> addResult(s, new NamedClass(s.getIri()), false));
+        /**
+         * Requests class and role suggestions for the current context. The
+         * suggestions are retrieved and added later on (see
+         * {@link #addRequestedSuggestions()}).
+         * 
+         * @param classBlacklist classes that should not be added to the context
+         * @param roleBlacklist  roles that should not be added to the context
+         */
+        protected void requestContextBasedSuggestions(Set<String> classBlacklist, Set<String> roleBlacklist) {
             // If the logic supports atomic negation, we should ask for negated classes.
             // However, we only do that in cases in which the context is not simply the
             // position marker since the complex negation already covers these cases OR if
             // the logic does not allow the complex negation.
-            if (logic.supportsAtomicNegation() && (!logic.supportsComplexConceptNegation()
-                    || !context.equals(Suggestor.CONTEXT_POSITION_MARKER))) {
-                suggestions = parentOperator.suggestor.suggestNegatedClass(parentOperator.positive,
-                        parentOperator.negative, context);
-                suggestions.stream().filter(s -> !blacklist.contains(s.getIri()))
-                        .forEach(s -> addResult(s, new NamedClass(s.getIri(), true), false));
+            boolean negatedClasses = logic.supportsAtomicNegation() && (!logic.supportsComplexConceptNegation()
+                    || !context.equals(Suggestor.CONTEXT_POSITION_MARKER));
+            ContextSuggestions suggestions = new ContextSuggestions(context, true, negatedClasses, true);
+            suggestions.setBound(parentOperator.scoreBound);
+            requestedContexts.add(new RequestedContext(suggestions, classBlacklist, roleBlacklist));
+        }
+
+        /**
+         * Retrieves the suggestions for all contexts that have been requested while
+         * visiting the expression with a single call to the suggestor and adds the
+         * resulting expressions to the results of this visitor.
+         */
+        public void addRequestedSuggestions() {
+            if (requestedContexts.isEmpty()) {
+                return;
             }
+            List<ContextSuggestions> requests = new ArrayList<>(requestedContexts.size());
+            for (RequestedContext requestedContext : requestedContexts) {
+                requests.add(requestedContext.suggestions);
+            }
+            parentOperator.suggestor.suggest(parentOperator.positive, parentOperator.negative, requests);
+            for (RequestedContext requestedContext : requestedContexts) {
+                addContextBasedClassSuggestions(requestedContext);
+                addContextBasedRoleSuggestions(requestedContext);
+            }
+            requestedContexts.clear();
         }
 
-        protected void addContextBasedRoleSuggestions(Set<String> blacklist) {
-            Collection<ScoredIRI> suggestions = parentOperator.suggestor.suggestProperty(parentOperator.positive,
-                    parentOperator.negative, context);
-//            ClassExpression newExpression;
-            for (ScoredIRI suggestion : suggestions) {
-                if (!blacklist.contains(suggestion.getIri())) {
+        protected void addContextBasedClassSuggestions(RequestedContext requestedContext) {
+            final ContextSuggestions suggestions = requestedContext.suggestions;
+            final Set<String> blacklist = requestedContext.classBlacklist;
+            if (suggestions.getClasses() != null) {
+                suggestions.getClasses().stream().filter(s -> !blacklist.contains(s.getIri()))
+                        .forEach(s -> addResult(suggestions.getContext(), s, new NamedClass(s.getIri()), false));
+            }
+            if (suggestions.getNegatedClasses() != null) {
+                suggestions.getNegatedClasses().stream().filter(s -> !blacklist.contains(s.getIri())).forEach(
+                        s -> addResult(suggestions.getContext(), s, new NamedClass(s.getIri(), true), false));
+            }
+        }
+
+        protected void addContextBasedRoleSuggestions(RequestedContext requestedContext) {
+            ContextSuggestions suggestions = requestedContext.suggestions;
+            if (suggestions.getProperties() == null) {
+                return;
+            }
+            for (ScoredIRI suggestion : suggestions.getProperties()) {
+                if (!requestedContext.roleBlacklist.contains(suggestion.getIri())) {
                     // Add the suggestion
-//                    newExpression = ClassExpressionUpdater.update(context, Suggestor.CONTEXT_POSITION_MARKER,
-//                            new SimpleQuantifiedRole(true, suggestion.getIri(), suggestion.isInverted(),
-//                                    NamedClass.TOP),
-//                            true);
-                    addResult(suggestion, new SimpleQuantifiedRole(true, suggestion.getIri(), suggestion.isInverted(),
-                            NamedClass.TOP), true);
-//                    results.add(parentOperator.scoreCalculator.score(newExpression, suggestion.getPosCount(),
-//                            suggestion.getNegCount()));
-//                    if (logic.supportsComplexConceptNegation()) {
-//                        // Add its negation
-//                        results.add(parentOperator.scoreCalculator.score(negator.negateExpression(newExpression),
-//                                numberOfPositives - suggestion.getPosCount(),
-//                                numberOfNegatives - suggestion.getNegCount()));
-//                    }
+                    addResult(suggestions.getContext(), suggestion, new SimpleQuantifiedRole(true,
+                            suggestion.getIri(), suggestion.isInverted(), NamedClass.TOP), true);
                 }
             }
         }
@@ -258,32 +491,91 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
 
         public void extendJunction(Junction junction, Set<String> classBlacklist, Set<String> roleBlacklist,
                 boolean switchFlag) {
+            if ((parentCoverage != null) && Suggestor.CONTEXT_POSITION_MARKER.equals(context)) {
+                // The junction is the root of the new expressions, i.e., their coverage can
+                // be derived from the coverage of the refined expression and the coverage of
+                // the added atom
+                addCoverageBasedSuggestions(junction, classBlacklist, roleBlacklist);
+                if (switchFlag) {
+                    junction.setConjunction(!junction.isConjunction());
+                    addCoverageBasedSuggestions(junction, classBlacklist, roleBlacklist);
+                }
+                return;
+            }
             // Update context by adding a new junction
             ClassExpression oldContext = context;
             junction.getChildren().add(Suggestor.CONTEXT_POSITION_MARKER);
             context = ClassExpressionUpdater.update(oldContext, Suggestor.CONTEXT_POSITION_MARKER, junction);
-            addContextBasedClassSuggestions(classBlacklist);
-            addContextBasedRoleSuggestions(roleBlacklist);
+            requestContextBasedSuggestions(classBlacklist, roleBlacklist);
             // We are allowed to change the given conjunction into a disjunction
             if (switchFlag) {
                 junction.setConjunction(!junction.isConjunction());
                 context = ClassExpressionUpdater.update(oldContext, Suggestor.CONTEXT_POSITION_MARKER, junction);
-                addContextBasedClassSuggestions(classBlacklist);
-                addContextBasedRoleSuggestions(roleBlacklist);
+                requestContextBasedSuggestions(classBlacklist, roleBlacklist);
             }
             junction.getChildren().remove(Suggestor.CONTEXT_POSITION_MARKER);
             context = oldContext;
         }
 
+        /**
+         * Adds the atoms to the given junction, which is the root of the new
+         * expressions. The new expressions are scored based on the coverage of the
+         * refined expression and the coverage of the atoms. An atom is only added if
+         * the suggestor would have suggested it for this context, i.e., if it
+         * selects examples that are not selected without it.
+         */
+        protected void addCoverageBasedSuggestions(Junction junction, Set<String> classBlacklist,
+                Set<String> roleBlacklist) {
+            junction.getChildren().add(Suggestor.CONTEXT_POSITION_MARKER);
+            ClassExpression junctionContext = ClassExpressionUpdater.update(context,
+                    Suggestor.CONTEXT_POSITION_MARKER, junction);
+            junction.getChildren().remove(Suggestor.CONTEXT_POSITION_MARKER);
+            ScoreBound bound = parentOperator.scoreBound;
+            ExampleCoverage coverage;
+            ExampleCoverage atomCoverage;
+            ExampleCoverage selectedByAtom;
+            boolean positivesRequired;
+            for (CoveredAtom atom : parentOperator.getCoveredAtoms()) {
+                if (atom.type == CoveredAtom.ROLE) {
+                    if (roleBlacklist.contains(atom.iri)) {
+                        continue;
+                    }
+                    positivesRequired = !logic.supportsAtomicNegation();
+                } else {
+                    if (classBlacklist.contains(atom.iri)) {
+                        continue;
+                    }
+                    positivesRequired = (atom.type == CoveredAtom.CLASS) && !logic.supportsComplexConceptNegation();
+                }
+                // The atom can only select examples that it covers. Hence, its coverage is
+                // not needed if its counts show that it cannot select the required examples
+                if ((atom.posCount == 0) && (positivesRequired || (atom.negCount == 0))) {
+                    continue;
+                }
+                atomCoverage = parentOperator.getAtomCoverage(atom);
+                if (junction.isConjunction()) {
+                    coverage = parentCoverage.and(atomCoverage);
+                    selectedByAtom = coverage;
+                } else {
+                    coverage = parentCoverage.or(atomCoverage);
+                    selectedByAtom = atomCoverage.andNot(parentCoverage);
+                }
+                if ((selectedByAtom.getPosCount() > 0) || (!positivesRequired && (selectedByAtom.getNegCount() > 0))) {
+                    if ((bound == null) || bound.isFulfilled(coverage.getPosCount(), coverage.getNegCount())) {
+                        addResult(ClassExpressionUpdater.update(junctionContext, Suggestor.CONTEXT_POSITION_MARKER,
+                                atom.atom), coverage, atom.type == CoveredAtom.ROLE);
+                    }
+                }
+            }
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public void visitNamedClass(NamedClass node) {
             // Check if this is TOP
             if (NamedClass.TOP.equals(node)) {
-                // replace TOP with classes
-                addContextBasedClassSuggestions(SetUtils.EMPTY_SET);
-                // replace TOP with roles
-                addContextBasedRoleSuggestions(SetUtils.EMPTY_SET);
+                // replace TOP with classes and roles
+                requestContextBasedSuggestions(SetUtils.EMPTY_SET, SetUtils.EMPTY_SET);
             } else if (!NamedClass.BOTTOM.equals(node)) {
                 // Ensure that we do not try to extend BOTTOM
                 // We have a blacklist with a single element, so a tree set should be better
@@ -357,6 +649,69 @@ public class SuggestorBasedRefinementOperator implements RefinementOperator {
         private Set<ScoredClassExpression> getResults() {
             return results;
         }
+
+        /**
+         * @param parentCoverage the coverage of the expression that is refined or
+         *                       {@code null} if it is not known
+         */
+        public void setParentCoverage(ExampleCoverage parentCoverage) {
+            this.parentCoverage = parentCoverage;
+        }
+    }
+
+    /**
+     * A context for which suggestions have been requested together with the
+     * blacklists that have to be applied to the suggestions.
+     * 
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class RequestedContext {
+        protected ContextSuggestions suggestions;
+        protected Set<String> classBlacklist;
+        protected Set<String> roleBlacklist;
+
+        public RequestedContext(ContextSuggestions suggestions, Set<String> classBlacklist,
+                Set<String> roleBlacklist) {
+            super();
+            this.suggestions = suggestions;
+            this.classBlacklist = classBlacklist;
+            this.roleBlacklist = roleBlacklist;
+        }
+    }
+
+    /**
+     * An atom (a class, a negated class or an existential role with TOP) that
+     * can be added to an expression together with the numbers of examples it
+     * selects and, once it has been retrieved, the examples it covers.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class CoveredAtom {
+        public static final int CLASS = 0;
+        public static final int NEGATED_CLASS = 1;
+        public static final int ROLE = 2;
+
+        protected ClassExpression atom;
+        protected String iri;
+        protected int type;
+        protected int posCount;
+        protected int negCount;
+        /**
+         * The examples covered by the atom or {@code null} if they haven't been
+         * retrieved, yet.
+         */
+        protected ExampleCoverage coverage = null;
+
+        public CoveredAtom(ClassExpression atom, ScoredIRI suggestion, int type) {
+            super();
+            this.atom = atom;
+            this.iri = suggestion.getIri();
+            this.type = type;
+            this.posCount = suggestion.getPosCount();
+            this.negCount = suggestion.getNegCount();
+        }
     }
 
 }
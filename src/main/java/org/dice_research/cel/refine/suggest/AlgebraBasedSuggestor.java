@@ -0,0 +1,717 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.aksw.jenax.connection.query.QueryExecutionFactoryDataset;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.expr.E_Exists;
+import org.apache.jena.sparql.expr.E_GreaterThanOrEqual;
+import org.apache.jena.sparql.expr.E_LessThanOrEqual;
+import org.apache.jena.sparql.expr.E_LogicalAnd;
+import org.apache.jena.sparql.expr.E_LogicalOr;
+import org.apache.jena.sparql.expr.E_Multiply;
+import org.apache.jena.sparql.expr.E_NotExists;
+import org.apache.jena.sparql.expr.E_NumAbs;
+import org.apache.jena.sparql.expr.E_Str;
+import org.apache.jena.sparql.expr.E_StrConcat;
+import org.apache.jena.sparql.expr.E_Subtract;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.aggregate.AggCountVarDistinct;
+import org.apache.jena.sparql.expr.aggregate.AggMax;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementData;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementOptional;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementUnion;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.vocabulary.RDF;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.ClassExpressionVisitor;
+import org.dice_research.cel.expression.IriDictionary;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.NegatingVisitor;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A suggestor for in-process datasets that builds ARQ {@link Query} objects
+ * directly instead of generating query Strings that have to be parsed again.
+ * This avoids parsing large VALUES blocks for every single query. The queries
+ * have the same shapes as the queries of the {@link SparqlBasedSuggestor}.
+ * Since both paths are available in an instance of this class, they can be
+ * cross-checked.
+ *
+ * <p>
+ * Since there are no round trips to an endpoint, the requests of a
+ * {@link #suggest(Collection, Collection, Collection)} call are answered with
+ * single queries.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class AlgebraBasedSuggestor extends SparqlBasedSuggestor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlgebraBasedSuggestor.class);
+
+    protected static final Var POS_VAR = Var.alloc("pos");
+    protected static final Var NEG_VAR = Var.alloc("neg");
+    protected static final Var INSTANCE_VAR = Var.alloc("instance");
+    protected static final Var CLASS_VAR = Var.alloc("class");
+    protected static final Var PROP_VAR = Var.alloc("prop");
+    protected static final Var TP_VAR = Var.alloc("tp");
+    protected static final Var FP_VAR = Var.alloc("fp");
+    protected static final Var PC_VAR = Var.alloc("pc");
+    protected static final Var NEG_ID_VAR = Var.alloc("negId");
+    protected static final Var POS_HITS_VAR = Var.alloc("posHits");
+    protected static final Var NEG_HITS_VAR = Var.alloc("negHits");
+
+    protected static final Node TYPE_NODE = NodeFactory.createURI(RDF.type.getURI());
+    protected static final Node CLASS_NODE = NodeFactory.createURI(OWL.Class.getURI());
+    protected static final Node NOTHING_NODE = NodeFactory.createURI(OWL2.Nothing.getURI());
+
+    /**
+     * The dataset on which the queries are executed.
+     */
+    protected Dataset dataset;
+
+    public AlgebraBasedSuggestor(Dataset dataset, DescriptionLogic logic) {
+        super(new QueryExecutionFactoryDataset(dataset), logic);
+        this.dataset = dataset;
+    }
+
+    @Override
+    protected LearningProblemSession createSession(Collection<String> positive, Collection<String> negative) {
+        return new AlgebraSession(positive, negative);
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        LOGGER.trace("Suggesting classes for {}", context);
+        return suggestClass((AlgebraSession) getSession(positive, negative), prepareClassExpression(context), null);
+    }
+
+    protected Collection<ScoredIRI> suggestClass(AlgebraSession session, ClassExpression prepared,
+            ScoreBound bound) {
+        Query query;
+        if (logic.supportsComplexConceptNegation()) {
+            query = createCountQuery(CLASS_VAR,
+                    createContextPattern(session, prepared, POS_VAR, true, createClassElementRenderer()),
+                    createContextPattern(session, prepared, NEG_VAR, true, createClassElementRenderer()));
+        } else {
+            query = createClassQuery(session, prepared);
+        }
+        addSolutionModifiers(query, session, prepared, bound);
+        return performQuery(query, new ScoredIriQuerySolutionMapper("?class", classBlackList), session,
+                new ArrayList<>());
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        LOGGER.trace("Suggesting negated classes for {}", context);
+        return suggestNegatedClass((AlgebraSession) getSession(positive, negative), prepareClassExpression(context),
+                null);
+    }
+
+    protected Collection<ScoredIRI> suggestNegatedClass(AlgebraSession session, ClassExpression prepared,
+            ScoreBound bound) {
+        Query query = createCountQuery(CLASS_VAR,
+                createContextPattern(session, prepared, POS_VAR, true, createNegatedClassElementRenderer()),
+                createContextPattern(session, prepared, NEG_VAR, true, createNegatedClassElementRenderer()));
+        addSolutionModifiers(query, session, prepared, bound);
+        return performQuery(query, new ScoredIriQuerySolutionMapper("?class", classBlackList), session,
+                new ArrayList<>());
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        LOGGER.trace("Suggesting properties for {}", context);
+        return suggestProperty((AlgebraSession) getSession(positive, negative), prepareClassExpression(context),
+                null);
+    }
+
+    protected Collection<ScoredIRI> suggestProperty(AlgebraSession session, ClassExpression prepared,
+            ScoreBound bound) {
+        List<ScoredIRI> results = new ArrayList<>();
+        suggestProperty(session, prepared, false, bound, results);
+        if (logic.supportsInverseProperties()) {
+            suggestProperty(session, prepared, true, bound, results);
+        }
+        return results;
+    }
+
+    protected void suggestProperty(AlgebraSession session, ClassExpression context, boolean inverted,
+            ScoreBound bound, List<ScoredIRI> results) {
+        Query query;
+        if (logic.supportsAtomicNegation()) {
+            query = createCountQuery(PROP_VAR,
+                    createContextPattern(session, context, POS_VAR, true, createPropertyElementRenderer(inverted)),
+                    createContextPattern(session, context, NEG_VAR, true, createPropertyElementRenderer(inverted)));
+        } else {
+            query = createPropertyQueryWithoutNegation(session, context, inverted);
+        }
+        addSolutionModifiers(query, session, context, bound);
+        performQuery(query, new ScoredIriQuerySolutionMapper("?prop", propertyBlackList, inverted), session,
+                results);
+    }
+
+    @Override
+    public void suggest(Collection<String> positive, Collection<String> negative,
+            Collection<ContextSuggestions> requests) {
+        AlgebraSession session = (AlgebraSession) getSession(positive, negative);
+        ClassExpression prepared;
+        for (ContextSuggestions request : requests) {
+            LOGGER.trace("Suggesting for {}", request.getContext());
+            prepared = prepareClassExpression(request.getContext());
+            if (request.isClassesRequested()) {
+                request.setClasses(suggestClass(session, prepared, request.getBound()));
+            }
+            if (request.isNegatedClassesRequested()) {
+                request.setNegatedClasses(suggestNegatedClass(session, prepared, request.getBound()));
+            }
+            if (request.isPropertiesRequested()) {
+                request.setProperties(suggestProperty(session, prepared, request.getBound()));
+            }
+        }
+    }
+
+    /**
+     * Adds the HAVING, ORDER BY and LIMIT clauses to the given suggestion query
+     * (see
+     * {@link SuggestionQueryBuilder#appendSolutionModifiers(StringBuilder, LearningProblemSession, ClassExpression, ScoreBound, String, String)}).
+     * The HAVING clause reuses the aggregations that are bound to
+     * {@code ?posHits} and {@code ?negHits}.
+     */
+    protected void addSolutionModifiers(Query query, LearningProblemSession session, ClassExpression context,
+            ScoreBound bound) {
+        if ((context instanceof Junction) && !((Junction) context).isConjunction()) {
+            return;
+        }
+        Expr posHits = query.getProject().getExpr(POS_HITS_VAR);
+        Expr negHits = query.getProject().getExpr(NEG_HITS_VAR);
+        if ((bound != null) && !bound.isTrivial()) {
+            Expr condition = new E_LogicalAnd(
+                    new E_GreaterThanOrEqual(posHits, NodeValue.makeInteger(bound.getMinPosCount())),
+                    new E_LessThanOrEqual(negHits, NodeValue.makeInteger(bound.getMaxNegCount())));
+            if (bound.isNegationIncluded()) {
+                condition = new E_LogicalOr(condition, new E_LogicalAnd(
+                        new E_LessThanOrEqual(posHits,
+                                NodeValue.makeInteger(bound.getNumPositives() - bound.getMinPosCount())),
+                        new E_GreaterThanOrEqual(negHits,
+                                NodeValue.makeInteger(bound.getNumNegatives() - bound.getMaxNegCount()))));
+            }
+            query.addHavingCondition(condition);
+        }
+        if (getMaxSuggestionsPerContext() > 0) {
+            Expr order = new E_Subtract(
+                    new E_Multiply(new ExprVar(POS_HITS_VAR),
+                            NodeValue.makeInteger(Math.max(1, session.getNumNegatives()))),
+                    new E_Multiply(new ExprVar(NEG_HITS_VAR),
+                            NodeValue.makeInteger(Math.max(1, session.getNumPositives()))));
+            if (logic.supportsComplexConceptNegation()) {
+                order = new E_NumAbs(order);
+            }
+            query.addOrderBy(order, Query.ORDER_DESCENDING);
+            query.setLimit(getMaxSuggestionsPerContext());
+        }
+    }
+
+    /**
+     * Scores the given expressions one after the other since the combined queries
+     * of the {@link SparqlBasedSuggestor} rely on rendered example VALUES.
+     */
+    @Override
+    public List<SelectionScores> scoreExpressions(List<ClassExpression> expressions, Collection<String> positive,
+            Collection<String> negative) {
+        List<SelectionScores> scores = new ArrayList<>(expressions.size());
+        for (ClassExpression expression : expressions) {
+            scores.add(scoreExpression(expression, positive, negative));
+        }
+        return scores;
+    }
+
+    @Override
+    public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        LOGGER.trace("Scoring expression {}", expression);
+        ClassExpression prepared = prepareClassExpression(expression);
+        AlgebraSession session = (AlgebraSession) getSession(positive, negative);
+        ElementGroup pattern = new ElementGroup();
+        pattern.addElement(new ElementSubQuery(createCountSubQuery(null, POS_HITS_VAR, POS_VAR,
+                createContextPattern(session, prepared, POS_VAR, true, null), false)));
+        pattern.addElement(new ElementSubQuery(createCountSubQuery(null, NEG_HITS_VAR, NEG_VAR,
+                createContextPattern(session, prepared, NEG_VAR, true, null), false)));
+        Query query = new Query();
+        query.setQuerySelectType();
+        query.addResultVar(POS_HITS_VAR);
+        query.addResultVar(NEG_HITS_VAR);
+        query.setQueryPattern(pattern);
+        try (QueryExecution qe = createQueryExecution(query)) {
+            ResultSet result = qe.execSelect();
+            if (result.hasNext()) {
+                QuerySolution s = result.next();
+                return new SelectionScores(s.getLiteral("posHits").getInt(), s.getLiteral("negHits").getInt());
+            } else {
+                LOGGER.warn("Got an empty result fo the expression {}. Returning a zero score.", expression);
+                return new SelectionScores(0, 0);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<String> retrieveInstances(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        Set<String> instances = new HashSet<>();
+        LOGGER.trace("Scoring expression {}", expression);
+        ClassExpression prepared = prepareClassExpression(expression);
+        AlgebraSession session = (AlgebraSession) getSession(positive, negative);
+        Query query = new Query();
+        query.setQuerySelectType();
+        query.addResultVar(INSTANCE_VAR);
+        query.setQueryPattern(createContextPattern(session, prepared, INSTANCE_VAR, true, null));
+        try (QueryExecution qe = createQueryExecution(query)) {
+            ResultSet result = qe.execSelect();
+            while (result.hasNext()) {
+                instances.add(result.next().getResource("instance").getURI());
+            }
+            return instances;
+        } catch (Exception e) {
+            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
+            throw e;
+        }
+    }
+
+    protected QueryExecution createQueryExecution(Query query) {
+        return QueryExecution.create().query(query).dataset(dataset).build();
+    }
+
+    protected Collection<ScoredIRI> performQuery(Query query, Function<QuerySolution, ScoredIRI> transformation,
+            LearningProblemSession session, Collection<ScoredIRI> results) {
+        // Create the query execution with try-catch to ensure that it will be closed
+        try (QueryExecution qe = createQueryExecution(query)) {
+            ResultSet result = qe.execSelect();
+            ScoredIRI sIri;
+            ScoredIRI baseScore = null;
+            List<ScoredIRI> scoredIris = new ArrayList<>();
+            while (result.hasNext()) {
+                sIri = transformation.apply(result.next());
+                if (sIri != null) {
+                    if (sIri.iriId != IriDictionary.NULL_ID) {
+                        scoredIris.add(sIri);
+                    } else {
+                        baseScore = sIri;
+                    }
+                }
+            }
+            addBaseScore(scoredIris, baseScore, session.getNumPositives(), session.getNumNegatives());
+            results.addAll(scoredIris);
+            return results;
+        } catch (Exception e) {
+            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the graph pattern of the given context for the given root variable.
+     *
+     * @param session                the session of the current learning problem
+     * @param context                the prepared context
+     * @param rootVar                the root variable
+     * @param addFilter              flag indicating whether the filter for
+     *                               disjunctive contexts should be added to the
+     *                               marked position
+     * @param markedPositionRenderer the function that adds the select statement
+     *                               that is expected at the marked position (can
+     *                               be {@code null} if the context does not
+     *                               contain a marked position)
+     * @return the graph pattern of the given context
+     */
+    protected ElementGroup createContextPattern(AlgebraSession session, ClassExpression context, Var rootVar,
+            boolean addFilter, BiConsumer<ElementGroup, Var> markedPositionRenderer) {
+        ElementGroup group = new ElementGroup();
+        context.accept(new ElementBuildingVisitor(group, rootVar, session.getData(rootVar),
+                addFilter ? createNotExistsFilters(context, rootVar) : null, markedPositionRenderer));
+        return group;
+    }
+
+    /**
+     * Creates the filters that ensure that the examples that are selected by the
+     * part of a disjunctive context that does not contain the marked position are
+     * not counted again (see
+     * {@link SuggestionQueryBuilder#createNotExistsFilter(ClassExpression)}).
+     */
+    protected List<ElementFilter> createNotExistsFilters(ClassExpression context, Var rootVar) {
+        if ((context instanceof Junction) && !((Junction) context).isConjunction()) {
+            ClassExpression reducedExpression = context.accept(new SubExpressionDeleter());
+            List<ClassExpression> expressions = new ArrayList<>();
+            SuggestionQueryBuilder.addUnionSubExpressionToFilter(reducedExpression, expressions);
+            List<ElementFilter> filters = new ArrayList<>();
+            for (ClassExpression expression : expressions) {
+                ElementGroup group = new ElementGroup();
+                ElementBuildingVisitor visitor = new ElementBuildingVisitor(group, rootVar, null, null, null);
+                visitor.setIntermediateVariableName("y");
+                expression.accept(visitor);
+                filters.add(new ElementFilter(new E_NotExists(group)));
+            }
+            return filters;
+        }
+        return null;
+    }
+
+    protected BiConsumer<ElementGroup, Var> createClassElementRenderer() {
+        return (g, v) -> addTriple(g, v, TYPE_NODE, CLASS_VAR);
+    }
+
+    protected BiConsumer<ElementGroup, Var> createNegatedClassElementRenderer() {
+        return (g, v) -> {
+            addTriple(g, CLASS_VAR, TYPE_NODE, CLASS_NODE);
+            ElementGroup notExists = new ElementGroup();
+            addTriple(notExists, v, TYPE_NODE, CLASS_VAR);
+            g.addElementFilter(new ElementFilter(new E_NotExists(notExists)));
+        };
+    }
+
+    protected BiConsumer<ElementGroup, Var> createPropertyElementRenderer(boolean inverted) {
+        if (inverted) {
+            return (g, v) -> addTriple(g, Var.alloc("o"), PROP_VAR, v);
+        } else {
+            return (g, v) -> addTriple(g, v, PROP_VAR, Var.alloc("o"));
+        }
+    }
+
+    /**
+     * Creates a class query for logics without complex negation (see
+     * {@link SuggestionQueryBuilder#generateClassQuery(LearningProblemSession, ClassExpression, ScoreBound)}).
+     */
+    protected Query createClassQuery(AlgebraSession session, ClassExpression context) {
+        ElementGroup pattern = new ElementGroup();
+        pattern.addElement(new ElementSubQuery(createCountSubQuery(CLASS_VAR, TP_VAR, POS_VAR,
+                createContextPattern(session, context, POS_VAR, true, createClassElementRenderer()), false)));
+        pattern.addElement(new ElementOptional(
+                createContextPattern(session, context, NEG_VAR, true, createClassElementRenderer())));
+        Query query = new Query();
+        query.setQuerySelectType();
+        query.addResultVar(CLASS_VAR);
+        query.addResultVar(POS_HITS_VAR, query.allocAggregate(new AggMax(new ExprVar(TP_VAR))));
+        query.addResultVar(NEG_HITS_VAR, query.allocAggregate(new AggCountVarDistinct(new ExprVar(NEG_VAR))));
+        query.addGroupBy(CLASS_VAR);
+        query.setQueryPattern(pattern);
+        return query;
+    }
+
+    /**
+     * Creates a property query for logics without negation (see
+     * {@link SuggestionQueryBuilder#generatePropertyQueryWithoutNegation}).
+     */
+    protected Query createPropertyQueryWithoutNegation(AlgebraSession session, ClassExpression context,
+            boolean inverted) {
+        ElementGroup pattern = new ElementGroup();
+        ElementGroup positivePattern = createContextPattern(session, context, POS_VAR, false,
+                createPropertyElementRenderer(inverted));
+        pattern.addElement(
+                new ElementSubQuery(createCountSubQuery(PROP_VAR, PC_VAR, POS_VAR, positivePattern, false)));
+        ElementGroup optional = createContextPattern(session, context, NEG_VAR, false,
+                createPropertyElementRenderer(inverted));
+        ExprList concatArgs = new ExprList();
+        concatArgs.add(new E_Str(new ExprVar(NEG_VAR)));
+        concatArgs.add(new E_Str(new ExprVar(PROP_VAR)));
+        optional.addElement(new ElementBind(NEG_ID_VAR, new E_StrConcat(concatArgs)));
+        pattern.addElement(new ElementOptional(optional));
+        Query query = new Query();
+        query.setQuerySelectType();
+        query.addResultVar(PROP_VAR);
+        query.addResultVar(POS_HITS_VAR, query.allocAggregate(new AggMax(new ExprVar(PC_VAR))));
+        query.addResultVar(NEG_HITS_VAR,
+                query.allocAggregate(new AggCountVarDistinct(new ExprVar(NEG_ID_VAR))));
+        query.addGroupBy(PROP_VAR);
+        query.setQueryPattern(pattern);
+        return query;
+    }
+
+    /**
+     * Creates a query that counts the positive and negative examples for each
+     * value of the given IRI variable in two sub queries that are connected via
+     * UNION (see e.g.
+     * {@link SuggestionQueryBuilder#generateClassQueryForGeneralNegation(LearningProblemSession, ClassExpression, ScoreBound)}).
+     */
+    protected Query createCountQuery(Var iriVar, ElementGroup positivePattern, ElementGroup negativePattern) {
+        ElementUnion union = new ElementUnion();
+        union.addElement(
+                new ElementSubQuery(createCountSubQuery(iriVar, TP_VAR, POS_VAR, positivePattern, true)));
+        union.addElement(
+                new ElementSubQuery(createCountSubQuery(iriVar, FP_VAR, NEG_VAR, negativePattern, true)));
+        ElementGroup pattern = new ElementGroup();
+        pattern.addElement(union);
+        Query query = new Query();
+        query.setQuerySelectType();
+        query.addResultVar(iriVar);
+        query.addResultVar(POS_HITS_VAR, query.allocAggregate(new AggMax(new ExprVar(TP_VAR))));
+        query.addResultVar(NEG_HITS_VAR, query.allocAggregate(new AggMax(new ExprVar(FP_VAR))));
+        query.addGroupBy(iriVar);
+        query.setQueryPattern(pattern);
+        return query;
+    }
+
+    /**
+     * Creates a sub query that counts the distinct values of the given example
+     * variable.
+     *
+     * @param iriVar      the variable that is used for grouping (can be
+     *                    {@code null})
+     * @param countVar    the variable to which the count is bound
+     * @param exampleVar  the variable of the examples that are counted
+     * @param pattern     the pattern of the sub query
+     * @param addOtherVar flag indicating whether the other count variable
+     *                    (?tp or ?fp) should be bound to 0
+     * @return the sub query
+     */
+    protected Query createCountSubQuery(Var iriVar, Var countVar, Var exampleVar, Element pattern,
+            boolean addOtherVar) {
+        Query query = new Query();
+        query.setQuerySelectType();
+        if (iriVar != null) {
+            query.addResultVar(iriVar);
+        }
+        Expr count = query.allocAggregate(new AggCountVarDistinct(new ExprVar(exampleVar)));
+        Expr zero = NodeValue.makeInteger(0);
+        if (addOtherVar && FP_VAR.equals(countVar)) {
+            query.addResultVar(TP_VAR, zero);
+        }
+        query.addResultVar(countVar, count);
+        if (addOtherVar && TP_VAR.equals(countVar)) {
+            query.addResultVar(FP_VAR, zero);
+        }
+        if (iriVar != null) {
+            query.addGroupBy(iriVar);
+        }
+        query.setQueryPattern(pattern);
+        return query;
+    }
+
+    protected static void addTriple(ElementGroup group, Node s, Node p, Node o) {
+        ElementPathBlock block = new ElementPathBlock();
+        block.addTriple(Triple.create(s, p, o));
+        group.addElement(block);
+    }
+
+    /**
+     * A session that holds the VALUES blocks of a learning problem as
+     * {@link ElementData} instances.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class AlgebraSession extends LearningProblemSession {
+        protected ElementData positiveData;
+        protected ElementData negativeData;
+        protected ElementData instanceData;
+
+        public AlgebraSession(Collection<String> positive, Collection<String> negative) {
+            super(positive, negative, null, null, null);
+            positiveData = createData(POS_VAR, positive);
+            negativeData = createData(NEG_VAR, negative);
+            instanceData = createData(INSTANCE_VAR, positive);
+            for (String example : negative) {
+                instanceData.add(BindingFactory.binding(INSTANCE_VAR, NodeFactory.createURI(example)));
+            }
+        }
+
+        protected static ElementData createData(Var var, Collection<String> examples) {
+            ElementData data = new ElementData();
+            data.add(var);
+            for (String example : examples) {
+                data.add(BindingFactory.binding(var, NodeFactory.createURI(example)));
+            }
+            return data;
+        }
+
+        public ElementData getData(Var var) {
+            if (POS_VAR.equals(var)) {
+                return positiveData;
+            } else if (NEG_VAR.equals(var)) {
+                return negativeData;
+            } else {
+                return instanceData;
+            }
+        }
+    }
+
+    /**
+     * A visitor that creates the graph pattern of a class expression in the same
+     * way as the {@link SparqlBuildingVisitor} but based on ARQ syntax elements.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    public static class ElementBuildingVisitor implements ClassExpressionVisitor {
+
+        protected static final String INTERMEDIATE_VARIABLE_NAME = "x";
+
+        protected ElementGroup group;
+        protected Deque<Var> variables = new ArrayDeque<Var>();
+        protected ElementData values;
+        protected List<ElementFilter> filters;
+        protected String intermediateVariableName = INTERMEDIATE_VARIABLE_NAME;
+        protected int nextVariableId = 0;
+        protected boolean isRoot = true;
+        protected BiConsumer<ElementGroup, Var> markedPositionRenderer;
+        protected NegatingVisitor negator = new NegatingVisitor();
+
+        /**
+         * Constructor.
+         *
+         * @param group                  the group to which the created elements are
+         *                               added
+         * @param rootVar                the root variable
+         * @param values                 the VALUES block binding the root variable
+         *                               (can be null)
+         * @param filters                additional filters that should be added to
+         *                               the marked position (can be null)
+         * @param markedPositionRenderer the function that adds the select statement
+         *                               that is expected at the marked position
+         */
+        public ElementBuildingVisitor(ElementGroup group, Var rootVar, ElementData values,
+                List<ElementFilter> filters, BiConsumer<ElementGroup, Var> markedPositionRenderer) {
+            super();
+            this.group = group;
+            this.values = values;
+            this.filters = filters;
+            this.markedPositionRenderer = markedPositionRenderer;
+            variables.addFirst(rootVar);
+        }
+
+        protected Var getNextVariable() {
+            return Var.alloc(intermediateVariableName + nextVariableId++);
+        }
+
+        protected void addValues() {
+            if (isRoot && (values != null)) {
+                group.addElement(values);
+            }
+        }
+
+        @Override
+        public void visitNamedClass(NamedClass node) {
+            addValues();
+            if (Suggestor.CONTEXT_POSITION_MARKER.equals(node)) {
+                markedPositionRenderer.accept(group, variables.peek());
+                if (filters != null) {
+                    for (ElementFilter filter : filters) {
+                        group.addElementFilter(filter);
+                    }
+                }
+            } else if (NamedClass.TOP.equals(node)) {
+                // Nothing to do
+            } else if (NamedClass.BOTTOM.equals(node)) {
+                addTriple(group, variables.peek(), TYPE_NODE, NOTHING_NODE);
+            } else if (node.isNegated()) {
+                ElementGroup notExists = new ElementGroup();
+                addTriple(notExists, variables.peek(), TYPE_NODE, NodeFactory.createURI(node.getName()));
+                group.addElementFilter(new ElementFilter(new E_NotExists(notExists)));
+            } else {
+                addTriple(group, variables.peek(), TYPE_NODE, NodeFactory.createURI(node.getName()));
+            }
+        }
+
+        @Override
+        public void visitJunction(Junction node) {
+            if (node.isConjunction()) {
+                addValues();
+                boolean oldRoot = isRoot;
+                isRoot = false;
+                for (ClassExpression child : node.getChildren()) {
+                    child.accept(this);
+                }
+                isRoot = oldRoot;
+            } else {
+                // This is a disjunction, so we have to create a UNION (wrapped into a FILTER
+                // EXISTS if the disjunction has been kept in place by the normalization)
+                boolean asFilter = !isRoot && !UnionNormalizer.containsMarker(node);
+                ElementUnion union = new ElementUnion();
+                ElementGroup parent = group;
+                for (ClassExpression child : node.getChildren()) {
+                    group = new ElementGroup();
+                    // Note: we do not change the isRoot flag (see SparqlBuildingVisitor)
+                    child.accept(this);
+                    union.addElement(group);
+                }
+                group = parent;
+                if (asFilter) {
+                    ElementGroup exists = new ElementGroup();
+                    exists.addElement(union);
+                    group.addElementFilter(new ElementFilter(new E_Exists(exists)));
+                } else {
+                    group.addElement(union);
+                }
+            }
+        }
+
+        @Override
+        public void visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
+            addValues();
+            boolean oldRoot = isRoot;
+            isRoot = false;
+            if (node.isExists()) {
+                Var nextVariable = getNextVariable();
+                Node role = NodeFactory.createURI(node.getRole());
+                if (node.isInverted()) {
+                    addTriple(group, nextVariable, role, variables.peek());
+                } else {
+                    addTriple(group, variables.peek(), role, nextVariable);
+                }
+                variables.addFirst(nextVariable);
+                node.getTailExpression().accept(this);
+                variables.removeFirst();
+            } else {
+                ElementGroup parent = group;
+                group = new ElementGroup();
+                negator.negateExpression(node).accept(this);
+                parent.addElementFilter(new ElementFilter(new E_NotExists(group)));
+                group = parent;
+            }
+            isRoot = oldRoot;
+        }
+
+        /**
+         * @param intermediateVariableName the intermediateVariableName to set
+         */
+        public void setIntermediateVariableName(String intermediateVariableName) {
+            this.intermediateVariableName = intermediateVariableName;
+        }
+    }
+}
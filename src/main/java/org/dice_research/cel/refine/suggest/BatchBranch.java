@@ -0,0 +1,119 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.jena.query.QuerySolution;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.sparql.QueryType;
+
+/**
+ * A single query that is sent together with other queries in a combined query
+ * (see {@link SparqlBasedSuggestor#performBatchQuery(List)} and
+ * {@link BatchQueryBuilder#generateBatchQuery(List)}). If the session of the
+ * learning problem has been split into shards, the query is performed for each
+ * shard separately and the results are merged afterwards (see
+ * {@link #mergeShardResults()}).
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class BatchBranch {
+    /**
+     * The type of the query of this branch.
+     */
+    protected QueryType type;
+    /**
+     * The class expression from which the query of this branch is generated.
+     */
+    protected ClassExpression origin;
+    /**
+     * The generator of the query of this branch for a given session.
+     */
+    protected Function<LearningProblemSession, String> queryGenerator;
+    /**
+     * The query of this branch.
+     */
+    protected String query;
+    /**
+     * The transformation that is applied to the results of this branch.
+     */
+    protected Function<QuerySolution, ScoredIRI> transformation;
+    /**
+     * The results of this branch.
+     */
+    protected List<ScoredIRI> results = new ArrayList<>();
+    /**
+     * The collection to which the results of this branch should be added after
+     * all queries are done.
+     */
+    protected Collection<ScoredIRI> target;
+    /**
+     * The score that has been retrieved without an IRI (see
+     * {@link SparqlBasedSuggestor#addBaseScore(List, ScoredIRI, int, int)}) or
+     * {@code null} if there is no such score.
+     */
+    protected ScoredIRI baseScore;
+    /**
+     * Flag indicating whether the query of an unsharded session only returns
+     * IRIs that select at least one positive example. The merged results of
+     * sharded queries are filtered accordingly.
+     */
+    protected boolean positivesRequired = false;
+    /**
+     * The bound that the query of an unsharded session applies or {@code null}.
+     * The merged results of sharded queries are filtered accordingly.
+     */
+    protected ScoreBound bound = null;
+    /**
+     * The branches that have been performed for the single shards of the
+     * session.
+     */
+    protected List<BatchBranch> shardBranches = new ArrayList<>();
+
+    public BatchBranch(QueryType type, ClassExpression origin,
+            Function<LearningProblemSession, String> queryGenerator,
+            Function<QuerySolution, ScoredIRI> transformation, Collection<ScoredIRI> target) {
+        super();
+        this.type = type;
+        this.origin = origin;
+        this.queryGenerator = queryGenerator;
+        this.transformation = transformation;
+        this.target = target;
+    }
+
+    /**
+     * Sums up the results and base scores of the shard branches of this branch
+     * and stores them in this branch. Afterwards, the shard branches are
+     * removed.
+     */
+    public void mergeShardResults() {
+        Map<String, ScoredIRI> mergedResults = new LinkedHashMap<>();
+        ScoredIRI mergedBaseScore = null;
+        for (BatchBranch shardBranch : shardBranches) {
+            for (ScoredIRI result : shardBranch.results) {
+                ScoredIRI merged = mergedResults.putIfAbsent(
+                        (result.isInverted() ? "^" : "") + result.getIri(), result);
+                if (merged != null) {
+                    merged.add(result.getPosCount(), result.getNegCount());
+                }
+            }
+            if (shardBranch.baseScore != null) {
+                if (mergedBaseScore == null) {
+                    mergedBaseScore = new ScoredIRI(null, 0, 0);
+                }
+                mergedBaseScore.add(shardBranch.baseScore.getPosCount(), shardBranch.baseScore.getNegCount());
+            }
+        }
+        results.addAll(mergedResults.values());
+        if (positivesRequired) {
+            results.removeIf(s -> s.getPosCount() == 0);
+        }
+        baseScore = mergedBaseScore;
+        shardBranches.clear();
+    }
+}
@@ -0,0 +1,107 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines the queries of several {@link BatchBranch}es into batch queries.
+ * The branches are split into chunks of at most {@link #maxContextsPerQuery}
+ * branches and the queries of a chunk are connected via UNION statements. For
+ * a session that has been split into shards, a branch is created for every
+ * branch and shard (see
+ * {@link #createShardBranches(List, LearningProblemSession)}).
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class BatchQueryBuilder {
+
+    /**
+     * The maximum number of contexts that are combined into a single query when
+     * suggestions for several contexts are requested at once. A value of 1 leads
+     * to a single query per context.
+     */
+    protected int maxContextsPerQuery = SparqlBasedSuggestor.DEFAULT_MAX_CONTEXTS_PER_QUERY;
+
+    /**
+     * Combines the queries of the given branches into a single query by wrapping
+     * them into sub queries that are connected via UNION statements. Each sub
+     * query is marked with its position in the given list using the
+     * {@link SparqlBasedSuggestor#BRANCH_VARIABLE}.
+     *
+     * @param branches the branches that should be combined
+     * @return the combined query
+     */
+    public String generateBatchQuery(List<BatchBranch> branches) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT * WHERE {\n");
+        for (int i = 0; i < branches.size(); ++i) {
+            if (i > 0) {
+                queryBuilder.append("  UNION\n");
+            }
+            queryBuilder.append("  { {\n");
+            queryBuilder.append(branches.get(i).query);
+            queryBuilder.append("\n  } BIND(");
+            queryBuilder.append(i);
+            queryBuilder.append(" AS ?");
+            queryBuilder.append(SparqlBasedSuggestor.BRANCH_VARIABLE);
+            queryBuilder.append(") }\n");
+        }
+        queryBuilder.append('}');
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Splits the given list of branches into chunks of at most
+     * {@link #maxContextsPerQuery} branches. Each chunk is sent as a single
+     * query.
+     *
+     * @param branches the branches that should be queried
+     * @return the chunks of the given list
+     */
+    public List<List<BatchBranch>> createChunks(List<BatchBranch> branches) {
+        int chunkSize = Math.max(1, maxContextsPerQuery);
+        List<List<BatchBranch>> chunks = new ArrayList<>((branches.size() + chunkSize - 1) / chunkSize);
+        for (int start = 0; start < branches.size(); start += chunkSize) {
+            chunks.add(branches.subList(start, Math.min(start + chunkSize, branches.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Creates a branch for the given shard for each of the given branches and
+     * generates its query. The created branches are added to the shard branches
+     * of their original branch (see {@link BatchBranch#mergeShardResults()}).
+     *
+     * @param branches the branches of the complete learning problem
+     * @param shard    the shard for which the queries should be generated
+     * @return the branches of the given shard
+     */
+    public List<BatchBranch> createShardBranches(List<BatchBranch> branches, LearningProblemSession shard) {
+        List<BatchBranch> shardBranches = new ArrayList<>(branches.size());
+        for (BatchBranch branch : branches) {
+            BatchBranch shardBranch = new BatchBranch(branch.type, branch.origin, branch.queryGenerator,
+                    branch.transformation, null);
+            shardBranch.query = branch.queryGenerator.apply(shard);
+            branch.shardBranches.add(shardBranch);
+            shardBranches.add(shardBranch);
+        }
+        return shardBranches;
+    }
+
+    /**
+     * @return the maximum number of contexts that are combined into a single
+     *         query
+     */
+    public int getMaxContextsPerQuery() {
+        return maxContextsPerQuery;
+    }
+
+    /**
+     * @param maxContextsPerQuery the maximum number of contexts that are combined
+     *                            into a single query
+     */
+    public void setMaxContextsPerQuery(int maxContextsPerQuery) {
+        this.maxContextsPerQuery = maxContextsPerQuery;
+    }
+}
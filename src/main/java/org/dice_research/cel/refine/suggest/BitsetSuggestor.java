@@ -0,0 +1,686 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.vocabulary.OWL2;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.ClassExpressionVisitingCreator;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.graph.InMemoryGraph;
+import org.dice_research.cel.sparql.InstanceRetriever;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A suggestor that evaluates class expressions directly on an
+ * {@link InMemoryGraph} instead of sending SPARQL queries. Class expressions are
+ * evaluated as {@link RoaringBitmap} instances of node ids, i.e., the classes
+ * are looked up in the precomputed class extensions, conjunctions and
+ * disjunctions are intersections and unions, negations are complements and
+ * quantified roles are computed with the adjacency lists of the graph.
+ *
+ * <p>
+ * The results are the same as the results of the {@link SparqlBasedSuggestor}
+ * on the same graph. In particular, a suggestion for a context is counted for
+ * every example that reaches the suggested class (or property) at the marked
+ * position. Examples that are selected by the context independent of the
+ * marked position (e.g., by another branch of a disjunction) are added to the
+ * counts of all suggestions. A marker within a universal restriction does not
+ * lead to any suggestions.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class BitsetSuggestor implements ExtendedSuggestor, InstanceRetriever {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BitsetSuggestor.class);
+
+    /**
+     * The number of learning problem sessions that are kept at the same time.
+     */
+    public static final int MAX_NUMBER_OF_SESSIONS = 8;
+
+    protected InMemoryGraph graph;
+    protected DescriptionLogic logic;
+    protected Set<String> classBlackList = new HashSet<String>();
+    protected Set<String> propertyBlackList = new HashSet<String>();
+    /**
+     * The sessions of the last learning problems.
+     */
+    protected BitsetSession[] sessions = new BitsetSession[MAX_NUMBER_OF_SESSIONS];
+    /**
+     * The slot of the next session.
+     */
+    protected int nextSessionSlot = 0;
+
+    public BitsetSuggestor(InMemoryGraph graph, DescriptionLogic logic) {
+        this.graph = graph;
+        this.logic = logic;
+    }
+
+    /**
+     * Creates a suggestor for the graph in the given RDF file.
+     *
+     * @param file  the path or URL of the RDF file
+     * @param logic the description logic that should be used
+     * @return the created suggestor
+     */
+    public static BitsetSuggestor create(String file, DescriptionLogic logic) {
+        long startTime = System.currentTimeMillis();
+        InMemoryGraph graph = InMemoryGraph.load(file);
+        LOGGER.info("Loaded {} nodes, {} edges, {} properties and {} classes in {}ms.", graph.getNumberOfNodes(),
+                graph.getNumberOfEdges(), graph.getNumberOfProperties(), graph.getNumberOfClasses(),
+                System.currentTimeMillis() - startTime);
+        return new BitsetSuggestor(graph, logic);
+    }
+
+    /**
+     * Returns the session of the learning problem with the given examples. If
+     * there is no such session, a new session is created. If the maximum number
+     * of sessions is reached, the oldest session is replaced.
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return the session of the learning problem with the given examples
+     */
+    protected BitsetSession getSession(Collection<String> positive, Collection<String> negative) {
+        synchronized (sessions) {
+            for (int i = 0; i < sessions.length; ++i) {
+                if ((sessions[i] != null) && sessions[i].isSessionOf(positive, negative)) {
+                    return sessions[i];
+                }
+            }
+            BitsetSession session = new BitsetSession(graph, positive, negative);
+            sessions[nextSessionSlot] = session;
+            nextSessionSlot = (nextSessionSlot + 1) % sessions.length;
+            return session;
+        }
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        LOGGER.trace("Suggesting classes for {}", context);
+        List<ScoredIRI> results = new ArrayList<>();
+        MarkedPosition position = evaluateContext(getSession(positive, negative), context);
+        if (position == null) {
+            return results;
+        }
+        int numberOfClasses = graph.getNumberOfClasses();
+        int[] posCounts = new int[numberOfClasses];
+        int[] negCounts = new int[numberOfClasses];
+        int[] lastExample = new int[numberOfClasses];
+        Arrays.fill(lastExample, -1);
+        IntBuffer typeOffsets = graph.getTypeOffsets();
+        IntBuffer types = graph.getTypes();
+        int numberOfNodes = graph.getNumberOfNodes();
+        int[] counts;
+        int node;
+        int type;
+        IntIterator iterator;
+        for (int e = 0; e < position.witnesses.length; ++e) {
+            if (position.witnesses[e] == null) {
+                continue;
+            }
+            counts = position.session.isPositive(e) ? posCounts : negCounts;
+            iterator = position.witnesses[e].getIntIterator();
+            while (iterator.hasNext() && ((node = iterator.next()) < numberOfNodes)) {
+                for (int i = typeOffsets.get(node); i < typeOffsets.get(node + 1); ++i) {
+                    type = types.get(i);
+                    // Count every example only once per class
+                    if (lastExample[type] != e) {
+                        lastExample[type] = e;
+                        ++counts[type];
+                    }
+                }
+            }
+        }
+        // Without complex concept negation, classes that do not select any positive
+        // example are not suggested
+        boolean positivesRequired = !logic.supportsComplexConceptNegation();
+        for (int c = 0; c < numberOfClasses; ++c) {
+            if ((posCounts[c] > 0) || (!positivesRequired && (negCounts[c] > 0))) {
+                addResult(graph.getClassNode(c), classBlackList, posCounts[c] + position.basePosCount,
+                        negCounts[c] + position.baseNegCount, false, results);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        LOGGER.trace("Suggesting negated classes for {}", context);
+        List<ScoredIRI> results = new ArrayList<>();
+        MarkedPosition position = evaluateContext(getSession(positive, negative), context);
+        if (position == null) {
+            return results;
+        }
+        // An example is selected by a negated class if at least one of its nodes at
+        // the marked position is not an instance of the class. Hence, we count the
+        // examples for which all nodes are instances of the class.
+        int numberOfClasses = graph.getNumberOfClasses();
+        int[] posAllInstances = new int[numberOfClasses];
+        int[] negAllInstances = new int[numberOfClasses];
+        int[] occurrences = new int[numberOfClasses];
+        int[] touchedClasses = new int[numberOfClasses];
+        int numberOfTouchedClasses;
+        int posExamples = 0;
+        int negExamples = 0;
+        IntBuffer typeOffsets = graph.getTypeOffsets();
+        IntBuffer types = graph.getTypes();
+        int numberOfNodes = graph.getNumberOfNodes();
+        int[] counts;
+        int numberOfWitnesses;
+        int node;
+        int type;
+        IntIterator iterator;
+        for (int e = 0; e < position.witnesses.length; ++e) {
+            if (position.witnesses[e] == null) {
+                continue;
+            }
+            if (position.session.isPositive(e)) {
+                counts = posAllInstances;
+                ++posExamples;
+            } else {
+                counts = negAllInstances;
+                ++negExamples;
+            }
+            numberOfWitnesses = position.witnesses[e].getCardinality();
+            numberOfTouchedClasses = 0;
+            iterator = position.witnesses[e].getIntIterator();
+            while (iterator.hasNext() && ((node = iterator.next()) < numberOfNodes)) {
+                for (int i = typeOffsets.get(node); i < typeOffsets.get(node + 1); ++i) {
+                    type = types.get(i);
+                    if (occurrences[type] == 0) {
+                        touchedClasses[numberOfTouchedClasses] = type;
+                        ++numberOfTouchedClasses;
+                    }
+                    ++occurrences[type];
+                }
+            }
+            for (int i = 0; i < numberOfTouchedClasses; ++i) {
+                if (occurrences[touchedClasses[i]] == numberOfWitnesses) {
+                    ++counts[touchedClasses[i]];
+                }
+                occurrences[touchedClasses[i]] = 0;
+            }
+        }
+        int posCount;
+        int negCount;
+        for (int c = 0; c < numberOfClasses; ++c) {
+            if (graph.isDeclaredClass(c)) {
+                posCount = posExamples - posAllInstances[c];
+                negCount = negExamples - negAllInstances[c];
+                if ((posCount > 0) || (negCount > 0)) {
+                    addResult(graph.getClassNode(c), classBlackList, posCount + position.basePosCount,
+                            negCount + position.baseNegCount, false, results);
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        LOGGER.trace("Suggesting properties for {}", context);
+        List<ScoredIRI> results = new ArrayList<>();
+        MarkedPosition position = evaluateContext(getSession(positive, negative), context);
+        if (position == null) {
+            return results;
+        }
+        boolean inverse = logic.supportsInverseProperties();
+        // The counts of the outgoing properties are stored at even positions, the
+        // counts of the incoming properties at odd positions
+        int numberOfKeys = 2 * graph.getNumberOfProperties();
+        int[] posCounts = new int[numberOfKeys];
+        int[] negCounts = new int[numberOfKeys];
+        int[] lastExample = new int[numberOfKeys];
+        Arrays.fill(lastExample, -1);
+        IntBuffer outOffsets = graph.getOutOffsets();
+        IntBuffer outProperties = graph.getOutProperties();
+        IntBuffer inOffsets = graph.getInOffsets();
+        IntBuffer inProperties = graph.getInProperties();
+        int numberOfNodes = graph.getNumberOfNodes();
+        int[] counts;
+        int node;
+        int key;
+        IntIterator iterator;
+        for (int e = 0; e < position.witnesses.length; ++e) {
+            if (position.witnesses[e] == null) {
+                continue;
+            }
+            counts = position.session.isPositive(e) ? posCounts : negCounts;
+            iterator = position.witnesses[e].getIntIterator();
+            while (iterator.hasNext() && ((node = iterator.next()) < numberOfNodes)) {
+                for (int i = outOffsets.get(node); i < outOffsets.get(node + 1); ++i) {
+                    key = outProperties.get(i) << 1;
+                    if (lastExample[key] != e) {
+                        lastExample[key] = e;
+                        ++counts[key];
+                    }
+                }
+                if (inverse) {
+                    for (int i = inOffsets.get(node); i < inOffsets.get(node + 1); ++i) {
+                        key = (inProperties.get(i) << 1) + 1;
+                        if (lastExample[key] != e) {
+                            lastExample[key] = e;
+                            ++counts[key];
+                        }
+                    }
+                }
+            }
+        }
+        // Without atomic negation, properties that do not select any positive
+        // example are not suggested
+        boolean positivesRequired = !logic.supportsAtomicNegation();
+        String iri;
+        for (key = 0; key < numberOfKeys; ++key) {
+            if ((posCounts[key] > 0) || (!positivesRequired && (negCounts[key] > 0))) {
+                iri = graph.getProperty(key >> 1);
+                if (!propertyBlackList.contains(iri)) {
+                    results.add(new ScoredIRI(iri, posCounts[key] + position.basePosCount,
+                            negCounts[key] + position.baseNegCount, (key & 1) == 1));
+                }
+            }
+        }
+        return results;
+    }
+
+    protected void addResult(Node node, Set<String> blacklist, int posCount, int negCount, boolean inverted,
+            List<ScoredIRI> results) {
+        // Blank nodes cannot be suggested
+        if (node.isURI() && !blacklist.contains(node.getURI())) {
+            results.add(new ScoredIRI(node.getURI(), posCount, negCount, inverted));
+        }
+    }
+
+    /**
+     * Evaluates the given context for the examples of the given session. The
+     * result contains the nodes that each example reaches at the marked position
+     * as well as the number of examples that are selected by the context even
+     * without the marked position.
+     *
+     * @param session the session of the current learning problem
+     * @param context the class expression with the marked position
+     * @return the evaluated marked position or {@code null} if the marked
+     *         position cannot lead to suggestions
+     */
+    protected MarkedPosition evaluateContext(BitsetSession session, ClassExpression context) {
+        if (isMarkerInUniversalRestriction(context)) {
+            return null;
+        }
+        EvaluatingVisitor evaluator = new EvaluatingVisitor(graph, session.getUniverse());
+        // The marker has an empty extension, i.e., the base contains all examples that
+        // are selected without the marked position
+        RoaringBitmap base = context.accept(evaluator);
+        MarkedPosition position = new MarkedPosition();
+        position.session = session;
+        position.basePosCount = RoaringBitmap.andCardinality(base, session.getPositives());
+        position.baseNegCount = RoaringBitmap.andCardinality(base, session.getNegatives());
+        int[] examples = session.getExamples();
+        position.witnesses = new RoaringBitmap[examples.length];
+        for (int e = 0; e < examples.length; ++e) {
+            if (!base.contains(examples[e])) {
+                position.witnesses[e] = RoaringBitmap.bitmapOf(examples[e]);
+            }
+        }
+        collectWitnesses(context, position.witnesses, evaluator);
+        return position;
+    }
+
+    /**
+     * Follows the path from the root of the given expression to the marked
+     * position and updates the nodes that the single examples reach on this path.
+     *
+     * @param expression the current (sub) expression that contains the marker
+     * @param witnesses  the nodes of the single examples at the root of the
+     *                   given expression ({@code null} if there are none)
+     * @param evaluator  the evaluator of the sub expressions that do not contain
+     *                   the marker
+     */
+    protected void collectWitnesses(ClassExpression expression, RoaringBitmap[] witnesses,
+            EvaluatingVisitor evaluator) {
+        if (expression instanceof Junction) {
+            Junction junction = (Junction) expression;
+            ClassExpression markedChild = null;
+            RoaringBitmap filter = null;
+            for (ClassExpression child : junction.getChildren()) {
+                if (UnionNormalizer.containsMarker(child)) {
+                    markedChild = child;
+                } else if (junction.isConjunction()) {
+                    // The other children of a conjunction have to be fulfilled by the same node.
+                    // The other children of a disjunction are part of the base.
+                    filter = (filter == null) ? child.accept(evaluator)
+                            : RoaringBitmap.and(filter, child.accept(evaluator));
+                }
+            }
+            if (filter != null) {
+                for (int e = 0; e < witnesses.length; ++e) {
+                    if (witnesses[e] != null) {
+                        witnesses[e] = RoaringBitmap.and(witnesses[e], filter);
+                        if (witnesses[e].isEmpty()) {
+                            witnesses[e] = null;
+                        }
+                    }
+                }
+            }
+            collectWitnesses(markedChild, witnesses, evaluator);
+        } else if (expression instanceof SimpleQuantifiedRole) {
+            SimpleQuantifiedRole role = (SimpleQuantifiedRole) expression;
+            int property = graph.getPropertyId(role.getRole());
+            for (int e = 0; e < witnesses.length; ++e) {
+                if (witnesses[e] != null) {
+                    witnesses[e] = (property < 0) ? null
+                            : graph.getNeighbors(witnesses[e], property, role.isInverted());
+                    if ((witnesses[e] != null) && witnesses[e].isEmpty()) {
+                        witnesses[e] = null;
+                    }
+                }
+            }
+            collectWitnesses(role.getTailExpression(), witnesses, evaluator);
+        }
+        // Otherwise, we reached the marker
+    }
+
+    /**
+     * Checks whether the marker of the given expression is located within a
+     * universal restriction. Such a marker is negated when the restriction is
+     * evaluated, i.e., it cannot be used to suggest anything.
+     */
+    protected static boolean isMarkerInUniversalRestriction(ClassExpression expression) {
+        if (expression instanceof Junction) {
+            for (ClassExpression child : ((Junction) expression).getChildren()) {
+                if (isMarkerInUniversalRestriction(child)) {
+                    return true;
+                }
+            }
+        } else if (expression instanceof SimpleQuantifiedRole) {
+            SimpleQuantifiedRole role = (SimpleQuantifiedRole) expression;
+            if (!role.isExists()) {
+                return UnionNormalizer.containsMarker(role.getTailExpression());
+            }
+            return isMarkerInUniversalRestriction(role.getTailExpression());
+        }
+        return false;
+    }
+
+    @Override
+    public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        LOGGER.trace("Scoring expression {}", expression);
+        BitsetSession session = getSession(positive, negative);
+        RoaringBitmap selected = expression.accept(new EvaluatingVisitor(graph, session.getUniverse()));
+        return new SelectionScores(RoaringBitmap.andCardinality(selected, session.getPositives()),
+                RoaringBitmap.andCardinality(selected, session.getNegatives()));
+    }
+
+    @Override
+    public Set<String> retrieveInstances(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        BitsetSession session = getSession(positive, negative);
+        RoaringBitmap selected = expression.accept(new EvaluatingVisitor(graph, session.getUniverse()));
+        Set<String> instances = new HashSet<>();
+        int[] examples = session.getExamples();
+        for (int e = 0; e < examples.length; ++e) {
+            if (selected.contains(examples[e])) {
+                instances.add(session.getExampleIri(e));
+            }
+        }
+        return instances;
+    }
+
+    public void addToClassBlackList(String classIRI) {
+        this.classBlackList.add(classIRI);
+    }
+
+    public void addToClassBlackList(Collection<String> classIRIs) {
+        this.classBlackList.addAll(classIRIs);
+    }
+
+    public void addToPropertyBlackList(String propertyIRI) {
+        this.propertyBlackList.add(propertyIRI);
+    }
+
+    public void addToPropertyBlackList(Collection<String> propertyIRIs) {
+        this.propertyBlackList.addAll(propertyIRIs);
+    }
+
+    /**
+     * @return the graph
+     */
+    public InMemoryGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * The nodes that the single examples of a session reach at the marked
+     * position of a context.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class MarkedPosition {
+        protected BitsetSession session;
+        /**
+         * The nodes per example (in the order of
+         * {@link BitsetSession#getExamples()}) or {@code null} if the example does
+         * not reach the marked position or is part of the base.
+         */
+        protected RoaringBitmap[] witnesses;
+        /**
+         * The number of positive examples that are selected without the marked
+         * position.
+         */
+        protected int basePosCount;
+        /**
+         * The number of negative examples that are selected without the marked
+         * position.
+         */
+        protected int baseNegCount;
+    }
+
+    /**
+     * The examples of a single learning problem mapped to the node ids of the
+     * graph. Examples that are not part of the graph get ids after the ids of the
+     * nodes of the graph. Like the {@link LearningProblemSession}, a session is
+     * identified by the identity of the two example collections.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class BitsetSession {
+        protected final Collection<String> positive;
+        protected final Collection<String> negative;
+        /**
+         * The node ids of the distinct positive examples followed by the node ids
+         * of the distinct negative examples.
+         */
+        protected int[] examples;
+        protected String[] exampleIris;
+        protected int numberOfPositives;
+        protected RoaringBitmap positives = new RoaringBitmap();
+        protected RoaringBitmap negatives = new RoaringBitmap();
+        /**
+         * All nodes of the graph and all examples that are not part of the graph.
+         */
+        protected RoaringBitmap universe;
+
+        public BitsetSession(InMemoryGraph graph, Collection<String> positive, Collection<String> negative) {
+            this.positive = positive;
+            this.negative = negative;
+            List<String> iris = new ArrayList<>(positive.size() + negative.size());
+            List<Integer> ids = new ArrayList<>(positive.size() + negative.size());
+            Map<String, Integer> unknownIds = new HashMap<>();
+            addExamples(graph, positive, positives, iris, ids, unknownIds);
+            numberOfPositives = ids.size();
+            addExamples(graph, negative, negatives, iris, ids, unknownIds);
+            examples = new int[ids.size()];
+            for (int i = 0; i < examples.length; ++i) {
+                examples[i] = ids.get(i);
+            }
+            exampleIris = iris.toArray(new String[iris.size()]);
+            universe = RoaringBitmap.bitmapOfRange(0, graph.getNumberOfNodes() + unknownIds.size());
+        }
+
+        protected static void addExamples(InMemoryGraph graph, Collection<String> examples, RoaringBitmap bitmap,
+                List<String> iris, List<Integer> ids, Map<String, Integer> unknownIds) {
+            int id;
+            for (String example : examples) {
+                id = graph.getNodeId(example);
+                if (id < 0) {
+                    id = unknownIds.computeIfAbsent(example, e -> graph.getNumberOfNodes() + unknownIds.size());
+                }
+                // Ignore duplicates
+                if (!bitmap.contains(id)) {
+                    bitmap.add(id);
+                    iris.add(example);
+                    ids.add(id);
+                }
+            }
+        }
+
+        public boolean isSessionOf(Collection<String> positive, Collection<String> negative) {
+            return (this.positive == positive) && (this.negative == negative);
+        }
+
+        /**
+         * @return the node ids of the positive examples followed by the node ids of
+         *         the negative examples
+         */
+        public int[] getExamples() {
+            return examples;
+        }
+
+        /**
+         * @param example the index of an example in {@link #getExamples()}
+         * @return {@code true} if the example is a positive example
+         */
+        public boolean isPositive(int example) {
+            return example < numberOfPositives;
+        }
+
+        /**
+         * @param example the index of an example in {@link #getExamples()}
+         * @return the IRI of the example
+         */
+        public String getExampleIri(int example) {
+            return exampleIris[example];
+        }
+
+        public RoaringBitmap getPositives() {
+            return positives;
+        }
+
+        public RoaringBitmap getNegatives() {
+            return negatives;
+        }
+
+        public RoaringBitmap getUniverse() {
+            return universe;
+        }
+    }
+
+    /**
+     * A visitor that determines the nodes that are selected by a class
+     * expression. The marker is handled as a class without instances. The
+     * returned bitmaps may be shared with the graph and must not be changed.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    public static class EvaluatingVisitor implements ClassExpressionVisitingCreator<RoaringBitmap> {
+
+        protected static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+        protected InMemoryGraph graph;
+        /**
+         * All nodes, i.e., the result of TOP.
+         */
+        protected RoaringBitmap universe;
+
+        public EvaluatingVisitor(InMemoryGraph graph, RoaringBitmap universe) {
+            super();
+            this.graph = graph;
+            this.universe = universe;
+        }
+
+        @Override
+        public RoaringBitmap visitNamedClass(NamedClass node) {
+            if (NamedClass.TOP.equals(node)) {
+                return universe;
+            }
+            // Like the SPARQL queries, we interpret BOTTOM as owl:Nothing
+            RoaringBitmap extension = getExtension(
+                    NamedClass.BOTTOM.equals(node) ? OWL2.Nothing.getURI() : node.getName());
+            return node.isNegated() ? RoaringBitmap.andNot(universe, extension) : extension;
+        }
+
+        protected RoaringBitmap getExtension(String classIri) {
+            int classId = graph.getClassId(classIri);
+            return (classId < 0) ? EMPTY : graph.getClassExtension(classId);
+        }
+
+        @Override
+        public RoaringBitmap visitJunction(Junction node) {
+            RoaringBitmap result = null;
+            for (ClassExpression child : node.getChildren()) {
+                if (result == null) {
+                    result = child.accept(this);
+                } else if (node.isConjunction()) {
+                    result = RoaringBitmap.and(result, child.accept(this));
+                } else {
+                    result = RoaringBitmap.or(result, child.accept(this));
+                }
+            }
+            if (result == null) {
+                return node.isConjunction() ? universe : EMPTY;
+            }
+            return result;
+        }
+
+        @Override
+        public RoaringBitmap visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
+            int property = graph.getPropertyId(node.getRole());
+            boolean inverted = node.isInverted();
+            if (node.isExists()) {
+                if (property < 0) {
+                    return EMPTY;
+                }
+                if (NamedClass.TOP.equals(node.getTailExpression())) {
+                    return inverted ? graph.getObjects(property) : graph.getSubjects(property);
+                }
+                // Go back from the nodes that fulfill the tail expression
+                RoaringBitmap tail = RoaringBitmap.and(node.getTailExpression().accept(this),
+                        inverted ? graph.getSubjects(property) : graph.getObjects(property));
+                return graph.getNeighbors(tail, property, !inverted);
+            } else {
+                if (property < 0) {
+                    return universe;
+                }
+                // Remove all nodes that are connected to a node that does not fulfill the
+                // tail expression
+                RoaringBitmap violations = RoaringBitmap.andNot(
+                        inverted ? graph.getSubjects(property) : graph.getObjects(property),
+                        node.getTailExpression().accept(this));
+                return RoaringBitmap.andNot(universe, graph.getNeighbors(violations, property, !inverted));
+            }
+        }
+    }
+}
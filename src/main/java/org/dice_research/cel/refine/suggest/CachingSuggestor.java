@@ -0,0 +1,590 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dice_research.cel.expression.CanonicalFormCreator;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.sparql.InstanceRetriever;
+
+/**
+ * A decorator for an {@link ExtendedSuggestor} that caches the suggestions of
+ * the decorated suggestor. The suggestions are cached based on the canonical
+ * form of the context and fingerprints of the positive and negative examples.
+ * If the cache is full, the least recently used suggestions are evicted.
+ *
+ * <p>
+ * In addition, the scores of expressions and (if the decorated suggestor is an
+ * {@link InstanceRetriever}) the retrieved instances are memoized. Since these
+ * caches can grow large, their keys only comprise a 128-bit hash of the
+ * canonical form of the expression and the fingerprints of the example sets
+ * and scores are stored as single packed {@code long} values.
+ * </p>
+ *
+ * <p>
+ * Note that the cached suggestions are only valid as long as the configuration
+ * of the decorated suggestor (e.g., its black lists) does not change.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class CachingSuggestor implements ExtendedSuggestor, InstanceRetriever {
+
+    /**
+     * The default maximum number of cached suggestion lists.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    /**
+     * The default maximum number of cached expression scores.
+     */
+    public static final int DEFAULT_MAX_SCORES_SIZE = 500000;
+    /**
+     * The default maximum number of cached instance sets.
+     */
+    public static final int DEFAULT_MAX_INSTANCES_SIZE = 10000;
+
+    protected static final byte CLASS_SUGGESTION = 0;
+    protected static final byte NEGATED_CLASS_SUGGESTION = 1;
+    protected static final byte PROPERTY_SUGGESTION = 2;
+
+    /**
+     * The decorated suggestor.
+     */
+    protected ExtendedSuggestor decorated;
+    /**
+     * The cache for suggestions.
+     */
+    protected LruCache<SuggestionKey, ScoredIRI[]> suggestionCache;
+    /**
+     * The cache for expression scores. The scores are packed into a single long
+     * value.
+     */
+    protected LruCache<ExpressionKey, Long> scoreCache;
+    /**
+     * The cache for retrieved instances.
+     */
+    protected LruCache<ExpressionKey, String[]> instanceCache;
+    /**
+     * The creator of the canonical forms of the contexts.
+     */
+    protected CanonicalFormCreator canonicalFormCreator = new CanonicalFormCreator();
+    /**
+     * The fingerprinter of the example sets.
+     */
+    protected ExampleSetFingerprinter fingerprinter = new ExampleSetFingerprinter();
+
+    /**
+     * Constructor.
+     *
+     * @param decorated the decorated suggestor
+     */
+    public CachingSuggestor(ExtendedSuggestor decorated) {
+        this(decorated, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param decorated the decorated suggestor
+     * @param maxSize   the maximum number of cached suggestion lists
+     */
+    public CachingSuggestor(ExtendedSuggestor decorated, int maxSize) {
+        this(decorated, maxSize, DEFAULT_MAX_SCORES_SIZE, DEFAULT_MAX_INSTANCES_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param decorated        the decorated suggestor
+     * @param maxSize          the maximum number of cached suggestion lists
+     * @param maxScoresSize    the maximum number of cached expression scores
+     * @param maxInstancesSize the maximum number of cached instance sets
+     */
+    public CachingSuggestor(ExtendedSuggestor decorated, int maxSize, int maxScoresSize, int maxInstancesSize) {
+        super();
+        this.decorated = decorated;
+        this.suggestionCache = new LruCache<>(maxSize);
+        this.scoreCache = new LruCache<>(maxScoresSize);
+        this.instanceCache = new LruCache<>(maxInstancesSize);
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        SuggestionKey key = createKey(CLASS_SUGGESTION, positive, negative, context);
+        ScoredIRI[] cached = suggestionCache.get(key);
+        if (cached == null) {
+            cached = cache(key, decorated.suggestClass(positive, negative, context));
+        }
+        return copy(cached);
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        SuggestionKey key = createKey(NEGATED_CLASS_SUGGESTION, positive, negative, context);
+        ScoredIRI[] cached = suggestionCache.get(key);
+        if (cached == null) {
+            cached = cache(key, decorated.suggestNegatedClass(positive, negative, context));
+        }
+        return copy(cached);
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        SuggestionKey key = createKey(PROPERTY_SUGGESTION, positive, negative, context);
+        ScoredIRI[] cached = suggestionCache.get(key);
+        if (cached == null) {
+            cached = cache(key, decorated.suggestProperty(positive, negative, context));
+        }
+        return copy(cached);
+    }
+
+    /**
+     * Answers the requests from the cache as far as possible. All requests (or
+     * parts of requests) that cannot be answered are forwarded to the decorated
+     * suggestor with a single call.
+     *
+     * <p>
+     * Requests with a {@link ScoreBound} are answered by filtering the cached
+     * (unbounded) suggestions and applying the same ranking and limit as the
+     * decorated suggestor (see {@link #copy(ScoredIRI[], ScoreBound, int)}). If
+     * there are no such suggestions or if they may have been cut off by the limit
+     * of the decorated suggestor (see {@link #isComplete(ScoredIRI[], ScoreBound)}),
+     * the request is forwarded together with its bound and the (incomplete)
+     * result is not cached.
+     * </p>
+     */
+    @Override
+    public void suggest(Collection<String> positive, Collection<String> negative,
+            Collection<ContextSuggestions> requests) {
+        List<ContextSuggestions> forwarded = new ArrayList<>();
+        List<ContextSuggestions> original = new ArrayList<>();
+        List<SuggestionKey[]> keys = new ArrayList<>();
+        for (ContextSuggestions request : requests) {
+            SuggestionKey[] requestKeys = new SuggestionKey[3];
+            boolean missingClasses = false;
+            boolean missingNegatedClasses = false;
+            boolean missingProperties = false;
+            if (request.isClassesRequested()) {
+                requestKeys[CLASS_SUGGESTION] = createKey(CLASS_SUGGESTION, positive, negative,
+                        request.getContext());
+                ScoredIRI[] cached = suggestionCache.get(requestKeys[CLASS_SUGGESTION]);
+                if (isComplete(cached, request.getBound())) {
+                    request.setClasses(copy(cached, request.getBound(), getMaxSuggestionsPerContext()));
+                } else {
+                    missingClasses = true;
+                }
+            }
+            if (request.isNegatedClassesRequested()) {
+                requestKeys[NEGATED_CLASS_SUGGESTION] = createKey(NEGATED_CLASS_SUGGESTION, positive, negative,
+                        request.getContext());
+                ScoredIRI[] cached = suggestionCache.get(requestKeys[NEGATED_CLASS_SUGGESTION]);
+                if (isComplete(cached, request.getBound())) {
+                    request.setNegatedClasses(copy(cached, request.getBound(), getMaxSuggestionsPerContext()));
+                } else {
+                    missingNegatedClasses = true;
+                }
+            }
+            if (request.isPropertiesRequested()) {
+                requestKeys[PROPERTY_SUGGESTION] = createKey(PROPERTY_SUGGESTION, positive, negative,
+                        request.getContext());
+                ScoredIRI[] cached = suggestionCache.get(requestKeys[PROPERTY_SUGGESTION]);
+                if (isComplete(cached, request.getBound())) {
+                    request.setProperties(copy(cached, request.getBound(), getMaxSuggestionsPerContext()));
+                } else {
+                    missingProperties = true;
+                }
+            }
+            if (missingClasses || missingNegatedClasses || missingProperties) {
+                ContextSuggestions forwardedRequest = new ContextSuggestions(request.getContext(), missingClasses,
+                        missingNegatedClasses, missingProperties);
+                forwardedRequest.setBound(request.getBound());
+                forwarded.add(forwardedRequest);
+                original.add(request);
+                keys.add(requestKeys);
+            }
+        }
+        if (forwarded.isEmpty()) {
+            return;
+        }
+        decorated.suggest(positive, negative, forwarded);
+        for (int i = 0; i < forwarded.size(); ++i) {
+            ContextSuggestions result = forwarded.get(i);
+            ContextSuggestions request = original.get(i);
+            SuggestionKey[] requestKeys = keys.get(i);
+            if (result.getBound() != null) {
+                // Bounded suggestions are incomplete and must not be cached
+                if (result.isClassesRequested()) {
+                    request.setClasses(result.getClasses());
+                }
+                if (result.isNegatedClassesRequested()) {
+                    request.setNegatedClasses(result.getNegatedClasses());
+                }
+                if (result.isPropertiesRequested()) {
+                    request.setProperties(result.getProperties());
+                }
+                continue;
+            }
+            if (result.isClassesRequested()) {
+                request.setClasses(copy(cache(requestKeys[CLASS_SUGGESTION], result.getClasses())));
+            }
+            if (result.isNegatedClassesRequested()) {
+                request.setNegatedClasses(
+                        copy(cache(requestKeys[NEGATED_CLASS_SUGGESTION], result.getNegatedClasses())));
+            }
+            if (result.isPropertiesRequested()) {
+                request.setProperties(copy(cache(requestKeys[PROPERTY_SUGGESTION], result.getProperties())));
+            }
+        }
+    }
+
+    @Override
+    public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        ExpressionKey key = createExpressionKey(expression, positive, negative);
+        Long cached = scoreCache.get(key);
+        if (cached != null) {
+            long packed = cached.longValue();
+            return new SelectionScores((int) (packed >>> 32), (int) packed);
+        }
+        SelectionScores scores = decorated.scoreExpression(expression, positive, negative);
+        scoreCache.put(key, (((long) scores.getPosCount()) << 32) | (scores.getNegCount() & 0xFFFFFFFFL));
+        return scores;
+    }
+
+    @Override
+    public LearningProblemHandle beginProblem(Collection<String> positive, Collection<String> negative) {
+        return decorated.beginProblem(positive, negative);
+    }
+
+    @Override
+    public int getMaxSuggestionsPerContext() {
+        return decorated.getMaxSuggestionsPerContext();
+    }
+
+    /**
+     * Answers the given expressions from the cache as far as possible. All
+     * expressions that cannot be answered are forwarded to the decorated
+     * suggestor with a single call.
+     */
+    @Override
+    public List<SelectionScores> scoreExpressions(List<ClassExpression> expressions, Collection<String> positive,
+            Collection<String> negative) {
+        SelectionScores[] scores = new SelectionScores[expressions.size()];
+        ExpressionKey[] keys = new ExpressionKey[expressions.size()];
+        List<ClassExpression> forwarded = new ArrayList<>();
+        List<Integer> forwardedIds = new ArrayList<>();
+        for (int i = 0; i < scores.length; ++i) {
+            keys[i] = createExpressionKey(expressions.get(i), positive, negative);
+            Long cached = scoreCache.get(keys[i]);
+            if (cached != null) {
+                long packed = cached.longValue();
+                scores[i] = new SelectionScores((int) (packed >>> 32), (int) packed);
+            } else {
+                forwarded.add(expressions.get(i));
+                forwardedIds.add(i);
+            }
+        }
+        if (!forwarded.isEmpty()) {
+            List<SelectionScores> results = decorated.scoreExpressions(forwarded, positive, negative);
+            for (int i = 0; i < results.size(); ++i) {
+                int id = forwardedIds.get(i);
+                scores[id] = results.get(i);
+                scoreCache.put(keys[id],
+                        (((long) scores[id].getPosCount()) << 32) | (scores[id].getNegCount() & 0xFFFFFFFFL));
+            }
+        }
+        return Arrays.asList(scores);
+    }
+
+    /**
+     * Retrieves the instances using the decorated suggestor.
+     *
+     * @throws UnsupportedOperationException if the decorated suggestor is not an
+     *                                       {@link InstanceRetriever}
+     */
+    @Override
+    public Set<String> retrieveInstances(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        if (!(decorated instanceof InstanceRetriever)) {
+            throw new UnsupportedOperationException(
+                    "The decorated suggestor is not able to retrieve instances. decorated=" + decorated);
+        }
+        ExpressionKey key = createExpressionKey(expression, positive, negative);
+        String[] cached = instanceCache.get(key);
+        if (cached == null) {
+            cached = ((InstanceRetriever) decorated).retrieveInstances(expression, positive, negative)
+                    .toArray(String[]::new);
+            instanceCache.put(key, cached);
+        }
+        return new HashSet<>(Arrays.asList(cached));
+    }
+
+    protected SuggestionKey createKey(byte type, Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        return new SuggestionKey(type, canonicalFormCreator.createCanonicalForm(context),
+                fingerprinter.fingerprint(positive), fingerprinter.fingerprint(negative));
+    }
+
+    protected ExpressionKey createExpressionKey(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        String canonicalForm = canonicalFormCreator.createCanonicalForm(expression);
+        return new ExpressionKey(ExampleSetFingerprinter.hashString(canonicalForm, 0x9e3779b97f4a7c15L),
+                ExampleSetFingerprinter.hashString(canonicalForm, 0xc2b2ae3d27d4eb4fL),
+                fingerprinter.fingerprint(positive), fingerprinter.fingerprint(negative));
+    }
+
+    /**
+     * Adds the given suggestions to the cache.
+     *
+     * @param key         the key of the suggestions
+     * @param suggestions the suggestions that should be cached
+     * @return the cached suggestions
+     */
+    protected ScoredIRI[] cache(SuggestionKey key, Collection<ScoredIRI> suggestions) {
+        ScoredIRI[] cached = (suggestions == null) ? new ScoredIRI[0] : suggestions.toArray(ScoredIRI[]::new);
+        suggestionCache.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * Creates a copy of the given cached suggestions to ensure that changes of the
+     * returned instances do not influence the cache.
+     *
+     * @param cached the cached suggestions
+     * @return a list with copies of the given suggestions
+     */
+    protected static List<ScoredIRI> copy(ScoredIRI[] cached) {
+        return copy(cached, null, 0);
+    }
+
+    /**
+     * Creates a copy of the given cached suggestions that only contains the
+     * suggestions fulfilling the given bound. If the number of suggestions is
+     * limited, the suggestions are ranked in the same way as the decorated
+     * suggestor ranks them (see {@link Suggestor#getMaxSuggestionsPerContext()})
+     * and only the highest ranked suggestions are returned.
+     *
+     * @param cached the cached suggestions
+     * @param bound  the bound that the suggestions have to fulfill or
+     *               {@code null} if all suggestions should be copied
+     * @param limit  the maximum number of returned suggestions or 0 if the
+     *               number is not limited
+     * @return a list with copies of the given suggestions
+     */
+    protected static List<ScoredIRI> copy(ScoredIRI[] cached, ScoreBound bound, int limit) {
+        List<ScoredIRI> suggestions = new ArrayList<>(cached.length);
+        for (ScoredIRI suggestion : cached) {
+            if ((bound == null) || bound.isFulfilled(suggestion.getPosCount(), suggestion.getNegCount())) {
+                suggestions.add(new ScoredIRI(suggestion.getIri(), suggestion.getPosCount(),
+                        suggestion.getNegCount(), suggestion.isInverted()));
+            }
+        }
+        if ((bound != null) && (limit > 0)) {
+            suggestions.sort(Comparator.comparingLong((ScoredIRI s) -> rank(s, bound)).reversed());
+            if (suggestions.size() > limit) {
+                suggestions = new ArrayList<>(suggestions.subList(0, limit));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Calculates the rank of the given suggestion, i.e., the difference of its
+     * positive and negative hit rates scaled by the numbers of examples. The
+     * absolute difference is used if the negation of a suggestion fulfills the
+     * bound as well. This is the ranking of the {@link SparqlBasedSuggestor}.
+     *
+     * @param suggestion the suggestion that should be ranked
+     * @param bound      the bound of the request that provides the numbers of
+     *                   examples
+     * @return the rank of the suggestion (higher is better)
+     */
+    protected static long rank(ScoredIRI suggestion, ScoreBound bound) {
+        long rank = ((long) suggestion.getPosCount() * Math.max(1, bound.getNumNegatives()))
+                - ((long) suggestion.getNegCount() * Math.max(1, bound.getNumPositives()));
+        return bound.isNegationIncluded() ? Math.abs(rank) : rank;
+    }
+
+    /**
+     * Checks whether the given cached suggestions can be used to answer a
+     * request with the given bound. If the decorated suggestor limits the
+     * number of suggestions and the cached list reached this limit, suggestions
+     * that fulfill the bound may have been cut off. In this case, the bounded
+     * request has to be forwarded.
+     *
+     * @param cached the cached suggestions or {@code null} if there are none
+     * @param bound  the bound of the request or {@code null}
+     * @return {@code true} if the request can be answered with the given
+     *         suggestions
+     */
+    protected boolean isComplete(ScoredIRI[] cached, ScoreBound bound) {
+        if (cached == null) {
+            return false;
+        }
+        int limit = getMaxSuggestionsPerContext();
+        return (bound == null) || (limit <= 0) || (cached.length < limit);
+    }
+
+    /**
+     * @return the decorated suggestor
+     */
+    public ExtendedSuggestor getDecorated() {
+        return decorated;
+    }
+
+    /**
+     * Sets the decorated suggestor. This can be used to reuse the cache with a
+     * new instance of a suggestor that has the same configuration as the
+     * previously decorated suggestor.
+     *
+     * @param decorated the decorated suggestor to set
+     */
+    public void setDecorated(ExtendedSuggestor decorated) {
+        this.decorated = decorated;
+    }
+
+    /**
+     * @return the number of suggestion requests that have been answered by the
+     *         cache
+     */
+    public long getSuggestionCacheHits() {
+        return suggestionCache.getHits();
+    }
+
+    /**
+     * @return the number of suggestion requests that could not be answered by the
+     *         cache
+     */
+    public long getSuggestionCacheMisses() {
+        return suggestionCache.getMisses();
+    }
+
+    /**
+     * @return the number of expression scores that have been answered by the cache
+     */
+    public long getScoreCacheHits() {
+        return scoreCache.getHits();
+    }
+
+    /**
+     * @return the number of expression scores that could not be answered by the
+     *         cache
+     */
+    public long getScoreCacheMisses() {
+        return scoreCache.getMisses();
+    }
+
+    /**
+     * @return the number of instance retrievals that have been answered by the
+     *         cache
+     */
+    public long getInstanceCacheHits() {
+        return instanceCache.getHits();
+    }
+
+    /**
+     * @return the number of instance retrievals that could not be answered by the
+     *         cache
+     */
+    public long getInstanceCacheMisses() {
+        return instanceCache.getMisses();
+    }
+
+    /**
+     * The key of a cached suggestion list.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class SuggestionKey {
+        protected final byte type;
+        protected final String context;
+        protected final long positiveFingerprint;
+        protected final long negativeFingerprint;
+        protected final int hashCode;
+
+        public SuggestionKey(byte type, String context, long positiveFingerprint, long negativeFingerprint) {
+            super();
+            this.type = type;
+            this.context = context;
+            this.positiveFingerprint = positiveFingerprint;
+            this.negativeFingerprint = negativeFingerprint;
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + type;
+            result = prime * result + context.hashCode();
+            result = prime * result + Long.hashCode(positiveFingerprint);
+            result = prime * result + Long.hashCode(negativeFingerprint);
+            this.hashCode = result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            SuggestionKey other = (SuggestionKey) obj;
+            return (type == other.type) && (positiveFingerprint == other.positiveFingerprint)
+                    && (negativeFingerprint == other.negativeFingerprint) && context.equals(other.context);
+        }
+    }
+
+    /**
+     * The compact key of a cached expression score or instance set. Instead of the
+     * canonical form of the expression, only a 128-bit hash of it is stored.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class ExpressionKey {
+        protected final long expressionHash1;
+        protected final long expressionHash2;
+        protected final long positiveFingerprint;
+        protected final long negativeFingerprint;
+
+        public ExpressionKey(long expressionHash1, long expressionHash2, long positiveFingerprint,
+                long negativeFingerprint) {
+            super();
+            this.expressionHash1 = expressionHash1;
+            this.expressionHash2 = expressionHash2;
+            this.positiveFingerprint = positiveFingerprint;
+            this.negativeFingerprint = negativeFingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(expressionHash1 ^ (31 * positiveFingerprint) ^ (961 * negativeFingerprint));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            ExpressionKey other = (ExpressionKey) obj;
+            return (expressionHash1 == other.expressionHash1) && (expressionHash2 == other.expressionHash2)
+                    && (positiveFingerprint == other.positiveFingerprint)
+                    && (negativeFingerprint == other.negativeFingerprint);
+        }
+    }
+}
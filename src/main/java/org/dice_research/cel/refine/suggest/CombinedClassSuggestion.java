@@ -0,0 +1,97 @@
+package org.dice_research.cel.refine.suggest;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class suggestion query and the context count query of a request whose
+ * negated class suggestions are derived from their results (see
+ * {@link #deriveNegatedClasses()}). This is only possible if the marked
+ * position of the context refers to the root variable of the query (see
+ * {@link #isMarkerOnRootVariable(ClassExpression)}).
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class CombinedClassSuggestion {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CombinedClassSuggestion.class);
+
+    protected ContextSuggestions request;
+    protected BatchBranch classBranch;
+    protected BatchBranch contextBranch;
+
+    public CombinedClassSuggestion(ContextSuggestions request, BatchBranch classBranch,
+            BatchBranch contextBranch) {
+        super();
+        this.request = request;
+        this.classBranch = classBranch;
+        this.contextBranch = contextBranch;
+    }
+
+    /**
+     * Checks whether the {@link Suggestor#CONTEXT_POSITION_MARKER} of the given
+     * expression can only be reached via junctions, i.e., the marked position
+     * refers to the root variable of the query.
+     *
+     * @param ce the class expression that should be checked
+     * @return {@code true} if all occurrences of the marker refer to the root
+     *         variable
+     */
+    public static boolean isMarkerOnRootVariable(ClassExpression ce) {
+        if (ce instanceof Junction) {
+            for (ClassExpression child : ((Junction) ce).getChildren()) {
+                if (!isMarkerOnRootVariable(child)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (ce instanceof SimpleQuantifiedRole) {
+            return !UnionNormalizer.containsMarker(ce);
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Derives the negated class suggestions of the request. The examples
+     * selected by the context with a negated class at its marked position are
+     * the examples of the UNION branches without the marked position (i.e., the
+     * base score) and the examples of the remaining context that are not selected
+     * by the class. Hence, the counts are the counts of the context minus the
+     * counts of the class without the base score. Negated classes that select no
+     * example are omitted. The same holds for classes that do not select any
+     * example of the context since their negations are identical to the context.
+     * If the request has a bound, it is applied to both lists of suggestions.
+     */
+    public void deriveNegatedClasses() {
+        ScoredIRI contextScore = contextBranch.baseScore;
+        if (contextScore == null) {
+            LOGGER.warn("Got no counts for the context {}. Negated classes cannot be derived.",
+                    request.getContext());
+            return;
+        }
+        ScoredIRI baseScore = classBranch.baseScore;
+        int posCount = contextScore.getPosCount();
+        int negCount = contextScore.getNegCount();
+        if (baseScore != null) {
+            posCount += baseScore.getPosCount();
+            negCount += baseScore.getNegCount();
+        }
+        for (ScoredIRI suggestion : request.getClasses()) {
+            ScoredIRI negated = new ScoredIRI(suggestion.getIri(), posCount - suggestion.getPosCount(),
+                    negCount - suggestion.getNegCount());
+            if ((negated.getPosCount() > 0) || (negated.getNegCount() > 0)) {
+                request.getNegatedClasses().add(negated);
+            }
+        }
+        ScoreBound bound = request.getBound();
+        if (bound != null) {
+            request.getClasses().removeIf(s -> !bound.isFulfilled(s.getPosCount(), s.getNegCount()));
+            request.getNegatedClasses().removeIf(s -> !bound.isFulfilled(s.getPosCount(), s.getNegCount()));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Collection;
+
+import org.dice_research.cel.expression.ClassExpression;
+
+/**
+ * A request for suggestions for a single context (i.e., a class expression
+ * with a marked position) together with the suggestions that have been
+ * retrieved for it. It is used to hand all contexts of a single refinement
+ * step to a suggestor at once (see
+ * {@link ExtendedSuggestor#suggest(Collection, Collection, Collection)}).
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ContextSuggestions {
+
+    /**
+     * The class expression that contains the position marking.
+     */
+    protected ClassExpression context;
+    /**
+     * Flag indicating whether named classes should be suggested.
+     */
+    protected boolean classesRequested;
+    /**
+     * Flag indicating whether negated named classes should be suggested.
+     */
+    protected boolean negatedClassesRequested;
+    /**
+     * Flag indicating whether properties should be suggested.
+     */
+    protected boolean propertiesRequested;
+    /**
+     * The suggested classes or {@code null} if they have not been retrieved.
+     */
+    protected Collection<ScoredIRI> classes;
+    /**
+     * The suggested negated classes or {@code null} if they have not been
+     * retrieved.
+     */
+    protected Collection<ScoredIRI> negatedClasses;
+    /**
+     * The suggested properties or {@code null} if they have not been retrieved.
+     */
+    protected Collection<ScoredIRI> properties;
+    /**
+     * An optional bound that the suggestions should fulfill or {@code null} if
+     * all suggestions should be retrieved.
+     */
+    protected ScoreBound bound;
+
+    /**
+     * Constructor.
+     *
+     * @param context                 the class expression that contains the
+     *                                position marking
+     * @param classesRequested        flag indicating whether named classes should
+     *                                be suggested
+     * @param negatedClassesRequested flag indicating whether negated named
+     *                                classes should be suggested
+     * @param propertiesRequested     flag indicating whether properties should be
+     *                                suggested
+     */
+    public ContextSuggestions(ClassExpression context, boolean classesRequested, boolean negatedClassesRequested,
+            boolean propertiesRequested) {
+        super();
+        this.context = context;
+        this.classesRequested = classesRequested;
+        this.negatedClassesRequested = negatedClassesRequested;
+        this.propertiesRequested = propertiesRequested;
+    }
+
+    /**
+     * @return the context
+     */
+    public ClassExpression getContext() {
+        return context;
+    }
+
+    /**
+     * @return the classesRequested
+     */
+    public boolean isClassesRequested() {
+        return classesRequested;
+    }
+
+    /**
+     * @return the negatedClassesRequested
+     */
+    public boolean isNegatedClassesRequested() {
+        return negatedClassesRequested;
+    }
+
+    /**
+     * @return the propertiesRequested
+     */
+    public boolean isPropertiesRequested() {
+        return propertiesRequested;
+    }
+
+    /**
+     * @return the classes
+     */
+    public Collection<ScoredIRI> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @param classes the classes to set
+     */
+    public void setClasses(Collection<ScoredIRI> classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * @return the negatedClasses
+     */
+    public Collection<ScoredIRI> getNegatedClasses() {
+        return negatedClasses;
+    }
+
+    /**
+     * @param negatedClasses the negatedClasses to set
+     */
+    public void setNegatedClasses(Collection<ScoredIRI> negatedClasses) {
+        this.negatedClasses = negatedClasses;
+    }
+
+    /**
+     * @return the properties
+     */
+    public Collection<ScoredIRI> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @param properties the properties to set
+     */
+    public void setProperties(Collection<ScoredIRI> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @return the bound that the suggestions should fulfill or {@code null} if
+     *         there is no such bound
+     */
+    public ScoreBound getBound() {
+        return bound;
+    }
+
+    /**
+     * @param bound the bound that the suggestions should fulfill
+     */
+    public void setBound(ScoreBound bound) {
+        this.bound = bound;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ContextSuggestions [context=");
+        builder.append(context);
+        builder.append(", classesRequested=");
+        builder.append(classesRequested);
+        builder.append(", negatedClassesRequested=");
+        builder.append(negatedClassesRequested);
+        builder.append(", propertiesRequested=");
+        builder.append(propertiesRequested);
+        if (bound != null) {
+            builder.append(", bound=");
+            builder.append(bound);
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link LearningProblemSession} that uploads the examples into a temporary
+ * named graph of the SPARQL endpoint instead of inlining them into every query.
+ * The graph contains triples of the form {@code <graph> ex:pos <example>} and
+ * {@code <graph> ex:neg <example>}. Instead of VALUES statements, the queries
+ * join against these triples. The graph is dropped when the session is closed,
+ * i.e., when the learning problem has ended (see
+ * {@link SparqlBasedSuggestor#beginProblem(Collection, Collection)}) or when
+ * the session has been evicted and no query uses it anymore.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ExampleGraphSession extends LearningProblemSession {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExampleGraphSession.class);
+
+    /**
+     * The namespace of the temporary graphs and their properties.
+     */
+    public static final String NAMESPACE = "urn:prunecel:";
+    /**
+     * The property that connects a graph with its positive examples.
+     */
+    public static final String POSITIVE_PROPERTY = NAMESPACE + "pos";
+    /**
+     * The property that connects a graph with its negative examples.
+     */
+    public static final String NEGATIVE_PROPERTY = NAMESPACE + "neg";
+    /**
+     * The maximum number of examples that are inserted with a single update.
+     */
+    public static final int MAX_EXAMPLES_PER_UPDATE = 10000;
+
+    /**
+     * The IRI of the temporary graph.
+     */
+    protected String graphIri;
+    /**
+     * The executor of SPARQL updates.
+     */
+    protected Consumer<String> updateExecutor;
+    /**
+     * Flag indicating whether the graph has already been dropped.
+     */
+    protected boolean closed = false;
+
+    protected ExampleGraphSession(Collection<String> positive, Collection<String> negative, String graphIri,
+            Consumer<String> updateExecutor) {
+        super(positive, negative, generateJoinStmt(graphIri, POSITIVE_PROPERTY, "?pos"),
+                generateJoinStmt(graphIri, NEGATIVE_PROPERTY, "?neg"), generateInstanceJoinStmt(graphIri));
+        this.graphIri = graphIri;
+        this.updateExecutor = updateExecutor;
+    }
+
+    /**
+     * Creates a new session and uploads the given examples into a new temporary
+     * graph.
+     *
+     * @param positive       the positive examples
+     * @param negative       the negative examples
+     * @param updateExecutor the executor of SPARQL updates
+     * @return the created session
+     */
+    public static ExampleGraphSession create(Collection<String> positive, Collection<String> negative,
+            Consumer<String> updateExecutor) {
+        String graphIri = NAMESPACE + "lp:" + UUID.randomUUID().toString();
+        ExampleGraphSession session = new ExampleGraphSession(positive, negative, graphIri, updateExecutor);
+        LOGGER.debug("Uploading {} positive and {} negative examples to {}.", positive.size(), negative.size(),
+                graphIri);
+        session.uploadExamples(POSITIVE_PROPERTY, positive.iterator());
+        session.uploadExamples(NEGATIVE_PROPERTY, negative.iterator());
+        return session;
+    }
+
+    protected void uploadExamples(String property, Iterator<String> iterator) {
+        while (iterator.hasNext()) {
+            StringBuilder updateBuilder = new StringBuilder();
+            updateBuilder.append("INSERT DATA { GRAPH <");
+            updateBuilder.append(graphIri);
+            updateBuilder.append("> {\n");
+            int count = 0;
+            while (iterator.hasNext() && (count < MAX_EXAMPLES_PER_UPDATE)) {
+                updateBuilder.append("  <");
+                updateBuilder.append(graphIri);
+                updateBuilder.append("> <");
+                updateBuilder.append(property);
+                updateBuilder.append("> <");
+                updateBuilder.append(iterator.next());
+                updateBuilder.append("> .\n");
+                ++count;
+            }
+            updateBuilder.append("} }");
+            updateExecutor.accept(updateBuilder.toString());
+        }
+    }
+
+    protected static String generateJoinStmt(String graphIri, String property, String variable) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("GRAPH <");
+        builder.append(graphIri);
+        builder.append("> { <");
+        builder.append(graphIri);
+        builder.append("> <");
+        builder.append(property);
+        builder.append("> ");
+        builder.append(variable);
+        builder.append(" . }\n");
+        return builder.toString();
+    }
+
+    protected static String generateInstanceJoinStmt(String graphIri) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("GRAPH <");
+        builder.append(graphIri);
+        builder.append("> { { <");
+        builder.append(graphIri);
+        builder.append("> <");
+        builder.append(POSITIVE_PROPERTY);
+        builder.append("> ?instance . } UNION { <");
+        builder.append(graphIri);
+        builder.append("> <");
+        builder.append(NEGATIVE_PROPERTY);
+        builder.append("> ?instance . } }\n");
+        return builder.toString();
+    }
+
+    /**
+     * Drops the temporary graph of this session and closes its shards.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            super.close();
+            LOGGER.debug("Dropping {}.", graphIri);
+            try {
+                updateExecutor.accept("DROP SILENT GRAPH <" + graphIri + ">");
+            } catch (Exception e) {
+                LOGGER.error("Exception while dropping the temporary graph " + graphIri
+                        + ". It has to be removed manually.", e);
+            }
+        }
+    }
+
+    /**
+     * @return the IRI of the temporary graph
+     */
+    public String getGraphIri() {
+        return graphIri;
+    }
+}
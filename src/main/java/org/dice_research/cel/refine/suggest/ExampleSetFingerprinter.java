@@ -0,0 +1,127 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Collection;
+
+/**
+ * A class that creates order-independent 64-bit fingerprints of example sets.
+ * The fingerprints can be used as part of cache keys instead of the (large)
+ * example sets themselves.
+ *
+ * <p>
+ * Since the same example collections are used for a large number of calls, the
+ * fingerprints of the last few collections are remembered based on their
+ * identity. This assumes that collections are not changed after they have been
+ * handed to a suggestor, which is the case for all learners of this project.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ExampleSetFingerprinter {
+
+    /**
+     * The number of collections for which the fingerprints are remembered.
+     */
+    protected static final int NUMBER_OF_SLOTS = 8;
+
+    /**
+     * The last collections and their fingerprints.
+     */
+    protected final Entry[] slots = new Entry[NUMBER_OF_SLOTS];
+    /**
+     * The slot that will be overwritten next.
+     */
+    protected int nextSlot = 0;
+
+    /**
+     * Returns the fingerprint of the given examples.
+     *
+     * @param examples the examples for which a fingerprint should be created
+     * @return the fingerprint of the given examples
+     */
+    public long fingerprint(Collection<String> examples) {
+        synchronized (slots) {
+            for (int i = 0; i < slots.length; ++i) {
+                if ((slots[i] != null) && (slots[i].examples == examples)) {
+                    return slots[i].fingerprint;
+                }
+            }
+        }
+        long fingerprint = calculateFingerprint(examples);
+        synchronized (slots) {
+            slots[nextSlot] = new Entry(examples, fingerprint);
+            nextSlot = (nextSlot + 1) % slots.length;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * The seed of the hash function that is applied to the single examples.
+     */
+    protected static final long EXAMPLE_HASH_SEED = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Calculates the fingerprint of the given examples by summing up the 64-bit
+     * hashes of the single examples. The sum makes the fingerprint independent of
+     * the order of the examples.
+     *
+     * @param examples the examples for which a fingerprint should be created
+     * @return the fingerprint of the given examples
+     */
+    public static long calculateFingerprint(Collection<String> examples) {
+        long fingerprint = mix(examples.size());
+        for (String example : examples) {
+            fingerprint += hashString(example, EXAMPLE_HASH_SEED);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Creates a 64-bit hash of the given String. Different seeds lead to
+     * (practically) independent hash values.
+     *
+     * @param value the String that should be hashed
+     * @param seed  the seed of the hash function
+     * @return the hash value of the given String
+     */
+    public static long hashString(String value, long seed) {
+        long hash = seed ^ value.length();
+        for (int i = 0; i < value.length(); ++i) {
+            hash = mix(hash + value.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * The finalization step of the 64-bit MurmurHash3 function which spreads the
+     * bits of the given value.
+     *
+     * @param value the value that should be mixed
+     * @return the mixed value
+     */
+    protected static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * A collection together with its fingerprint.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class Entry {
+        protected final Collection<String> examples;
+        protected final long fingerprint;
+
+        public Entry(Collection<String> examples, long fingerprint) {
+            super();
+            this.examples = examples;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.dice_research.cel.refine.suggest;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.dice_research.cel.expression.ClassExpression;
 
@@ -26,4 +28,51 @@ public interface ExtendedSuggestor extends Suggestor {
      */
     SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
             Collection<String> negative);
+
+    /**
+     * This method scores all the given expressions at once. The default
+     * implementation simply calls
+     * {@link #scoreExpression(ClassExpression, Collection, Collection)} for each
+     * of the expressions. Implementations that have to communicate with a remote
+     * service should override it to reduce the number of round trips.
+     *
+     * @param expressions the expressions that should be scored
+     * @param positive    the positive examples
+     * @param negative    the negative examples
+     * @return the scores of the given expressions in the order of the given list
+     */
+    default List<SelectionScores> scoreExpressions(List<ClassExpression> expressions, Collection<String> positive,
+            Collection<String> negative) {
+        List<SelectionScores> scores = new ArrayList<>(expressions.size());
+        for (ClassExpression expression : expressions) {
+            scores.add(scoreExpression(expression, positive, negative));
+        }
+        return scores;
+    }
+
+    /**
+     * This method retrieves the suggestions for all the given contexts at once.
+     * The results are stored in the given {@link ContextSuggestions} instances.
+     * The default implementation simply calls the single suggestion methods for
+     * each of the contexts. Implementations that have to communicate with a
+     * remote service should override it to reduce the number of round trips.
+     *
+     * @param positive positive examples
+     * @param negative negative examples
+     * @param requests the contexts for which suggestions should be retrieved
+     */
+    default void suggest(Collection<String> positive, Collection<String> negative,
+            Collection<ContextSuggestions> requests) {
+        for (ContextSuggestions request : requests) {
+            if (request.isClassesRequested()) {
+                request.setClasses(suggestClass(positive, negative, request.getContext()));
+            }
+            if (request.isNegatedClassesRequested()) {
+                request.setNegatedClasses(suggestNegatedClass(positive, negative, request.getContext()));
+            }
+            if (request.isPropertiesRequested()) {
+                request.setProperties(suggestProperty(positive, negative, request.getContext()));
+            }
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package org.dice_research.cel.refine.suggest;
+
+/**
+ * A handle of a learning problem that has been announced to a
+ * {@link Suggestor} with
+ * {@link Suggestor#beginProblem(java.util.Collection, java.util.Collection)}.
+ * Closing the handle tells the suggestor that the learning problem has ended,
+ * i.e., the suggestor can free all resources of this problem. Closing a handle
+ * more than once has no effect.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public interface LearningProblemHandle extends AutoCloseable {
+
+    /**
+     * A handle that does nothing when it is closed.
+     */
+    public static final LearningProblemHandle NONE = () -> {
+    };
+
+    /**
+     * Ends the learning problem.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,197 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The data of a single learning problem that is used by the
+ * {@link SparqlBasedSuggestor} for all queries of this problem. Since the
+ * examples do not change while a learning problem is solved, the VALUES
+ * statements that bind the positive and negative examples are rendered only
+ * once when the session is created. After that, the generation of a query only
+ * depends on the size of the class expression instead of the number of
+ * examples.
+ *
+ * <p>
+ * A session is identified by the identity of the two example collections it
+ * has been created for. Hence, the collections must not be changed after they
+ * have been handed to the suggestor.
+ * </p>
+ *
+ * <p>
+ * A session of a large learning problem can be split into shards, i.e.,
+ * sessions of disjoint subsets of the examples. The counts of a query can be
+ * computed by sending the query for every shard and summing up the results.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class LearningProblemSession implements AutoCloseable {
+
+    /**
+     * The positive examples.
+     */
+    protected final Collection<String> positive;
+    /**
+     * The negative examples.
+     */
+    protected final Collection<String> negative;
+    /**
+     * The number of positive examples.
+     */
+    protected final int numPositives;
+    /**
+     * The number of negative examples.
+     */
+    protected final int numNegatives;
+    /**
+     * The VALUES statement binding the positive examples to {@code ?pos}.
+     */
+    protected final String positiveValues;
+    /**
+     * The VALUES statement binding the negative examples to {@code ?neg}.
+     */
+    protected final String negativeValues;
+    /**
+     * The VALUES statement binding all examples to {@code ?instance}.
+     */
+    protected final String instanceValues;
+    /**
+     * The shards of this session or {@code null} if the session is not sharded.
+     */
+    protected List<LearningProblemSession> shards = null;
+    /**
+     * Flag indicating whether this session is a shard of a larger session.
+     */
+    protected boolean shard = false;
+    /**
+     * The number of callers that currently use this session. Guarded by the
+     * sessions of the {@link SparqlBasedSuggestor}.
+     */
+    protected int references = 0;
+    /**
+     * Flag indicating whether this session has been removed from the suggestor,
+     * i.e., it is closed as soon as it is not referenced anymore. Guarded by the
+     * sessions of the {@link SparqlBasedSuggestor}.
+     */
+    protected boolean removed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param positive       the positive examples
+     * @param negative       the negative examples
+     * @param positiveValues the VALUES statement binding the positive examples
+     * @param negativeValues the VALUES statement binding the negative examples
+     * @param instanceValues the VALUES statement binding all examples
+     */
+    public LearningProblemSession(Collection<String> positive, Collection<String> negative, String positiveValues,
+            String negativeValues, String instanceValues) {
+        super();
+        this.positive = positive;
+        this.negative = negative;
+        this.numPositives = positive.size();
+        this.numNegatives = negative.size();
+        this.positiveValues = positiveValues;
+        this.negativeValues = negativeValues;
+        this.instanceValues = instanceValues;
+    }
+
+    /**
+     * Checks whether this session has been created for the given collections.
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return {@code true} if this session has been created for the given
+     *         (identical) collections
+     */
+    public boolean isSessionOf(Collection<String> positive, Collection<String> negative) {
+        return (this.positive == positive) && (this.negative == negative);
+    }
+
+    /**
+     * Releases resources that are bound to this session. The default
+     * implementation closes the shards of this session (if there are any).
+     */
+    @Override
+    public void close() {
+        if (shards != null) {
+            shards.forEach(LearningProblemSession::close);
+        }
+    }
+
+    /**
+     * @return the positive examples
+     */
+    public Collection<String> getPositive() {
+        return positive;
+    }
+
+    /**
+     * @return the negative examples
+     */
+    public Collection<String> getNegative() {
+        return negative;
+    }
+
+    /**
+     * @return the number of positive examples
+     */
+    public int getNumPositives() {
+        return numPositives;
+    }
+
+    /**
+     * @return the number of negative examples
+     */
+    public int getNumNegatives() {
+        return numNegatives;
+    }
+
+    /**
+     * @return the VALUES statement binding the positive examples to {@code ?pos}
+     */
+    public String getPositiveValues() {
+        return positiveValues;
+    }
+
+    /**
+     * @return the VALUES statement binding the negative examples to {@code ?neg}
+     */
+    public String getNegativeValues() {
+        return negativeValues;
+    }
+
+    /**
+     * @return the VALUES statement binding all examples to {@code ?instance}
+     */
+    public String getInstanceValues() {
+        return instanceValues;
+    }
+
+    /**
+     * @return the shards of this session or {@code null} if the session is not
+     *         sharded
+     */
+    public List<LearningProblemSession> getShards() {
+        return shards;
+    }
+
+    /**
+     * @param shards the shards to set
+     */
+    public void setShards(List<LearningProblemSession> shards) {
+        this.shards = shards;
+        if (shards != null) {
+            shards.forEach(s -> s.shard = true);
+        }
+    }
+
+    /**
+     * @return {@code true} if this session is a shard of a larger session
+     */
+    public boolean isShard() {
+        return shard;
+    }
+}
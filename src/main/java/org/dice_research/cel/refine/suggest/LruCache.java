@@ -0,0 +1,125 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A simple, thread-safe cache with a fixed maximum size that evicts the least
+ * recently used entry if it is full. It counts the cache hits and misses.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class LruCache<K, V> {
+
+    /**
+     * The maximum number of entries of this cache.
+     */
+    protected int maxSize;
+    /**
+     * The internal map in access order.
+     */
+    protected Map<K, V> map;
+    /**
+     * The number of cache hits.
+     */
+    protected AtomicLong hits = new AtomicLong();
+    /**
+     * The number of cache misses.
+     */
+    protected AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize the maximum number of entries of this cache
+     */
+    public LruCache(int maxSize) {
+        super();
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the value for the given key or {@code null} if the cache does not
+     * contain the key. The call is counted as hit or miss, respectively.
+     *
+     * @param key the key of the value
+     * @return the cached value or {@code null}
+     */
+    public V get(K key) {
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Adds the given key value pair to the cache. If the cache exceeds its maximum
+     * size, the least recently used entry is removed.
+     *
+     * @param key   the key of the value
+     * @param value the value that should be cached
+     */
+    public void put(K key, V value) {
+        synchronized (map) {
+            map.put(key, value);
+        }
+    }
+
+    /**
+     * Removes all entries from the cache. The hit and miss counters are not
+     * changed.
+     */
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    /**
+     * @return the current number of entries
+     */
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * @return the maxSize
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
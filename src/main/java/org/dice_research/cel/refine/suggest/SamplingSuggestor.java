@@ -0,0 +1,644 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.sparql.InstanceRetriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A decorator for an {@link ExtendedSuggestor} that retrieves suggestions in
+ * two phases. First, the suggestions are retrieved for a stratified sample of
+ * the examples, i.e., the positive and negative examples are sampled
+ * separately with at most {@link #sampleSize} examples each. The suggestions
+ * are ranked based on their hit rates within the sample. Second, only the top
+ * ranked suggestions of each list (the shortlist) are scored exactly on all
+ * examples with a single call of
+ * {@link ExtendedSuggestor#scoreExpressions(List, Collection, Collection)}. All
+ * other suggestions are dropped.
+ *
+ * <p>
+ * The sampled hit rates are compared with the exact hit rates of the
+ * shortlisted suggestions. The disagreement (i.e., the error of the hit rates
+ * and the number of pairs of suggestions that the sample ranks in the wrong
+ * order) is summed up and can be retrieved with
+ * {@link #getDisagreementReport()}.
+ * </p>
+ *
+ * <p>
+ * Learning problems that have at most {@link #sampleSize} positive and
+ * negative examples are forwarded to the decorated suggestor without any
+ * change.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class SamplingSuggestor implements ExtendedSuggestor, InstanceRetriever {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SamplingSuggestor.class);
+
+    /**
+     * The default maximum number of positive and negative examples of a sample.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+    /**
+     * The default ratio of the suggestions of a list that are scored exactly.
+     */
+    public static final double DEFAULT_SHORTLIST_RATIO = 0.1;
+    /**
+     * The default minimum number of suggestions of a list that are scored
+     * exactly.
+     */
+    public static final int DEFAULT_MIN_SHORTLIST_SIZE = 10;
+
+    /**
+     * The decorated suggestor.
+     */
+    protected ExtendedSuggestor decorated;
+    /**
+     * The maximum number of positive and negative examples of a sample.
+     */
+    protected int sampleSize;
+    /**
+     * The ratio of the suggestions of a list that are scored exactly.
+     */
+    protected double shortlistRatio;
+    /**
+     * The minimum number of suggestions of a list that are scored exactly.
+     */
+    protected int minShortlistSize;
+    /**
+     * The seed of the random number generator that is used for sampling.
+     */
+    protected long seed = 0;
+    /**
+     * Flag indicating whether the negation of a suggestion is used as well, i.e.,
+     * suggestions are ranked by the absolute difference of their positive and
+     * negative hit rates.
+     */
+    protected boolean negationIncluded = true;
+    /**
+     * The sample of the last learning problem.
+     */
+    protected Sample lastSample = null;
+
+    /**
+     * The number of suggestion lists that have been shortlisted.
+     */
+    protected long shortlistedLists = 0;
+    /**
+     * The number of suggestions that have been retrieved for samples.
+     */
+    protected long sampledSuggestions = 0;
+    /**
+     * The number of suggestions that have been scored exactly.
+     */
+    protected long rescoredSuggestions = 0;
+    /**
+     * The sum of the absolute errors of the sampled positive hit rates.
+     */
+    protected double posRateErrorSum = 0;
+    /**
+     * The sum of the absolute errors of the sampled negative hit rates.
+     */
+    protected double negRateErrorSum = 0;
+    /**
+     * The maximum absolute error of a sampled hit rate.
+     */
+    protected double maxRateError = 0;
+    /**
+     * The number of pairs of shortlisted suggestions that have been compared.
+     */
+    protected long comparedPairs = 0;
+    /**
+     * The number of pairs of shortlisted suggestions that are ranked in a
+     * different order by the sample than by their exact scores.
+     */
+    protected long rankInversions = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param decorated the decorated suggestor
+     */
+    public SamplingSuggestor(ExtendedSuggestor decorated) {
+        this(decorated, DEFAULT_SAMPLE_SIZE, DEFAULT_SHORTLIST_RATIO, DEFAULT_MIN_SHORTLIST_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param decorated        the decorated suggestor
+     * @param sampleSize       the maximum number of positive and negative
+     *                         examples of a sample
+     * @param shortlistRatio   the ratio of the suggestions of a list that are
+     *                         scored exactly
+     * @param minShortlistSize the minimum number of suggestions of a list that
+     *                         are scored exactly
+     */
+    public SamplingSuggestor(ExtendedSuggestor decorated, int sampleSize, double shortlistRatio,
+            int minShortlistSize) {
+        super();
+        this.decorated = decorated;
+        this.sampleSize = sampleSize;
+        this.shortlistRatio = shortlistRatio;
+        this.minShortlistSize = minShortlistSize;
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        ContextSuggestions request = new ContextSuggestions(context, true, false, false);
+        suggest(positive, negative, Collections.singletonList(request));
+        return request.getClasses();
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        ContextSuggestions request = new ContextSuggestions(context, false, true, false);
+        suggest(positive, negative, Collections.singletonList(request));
+        return request.getNegatedClasses();
+    }
+
+    @Override
+    public Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
+            ClassExpression context) {
+        ContextSuggestions request = new ContextSuggestions(context, false, false, true);
+        suggest(positive, negative, Collections.singletonList(request));
+        return request.getProperties();
+    }
+
+    /**
+     * Retrieves the suggestions for the sample of the given examples with a
+     * single call of the decorated suggestor, shortlists them and scores the
+     * shortlisted suggestions of all requests with a single call. The bounds of
+     * the requests are applied to the exact scores.
+     */
+    @Override
+    public void suggest(Collection<String> positive, Collection<String> negative,
+            Collection<ContextSuggestions> requests) {
+        Sample sample = getSample(positive, negative);
+        if (!sample.isSampled()) {
+            decorated.suggest(positive, negative, requests);
+            return;
+        }
+        // The bounds refer to the counts of all examples and cannot be used here
+        List<ContextSuggestions> sampledRequests = new ArrayList<>(requests.size());
+        for (ContextSuggestions request : requests) {
+            sampledRequests.add(new ContextSuggestions(request.getContext(), request.isClassesRequested(),
+                    request.isNegatedClassesRequested(), request.isPropertiesRequested()));
+        }
+        decorated.suggest(sample.positive, sample.negative, sampledRequests);
+
+        List<List<Candidate>> shortlists = new ArrayList<>();
+        List<ClassExpression> expressions = new ArrayList<>();
+        int i = 0;
+        for (ContextSuggestions request : requests) {
+            ContextSuggestions sampled = sampledRequests.get(i);
+            final ClassExpression context = request.getContext();
+            if (request.isClassesRequested()) {
+                request.setClasses(shortlist(sampled.getClasses(), sample, shortlists, expressions,
+                        s -> ClassExpressionUpdater.update(context, CONTEXT_POSITION_MARKER,
+                                new NamedClass(s.getIri()))));
+            }
+            if (request.isNegatedClassesRequested()) {
+                request.setNegatedClasses(shortlist(sampled.getNegatedClasses(), sample, shortlists, expressions,
+                        s -> ClassExpressionUpdater.update(context, CONTEXT_POSITION_MARKER,
+                                new NamedClass(s.getIri(), true))));
+            }
+            if (request.isPropertiesRequested()) {
+                request.setProperties(shortlist(sampled.getProperties(), sample, shortlists, expressions,
+                        s -> ClassExpressionUpdater.update(context, CONTEXT_POSITION_MARKER,
+                                new SimpleQuantifiedRole(true, s.getIri(), s.isInverted(), NamedClass.TOP))));
+            }
+            ++i;
+        }
+        if (!expressions.isEmpty()) {
+            List<SelectionScores> scores = decorated.scoreExpressions(expressions, positive, negative);
+            int id = 0;
+            for (List<Candidate> shortlist : shortlists) {
+                for (Candidate candidate : shortlist) {
+                    candidate.suggestion.setPosCount(scores.get(id).getPosCount());
+                    candidate.suggestion.setNegCount(scores.get(id).getNegCount());
+                    ++id;
+                }
+            }
+            updateDisagreement(shortlists, positive.size(), negative.size());
+        }
+        for (ContextSuggestions request : requests) {
+            ScoreBound bound = request.getBound();
+            if (bound != null) {
+                for (Collection<ScoredIRI> suggestions : Arrays.asList(request.getClasses(),
+                        request.getNegatedClasses(), request.getProperties())) {
+                    if (suggestions != null) {
+                        suggestions.removeIf(s -> !bound.isFulfilled(s.getPosCount(), s.getNegCount()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ranks the given sampled suggestions and adds the top ranked suggestions
+     * together with the expressions that have to be scored to the given lists.
+     *
+     * @param suggestions         the suggestions retrieved for the sample
+     * @param sample              the sample of the learning problem
+     * @param shortlists          the list to which the shortlist is added
+     * @param expressions         the list to which the expressions of the
+     *                            shortlisted suggestions are added
+     * @param expressionGenerator the generator of the expression that a
+     *                            suggestion represents
+     * @return the shortlisted suggestions (their counts are replaced by the exact
+     *         counts later on)
+     */
+    protected List<ScoredIRI> shortlist(Collection<ScoredIRI> suggestions, Sample sample,
+            List<List<Candidate>> shortlists, List<ClassExpression> expressions,
+            Function<ScoredIRI, ClassExpression> expressionGenerator) {
+        if (suggestions == null) {
+            return new ArrayList<>();
+        }
+        List<Candidate> candidates = new ArrayList<>(suggestions.size());
+        for (ScoredIRI suggestion : suggestions) {
+            candidates.add(new Candidate(suggestion, rate(suggestion.getPosCount(), sample.positive.size()),
+                    rate(suggestion.getNegCount(), sample.negative.size())));
+        }
+        Collections.sort(candidates, Comparator.comparingDouble(c -> -rank(c.posRate, c.negRate)));
+        int size = Math.min(candidates.size(),
+                Math.max(minShortlistSize, (int) Math.ceil(shortlistRatio * candidates.size())));
+        List<Candidate> shortlist = new ArrayList<>(candidates.subList(0, size));
+        List<ScoredIRI> results = new ArrayList<>(size);
+        for (Candidate candidate : shortlist) {
+            expressions.add(expressionGenerator.apply(candidate.suggestion));
+            results.add(candidate.suggestion);
+        }
+        shortlists.add(shortlist);
+        synchronized (this) {
+            ++shortlistedLists;
+            sampledSuggestions += candidates.size();
+        }
+        return results;
+    }
+
+    /**
+     * Compares the sampled hit rates of the given shortlists with the exact
+     * counts of their suggestions and adds the differences to the disagreement
+     * statistics.
+     *
+     * @param shortlists   the shortlists with exactly scored suggestions
+     * @param numPositives the number of positive examples
+     * @param numNegatives the number of negative examples
+     */
+    protected synchronized void updateDisagreement(List<List<Candidate>> shortlists, int numPositives,
+            int numNegatives) {
+        long inversions = 0;
+        long pairs = 0;
+        for (List<Candidate> shortlist : shortlists) {
+            double[] exactRanks = new double[shortlist.size()];
+            for (int i = 0; i < exactRanks.length; ++i) {
+                Candidate candidate = shortlist.get(i);
+                double posRate = rate(candidate.suggestion.getPosCount(), numPositives);
+                double negRate = rate(candidate.suggestion.getNegCount(), numNegatives);
+                posRateErrorSum += Math.abs(posRate - candidate.posRate);
+                negRateErrorSum += Math.abs(negRate - candidate.negRate);
+                maxRateError = Math.max(maxRateError,
+                        Math.max(Math.abs(posRate - candidate.posRate), Math.abs(negRate - candidate.negRate)));
+                exactRanks[i] = rank(posRate, negRate);
+            }
+            // The shortlist is sorted by the sampled ranks
+            for (int i = 0; i < exactRanks.length; ++i) {
+                for (int j = i + 1; j < exactRanks.length; ++j) {
+                    if (exactRanks[j] > exactRanks[i]) {
+                        ++inversions;
+                    }
+                }
+            }
+            pairs += ((long) exactRanks.length * (exactRanks.length - 1)) / 2;
+            rescoredSuggestions += exactRanks.length;
+        }
+        comparedPairs += pairs;
+        rankInversions += inversions;
+        LOGGER.debug("Rescored {} shortlists with {} inversions in {} pairs.", shortlists.size(), inversions,
+                pairs);
+    }
+
+    protected static double rate(int count, int size) {
+        return (size > 0) ? ((double) count / size) : 0;
+    }
+
+    /**
+     * Calculates the value that is used to rank suggestions, i.e., the difference
+     * of their positive and negative hit rates (or its absolute value if the
+     * negation is included).
+     *
+     * @param posRate the positive hit rate
+     * @param negRate the negative hit rate
+     * @return the rank value of the suggestion
+     */
+    protected double rank(double posRate, double negRate) {
+        return negationIncluded ? Math.abs(posRate - negRate) : (posRate - negRate);
+    }
+
+    /**
+     * Returns the sample of the given learning problem. The sample of the last
+     * learning problem is reused since the decorated suggestor may identify the
+     * learning problem based on the identity of the example collections (see
+     * {@link LearningProblemSession}).
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return the sample of the given learning problem
+     */
+    protected synchronized Sample getSample(Collection<String> positive, Collection<String> negative) {
+        if ((lastSample == null) || (lastSample.originalPositive != positive)
+                || (lastSample.originalNegative != negative)) {
+            Random random = new Random(seed);
+            lastSample = new Sample(positive, negative, sample(positive, random), sample(negative, random));
+            if (lastSample.isSampled()) {
+                LOGGER.debug("Sampled {}/{} positive and {}/{} negative examples.", lastSample.positive.size(),
+                        positive.size(), lastSample.negative.size(), negative.size());
+            }
+        }
+        return lastSample;
+    }
+
+    /**
+     * Draws a random sample of at most {@link #sampleSize} examples from the given
+     * examples.
+     *
+     * @param examples the examples
+     * @param random   the random number generator
+     * @return the sample or the given collection if it is not larger than the
+     *         sample size
+     */
+    protected Collection<String> sample(Collection<String> examples, Random random) {
+        if (examples.size() <= sampleSize) {
+            return examples;
+        }
+        List<String> shuffled = new ArrayList<>(examples);
+        Collections.shuffle(shuffled, random);
+        return new ArrayList<>(shuffled.subList(0, sampleSize));
+    }
+
+    @Override
+    public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        return decorated.scoreExpression(expression, positive, negative);
+    }
+
+    @Override
+    public List<SelectionScores> scoreExpressions(List<ClassExpression> expressions, Collection<String> positive,
+            Collection<String> negative) {
+        return decorated.scoreExpressions(expressions, positive, negative);
+    }
+
+    @Override
+    public LearningProblemHandle beginProblem(Collection<String> positive, Collection<String> negative) {
+        return decorated.beginProblem(positive, negative);
+    }
+
+    @Override
+    public int getMaxSuggestionsPerContext() {
+        return decorated.getMaxSuggestionsPerContext();
+    }
+
+    /**
+     * Retrieves the instances using the decorated suggestor.
+     *
+     * @throws UnsupportedOperationException if the decorated suggestor is not an
+     *                                       {@link InstanceRetriever}
+     */
+    @Override
+    public Set<String> retrieveInstances(ClassExpression expression, Collection<String> positive,
+            Collection<String> negative) {
+        if (!(decorated instanceof InstanceRetriever)) {
+            throw new UnsupportedOperationException(
+                    "The decorated suggestor is not able to retrieve instances. decorated=" + decorated);
+        }
+        return ((InstanceRetriever) decorated).retrieveInstances(expression, positive, negative);
+    }
+
+    /**
+     * @return a summary of the disagreement between the sampled and the exact
+     *         scores of the shortlisted suggestions
+     */
+    public synchronized String getDisagreementReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SamplingSuggestor [shortlistedLists=");
+        builder.append(shortlistedLists);
+        builder.append(", sampledSuggestions=");
+        builder.append(sampledSuggestions);
+        builder.append(", rescoredSuggestions=");
+        builder.append(rescoredSuggestions);
+        builder.append(", meanPosRateError=");
+        builder.append(getMeanPosRateError());
+        builder.append(", meanNegRateError=");
+        builder.append(getMeanNegRateError());
+        builder.append(", maxRateError=");
+        builder.append(maxRateError);
+        builder.append(", rankInversions=");
+        builder.append(rankInversions);
+        builder.append('/');
+        builder.append(comparedPairs);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * @return the number of suggestions that have been retrieved for samples
+     */
+    public synchronized long getSampledSuggestions() {
+        return sampledSuggestions;
+    }
+
+    /**
+     * @return the number of suggestions that have been scored exactly
+     */
+    public synchronized long getRescoredSuggestions() {
+        return rescoredSuggestions;
+    }
+
+    /**
+     * @return the mean absolute error of the sampled positive hit rates of the
+     *         rescored suggestions
+     */
+    public synchronized double getMeanPosRateError() {
+        return (rescoredSuggestions > 0) ? (posRateErrorSum / rescoredSuggestions) : 0;
+    }
+
+    /**
+     * @return the mean absolute error of the sampled negative hit rates of the
+     *         rescored suggestions
+     */
+    public synchronized double getMeanNegRateError() {
+        return (rescoredSuggestions > 0) ? (negRateErrorSum / rescoredSuggestions) : 0;
+    }
+
+    /**
+     * @return the maximum absolute error of a sampled hit rate
+     */
+    public synchronized double getMaxRateError() {
+        return maxRateError;
+    }
+
+    /**
+     * @return the number of pairs of shortlisted suggestions that are ranked in
+     *         a different order by the sample than by their exact scores
+     */
+    public synchronized long getRankInversions() {
+        return rankInversions;
+    }
+
+    /**
+     * @return the number of pairs of shortlisted suggestions that have been
+     *         compared
+     */
+    public synchronized long getComparedPairs() {
+        return comparedPairs;
+    }
+
+    /**
+     * @return the decorated suggestor
+     */
+    public ExtendedSuggestor getDecorated() {
+        return decorated;
+    }
+
+    /**
+     * @return the maximum number of positive and negative examples of a sample
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * @param sampleSize the maximum number of positive and negative examples of a
+     *                   sample
+     */
+    public synchronized void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+        this.lastSample = null;
+    }
+
+    /**
+     * @return the ratio of the suggestions of a list that are scored exactly
+     */
+    public double getShortlistRatio() {
+        return shortlistRatio;
+    }
+
+    /**
+     * @param shortlistRatio the ratio of the suggestions of a list that are
+     *                       scored exactly
+     */
+    public void setShortlistRatio(double shortlistRatio) {
+        this.shortlistRatio = shortlistRatio;
+    }
+
+    /**
+     * @return the minimum number of suggestions of a list that are scored exactly
+     */
+    public int getMinShortlistSize() {
+        return minShortlistSize;
+    }
+
+    /**
+     * @param minShortlistSize the minimum number of suggestions of a list that
+     *                         are scored exactly
+     */
+    public void setMinShortlistSize(int minShortlistSize) {
+        this.minShortlistSize = minShortlistSize;
+    }
+
+    /**
+     * @return the seed of the random number generator that is used for sampling
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param seed the seed of the random number generator that is used for
+     *             sampling
+     */
+    public synchronized void setSeed(long seed) {
+        this.seed = seed;
+        this.lastSample = null;
+    }
+
+    /**
+     * @return the negationIncluded
+     */
+    public boolean isNegationIncluded() {
+        return negationIncluded;
+    }
+
+    /**
+     * @param negationIncluded flag indicating whether suggestions are ranked by
+     *                         the absolute difference of their hit rates
+     */
+    public void setNegationIncluded(boolean negationIncluded) {
+        this.negationIncluded = negationIncluded;
+    }
+
+    /**
+     * The sample of a learning problem.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class Sample {
+        protected Collection<String> originalPositive;
+        protected Collection<String> originalNegative;
+        protected Collection<String> positive;
+        protected Collection<String> negative;
+
+        public Sample(Collection<String> originalPositive, Collection<String> originalNegative,
+                Collection<String> positive, Collection<String> negative) {
+            super();
+            this.originalPositive = originalPositive;
+            this.originalNegative = originalNegative;
+            this.positive = positive;
+            this.negative = negative;
+        }
+
+        /**
+         * @return {@code true} if at least one of the example sets has been sampled
+         */
+        public boolean isSampled() {
+            return (positive != originalPositive) || (negative != originalNegative);
+        }
+    }
+
+    /**
+     * A shortlisted suggestion together with its sampled hit rates.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class Candidate {
+        protected ScoredIRI suggestion;
+        protected double posRate;
+        protected double negRate;
+
+        public Candidate(ScoredIRI suggestion, double posRate, double negRate) {
+            super();
+            this.suggestion = suggestion;
+            this.posRate = posRate;
+            this.negRate = negRate;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.dice_research.cel.refine.suggest;
+
+import org.dice_research.cel.score.ScoreCalculator;
+
+/**
+ * An optimistic bound for the counts of a suggestion. A suggestion that does
+ * not fulfill the bound cannot reach the score the bound has been created for.
+ * Suggestors can use the bound to avoid retrieving such suggestions (e.g., by
+ * adding a HAVING clause to their queries). However, the bound is only a hint,
+ * i.e., suggestors may still return suggestions that do not fulfill it.
+ *
+ * <p>
+ * If the negation of a suggestion is used as well (i.e., the logic supports
+ * the complex concept negation), a suggestion also fulfills the bound if its
+ * negation (i.e., the complement of its counts) fulfills it.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ScoreBound {
+
+    /**
+     * The minimum number of positive examples a suggestion has to select.
+     */
+    protected int minPosCount;
+    /**
+     * The maximum number of negative examples a suggestion may select.
+     */
+    protected int maxNegCount;
+    /**
+     * The number of positive examples.
+     */
+    protected int numPositives;
+    /**
+     * The number of negative examples.
+     */
+    protected int numNegatives;
+    /**
+     * Flag indicating whether a suggestion also fulfills the bound if its
+     * negation fulfills it.
+     */
+    protected boolean negationIncluded;
+
+    /**
+     * Constructor.
+     *
+     * @param minPosCount      the minimum number of positive examples a
+     *                         suggestion has to select
+     * @param maxNegCount      the maximum number of negative examples a
+     *                         suggestion may select
+     * @param numPositives     the number of positive examples
+     * @param numNegatives     the number of negative examples
+     * @param negationIncluded flag indicating whether a suggestion also fulfills
+     *                         the bound if its negation fulfills it
+     */
+    public ScoreBound(int minPosCount, int maxNegCount, int numPositives, int numNegatives,
+            boolean negationIncluded) {
+        super();
+        this.minPosCount = minPosCount;
+        this.maxNegCount = maxNegCount;
+        this.numPositives = numPositives;
+        this.numNegatives = numNegatives;
+        this.negationIncluded = negationIncluded;
+    }
+
+    /**
+     * Creates a bound for suggestions that should be able to reach the given
+     * classification score.
+     *
+     * @param calculator       the score calculator of the learning problem
+     * @param minScore         the classification score a suggestion should be
+     *                         able to reach
+     * @param numPositives     the number of positive examples
+     * @param numNegatives     the number of negative examples
+     * @param negationIncluded flag indicating whether a suggestion also fulfills
+     *                         the bound if its negation fulfills it
+     * @return the created bound
+     */
+    public static ScoreBound create(ScoreCalculator calculator, double minScore, int numPositives, int numNegatives,
+            boolean negationIncluded) {
+        return new ScoreBound(calculator.calculateMinPosCount(minScore, numPositives, numNegatives),
+                calculator.calculateMaxNegCount(minScore, numPositives, numNegatives), numPositives, numNegatives,
+                negationIncluded);
+    }
+
+    /**
+     * Checks whether the given counts fulfill this bound.
+     *
+     * @param posCount the number of selected positive examples
+     * @param negCount the number of selected negative examples
+     * @return {@code true} if the counts (or their complement if the negation is
+     *         included) fulfill the bound
+     */
+    public boolean isFulfilled(int posCount, int negCount) {
+        return ((posCount >= minPosCount) && (negCount <= maxNegCount)) || (negationIncluded
+                && ((numPositives - posCount) >= minPosCount) && ((numNegatives - negCount) <= maxNegCount));
+    }
+
+    /**
+     * Checks whether the bound excludes any counts at all.
+     *
+     * @return {@code true} if every possible pair of counts fulfills the bound
+     */
+    public boolean isTrivial() {
+        return (minPosCount <= 0) && (maxNegCount >= numNegatives);
+    }
+
+    /**
+     * @return the minPosCount
+     */
+    public int getMinPosCount() {
+        return minPosCount;
+    }
+
+    /**
+     * @return the maxNegCount
+     */
+    public int getMaxNegCount() {
+        return maxNegCount;
+    }
+
+    /**
+     * @return the numPositives
+     */
+    public int getNumPositives() {
+        return numPositives;
+    }
+
+    /**
+     * @return the numNegatives
+     */
+    public int getNumNegatives() {
+        return numNegatives;
+    }
+
+    /**
+     * @return the negationIncluded
+     */
+    public boolean isNegationIncluded() {
+        return negationIncluded;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ScoreBound [minPosCount=");
+        builder.append(minPosCount);
+        builder.append(", maxNegCount=");
+        builder.append(maxNegCount);
+        builder.append(", negationIncluded=");
+        builder.append(negationIncluded);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -1,5 +1,7 @@
 package org.dice_research.cel.refine.suggest;
 
+import org.dice_research.cel.expression.IriDictionary;
+
 /**
  * This data class is an extension of the {@link SelectionScores} class and
  * stores an IRI together with its selection scores. It also stores whether the
@@ -11,11 +13,11 @@ package org.dice_research.cel.refine.suggest;
 public class ScoredIRI extends SelectionScores {
 
     /**
-     * The IRI that has been scored.
+     * The id of the IRI that has been scored (see {@link IriDictionary}).
      */
-    protected String iri;
+    protected int iriId;
     /**
-     * A flag that indicates whether the {@link #iri} has to be used as an inverted
+     * A flag that indicates whether the IRI has to be used as an inverted
      * role to achieve the score.
      */
     protected boolean inverted;
@@ -42,7 +44,23 @@ public class ScoredIRI extends SelectionScores {
      */
     public ScoredIRI(String iri, int posCount, int negCount, boolean inverted) {
         super(posCount, negCount);
-        this.iri = iri;
+        this.iriId = IriDictionary.getInstance().encode(iri);
+        this.inverted = inverted;
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param iriId    The id of the IRI that has been scored (see
+     *                 {@link IriDictionary})
+     * @param posCount The number of positive examples that have been selected
+     * @param negCount The number of negative examples that have been selected
+     * @param inverted A flag that indicates whether the given IRI has to be used as
+     *                 an inverted role to achieve the score
+     */
+    protected ScoredIRI(int iriId, int posCount, int negCount, boolean inverted) {
+        super(posCount, negCount);
+        this.iriId = iriId;
         this.inverted = inverted;
     }
 
@@ -50,14 +68,21 @@ public class ScoredIRI extends SelectionScores {
      * @return the iri
      */
     public String getIri() {
-        return iri;
+        return IriDictionary.getInstance().decode(iriId);
+    }
+
+    /**
+     * @return the id of the iri in the {@link IriDictionary}
+     */
+    public int getIriId() {
+        return iriId;
     }
 
     /**
      * @param iri the iri to set
      */
     public void setIri(String iri) {
-        this.iri = iri;
+        this.iriId = IriDictionary.getInstance().encode(iri);
     }
 
     /**
@@ -78,7 +103,7 @@ public class ScoredIRI extends SelectionScores {
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("ScoredIRI [iri=");
-        builder.append(iri);
+        builder.append(getIri());
         builder.append(", posCount=");
         builder.append(posCount);
         builder.append(", negCount=");
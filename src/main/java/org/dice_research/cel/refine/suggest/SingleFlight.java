@@ -0,0 +1,112 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical computations that are in flight at the same time. If a
+ * computation for a key is requested while another thread is already computing
+ * the value for the same key, the requesting thread waits for and returns the
+ * result of the running computation instead of starting its own. An error of
+ * the running computation is forwarded to all waiting threads. Keys are only
+ * kept while their computation is running, i.e., this class is not a cache.
+ *
+ * <p>
+ * Note that all threads that requested the same key receive the same value
+ * instance. Hence, values should either be immutable or copied by the callers
+ * before they are changed.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * The computations that are currently running.
+     */
+    protected ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * The number of computations that have been executed.
+     */
+    protected AtomicLong executions = new AtomicLong();
+    /**
+     * The number of requests that have been answered with the result of a
+     * computation of another thread.
+     */
+    protected AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Returns the value for the given key. If there is no running computation for
+     * the key, the given supplier is executed by the calling thread. Otherwise,
+     * the calling thread waits for the result of the running computation.
+     *
+     * @param key      the key of the value
+     * @param supplier the computation of the value
+     * @return the value
+     */
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+        executions.incrementAndGet();
+        try {
+            V value = supplier.get();
+            // Remove the key first to make sure that later requests start a new
+            // computation
+            inFlight.remove(key, future);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    protected V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // The error has already been handled by the executing thread. Hence, we
+            // only have to forward it.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return the number of computations that are currently running
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return the number of computations that have been executed
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * @return the number of requests that have been answered with the result of
+     *         a computation of another thread
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
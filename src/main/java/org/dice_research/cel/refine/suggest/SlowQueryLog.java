@@ -0,0 +1,203 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.sparql.QueryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Captures queries whose execution takes longer than a given threshold. Each
+ * slow query is written as a single line to the {@link #LOGGER_NAME} logger.
+ * The default log4j configuration contains a commented-out rotating file
+ * appender for this logger. A line contains the query type, the elapsed time,
+ * the number of rows, the originating class expressions, the positions of the
+ * context markers within them and the query text (or its SHA-256 hash).
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class SlowQueryLog {
+
+    /**
+     * The name of the logger to which the slow queries are written.
+     */
+    public static final String LOGGER_NAME = "org.dice_research.cel.slow_queries";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LOGGER_NAME);
+
+    /**
+     * The minimum execution time (in ms) of a query to be captured.
+     */
+    protected long threshold;
+    /**
+     * Flag indicating whether only the hash of a query should be written instead
+     * of its complete text.
+     */
+    protected boolean queryHashed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param threshold the minimum execution time (in ms) of a query to be
+     *                  captured
+     */
+    public SlowQueryLog(long threshold) {
+        super();
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param elapsedNanos the execution time of a query in ns
+     * @return {@code true} if a query with the given execution time is slow
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return (elapsedNanos / 1000000L) >= threshold;
+    }
+
+    /**
+     * Writes the given query to the log.
+     *
+     * @param type         the type of the query
+     * @param origins      the class expressions from which the query has been
+     *                     generated (entries may be {@code null})
+     * @param query        the query text
+     * @param rows         the number of rows of the result or -1 if the query
+     *                     failed
+     * @param elapsedNanos the execution time of the query in ns
+     */
+    public void log(QueryType type, List<ClassExpression> origins, String query, long rows, long elapsedNanos) {
+        LOGGER.warn(format(type, origins, query, rows, elapsedNanos));
+    }
+
+    /**
+     * Creates the line that represents the given query in the log.
+     */
+    protected String format(QueryType type, List<ClassExpression> origins, String query, long rows,
+            long elapsedNanos) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("type=").append(type);
+        builder.append("\telapsedMs=").append(elapsedNanos / 1000000L);
+        builder.append("\trows=").append((rows < 0) ? "failed" : Long.toString(rows));
+        builder.append("\tmarkerPositions=");
+        for (int i = 0; i < origins.size(); ++i) {
+            if (i > 0) {
+                builder.append(" | ");
+            }
+            builder.append(getMarkerPosition(origins.get(i)));
+        }
+        builder.append("\texpressions=");
+        for (int i = 0; i < origins.size(); ++i) {
+            if (i > 0) {
+                builder.append(" | ");
+            }
+            builder.append(origins.get(i));
+        }
+        if (queryHashed) {
+            builder.append("\tquerySha256=").append(hash(query));
+        } else {
+            // Keep the entry on a single line
+            builder.append("\tquery=").append(query.replace("\\", "\\\\").replace("\n", "\\n").replace("\t", "\\t"));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Determines the position of the {@link Suggestor#CONTEXT_POSITION_MARKER}
+     * within the given expression as the chain of roles that lead to it, e.g.,
+     * {@code ∃<r>/∀^<s>} for a marker within the tail of {@code ∀^s} within the
+     * tail of {@code ∃r}. Junctions do not change the position.
+     *
+     * @param expression the expression that may contain a marker
+     * @return the position of the marker, {@code root} if it is not within a
+     *         role or {@code none} if the expression does not contain a marker
+     */
+    public static String getMarkerPosition(ClassExpression expression) {
+        if (expression == null) {
+            return "none";
+        }
+        StringBuilder builder = new StringBuilder();
+        if (appendMarkerPosition(expression, builder)) {
+            return (builder.length() == 0) ? "root" : builder.toString();
+        } else {
+            return "none";
+        }
+    }
+
+    protected static boolean appendMarkerPosition(ClassExpression expression, StringBuilder builder) {
+        if (Suggestor.CONTEXT_POSITION_MARKER.equals(expression)) {
+            return true;
+        } else if (expression instanceof Junction) {
+            for (ClassExpression child : ((Junction) expression).getChildren()) {
+                if (appendMarkerPosition(child, builder)) {
+                    return true;
+                }
+            }
+        } else if (expression instanceof SimpleQuantifiedRole) {
+            SimpleQuantifiedRole role = (SimpleQuantifiedRole) expression;
+            int length = builder.length();
+            if (length > 0) {
+                builder.append('/');
+            }
+            builder.append(role.isExists() ? '∃' : '∀');
+            if (role.isInverted()) {
+                builder.append('^');
+            }
+            builder.append('<').append(role.getRole()).append('>');
+            if (appendMarkerPosition(role.getTailExpression(), builder)) {
+                return true;
+            }
+            builder.setLength(length);
+        }
+        return false;
+    }
+
+    protected static String hash(String query) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the threshold in ms
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param threshold the threshold in ms to set
+     */
+    public void setThreshold(long threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the queryHashed
+     */
+    public boolean isQueryHashed() {
+        return queryHashed;
+    }
+
+    /**
+     * @param queryHashed the queryHashed to set
+     */
+    public void setQueryHashed(boolean queryHashed) {
+        this.queryHashed = queryHashed;
+    }
+}
@@ -1,16 +1,25 @@
 package org.dice_research.cel.refine.suggest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.http.HttpClient;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
@@ -19,17 +28,21 @@ import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.sparql.core.DatasetDescription;
-import org.apache.jena.vocabulary.OWL;
-import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.sparql.exec.http.UpdateExecutionHTTP;
 import org.dice_research.cel.DescriptionLogic;
 import org.dice_research.cel.expression.ClassExpression;
 import org.dice_research.cel.expression.ClassExpressionVisitingCreator;
-import org.dice_research.cel.expression.ClassExpressionVisitor;
+import org.dice_research.cel.expression.IriDictionary;
 import org.dice_research.cel.expression.Junction;
 import org.dice_research.cel.expression.NamedClass;
-import org.dice_research.cel.expression.NegatingVisitor;
 import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.sparql.HttpQueryExecutionFactory;
+import org.dice_research.cel.sparql.HttpTransportConfig;
 import org.dice_research.cel.sparql.InstanceRetriever;
+import org.dice_research.cel.sparql.LoadBalancingQueryExecutionFactory;
+import org.dice_research.cel.sparql.QueryMetricsRegistry;
+import org.dice_research.cel.sparql.QueryType;
+import org.dice_research.cel.sparql.TsvResultDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,90 +52,578 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SparqlBasedSuggestor.class);
 
+    /**
+     * The variable that is used to mark the branches of a combined query.
+     */
+    public static final String BRANCH_VARIABLE = "branch";
+    /**
+     * The variable that is used to mark the direction of a property in a query
+     * that suggests properties and inverted properties at once.
+     */
+    public static final String DIRECTION_VARIABLE = "dir";
+    /**
+     * The default number of contexts that are combined into a single query.
+     */
+    public static final int DEFAULT_MAX_CONTEXTS_PER_QUERY = 20;
+    /**
+     * The number of learning problem sessions that are kept at the same time.
+     */
+    public static final int MAX_NUMBER_OF_SESSIONS = 8;
+
     protected QueryExecutionFactory queryExecFactory;
     protected Set<String> classBlackList = new HashSet<String>();
     protected Set<String> propertyBlackList = new HashSet<String>();
     protected DescriptionLogic logic;
     protected DisjunctionCheckingVisitor checker = new DisjunctionCheckingVisitor();
-    protected ExpressionPreProcessor preprocessor = new ExpressionPreProcessor();
+    /**
+     * The normalizer that moves disjunctions up to the root of an expression
+     * without exceeding a maximum number of UNION branches.
+     */
+    protected UnionNormalizer normalizer = new UnionNormalizer();
+    /**
+     * The builder of the queries that are sent for single contexts and
+     * expressions.
+     */
+    protected SuggestionQueryBuilder suggestionQueryBuilder;
+    /**
+     * The builder that combines the queries of several contexts into batch
+     * queries.
+     */
+    protected BatchQueryBuilder batchQueryBuilder = new BatchQueryBuilder();
+    /**
+     * The executor that is used to send queries concurrently or {@code null} if
+     * the queries should be sent sequentially.
+     */
+    protected ExecutorService queryExecutor = null;
+    /**
+     * The sessions of the last learning problems.
+     */
+    protected LearningProblemSession[] sessions = new LearningProblemSession[MAX_NUMBER_OF_SESSIONS];
+    /**
+     * The slot of the next session.
+     */
+    protected int nextSessionSlot = 0;
+    /**
+     * The executor of SPARQL updates that is used to upload the examples of a
+     * learning problem into a temporary graph or {@code null} if the examples
+     * should be inlined into the queries.
+     */
+    protected Consumer<String> updateExecutor = null;
+    /**
+     * Flag indicating whether the negated class suggestions of a batch request
+     * should be derived from the class suggestions and the counts of the context
+     * (see {@link #isCombinedClassSuggestionPossible(ClassExpression)}).
+     */
+    protected boolean combineClassSuggestions = true;
+    /**
+     * Flag indicating whether properties and inverted properties should be
+     * suggested with a single query (see
+     * {@link SuggestionQueryBuilder#generateBidirectionalPropertySuggestionQuery(LearningProblemSession, ClassExpression, ScoreBound)}).
+     */
+    protected boolean mergePropertyQueries = true;
+    /**
+     * The maximum number of positive and negative examples per shard. If a
+     * learning problem has more examples, its session is split into shards (see
+     * {@link #createShards(Collection, Collection)}). A value of 0 disables the
+     * sharding.
+     */
+    protected int maxExamplesPerShard = 0;
+    /**
+     * The registry that collects the metrics of all queries sent by this
+     * suggestor.
+     */
+    protected QueryMetricsRegistry queryMetrics = new QueryMetricsRegistry();
+    /**
+     * The log of queries that take longer than a given threshold or {@code null}
+     * if slow queries should not be captured.
+     */
+    protected SlowQueryLog slowQueryLog = null;
+    /**
+     * The queries that are currently in flight. If a thread wants to send a query
+     * that is identical to a query in flight, it waits for and shares the result
+     * of the running query instead of sending a duplicate. {@code null} if
+     * identical queries should not be coalesced.
+     */
+    protected SingleFlight<String, QueryResult> inFlightQueries = new SingleFlight<>();
 
     public SparqlBasedSuggestor(QueryExecutionFactory queryExecFactory, DescriptionLogic logic) {
         this.queryExecFactory = queryExecFactory;
         this.logic = logic;
+        this.suggestionQueryBuilder = new SuggestionQueryBuilder(logic);
     }
 
     @Override
     public void close() throws Exception {
+        if (queryExecutor != null) {
+            queryExecutor.shutdownNow();
+        }
+        synchronized (sessions) {
+            for (int i = 0; i < sessions.length; ++i) {
+                if (sessions[i] != null) {
+                    closeSession(sessions[i]);
+                    sessions[i] = null;
+                }
+            }
+        }
         queryExecFactory.close();
     }
 
-    protected Collection<ScoredIRI> performQuery(String query, Function<QuerySolution, ScoredIRI> transformation,
-            int numPositives, int numNegatives, Collection<ScoredIRI> results) {
+    /**
+     * Returns the session of the learning problem with the given examples. If
+     * there is no such session, a new session is created. Note that the caller
+     * does not hold a reference to the returned session, i.e., it may be closed
+     * at any time. Use {@link #acquireSession(Collection, Collection)} for
+     * sending queries with the session.
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return the session of the learning problem with the given examples
+     */
+    public LearningProblemSession getSession(Collection<String> positive, Collection<String> negative) {
+        LearningProblemSession session = acquireSession(positive, negative);
+        releaseSession(session);
+        return session;
+    }
+
+    /**
+     * Returns the session of the learning problem with the given examples and
+     * increments its reference count. If there is no such session, a new session
+     * is created. If the maximum number of sessions is reached, the oldest
+     * session is removed. A removed session is only closed when it is not used
+     * anymore, i.e., queries that are still running on it are not affected. Every
+     * acquired session has to be released with
+     * {@link #releaseSession(LearningProblemSession)}.
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return the session of the learning problem with the given examples
+     */
+    protected LearningProblemSession acquireSession(Collection<String> positive, Collection<String> negative) {
+        LearningProblemSession session = null;
+        LearningProblemSession evicted = null;
+        synchronized (sessions) {
+            for (int i = 0; (session == null) && (i < sessions.length); ++i) {
+                if ((sessions[i] != null) && sessions[i].isSessionOf(positive, negative)) {
+                    session = sessions[i];
+                }
+            }
+            if (session == null) {
+                session = createSession(positive, negative);
+                session.setShards(createShards(positive, negative));
+                if (sessions[nextSessionSlot] != null) {
+                    evicted = sessions[nextSessionSlot];
+                    evicted.removed = true;
+                    if (evicted.references > 0) {
+                        // The last user will close it
+                        evicted = null;
+                    }
+                }
+                sessions[nextSessionSlot] = session;
+                nextSessionSlot = (nextSessionSlot + 1) % sessions.length;
+            }
+            ++session.references;
+        }
+        if (evicted != null) {
+            closeSession(evicted);
+        }
+        return session;
+    }
+
+    /**
+     * Releases a session that has been acquired with
+     * {@link #acquireSession(Collection, Collection)}. If the session has been
+     * removed and this was the last reference, the session is closed.
+     *
+     * @param session the session that is not used anymore by the caller
+     */
+    protected void releaseSession(LearningProblemSession session) {
+        boolean close;
+        synchronized (sessions) {
+            --session.references;
+            close = session.removed && (session.references == 0);
+        }
+        if (close) {
+            closeSession(session);
+        }
+    }
+
+    /**
+     * Removes the session of the given learning problem (if there is one). The
+     * session is closed as soon as no query uses it anymore.
+     *
+     * @param session the session that should be removed
+     */
+    protected void removeSession(LearningProblemSession session) {
+        synchronized (sessions) {
+            for (int i = 0; i < sessions.length; ++i) {
+                if (sessions[i] == session) {
+                    sessions[i] = null;
+                }
+            }
+            session.removed = true;
+        }
+    }
+
+    /**
+     * Creates the session of the given learning problem and keeps it until the
+     * returned handle is closed. After that, the session is removed and closed
+     * as soon as no query uses it anymore, e.g., the temporary graph of an
+     * {@link ExampleGraphSession} is dropped when the learning problem ends.
+     */
+    @Override
+    public LearningProblemHandle beginProblem(Collection<String> positive, Collection<String> negative) {
+        LearningProblemSession session = acquireSession(positive, negative);
+        AtomicBoolean ended = new AtomicBoolean(false);
+        return () -> {
+            if (ended.compareAndSet(false, true)) {
+                removeSession(session);
+                releaseSession(session);
+            }
+        };
+    }
+
+    /**
+     * Creates a new session for the given examples.
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return a new session for the given examples
+     */
+    protected LearningProblemSession createSession(Collection<String> positive, Collection<String> negative) {
+        if (updateExecutor != null) {
+            return ExampleGraphSession.create(positive, negative, updateExecutor);
+        }
+        LOGGER.trace("Creating a new session for {} positive and {} negative examples.", positive.size(),
+                negative.size());
+        return new LearningProblemSession(positive, negative, generateValuesStmt("?pos", positive.iterator()),
+                generateValuesStmt("?neg", negative.iterator()),
+                generateValuesStmt("?instance", Iterators.concat(positive.iterator(), negative.iterator())));
+    }
+
+    /**
+     * Splits the given examples into shards if there are more than
+     * {@link #maxExamplesPerShard} positive or negative examples. The positive
+     * and negative examples are distributed evenly over the smallest number of
+     * shards that fulfills the maximum. Since the shards are disjoint, the counts
+     * of a query can be calculated by summing up the counts of the shards.
+     *
+     * @param positive the positive examples
+     * @param negative the negative examples
+     * @return the sessions of the created shards or {@code null} if no sharding
+     *         is necessary
+     */
+    protected List<LearningProblemSession> createShards(Collection<String> positive, Collection<String> negative) {
+        if ((maxExamplesPerShard <= 0)
+                || ((positive.size() <= maxExamplesPerShard) && (negative.size() <= maxExamplesPerShard))) {
+            return null;
+        }
+        int numberOfShards = Math.max((positive.size() + maxExamplesPerShard - 1) / maxExamplesPerShard,
+                (negative.size() + maxExamplesPerShard - 1) / maxExamplesPerShard);
+        LOGGER.debug("Splitting {} positive and {} negative examples into {} shards.", positive.size(),
+                negative.size(), numberOfShards);
+        List<String> positiveList = new ArrayList<>(positive);
+        List<String> negativeList = new ArrayList<>(negative);
+        List<LearningProblemSession> shards = new ArrayList<>(numberOfShards);
+        for (int i = 0; i < numberOfShards; ++i) {
+            shards.add(createSession(getShardPart(positiveList, i, numberOfShards),
+                    getShardPart(negativeList, i, numberOfShards)));
+        }
+        return shards;
+    }
+
+    /**
+     * Returns the part of the given list that belongs to the shard with the given
+     * index.
+     *
+     * @param examples       the examples that should be split
+     * @param shardId        the index of the shard
+     * @param numberOfShards the number of shards
+     * @return the examples of the shard
+     */
+    protected static List<String> getShardPart(List<String> examples, int shardId, int numberOfShards) {
+        int start = (int) (((long) examples.size() * shardId) / numberOfShards);
+        int end = (int) (((long) examples.size() * (shardId + 1)) / numberOfShards);
+        return new ArrayList<>(examples.subList(start, end));
+    }
+
+    /**
+     * Closes the given session. This method is called when a session has been
+     * removed and is not used anymore.
+     *
+     * @param session the session that should be closed
+     */
+    protected void closeSession(LearningProblemSession session) {
+        session.close();
+    }
+
+    protected Collection<ScoredIRI> performQuery(QueryType type, ClassExpression origin, String query,
+            Function<QuerySolution, ScoredIRI> transformation, int numPositives, int numNegatives,
+            Collection<ScoredIRI> results) {
+        QueryResult result = performCoalescedQuery(type, Collections.singletonList(origin), query,
+                Collections.singletonList(transformation));
+        List<ScoredIRI> scoredIris = result.copyScoredIris(0);
+        addBaseScore(scoredIris, result.copyBaseScore(0), numPositives, numNegatives);
+        results.addAll(scoredIris);
+        return results;
+    }
+
+    /**
+     * Sends the given query unless an identical query is already in flight. In
+     * the latter case, the calling thread waits for the result of the running
+     * query (see {@link #inFlightQueries}). Since the result may be shared with
+     * other threads, its scored IRIs have to be copied before they are changed.
+     *
+     * @param type            the type of the query
+     * @param origins         the class expressions from which the query has been
+     *                        generated
+     * @param query           the query text
+     * @param transformations the transformations of the single branches of the
+     *                        query (see
+     *                        {@link #executeQuery(QueryType, List, String, List)})
+     * @return the result of the query
+     */
+    protected QueryResult performCoalescedQuery(QueryType type, List<ClassExpression> origins, String query,
+            List<Function<QuerySolution, ScoredIRI>> transformations) {
+        SingleFlight<String, QueryResult> flights = inFlightQueries;
+        if (flights == null) {
+            return executeQuery(type, origins, query, transformations);
+        } else {
+            return flights.execute(query, () -> executeQuery(type, origins, query, transformations));
+        }
+    }
+
+    /**
+     * Sends the given query and transforms its result into scored IRIs. If more
+     * than one transformation is given, the query is a batch query (see
+     * {@link BatchQueryBuilder#generateBatchQuery(List)}) and each row is transformed with the
+     * transformation of the branch that it is marked with.
+     *
+     * @param type            the type of the query
+     * @param origins         the class expressions from which the query has been
+     *                        generated
+     * @param query           the query text
+     * @param transformations the transformations of the single branches of the
+     *                        query
+     * @return the result of the query
+     */
+    protected QueryResult executeQuery(QueryType type, List<ClassExpression> origins, String query,
+            List<Function<QuerySolution, ScoredIRI>> transformations) {
+        HttpQueryExecutionFactory tsvFactory = getTsvQueryExecFactory();
+        if ((tsvFactory != null)
+                && transformations.stream().allMatch(t -> t instanceof ScoredIriQuerySolutionMapper)) {
+            return executeTsvQuery(tsvFactory, type, origins, query, transformations);
+        }
+        boolean singleBranch = transformations.size() == 1;
         LOGGER.trace("Sending query {}", query);
+        long startTime = System.nanoTime();
         // Create the query execution with try-catch to ensure that it will be closed
         try (QueryExecution qe = queryExecFactory.createQueryExecution(query);) {
             ResultSet result = qe.execSelect();
-            ScoredIRI sIri;
-            ScoredIRI baseScore = null;
-            List<ScoredIRI> scoredIris = new ArrayList<>();
+            QueryResult queryResult = new QueryResult(transformations.size());
+            QuerySolution solution;
+            int branchId;
+            long rows = 0;
             while (result.hasNext()) {
-                sIri = transformation.apply(result.next());
-                if (sIri != null) {
-                    if (sIri.iri != null) {
-                        scoredIris.add(sIri);
-                    } else {
-                        // If there is no IRI, we have a query with a context that selects results even
-                        // without using the IRIs we are asking for (most probably by using a UNION)
-                        baseScore = sIri;
-                    }
-                }
-            }
-            if (baseScore != null) {
-                // Add the base score to all results
-                final ScoredIRI b = baseScore;
-                scoredIris.forEach(s -> s.add(b.posCount, b.negCount));
+                ++rows;
+                solution = result.next();
+                branchId = singleBranch ? 0 : solution.getLiteral(BRANCH_VARIABLE).getInt();
+                queryResult.add(branchId, transformations.get(branchId).apply(solution));
             }
-            Optional<ScoredIRI> faultyResult = scoredIris.stream().filter(
-                    s -> s.posCount < 0 || s.posCount > numPositives || s.negCount < 0 || s.posCount > numNegatives)
-                    .findFirst();
-            if (faultyResult.isPresent()) {
-                LOGGER.error("Got a faulty count: #positives={}, #negatives={}, scoredIRI={}", numPositives,
-                        numNegatives, faultyResult);
+            recordSuccess(type, origins, query, rows, startTime);
+            return queryResult;
+        } catch (Exception e) {
+            recordFailure(type, origins, query, startTime, e);
+            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Records a successfully executed query in the query metrics and, if it took
+     * longer than the slow query threshold, in the {@link #slowQueryLog}.
+     *
+     * @param type      the type of the query
+     * @param origins   the class expressions from which the query has been
+     *                  generated
+     * @param query     the query text
+     * @param rows      the number of rows of the result
+     * @param startTime the time (see {@link System#nanoTime()}) at which the
+     *                  query has been sent
+     */
+    protected void recordSuccess(QueryType type, List<ClassExpression> origins, String query, long rows,
+            long startTime) {
+        long elapsed = System.nanoTime() - startTime;
+        queryMetrics.recordSuccess(type, elapsed, rows, query);
+        if ((slowQueryLog != null) && slowQueryLog.isSlow(elapsed)) {
+            slowQueryLog.log(type, origins, query, rows, elapsed);
+        }
+    }
+
+    /**
+     * Records a failed query in the query metrics and, if it took longer than
+     * the slow query threshold, in the {@link #slowQueryLog}.
+     *
+     * @param type      the type of the query
+     * @param origins   the class expressions from which the query has been
+     *                  generated
+     * @param query     the query text
+     * @param startTime the time (see {@link System#nanoTime()}) at which the
+     *                  query has been sent
+     * @param error     the error that occurred
+     */
+    protected void recordFailure(QueryType type, List<ClassExpression> origins, String query, long startTime,
+            Exception error) {
+        long elapsed = System.nanoTime() - startTime;
+        queryMetrics.recordFailure(type, elapsed, query, error);
+        if ((slowQueryLog != null) && slowQueryLog.isSlow(elapsed)) {
+            slowQueryLog.log(type, origins, query, -1, elapsed);
+        }
+    }
+
+    /**
+     * Returns the query execution factory if its results can be retrieved in the
+     * TSV format and decoded with a {@link TsvResultDecoder}.
+     *
+     * @return the factory or {@code null} if the results have to be parsed by
+     *         Jena
+     */
+    protected HttpQueryExecutionFactory getTsvQueryExecFactory() {
+        if ((queryExecFactory instanceof HttpQueryExecutionFactory)
+                && ((HttpQueryExecutionFactory) queryExecFactory).getConfig().isTsvResults()) {
+            return (HttpQueryExecutionFactory) queryExecFactory;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Sends the given query and decodes its TSV result directly into scored IRIs
+     * (see {@link #executeQuery(QueryType, List, String, List)}). The
+     * transformations have to be {@link ScoredIriQuerySolutionMapper} instances.
+     */
+    protected QueryResult executeTsvQuery(HttpQueryExecutionFactory tsvFactory, QueryType type,
+            List<ClassExpression> origins, String query, List<Function<QuerySolution, ScoredIRI>> transformations) {
+        boolean singleBranch = transformations.size() == 1;
+        LOGGER.trace("Sending query {}", query);
+        long startTime = System.nanoTime();
+        try (TsvResultDecoder decoder = tsvFactory.execSelectTsv(query)) {
+            QueryResult queryResult = new QueryResult(transformations.size());
+            int branchColumn = decoder.getColumn(BRANCH_VARIABLE);
+            int branchId;
+            long rows = 0;
+            while (decoder.next()) {
+                ++rows;
+                branchId = singleBranch ? 0 : decoder.getInt(branchColumn);
+                queryResult.add(branchId,
+                        ((ScoredIriQuerySolutionMapper) transformations.get(branchId)).apply(decoder));
             }
-            results.addAll(scoredIris);
-            // Check whether there is a
-            return results;
+            recordSuccess(type, origins, query, rows, startTime);
+            return queryResult;
+        } catch (IOException e) {
+            recordFailure(type, origins, query, startTime, e);
+            LOGGER.error("Exception while reading the result of a SPARQL request. query=" + query, e);
+            throw new UncheckedIOException(e);
         } catch (Exception e) {
+            recordFailure(type, origins, query, startTime, e);
             LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
             throw e;
         }
     }
 
-    protected Collection<ScoredIRI> performClassSelection(String query, int numPositives, int numNegatives) {
+    /**
+     * Adds the given base score (if it is not {@code null}) to all the given
+     * scored IRIs and checks whether the resulting counts are valid.
+     *
+     * @param scoredIris   the scored IRIs that have been retrieved
+     * @param baseScore    the score that has been retrieved without an IRI or
+     *                     {@code null} if there is no such score
+     * @param numPositives the number of positive examples
+     * @param numNegatives the number of negative examples
+     */
+    protected void addBaseScore(List<ScoredIRI> scoredIris, ScoredIRI baseScore, int numPositives,
+            int numNegatives) {
+        if (baseScore != null) {
+            // Add the base score to all results
+            final ScoredIRI b = baseScore;
+            scoredIris.forEach(s -> s.add(b.posCount, b.negCount));
+        }
+        Optional<ScoredIRI> faultyResult = scoredIris.stream().filter(
+                s -> s.posCount < 0 || s.posCount > numPositives || s.negCount < 0 || s.negCount > numNegatives)
+                .findFirst();
+        if (faultyResult.isPresent()) {
+            LOGGER.error("Got a faulty count: #positives={}, #negatives={}, scoredIRI={}", numPositives,
+                    numNegatives, faultyResult);
+        }
+    }
+
+    /**
+     * Sends the given queries as a single query to the endpoint. Each of the
+     * given branches is wrapped into a sub query and is marked with its position
+     * in the given list (using the {@link #BRANCH_VARIABLE}). The results are
+     * assigned to the branches based on this marking. Note that all queries have
+     * to use the same IRI variable. The base scores of the branches are stored
+     * separately and are not added to the results (see
+     * {@link #performBranches(LearningProblemSession, List)}).
+     *
+     * @param branches the queries that should be combined
+     */
+    protected void performBatchQuery(List<BatchBranch> branches) {
+        // A single branch can be sent without wrapping it
+        String query = (branches.size() == 1) ? branches.get(0).query
+                : batchQueryBuilder.generateBatchQuery(branches);
+        List<Function<QuerySolution, ScoredIRI>> transformations = new ArrayList<>(branches.size());
+        for (BatchBranch branch : branches) {
+            transformations.add(branch.transformation);
+        }
+        QueryResult result = performCoalescedQuery(getBatchQueryType(branches), getOrigins(branches), query,
+                transformations);
+        for (int i = 0; i < branches.size(); ++i) {
+            branches.get(i).results.addAll(result.copyScoredIris(i));
+            branches.get(i).baseScore = result.copyBaseScore(i);
+        }
+    }
+
+    /**
+     * @param branches the branches of a batch query
+     * @return the class expressions from which the queries of the branches have
+     *         been generated
+     */
+    protected List<ClassExpression> getOrigins(List<BatchBranch> branches) {
+        List<ClassExpression> origins = new ArrayList<>(branches.size());
+        for (BatchBranch branch : branches) {
+            origins.add(branch.origin);
+        }
+        return origins;
+    }
+
+    /**
+     * Determines the type of a batch query for the query metrics.
+     *
+     * @param branches the branches of the batch query
+     * @return the type of the branches if all of them have the same type,
+     *         {@link QueryType#MIXED_BATCH} otherwise
+     */
+    protected QueryType getBatchQueryType(List<BatchBranch> branches) {
+        QueryType type = branches.get(0).type;
+        for (BatchBranch branch : branches) {
+            if (branch.type != type) {
+                return QueryType.MIXED_BATCH;
+            }
+        }
+        return type;
+    }
+
+    protected Collection<ScoredIRI> performClassSelection(QueryType type, ClassExpression origin, String query,
+            int numPositives, int numNegatives) {
         List<ScoredIRI> results = new ArrayList<>();
-        performQuery(query, new ScoredIriQuerySolutionMapper("?class", classBlackList), numPositives, numNegatives,
-                results);
-//        performQuery(query, new Function<QuerySolution, ScoredIRI>() {
-//            @Override
-//            public ScoredIRI apply(QuerySolution s) {
-//                if (s.contains("?class")) {
-//                    String iri = s.getResource("?class").getURI();
-//                    if (!classBlackList.contains(iri)) {
-//                        return new ScoredIRI(s.getResource("?class").getURI(), s.getLiteral("posHits").getInt(),
-//                                s.getLiteral("negHits").getInt());
-//                    }
-//                } else {
-//                    return new ScoredIRI(null, s.getLiteral("posHits").getInt(), s.getLiteral("negHits").getInt());
-//                }
-//                return null;
-//            }
-//        }, results);
+        performQuery(type, origin, query, new ScoredIriQuerySolutionMapper("?class", classBlackList), numPositives,
+                numNegatives, results);
         return results;
     }
 
     protected ClassExpression prepareClassExpression(ClassExpression ce) {
         if (checker.containsDisjunction(ce)) {
-            return preprocessor.preprocess(ce);
+            return normalizer.normalize(ce);
         } else {
             return ce;
         }
@@ -131,136 +632,41 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
     @Override
     public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
             ClassExpression context) {
-        String query;
         LOGGER.trace("Suggesting classes for {}", context);
         ClassExpression prepared = prepareClassExpression(context);
-        if (logic.supportsComplexConceptNegation()) {
-            query = generateClassQueryForGeneralNegation(positive, negative, prepared);
-        } else {
-            query = generateClassQuery(positive, negative, prepared);
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            if (session.getShards() != null) {
+                return performSuggestionQuery(session, QueryType.CLASS, context,
+                        s -> suggestionQueryBuilder.generateClassSuggestionQuery(s, prepared, null),
+                        new ScoredIriQuerySolutionMapper("?class", classBlackList),
+                        !logic.supportsComplexConceptNegation()).results;
+            }
+            return performClassSelection(QueryType.CLASS, context,
+                    suggestionQueryBuilder.generateClassSuggestionQuery(session, prepared, null),
+                    session.getNumPositives(), session.getNumNegatives());
+        } finally {
+            releaseSession(session);
         }
-        return performClassSelection(query, positive.size(), negative.size());
     }
 
     public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
             ClassExpression context) {
         LOGGER.trace("Suggesting negated classes for {}", context);
         ClassExpression prepared = prepareClassExpression(context);
-        return performClassSelection(generateNegatedClassQuery(positive, negative, prepared), positive.size(),
-                negative.size());
-    }
-
-    /**
-     * A class query that retrieves all classes that select at least one positive
-     * examples within the given context together with the number of the selected
-     * examples.
-     * 
-     * @param positive positive examples
-     * @param negative negative examples
-     * @param context  a class expression that marks a position with the
-     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
-     * @return a SPARQL query that can be used to select the IRIs described above
-     */
-    protected String generateClassQuery(Collection<String> positive, Collection<String> negative,
-            ClassExpression context) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?class (MAX(?tp) AS ?posHits) (COUNT(DISTINCT ?neg) AS ?negHits) WHERE {\n");
-        queryBuilder.append("    { SELECT ?class (COUNT(DISTINCT ?pos) AS ?tp) WHERE {\n        ");
-        String valuesString = generateValuesStmt("?pos", positive.iterator());
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?pos", valuesString,
-                createNotExistsFilter(context, "?pos"), v -> v + " a ?class .");
-        context.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("    } GROUP BY ?class }\n");
-        queryBuilder.append("    OPTIONAL {\n        ");
-        // generate the negative context by replacing all VALUES statements and after
-        // that all remaining ?pos occurrences.
-        queryBuilder.append(contextString
-                .replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}", generateValuesStmt("?neg", negative.iterator()))
-                .replaceAll("\\?pos ", "?neg "));
-        queryBuilder.append("    }} GROUP BY ?class");
-        // queryBuilder.append(" }} GROUP BY ?class\nORDER BY DESC(?posHits)
-        // (?negHits)");
-        return queryBuilder.toString();
-    }
-
-    /**
-     * A class query that retrieves all classes that select at least one positive
-     * example when the class is negated within the given context together with the
-     * number of the selected examples.
-     * 
-     * @param positive positive examples
-     * @param negative negative examples
-     * @param context  a class expression that marks a position with the
-     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
-     * @return a SPARQL query that can be used to select the IRIs described above
-     */
-    protected String generateNegatedClassQuery(Collection<String> positive, Collection<String> negative,
-            ClassExpression context) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?class (MAX(?tp) AS ?posHits) (MAX(?fp) AS ?negHits) WHERE {\n");
-        queryBuilder.append("    { SELECT ?class (COUNT(DISTINCT ?pos) AS ?tp) (0 AS ?fp) WHERE {\n        ");
-        String valuesString = generateValuesStmt("?pos", positive.iterator());
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?pos", valuesString,
-                createNotExistsFilter(context, "?pos"),
-                v -> "?class a <" + OWL.Class.getURI() + "> .        \nFILTER NOT EXISTS { " + v + " a ?class . }");
-        context.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("      } GROUP BY ?class\n");
-        queryBuilder.append("    } UNION {\n");
-        queryBuilder.append("      SELECT ?class (0 AS ?tp) (COUNT(DISTINCT ?neg) AS ?fp) WHERE {\n        ");
-        // generate the negative context by replacing all VALUES statements and after
-        // that all remaining ?pos occurrences.
-        queryBuilder.append(contextString
-                .replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}", generateValuesStmt("?neg", negative.iterator()))
-                .replaceAll("\\?pos ", "?neg "));
-        queryBuilder.append("      } GROUP BY ?class\n    }\n");
-        queryBuilder.append("} GROUP BY ?class");
-        // queryBuilder.append("} GROUP BY ?class\nORDER BY DESC(?posHits) (?negHits)");
-        return queryBuilder.toString();
-    }
-
-    /**
-     * A class query that retrieves all classes that select any positive and
-     * negative examples within the given context together with the number of the
-     * selected examples. These counts can be used to extend the context with the
-     * retrieved classes but also to create the negation of the given context and
-     * the retrieved classes.
-     * 
-     * @param positive positive examples
-     * @param negative negative examples
-     * @param context  a class expression that marks a position with the
-     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
-     * @return a SPARQL query that can be used to select the IRIs described above
-     */
-    protected String generateClassQueryForGeneralNegation(Collection<String> positive, Collection<String> negative,
-            ClassExpression context) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?class (MAX(?tp) AS ?posHits) (MAX(?fp) AS ?negHits) WHERE {\n");
-        queryBuilder.append("    { SELECT ?class (COUNT(DISTINCT ?pos) AS ?tp) (0 AS ?fp) WHERE {\n        ");
-        String valuesString = generateValuesStmt("?pos", positive.iterator());
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?pos", valuesString,
-                createNotExistsFilter(context, "?pos"), v -> v + " a ?class .");
-        context.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("      } GROUP BY ?class\n");
-        queryBuilder.append("    } UNION {\n");
-        queryBuilder.append("      SELECT ?class (0 AS ?tp) (COUNT(DISTINCT ?neg) AS ?fp) WHERE {\n        ");
-        // generate the negative context by replacing all VALUES statements and after
-        // that all remaining ?pos occurrences.
-        queryBuilder.append(contextString
-                .replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}", generateValuesStmt("?neg", negative.iterator()))
-                .replaceAll("\\?pos ", "?neg "));
-        queryBuilder.append("      } GROUP BY ?class\n    }\n");
-        queryBuilder.append("} GROUP BY ?class");
-        // queryBuilder.append("} GROUP BY ?class\nORDER BY DESC(?posHits) (?negHits)");
-        return queryBuilder.toString();
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            if (session.getShards() != null) {
+                return performSuggestionQuery(session, QueryType.NEGATED_CLASS, context,
+                        s -> suggestionQueryBuilder.generateNegatedClassQuery(s, prepared, null),
+                        new ScoredIriQuerySolutionMapper("?class", classBlackList), false).results;
+            }
+            return performClassSelection(QueryType.NEGATED_CLASS, context,
+                    suggestionQueryBuilder.generateNegatedClassQuery(session, prepared, null),
+                    session.getNumPositives(), session.getNumNegatives());
+        } finally {
+            releaseSession(session);
+        }
     }
 
     @Override
@@ -268,96 +674,357 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
             ClassExpression context) {
         LOGGER.trace("Suggesting properties for {}", context);
         ClassExpression prepared = prepareClassExpression(context);
-        Collection<ScoredIRI> results = suggestProperty(positive, negative, prepared, false);
-        if (logic.supportsInverseProperties()) {
-            results.addAll(suggestProperty(positive, negative, prepared, true));
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            if (logic.supportsInverseProperties() && mergePropertyQueries) {
+                if (session.getShards() != null) {
+                    return performSuggestionQuery(session, QueryType.PROPERTY, context,
+                            s -> suggestionQueryBuilder.generateBidirectionalPropertySuggestionQuery(s, prepared, null),
+                            new ScoredIriQuerySolutionMapper("?prop", propertyBlackList, DIRECTION_VARIABLE),
+                            !logic.supportsAtomicNegation()).results;
+                }
+                List<ScoredIRI> results = new ArrayList<>();
+                performQuery(QueryType.PROPERTY, context,
+                        suggestionQueryBuilder.generateBidirectionalPropertySuggestionQuery(session, prepared, null),
+                        new ScoredIriQuerySolutionMapper("?prop", propertyBlackList, DIRECTION_VARIABLE),
+                        session.getNumPositives(), session.getNumNegatives(), results);
+                return results;
+            }
+            Collection<ScoredIRI> results = suggestProperty(session, prepared, false);
+            if (logic.supportsInverseProperties()) {
+                results.addAll(suggestProperty(session, prepared, true));
+            }
+            return results;
+        } finally {
+            releaseSession(session);
         }
-        return results;
     }
 
-    protected Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
-            ClassExpression context, boolean inverted) {
+    protected Collection<ScoredIRI> suggestProperty(LearningProblemSession session, ClassExpression context,
+            boolean inverted) {
+        if (session.getShards() != null) {
+            return performSuggestionQuery(session, QueryType.PROPERTY, context,
+                    s -> suggestionQueryBuilder.generatePropertySuggestionQuery(s, context, inverted, null),
+                    new ScoredIriQuerySolutionMapper("?prop", propertyBlackList, inverted),
+                    !logic.supportsAtomicNegation()).results;
+        }
         List<ScoredIRI> results = new ArrayList<>();
-        String query;
-        if (logic.supportsAtomicNegation()) {
-            query = generatePropertyQuery(positive, negative, context, inverted);
+        performQuery(QueryType.PROPERTY, context,
+                suggestionQueryBuilder.generatePropertySuggestionQuery(session, context, inverted, null),
+                new ScoredIriQuerySolutionMapper("?prop", propertyBlackList, inverted), session.getNumPositives(),
+                session.getNumNegatives(), results);
+        return results;
+    }
+
+    /**
+     * Retrieves the suggestions for all the given contexts. The queries of the
+     * single contexts are combined into larger queries that contain at most
+     * {@link #getMaxContextsPerQuery()} contexts each. Hence, a refinement step with
+     * n contexts needs roughly 3n / {@link #getMaxContextsPerQuery()} round trips
+     * instead of 3n. If concurrent queries have been enabled (see
+     * {@link #enableConcurrentQueries(int)}), these queries are sent in parallel.
+     * If classes and negated classes are requested for the same context, the
+     * negated classes are derived from the class suggestions and an additional
+     * query that counts the examples of the context if possible (see
+     * {@link #isCombinedClassSuggestionPossible(ClassExpression)}). This avoids
+     * the expensive negated class query that has to check all classes.
+     */
+    @Override
+    public void suggest(Collection<String> positive, Collection<String> negative,
+            Collection<ContextSuggestions> requests) {
+        List<BatchBranch> classBranches = new ArrayList<>();
+        List<BatchBranch> negatedClassBranches = new ArrayList<>();
+        List<BatchBranch> propertyBranches = new ArrayList<>();
+        List<BatchBranch> contextCountBranches = new ArrayList<>();
+        List<CombinedClassSuggestion> combinedSuggestions = new ArrayList<>();
+        Function<QuerySolution, ScoredIRI> classMapper = new ScoredIriQuerySolutionMapper("?class", classBlackList);
+        Function<QuerySolution, ScoredIRI> propertyMapper = new ScoredIriQuerySolutionMapper("?prop",
+                propertyBlackList);
+        Function<QuerySolution, ScoredIRI> invPropertyMapper = new ScoredIriQuerySolutionMapper("?prop",
+                propertyBlackList, true);
+        Function<QuerySolution, ScoredIRI> biPropertyMapper = new ScoredIriQuerySolutionMapper("?prop",
+                propertyBlackList, DIRECTION_VARIABLE);
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            boolean classPositivesRequired = !logic.supportsComplexConceptNegation();
+            boolean propertyPositivesRequired = !logic.supportsAtomicNegation();
+            for (ContextSuggestions request : requests) {
+                LOGGER.trace("Suggesting for {}", request.getContext());
+                final ClassExpression prepared = prepareClassExpression(request.getContext());
+                final ScoreBound bound = request.getBound();
+                if (request.isClassesRequested() && request.isNegatedClassesRequested() && combineClassSuggestions
+                        && isCombinedClassSuggestionPossible(prepared)) {
+                    request.setClasses(new ArrayList<>());
+                    request.setNegatedClasses(new ArrayList<>());
+                    // The bound has to be applied later on since the HAVING clause does not
+                    // know the counts of the context
+                    BatchBranch classBranch = new BatchBranch(QueryType.CLASS, request.getContext(),
+                            s -> suggestionQueryBuilder.generateClassSuggestionQuery(s, prepared, null), classMapper,
+                            request.getClasses());
+                    classBranches.add(classBranch);
+                    BatchBranch contextBranch = new BatchBranch(QueryType.CONTEXT, request.getContext(),
+                            s -> suggestionQueryBuilder.generateScoreQueryForGeneralNegation(s, prepared), classMapper,
+                            new ArrayList<>());
+                    contextCountBranches.add(contextBranch);
+                    combinedSuggestions.add(new CombinedClassSuggestion(request, classBranch, contextBranch));
+                } else {
+                    if (request.isClassesRequested()) {
+                        request.setClasses(new ArrayList<>());
+                        classBranches.add(createBranch(QueryType.CLASS, request.getContext(),
+                                s -> suggestionQueryBuilder.generateClassSuggestionQuery(s, prepared, bound),
+                                classMapper, request.getClasses(), classPositivesRequired, bound));
+                    }
+                    if (request.isNegatedClassesRequested()) {
+                        request.setNegatedClasses(new ArrayList<>());
+                        negatedClassBranches.add(createBranch(QueryType.NEGATED_CLASS, request.getContext(),
+                                s -> suggestionQueryBuilder.generateNegatedClassQuery(s, prepared, bound), classMapper,
+                                request.getNegatedClasses(), false, bound));
+                    }
+                }
+                if (request.isPropertiesRequested()) {
+                    request.setProperties(new ArrayList<>());
+                    if (logic.supportsInverseProperties() && mergePropertyQueries) {
+                        // Evaluate the context only once for both directions
+                        propertyBranches.add(
+                                createBranch(QueryType.PROPERTY, request.getContext(), s -> suggestionQueryBuilder
+                                        .generateBidirectionalPropertySuggestionQuery(s, prepared, bound),
+                                        biPropertyMapper, request.getProperties(), propertyPositivesRequired, bound));
+                    } else {
+                        propertyBranches.add(
+                                createBranch(QueryType.PROPERTY, request.getContext(), s -> suggestionQueryBuilder
+                                        .generatePropertySuggestionQuery(s, prepared, false, bound),
+                                        propertyMapper, request.getProperties(), propertyPositivesRequired, bound));
+                        if (logic.supportsInverseProperties()) {
+                            propertyBranches.add(
+                                    createBranch(QueryType.PROPERTY, request.getContext(), s -> suggestionQueryBuilder
+                                            .generatePropertySuggestionQuery(s, prepared, true, bound),
+                                            invPropertyMapper, request.getProperties(), propertyPositivesRequired,
+                                            bound));
+                        }
+                    }
+                }
+            }
+            performBranches(session,
+                    Arrays.asList(classBranches, negatedClassBranches, propertyBranches, contextCountBranches));
+            // Move the results to the requests (this is not done within the tasks since
+            // several branches may share the same target collection)
+            for (List<BatchBranch> branches : Arrays.asList(classBranches, negatedClassBranches, propertyBranches)) {
+                for (BatchBranch branch : branches) {
+                    branch.target.addAll(branch.results);
+                }
+            }
+            for (CombinedClassSuggestion combined : combinedSuggestions) {
+                combined.deriveNegatedClasses();
+            }
+        } finally {
+            releaseSession(session);
+        }
+    }
+
+    /**
+     * Creates a branch of a batch query.
+     *
+     * @param type              the type of the query
+     * @param origin            the class expression from which the query is
+     *                          generated
+     * @param queryGenerator    the generator of the query for a given session
+     * @param transformation    the transformation of the query results
+     * @param target            the collection to which the results should be
+     *                          added
+     * @param positivesRequired flag indicating whether the query of an unsharded
+     *                          session only returns IRIs that select at least one
+     *                          positive example
+     * @param bound             the bound that the query applies or {@code null}
+     * @return the created branch
+     */
+    protected BatchBranch createBranch(QueryType type, ClassExpression origin,
+            Function<LearningProblemSession, String> queryGenerator, Function<QuerySolution, ScoredIRI> transformation,
+            Collection<ScoredIRI> target, boolean positivesRequired, ScoreBound bound) {
+        BatchBranch branch = new BatchBranch(type, origin, queryGenerator, transformation, target);
+        branch.positivesRequired = positivesRequired;
+        branch.bound = bound;
+        return branch;
+    }
+
+    /**
+     * Checks whether the negated class suggestions for the given (prepared)
+     * context can be derived from the class suggestions and the counts of the
+     * context itself. This is the case if the logic supports the complex concept
+     * negation (i.e., the class query retrieves all classes that select any
+     * example) and the marked position refers to the example itself, i.e., it is
+     * not part of a role restriction. Only then, an example is selected by the
+     * negated class iff it is selected by the context and not by the class.
+     *
+     * @param context the prepared context
+     * @return {@code true} if the negated classes can be derived
+     */
+    protected boolean isCombinedClassSuggestionPossible(ClassExpression context) {
+        return logic.supportsComplexConceptNegation() && CombinedClassSuggestion.isMarkerOnRootVariable(context);
+    }
+
+    /**
+     * Generates the queries of the given branches for the given session and
+     * performs them (see {@link #addBatchQueryTasks(List, List)}). Afterwards, the
+     * base score of each branch is added to its results. The branches of the
+     * single lists are combined into batch queries while branches of different
+     * lists are always queried separately.
+     *
+     * <p>
+     * If the session has been split into shards, the queries are generated and
+     * performed for every shard. Since the shards are disjoint, the counts of an
+     * IRI are the sums of its counts in the single shards. The same holds for the
+     * base scores. The filtering that the queries of the shards cannot apply is
+     * done on the merged results (see {@link BatchBranch#positivesRequired} and
+     * {@link BatchBranch#bound}). Note that the number of suggestions is not
+     * limited in this case (see {@link #getMaxSuggestionsPerContext()}).
+     * </p>
+     *
+     * @param session     the session of the current learning problem
+     * @param branchLists the lists of branches that should be performed
+     */
+    protected void performBranches(LearningProblemSession session, List<List<BatchBranch>> branchLists) {
+        List<Runnable> tasks = new ArrayList<>();
+        List<LearningProblemSession> shards = session.getShards();
+        if (shards == null) {
+            for (List<BatchBranch> branches : branchLists) {
+                for (BatchBranch branch : branches) {
+                    branch.query = branch.queryGenerator.apply(session);
+                }
+                addBatchQueryTasks(branches, tasks);
+            }
+            runQueryTasks(tasks);
+        } else {
+            for (LearningProblemSession shard : shards) {
+                for (List<BatchBranch> branches : branchLists) {
+                    addBatchQueryTasks(batchQueryBuilder.createShardBranches(branches, shard), tasks);
+                }
+            }
+            runQueryTasks(tasks);
+            for (List<BatchBranch> branches : branchLists) {
+                branches.forEach(BatchBranch::mergeShardResults);
+            }
+        }
+        for (List<BatchBranch> branches : branchLists) {
+            for (BatchBranch branch : branches) {
+                addBaseScore(branch.results, branch.baseScore, session.getNumPositives(), session.getNumNegatives());
+                if ((shards != null) && (branch.bound != null)) {
+                    final ScoreBound bound = branch.bound;
+                    branch.results.removeIf(s -> !bound.isFulfilled(s.getPosCount(), s.getNegCount()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the given list of branches into chunks (see
+     * {@link BatchQueryBuilder#createChunks(List)}) and adds a task that performs
+     * a single query for each chunk to the given list of tasks.
+     *
+     * @param branches the branches that should be queried
+     * @param tasks    the list to which the created tasks are added
+     */
+    protected void addBatchQueryTasks(List<BatchBranch> branches, List<Runnable> tasks) {
+        for (List<BatchBranch> chunk : batchQueryBuilder.createChunks(branches)) {
+            tasks.add(() -> performBatchQuery(chunk));
+        }
+    }
+
+    /**
+     * Performs a single suggestion query for the given session (see
+     * {@link #performBranches(LearningProblemSession, List)}).
+     *
+     * @param session           the session of the current learning problem
+     * @param type              the type of the query
+     * @param origin            the class expression from which the query is
+     *                          generated
+     * @param queryGenerator    the generator of the query for a given session
+     * @param transformation    the transformation of the query results
+     * @param positivesRequired flag indicating whether the query of the
+     *                          unsharded session only returns IRIs that select
+     *                          at least one positive example
+     * @return the branch containing the results of the query
+     */
+    protected BatchBranch performSuggestionQuery(LearningProblemSession session, QueryType type,
+            ClassExpression origin, Function<LearningProblemSession, String> queryGenerator,
+            Function<QuerySolution, ScoredIRI> transformation, boolean positivesRequired) {
+        BatchBranch branch = new BatchBranch(type, origin, queryGenerator, transformation, null);
+        branch.positivesRequired = positivesRequired;
+        performBranches(session, Collections.singletonList(Collections.singletonList(branch)));
+        return branch;
+    }
+
+    /**
+     * Runs the given tasks. If concurrent queries are enabled, the tasks are
+     * submitted to the {@link #queryExecutor} and this method waits until all of
+     * them are done. Otherwise, the tasks are simply executed one after the other.
+     *
+     * @param tasks the tasks that should be executed
+     */
+    protected void runQueryTasks(List<Runnable> tasks) {
+        if ((queryExecutor == null) || (tasks.size() < 2)) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; ++i) {
+            futures[i] = CompletableFuture.runAsync(tasks.get(i), queryExecutor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            // The error has already been logged by the task. Hence, we only have to
+            // forward it.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Enables the concurrent execution of queries. The queries of a
+     * {@link #suggest(Collection, Collection, Collection)} call are sent in
+     * parallel with at most the given number of queries in flight. Note that this
+     * limit is shared by all threads that use this suggestor.
+     *
+     * @param maxInFlight the maximum number of queries that are sent to the
+     *                    endpoint at the same time
+     */
+    public void enableConcurrentQueries(int maxInFlight) {
+        if (queryExecutor != null) {
+            queryExecutor.shutdown();
+        }
+        if (maxInFlight > 1) {
+            AtomicInteger threadId = new AtomicInteger();
+            queryExecutor = Executors.newFixedThreadPool(maxInFlight, r -> {
+                Thread thread = new Thread(r, "sparql-query-" + threadId.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
         } else {
-            query = generatePropertyQueryWithoutNegation(positive, negative, context, inverted);
+            queryExecutor = null;
+        }
+    }
+
+    /**
+     * Enables the upload of the examples of a learning problem into a temporary
+     * named graph (see {@link ExampleGraphSession}). The queries join against this
+     * graph instead of containing all examples. The graph is dropped when the
+     * session of the learning problem is closed.
+     *
+     * @param updateExecutor the executor of SPARQL updates on the endpoint that
+     *                       this suggestor queries or {@code null} if the
+     *                       examples should be inlined into the queries
+     */
+    public void enableExampleGraphs(Consumer<String> updateExecutor) {
+        this.updateExecutor = updateExecutor;
+        if (updateExecutor != null) {
+            // If the endpoint uses the union of all graphs as default graph, the
+            // example triples could show up as suggestions
+            addToPropertyBlackList(ExampleGraphSession.POSITIVE_PROPERTY);
+            addToPropertyBlackList(ExampleGraphSession.NEGATIVE_PROPERTY);
         }
-        performQuery(query, new ScoredIriQuerySolutionMapper("?prop", propertyBlackList), positive.size(),
-                negative.size(), results);
-        return results;
-//        LOGGER.trace("Sending query {}", query);
-//        // Create the query execution with try-catch to ensure that it will be closed
-//        try (QueryExecution qe = queryExecFactory.createQueryExecution(query);) {
-//            ResultSet result = qe.execSelect();
-//            String iri;
-//            while (result.hasNext()) {
-//                QuerySolution s = result.next();
-//                if (s.contains("?prop")) {
-//                    iri = s.getResource("?prop").getURI();
-//                    if (!propertyBlackList.contains(iri)) {
-//                        results.add(new ScoredIRI(s.getResource("?prop").getURI(), s.getLiteral("posHits").getInt(),
-//                                s.getLiteral("negHits").getInt(), inverted));
-//                    }
-//                }
-//            }
-//            return results;
-//        } catch (Exception e) {
-//            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
-//            throw e;
-//        }
-    }
-
-    protected String generatePropertyQuery(Collection<String> positive, Collection<String> negative,
-            ClassExpression context, boolean inverted) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?prop (MAX(?tp) AS ?posHits) (MAX(?fp) AS ?negHits) WHERE {\n");
-        queryBuilder.append("    { SELECT ?prop (COUNT(DISTINCT ?pos) AS ?tp) (0 AS ?fp) WHERE {\n        ");
-        String valuesString = generateValuesStmt("?pos", positive.iterator());
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?pos", valuesString,
-                createNotExistsFilter(context, "?pos"), inverted ? v -> " [] ?prop v ." : v -> v + " ?prop [] .");
-        context.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("      } GROUP BY ?prop\n");
-        queryBuilder.append("    } UNION {\n");
-        queryBuilder.append("      SELECT ?prop (0 AS ?tp) (COUNT(DISTINCT ?neg) AS ?fp) WHERE {\n        ");
-        // generate the negative context by replacing all VALUES statements and after
-        // that all remaining ?pos occurrences.
-        queryBuilder.append(contextString
-                .replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}", generateValuesStmt("?neg", negative.iterator()))
-                .replaceAll("\\?pos ", "?neg "));
-        queryBuilder.append("      } GROUP BY ?prop\n    }\n");
-        queryBuilder.append("} GROUP BY ?prop");
-        // queryBuilder.append("} GROUP BY ?prop\nORDER BY DESC(?posHits) (?negHits)");
-        return queryBuilder.toString();
-    }
-
-    protected String generatePropertyQueryWithoutNegation(Collection<String> positive, Collection<String> negative,
-            ClassExpression context, boolean inverted) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?prop (MAX(?pc) AS ?posHits) (COUNT(DISTINCT ?negId) AS ?negHits) WHERE {\n");
-        queryBuilder.append("    { SELECT ?prop (COUNT(DISTINCT ?pos) AS ?pc) WHERE {\n        ");
-        String valuesString = generateValuesStmt("?pos", positive.iterator());
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?pos", valuesString, null,
-                inverted ? v -> " [] ?prop v ." : v -> v + " ?prop [] .");
-        context.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("    } GROUP BY ?prop }\n");
-        queryBuilder.append("    OPTIONAL {\n        ");
-        // generate the negative context by replacing all VALUES statements and after
-        // that all remaining ?pos occurrences.
-        queryBuilder.append(contextString
-                .replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}", generateValuesStmt("?neg", negative.iterator()))
-                .replaceAll("\\?pos ", "?neg "));
-        queryBuilder.append("        BIND (CONCAT(STR(?neg),STR(?prop)) as ?negId)}\n");
-        queryBuilder.append("    } GROUP BY ?prop");
-        // queryBuilder.append(" } GROUP BY ?prop\nORDER BY DESC(?posHits) (?negHits)");
-        return queryBuilder.toString();
     }
 
     public void addToClassBlackList(String classIRI) {
@@ -376,89 +1043,110 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
         this.propertyBlackList.addAll(propertyIRIs);
     }
 
+    /**
+     * Describes all settings of this suggestor that influence its suggestions,
+     * i.e., the description logic, the class and property black lists, and the
+     * maximum number of suggestions per context. Two suggestors that are
+     * connected to the same endpoint and have the same description return the
+     * same suggestions. Hence, the description can be used as part of the key of
+     * a suggestion cache that is shared by several suggestors.
+     *
+     * @return a description of the settings that influence the suggestions
+     */
+    public String describeSuggestionSettings() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("logic=").append(logic.getName());
+        builder.append(" classBlackList=").append(new TreeSet<>(classBlackList));
+        builder.append(" propertyBlackList=").append(new TreeSet<>(propertyBlackList));
+        builder.append(" maxSuggestionsPerContext=").append(getMaxSuggestionsPerContext());
+        return builder.toString();
+    }
+
     @Override
     public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
             Collection<String> negative) {
         LOGGER.trace("Scoring expression {}", expression);
         ClassExpression prepared = prepareClassExpression(expression);
-        String query = generateScoreQueryForGeneralNegation(positive, negative, prepared);
-        LOGGER.trace("Sending query {}", query);
-        // Create the query execution with try-catch to ensure that it will be closed
-        try (QueryExecution qe = queryExecFactory.createQueryExecution(query);) {
-            ResultSet result = qe.execSelect();
-            if (result.hasNext()) {
-                QuerySolution s = result.next();
-                return new SelectionScores(s.getLiteral("posHits").getInt(), s.getLiteral("negHits").getInt());
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            // The query returns a single row without an IRI, i.e., a base score
+            Function<QuerySolution, ScoredIRI> mapper = new ScoredIriQuerySolutionMapper("?class", classBlackList);
+            ScoredIRI counts;
+            if (session.getShards() != null) {
+                counts = performSuggestionQuery(session, QueryType.SCORE, expression,
+                        s -> suggestionQueryBuilder.generateScoreQueryForGeneralNegation(s, prepared), mapper,
+                        false).baseScore;
             } else {
+                counts = performCoalescedQuery(QueryType.SCORE, Collections.singletonList(expression),
+                        suggestionQueryBuilder.generateScoreQueryForGeneralNegation(session, prepared),
+                        Collections.singletonList(mapper)).copyBaseScore(0);
+            }
+            if (counts == null) {
                 LOGGER.warn("Got an empty result fo the expression {}. Returning a zero score.", expression);
                 return new SelectionScores(0, 0);
             }
-        } catch (Exception e) {
-            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
-            throw e;
+            return new SelectionScores(counts.getPosCount(), counts.getNegCount());
+        } finally {
+            releaseSession(session);
         }
     }
 
-    protected String generateScoreQueryForGeneralNegation(Collection<String> positive, Collection<String> negative,
-            ClassExpression expression) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?posHits ?negHits WHERE {\n");
-        queryBuilder.append("    { SELECT (COUNT(DISTINCT ?pos) AS ?posHits) WHERE {\n        ");
-        String valuesString = generateValuesStmt("?pos", positive.iterator());
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?pos", valuesString, null, v -> "");
-        expression.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("    }}\n");
-        queryBuilder.append("    { SELECT (COUNT(DISTINCT ?neg) AS ?negHits) WHERE {\n        ");
-        // generate the negative context by replacing all VALUES statements and after
-        // that all remaining ?pos occurrences.
-        queryBuilder.append(contextString
-                .replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}", generateValuesStmt("?neg", negative.iterator()))
-                .replaceAll("\\?pos ", "?neg "));
-        queryBuilder.append("    }}\n");
-        queryBuilder.append("}");
-        return queryBuilder.toString();
+    /**
+     * Scores the given expressions by combining their score queries into batch
+     * queries (see {@link #performBranches(LearningProblemSession, List)}).
+     */
+    @Override
+    public List<SelectionScores> scoreExpressions(List<ClassExpression> expressions, Collection<String> positive,
+            Collection<String> negative) {
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            // The score queries return a single row without an IRI, i.e., a base score
+            Function<QuerySolution, ScoredIRI> mapper = new ScoredIriQuerySolutionMapper("?class", classBlackList);
+            List<BatchBranch> branches = new ArrayList<>(expressions.size());
+            for (ClassExpression expression : expressions) {
+                LOGGER.trace("Scoring expression {}", expression);
+                final ClassExpression prepared = prepareClassExpression(expression);
+                branches.add(new BatchBranch(QueryType.SCORE, expression,
+                        s -> suggestionQueryBuilder.generateScoreQueryForGeneralNegation(s, prepared), mapper, null));
+            }
+            performBranches(session, Collections.singletonList(branches));
+            List<SelectionScores> scores = new ArrayList<>(expressions.size());
+            for (int i = 0; i < branches.size(); ++i) {
+                ScoredIRI counts = branches.get(i).baseScore;
+                if (counts == null) {
+                    LOGGER.warn("Got an empty result fo the expression {}. Returning a zero score.",
+                            expressions.get(i));
+                    scores.add(new SelectionScores(0, 0));
+                } else {
+                    scores.add(new SelectionScores(counts.getPosCount(), counts.getNegCount()));
+                }
+            }
+            return scores;
+        } finally {
+            releaseSession(session);
+        }
     }
 
     @Override
     public Set<String> retrieveInstances(ClassExpression expression, Collection<String> positive,
             Collection<String> negative) {
-        Set<String> instances = new HashSet<>();
-        LOGGER.trace("Scoring expression {}", expression);
+        LOGGER.trace("Retrieving instances of {}", expression);
         ClassExpression prepared = prepareClassExpression(expression);
-        String query = generateSelectQueryForGeneralNegation(positive, negative, prepared);
-        LOGGER.trace("Sending query {}", query);
-        // Create the query execution with try-catch to ensure that it will be closed
-        try (QueryExecution qe = queryExecFactory.createQueryExecution(query);) {
-            ResultSet result = qe.execSelect();
-            while (result.hasNext()) {
-                instances.add(result.next().getResource("instance").getURI());
+        LearningProblemSession session = acquireSession(positive, negative);
+        try {
+            QueryResult result = performCoalescedQuery(QueryType.INSTANCES, Collections.singletonList(expression),
+                    suggestionQueryBuilder.generateSelectQueryForGeneralNegation(session, prepared),
+                    Collections.singletonList(new InstanceQuerySolutionMapper("?instance")));
+            Set<String> instances = new HashSet<>();
+            for (ScoredIRI instance : result.scoredIris.get(0)) {
+                instances.add(instance.getIri());
             }
             return instances;
-        } catch (Exception e) {
-            LOGGER.error("Exception while executing SPARQL request. query=" + query, e);
-            throw e;
+        } finally {
+            releaseSession(session);
         }
     }
 
-    protected String generateSelectQueryForGeneralNegation(Collection<String> positive, Collection<String> negative,
-            ClassExpression expression) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ?instance WHERE {\n");
-        String valuesString = generateValuesStmt("?instance",
-                Iterators.concat(positive.iterator(), negative.iterator()));
-        StringBuilder contextBuilder = new StringBuilder();
-        SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(contextBuilder, "?instance", valuesString, null,
-                v -> "");
-        expression.accept(visitor);
-        String contextString = contextBuilder.toString();
-        queryBuilder.append(contextString);
-        queryBuilder.append("}");
-        return queryBuilder.toString();
-    }
-
     protected String generateValuesStmt(String variable, Iterator<String> iterator) {
         StringBuilder valuesBuilder = new StringBuilder();
         appendValues(valuesBuilder, variable, iterator);
@@ -479,41 +1167,190 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
         queryBuilder.append(" }\n");
     }
 
-    protected String createNotExistsFilter(ClassExpression context, String instanceVariable) {
-        String filter = null;
-        if (context instanceof Junction) {
-            Junction junction = (Junction) context;
-            if (!junction.isConjunction()) {
-                // 1. Remove the part of the context that contains the marking
-                ClassExpression reducedExpression = context.accept(new SubExpressionDeleter());
-                List<ClassExpression> expressions = new ArrayList<>();
-                addUnionSubExpressionToFilter(reducedExpression, expressions);
-                // 2. Use the remaining part as filter
-                StringBuilder filterBuilder = new StringBuilder();
-                for (ClassExpression expression : expressions) {
-                    SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(filterBuilder, "?pos", null, null, null);
-                    visitor.setIntermediateVariableName("?y");
-                    filterBuilder.append("FILTER NOT EXISTS { ");
-                    expression.accept(visitor);
-                    filterBuilder.append(" }\n");
-                }
-                filter = filterBuilder.toString();
-            }
+    /**
+     * @return the maximum number of suggestions that are retrieved per context
+     *         and query type (0 means that there is no limit)
+     */
+    @Override
+    public int getMaxSuggestionsPerContext() {
+        return suggestionQueryBuilder.getMaxSuggestionsPerContext();
+    }
+
+    /**
+     * @param maxSuggestionsPerContext the maximum number of suggestions that are
+     *                                 retrieved per context and query type (0
+     *                                 means that there is no limit)
+     */
+    public void setMaxSuggestionsPerContext(int maxSuggestionsPerContext) {
+        suggestionQueryBuilder.setMaxSuggestionsPerContext(maxSuggestionsPerContext);
+    }
+
+    /**
+     * @return the maximum number of positive and negative examples per shard (0
+     *         means that sessions are not sharded)
+     */
+    public int getMaxExamplesPerShard() {
+        return maxExamplesPerShard;
+    }
+
+    /**
+     * Sets the maximum number of positive and negative examples per shard. The
+     * queries of the shards are sent in parallel if concurrent queries are
+     * enabled (see {@link #enableConcurrentQueries(int)}). Note that the setting
+     * only affects sessions that are created afterwards.
+     *
+     * @param maxExamplesPerShard the maximum number of positive and negative
+     *                            examples per shard (0 means that sessions are not
+     *                            sharded)
+     */
+    public void setMaxExamplesPerShard(int maxExamplesPerShard) {
+        this.maxExamplesPerShard = maxExamplesPerShard;
+    }
+
+    /**
+     * @return the registry that collects the metrics of all queries sent by this
+     *         suggestor
+     */
+    public QueryMetricsRegistry getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * @param queryMetrics the registry that should collect the metrics of all
+     *                     queries sent by this suggestor
+     */
+    public void setQueryMetrics(QueryMetricsRegistry queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    /**
+     * @return the log of slow queries or {@code null} if slow queries are not
+     *         captured
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Sets the threshold above which queries are captured in the slow query log
+     * (see {@link SlowQueryLog}).
+     *
+     * @param slowQueryThreshold the minimum execution time (in ms) of a query to
+     *                           be captured or a value &lt;= 0 to disable the
+     *                           capturing
+     */
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        if (slowQueryThreshold <= 0) {
+            slowQueryLog = null;
+        } else if (slowQueryLog == null) {
+            slowQueryLog = new SlowQueryLog(slowQueryThreshold);
+        } else {
+            slowQueryLog.setThreshold(slowQueryThreshold);
         }
-        return filter;
     }
 
-    protected void addUnionSubExpressionToFilter(ClassExpression expression, List<ClassExpression> expressions) {
-        if (expression instanceof Junction) {
-            Junction junction = (Junction) expression;
-            if (!junction.isConjunction()) {
-                for (ClassExpression child : junction.getChildren()) {
-                    addUnionSubExpressionToFilter(child, expressions);
-                }
-                return;
-            }
+    /**
+     * @return {@code true} if identical queries that are in flight at the same
+     *         time are coalesced (see {@link #inFlightQueries})
+     */
+    public boolean isQueryCoalescing() {
+        return inFlightQueries != null;
+    }
+
+    /**
+     * @param queryCoalescing flag indicating whether identical queries that are in
+     *                        flight at the same time should be coalesced (see
+     *                        {@link #inFlightQueries})
+     */
+    public void setQueryCoalescing(boolean queryCoalescing) {
+        if (!queryCoalescing) {
+            inFlightQueries = null;
+        } else if (inFlightQueries == null) {
+            inFlightQueries = new SingleFlight<>();
         }
-        expressions.add(expression);
+    }
+
+    /**
+     * @return the number of queries that have not been sent because an identical
+     *         query was already in flight
+     */
+    public long getNumberOfCoalescedQueries() {
+        SingleFlight<String, QueryResult> flights = inFlightQueries;
+        return (flights == null) ? 0 : flights.getCoalesced();
+    }
+
+    /**
+     * @return the combineClassSuggestions
+     */
+    public boolean isCombineClassSuggestions() {
+        return combineClassSuggestions;
+    }
+
+    /**
+     * @param combineClassSuggestions the combineClassSuggestions to set
+     */
+    public void setCombineClassSuggestions(boolean combineClassSuggestions) {
+        this.combineClassSuggestions = combineClassSuggestions;
+    }
+
+    /**
+     * @return the mergePropertyQueries
+     */
+    public boolean isMergePropertyQueries() {
+        return mergePropertyQueries;
+    }
+
+    /**
+     * @param mergePropertyQueries the mergePropertyQueries to set
+     */
+    public void setMergePropertyQueries(boolean mergePropertyQueries) {
+        this.mergePropertyQueries = mergePropertyQueries;
+    }
+
+    /**
+     * @return the maxContextsPerQuery
+     */
+    public int getMaxContextsPerQuery() {
+        return batchQueryBuilder.getMaxContextsPerQuery();
+    }
+
+    /**
+     * @param maxContextsPerQuery the maxContextsPerQuery to set
+     */
+    public void setMaxContextsPerQuery(int maxContextsPerQuery) {
+        batchQueryBuilder.setMaxContextsPerQuery(maxContextsPerQuery);
+    }
+
+    /**
+     * @return the builder of the queries that are sent for single contexts and
+     *         expressions
+     */
+    public SuggestionQueryBuilder getSuggestionQueryBuilder() {
+        return suggestionQueryBuilder;
+    }
+
+    /**
+     * @return the builder that combines the queries of several contexts into
+     *         batch queries
+     */
+    public BatchQueryBuilder getBatchQueryBuilder() {
+        return batchQueryBuilder;
+    }
+
+    /**
+     * @return the maximum number of UNION branches that a normalized expression
+     *         should have
+     */
+    public int getMaxUnionBranches() {
+        return normalizer.getMaxBranches();
+    }
+
+    /**
+     * @param maxUnionBranches the maximum number of UNION branches that a
+     *                         normalized expression should have
+     */
+    public void setMaxUnionBranches(int maxUnionBranches) {
+        normalizer.setMaxBranches(maxUnionBranches);
     }
 
     public static SparqlBasedSuggestor create(String endpoint, DescriptionLogic logic) {
@@ -523,14 +1360,79 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
         return new SparqlBasedSuggestor(queryExecFactory, logic);
     }
 
+    /**
+     * Creates a suggestor that sends its queries to the given endpoint using the
+     * given HTTP transport configuration.
+     *
+     * @param endpoint the URL of the SPARQL endpoint
+     * @param logic    the description logic of the suggestions
+     * @param config   the configuration of the HTTP transport
+     * @return the created suggestor
+     */
+    public static SparqlBasedSuggestor create(String endpoint, DescriptionLogic logic, HttpTransportConfig config) {
+        return new SparqlBasedSuggestor(config.createQueryExecutionFactory(endpoint), logic);
+    }
+
+    /**
+     * Creates a suggestor that distributes its queries over several endpoints
+     * that serve replicas of the same dataset (see
+     * {@link LoadBalancingQueryExecutionFactory}). Concurrent queries have to be
+     * enabled (see {@link #enableConcurrentQueries(int)}) to make use of more
+     * than one replica at a time.
+     *
+     * @param endpoints             the URLs of the SPARQL endpoints
+     * @param logic                 the description logic of the suggestions
+     * @param config                the configuration of the HTTP transport
+     * @param maxInFlightPerReplica the maximum number of queries in flight per
+     *                              endpoint
+     * @return the created suggestor
+     */
+    public static SparqlBasedSuggestor create(Collection<String> endpoints, DescriptionLogic logic,
+            HttpTransportConfig config, int maxInFlightPerReplica) {
+        List<QueryExecutionFactory> factories = new ArrayList<>(endpoints.size());
+        for (String endpoint : endpoints) {
+            factories.add(config.createQueryExecutionFactory(endpoint));
+        }
+        return new SparqlBasedSuggestor(new LoadBalancingQueryExecutionFactory(factories, maxInFlightPerReplica),
+                logic);
+    }
+
+    /**
+     * Creates an update executor that sends SPARQL updates to the given update
+     * endpoint.
+     *
+     * @param updateEndpoint the URL of the SPARQL update endpoint
+     * @return an update executor that can be used with
+     *         {@link #enableExampleGraphs(Consumer)}
+     */
+    public static Consumer<String> createHttpUpdateExecutor(String updateEndpoint) {
+        return update -> UpdateExecutionHTTP.service(updateEndpoint).update(update).build().execute();
+    }
+
     public static class ScoredIriQuerySolutionMapper implements Function<QuerySolution, ScoredIRI> {
         protected String iriVariable;
         protected Set<String> blacklist;
+        protected boolean inverted;
+        /**
+         * The variable that marks inverted IRIs with a value of 1 or {@code null}
+         * if the {@link #inverted} flag should be used for all IRIs.
+         */
+        protected String directionVariable;
 
         public ScoredIriQuerySolutionMapper(String iriVariable, Set<String> blacklist) {
+            this(iriVariable, blacklist, false);
+        }
+
+        public ScoredIriQuerySolutionMapper(String iriVariable, Set<String> blacklist, boolean inverted) {
             super();
             this.iriVariable = iriVariable;
             this.blacklist = blacklist;
+            this.inverted = inverted;
+        }
+
+        public ScoredIriQuerySolutionMapper(String iriVariable, Set<String> blacklist, String directionVariable) {
+            this(iriVariable, blacklist, false);
+            this.directionVariable = directionVariable;
         }
 
         @Override
@@ -539,8 +1441,10 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
                 String iri = s.getResource(iriVariable).getURI();
                 if (iri != null) {
                     if (!blacklist.contains(iri)) {
-                        return new ScoredIRI(s.getResource(iriVariable).getURI(), s.getLiteral("posHits").getInt(),
-                                s.getLiteral("negHits").getInt());
+                        boolean isInverted = (directionVariable == null) ? inverted
+                                : (s.getLiteral(directionVariable).getInt() == 1);
+                        return new ScoredIRI(iri, s.getLiteral("posHits").getInt(), s.getLiteral("negHits").getInt(),
+                                isInverted);
                     }
                 } else {
                     // FIXME We found a blank node. Let's ignore it.
@@ -551,189 +1455,136 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
             }
             return null;
         }
+
+        /**
+         * Creates a scored IRI from the current row of the given decoder. The
+         * semantics are the same as {@link #apply(QuerySolution)}.
+         *
+         * @param decoder the decoder of a TSV result
+         * @return the scored IRI or {@code null} if the row should be ignored
+         */
+        public ScoredIRI apply(TsvResultDecoder decoder) {
+            int iriColumn = decoder.getColumn(iriVariable);
+            int posColumn = decoder.getColumn("posHits");
+            int negColumn = decoder.getColumn("negHits");
+            if (decoder.isBound(iriColumn)) {
+                if (decoder.isIri(iriColumn)) {
+                    String iri = decoder.getIri(iriColumn);
+                    if (!blacklist.contains(iri)) {
+                        boolean isInverted = (directionVariable == null) ? inverted
+                                : (decoder.getInt(decoder.getColumn(directionVariable)) == 1);
+                        return new ScoredIRI(iri, decoder.getInt(posColumn), decoder.getInt(negColumn),
+                                isInverted);
+                    }
+                } else {
+                    // FIXME We found a blank node. Let's ignore it.
+                    return null;
+                }
+            } else {
+                return new ScoredIRI(null, decoder.getInt(posColumn), decoder.getInt(negColumn));
+            }
+            return null;
+        }
     }
 
     /**
-     * FIXME Before transforming the expression to a SPARQL query, we should move
-     * all disjunctions/UNION up the tree to ensure that they are the root node of
-     * the expression. Otherwise, we will always face performance issues on some
-     * SPARQL stores.
-     * 
+     * Maps the rows of an instance query (see
+     * {@link SuggestionQueryBuilder#generateSelectQueryForGeneralNegation(LearningProblemSession, ClassExpression)})
+     * to scored IRIs without counts. Rows without an IRI are ignored.
+     *
      * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
      *
      */
-    public static class SparqlBuildingVisitor implements ClassExpressionVisitor {
-
-        protected static final String INTERMEDIATE_VARIABLE_NAME = "?x";
-
-        protected StringBuilder queryBuilder;
-        protected Deque<String> variables = new ArrayDeque<String>();
-        protected String valuesString;
-        protected String filterString;
-        protected String intermediateVariableName = INTERMEDIATE_VARIABLE_NAME;
-        protected int nextVariableId = 0;
-        protected boolean isRoot = true;
-        protected Function<String, String> variableToStmtOnMarkedPosition;
-        protected NegatingVisitor negator = new NegatingVisitor();
+    public static class InstanceQuerySolutionMapper extends ScoredIriQuerySolutionMapper {
 
-        /**
-         * Constructor.
-         * 
-         * @param queryBuilder                   String builder to which the generated
-         *                                       SPARQL will be added
-         * @param firstVariable                  the name of the first variable
-         *                                       (starting with the '?' character)
-         * @param valuesString                   the VALUES statement binding the given
-         *                                       first variable to a set of values (can
-         *                                       be null)
-         * @param filterString                   an additional filter that should be
-         *                                       added to the selected variable (can be
-         *                                       null)
-         * @param variableToStmtOnMarkedPosition the function that transforms the given
-         *                                       variable name into the select statement
-         *                                       that is expected at the marked position
-         *                                       within the context to which this
-         *                                       visitor is applied
-         */
-        public SparqlBuildingVisitor(StringBuilder queryBuilder, String firstVariable, String valuesString,
-                String filterString, Function<String, String> variableToStmtOnMarkedPosition) {
-            super();
-            this.queryBuilder = queryBuilder;
-            this.valuesString = valuesString;
-            this.filterString = filterString;
-            this.variableToStmtOnMarkedPosition = variableToStmtOnMarkedPosition;
-            variables.addFirst(firstVariable);
+        public InstanceQuerySolutionMapper(String iriVariable) {
+            super(iriVariable, Collections.emptySet());
         }
 
-        protected String getNextVariable() {
-            return intermediateVariableName + nextVariableId++;
+        @Override
+        public ScoredIRI apply(QuerySolution s) {
+            if (s.contains(iriVariable) && s.get(iriVariable).isURIResource()) {
+                return new ScoredIRI(s.getResource(iriVariable).getURI(), 0, 0);
+            }
+            return null;
         }
 
         @Override
-        public void visitNamedClass(NamedClass node) {
-            // If this is the root node, we can simply add the values
-            if (isRoot) {
-                if (valuesString != null) {
-                    queryBuilder.append(valuesString);
-                }
-            }
-            // Check if this is the marked position
-            if (Suggestor.CONTEXT_POSITION_MARKER.equals(node)) {
-                queryBuilder.append("        ");
-                queryBuilder.append(variableToStmtOnMarkedPosition.apply(variables.peek()));
-                queryBuilder.append('\n');
-                if (filterString != null) {
-                    queryBuilder.append("        ");
-                    queryBuilder.append(filterString);
-                    queryBuilder.append('\n');
-                }
-            } else if (NamedClass.TOP.equals(node)) {
-                // Nothing to do
-            } else if (NamedClass.BOTTOM.equals(node)) {
-                queryBuilder.append("        ");
-                queryBuilder.append(variables.peek());
-                queryBuilder.append(" a <");
-                queryBuilder.append(OWL2.Nothing.getURI());
-                queryBuilder.append("> .\n");
-            } else {
-                if (node.isNegated()) {
-                    queryBuilder.append("        FILTER NOT EXISTS { ");
-                    queryBuilder.append(variables.peek());
-                    queryBuilder.append(" a <");
-                    queryBuilder.append(node.getName());
-                    queryBuilder.append("> . }\n");
-                } else {
-                    queryBuilder.append("        ");
-                    queryBuilder.append(variables.peek());
-                    queryBuilder.append(" a <");
-                    queryBuilder.append(node.getName());
-                    queryBuilder.append("> .\n");
-                }
+        public ScoredIRI apply(TsvResultDecoder decoder) {
+            int iriColumn = decoder.getColumn(iriVariable);
+            if (decoder.isBound(iriColumn) && decoder.isIri(iriColumn)) {
+                return new ScoredIRI(decoder.getIri(iriColumn), 0, 0);
             }
+            return null;
         }
+    }
 
-        @Override
-        public void visitJunction(Junction node) {
-            // If this is a conjunction, we can simply visit all children and let them add
-            // their triple patterns
-            if (node.isConjunction()) {
-                // If this is the root node, we can simply add the values
-                if (isRoot) {
-                    if (valuesString != null) {
-                        queryBuilder.append(valuesString);
-                    }
-                }
-                boolean oldRoot = isRoot;
-                isRoot = false;
-                for (ClassExpression child : node.getChildren()) {
-                    child.accept(this);
-                }
-                isRoot = oldRoot;
-            } else {
-                // This is a disjunction, so we have to create UNION statements
-                boolean first = true;
-                queryBuilder.append("        {\n");
-                for (ClassExpression child : node.getChildren()) {
-                    if (first) {
-                        first = false;
-                    } else {
-                        queryBuilder.append("        } UNION {\n");
-                    }
-                    // Note: we do not change the isRoot flag, because if the disjunction is the
-                    // root node, the children of the disjunction need to know the VALUES
-                    // restriction.
-                    child.accept(this);
-                }
-                queryBuilder.append("        }\n");
+    /**
+     * The result of a (batch) query with the scored IRIs and the base score of
+     * each branch. Since a result may be shared by several threads (see
+     * {@link SparqlBasedSuggestor#performCoalescedQuery(QueryType, List, String, List)}),
+     * it must not be changed after it has been created. Instead, its scored IRIs
+     * are copied.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class QueryResult {
+        protected List<List<ScoredIRI>> scoredIris;
+        protected ScoredIRI[] baseScores;
+
+        public QueryResult(int numberOfBranches) {
+            scoredIris = new ArrayList<>(numberOfBranches);
+            for (int i = 0; i < numberOfBranches; ++i) {
+                scoredIris.add(new ArrayList<>());
             }
+            baseScores = new ScoredIRI[numberOfBranches];
         }
 
-        @Override
-        public void visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
-            // If this is the root node, we can simply add the values
-            if (isRoot) {
-                if (valuesString != null) {
-                    queryBuilder.append(valuesString);
+        /**
+         * Adds the given scored IRI to the results of the given branch.
+         *
+         * @param branchId the branch from which the scored IRI has been retrieved
+         * @param sIri     the scored IRI or {@code null} if the row has been ignored
+         */
+        protected void add(int branchId, ScoredIRI sIri) {
+            if (sIri != null) {
+                if (sIri.iriId != IriDictionary.NULL_ID) {
+                    scoredIris.get(branchId).add(sIri);
+                } else {
+                    // If there is no IRI, we have a query with a context that selects results
+                    // even without using the IRIs we are asking for (most probably by using a
+                    // UNION)
+                    baseScores[branchId] = sIri;
                 }
             }
-            if (node.isExists()) {
-                String nextVariable = getNextVariable();
-                // Ensure that there is a connection to at least one node that fulfills the tail
-                // node
-                queryBuilder.append("        ");
-                queryBuilder.append(node.isInverted() ? nextVariable : variables.peek());
-                queryBuilder.append(" <");
-                queryBuilder.append(node.getRole());
-                queryBuilder.append("> ");
-                queryBuilder.append(node.isInverted() ? variables.peek() : nextVariable);
-                queryBuilder.append(" .\n");
-                boolean oldRoot = isRoot;
-                isRoot = false;
-                variables.addFirst(nextVariable);
-                node.getTailExpression().accept(this);
-                variables.removeFirst();
-                isRoot = oldRoot;
-            } else {
-                // Ensure that for all possible instantiations of the tail node, they do not
-                // fulfill the negation of the tail node expression.
-                queryBuilder.append("        FILTER NOT EXISTS {\n");
-                ClassExpression negation = negator.negateExpression(node);
-                boolean oldRoot = isRoot;
-                isRoot = false;
-                negation.accept(this);
-                isRoot = oldRoot;
-                // Close the bracket of the FILTER statement
-                queryBuilder.append("        }\n");
+        }
+
+        /**
+         * @param branchId the branch
+         * @return copies of the scored IRIs of the given branch
+         */
+        public List<ScoredIRI> copyScoredIris(int branchId) {
+            List<ScoredIRI> branchResults = scoredIris.get(branchId);
+            List<ScoredIRI> copies = new ArrayList<>(branchResults.size());
+            for (ScoredIRI sIri : branchResults) {
+                copies.add(copy(sIri));
             }
+            return copies;
         }
 
         /**
-         * @param intermediateVariableName the intermediateVariableName to set
+         * @param branchId the branch
+         * @return a copy of the base score of the given branch or {@code null} if
+         *         there is no base score
          */
-        public void setIntermediateVariableName(String intermediateVariableName) {
-            this.intermediateVariableName = intermediateVariableName;
+        public ScoredIRI copyBaseScore(int branchId) {
+            return (baseScores[branchId] == null) ? null : copy(baseScores[branchId]);
         }
 
+        protected static ScoredIRI copy(ScoredIRI sIri) {
+            return new ScoredIRI(sIri.iriId, sIri.posCount, sIri.negCount, sIri.inverted);
+        }
     }
 
     /**
@@ -774,120 +1625,4 @@ public class SparqlBasedSuggestor implements ExtendedSuggestor, InstanceRetrieve
 
     }
 
-    public static class ExpressionPreProcessor implements ClassExpressionVisitingCreator<ClassExpression[]> {
-
-        public ClassExpression preprocess(ClassExpression ce) {
-            ClassExpression[] subExpressions = ce.accept(this);
-            if (subExpressions.length == 1) {
-                return subExpressions[0];
-            } else {
-                return new Junction(false, subExpressions);
-            }
-        }
-
-        @Override
-        public ClassExpression[] visitNamedClass(NamedClass node) {
-            return new ClassExpression[] { node };
-        }
-
-        @Override
-        public ClassExpression[] visitJunction(Junction node) {
-            List<ClassExpression> expressions = new ArrayList<>(node.getChildren().size());
-            if (node.isConjunction()) {
-                // Create all possible combinations of the arrays that we get.
-                ClassExpression[][] arrays = new ClassExpression[node.getChildren().size()][];
-                int pos = 0;
-                for (ClassExpression child : node.getChildren()) {
-                    arrays[pos] = child.accept(this);
-                    ++pos;
-                }
-                int indexes[] = new int[arrays.length];
-                ClassExpression[] combination = new ClassExpression[arrays.length];
-                boolean moreCombinations = true;
-                while (moreCombinations) {
-                    // Create new combination according to indexes
-                    for (int i = 0; i < indexes.length; ++i) {
-                        combination[i] = arrays[i][indexes[i]];
-                    }
-                    expressions.add(new Junction(true, combination));
-                    // increase indexes (works like a clock / counter)
-                    pos = 0;
-                    ++indexes[0];
-                    while ((pos < indexes.length) && (indexes[pos] >= arrays[pos].length)) {
-                        indexes[pos] = 0;
-                        ++pos;
-                        if (pos < indexes.length) {
-                            ++indexes[pos];
-                        } else {
-                            // We saw all combinations
-                            moreCombinations = false;
-                        }
-                    }
-                }
-            } else {
-                // We simply forward all results of the children
-                ClassExpression[] currentArray;
-                for (ClassExpression child : node.getChildren()) {
-                    currentArray = child.accept(this);
-                    Collections.addAll(expressions, currentArray);
-                }
-            }
-            return expressions.toArray(ClassExpression[]::new);
-        }
-
-        @Override
-        public ClassExpression[] visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
-            ClassExpression[] tailExpressions = node.getTailExpression().accept(this);
-            for (int i = 0; i < tailExpressions.length; ++i) {
-                tailExpressions[i] = new SimpleQuantifiedRole(node.isExists(), node.getRole(), node.isInverted(),
-                        tailExpressions[i]);
-            }
-            return tailExpressions;
-        }
-
-    }
-
-    /**
-     * This visitor deletes the sub tree of a class expression that contains the
-     * {@link Suggestor#CONTEXT_POSITION_MARKER}. The sub expression is deleted up
-     * to the first disjunction. If the expression does not contain any
-     * disjunctions, {@code null} is returned.
-     * 
-     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
-     *
-     */
-    public static class SubExpressionDeleter implements ClassExpressionVisitingCreator<ClassExpression> {
-
-        @Override
-        public ClassExpression visitNamedClass(NamedClass node) {
-            if (Suggestor.CONTEXT_POSITION_MARKER.equals(node)) {
-                return null;
-            } else {
-                return node;
-            }
-        }
-
-        @Override
-        public ClassExpression visitJunction(Junction node) {
-            ClassExpression[] newChildren = node.getChildren().stream().map(child -> child.accept(this))
-                    .filter(child -> child != null).toArray(ClassExpression[]::new);
-            if ((newChildren.length != node.getChildren().size()) && (node.isConjunction())) {
-                return null;
-            } else {
-                return new Junction(node.isConjunction(), newChildren);
-            }
-        }
-
-        @Override
-        public ClassExpression visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
-            ClassExpression newChild = node.getTailExpression().accept(this);
-            if (newChild == null) {
-                return null;
-            } else {
-                return new SimpleQuantifiedRole(node.isExists(), node.getRole(), node.isInverted(), newChild);
-            }
-        }
-
-    }
-
 }
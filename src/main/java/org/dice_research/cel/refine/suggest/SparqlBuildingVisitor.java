@@ -0,0 +1,206 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.vocabulary.OWL2;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.ClassExpressionVisitor;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.NegatingVisitor;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.sparql.QueryTemplate;
+
+/**
+ * A visitor that transforms a class expression into a SPARQL graph pattern.
+ * Before an expression is handed to this visitor, its disjunctions should be
+ * moved up the tree using the {@link UnionNormalizer}. Otherwise, we will face
+ * performance issues on some SPARQL stores. Disjunctions that have been kept
+ * in place are rendered as {@code FILTER EXISTS} statements.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class SparqlBuildingVisitor implements ClassExpressionVisitor {
+
+    protected static final String INTERMEDIATE_VARIABLE_NAME = "?x";
+
+    protected QueryTemplate template;
+    protected Deque<String> variables = new ArrayDeque<String>();
+    protected boolean addValues;
+    protected QueryTemplate filterTemplate;
+    protected String intermediateVariableName = INTERMEDIATE_VARIABLE_NAME;
+    protected int nextVariableId = 0;
+    protected boolean isRoot = true;
+    protected BiConsumer<QueryTemplate, String> markedPositionRenderer;
+    protected NegatingVisitor negator = new NegatingVisitor();
+
+    /**
+     * Constructor. The generated SPARQL uses the
+     * {@link QueryTemplate#ROOT_VARIABLE} as first variable, i.e., the template
+     * can be rendered for arbitrary variables.
+     * 
+     * @param template               the template to which the generated SPARQL
+     *                               will be added
+     * @param addValues              flag indicating whether the placeholder for
+     *                               the VALUES statement binding the root
+     *                               variable should be added
+     * @param filterTemplate         an additional filter that should be added to
+     *                               the selected variable (can be null)
+     * @param markedPositionRenderer the function that adds the select statement
+     *                               that is expected at the marked position for
+     *                               the given variable name to the given
+     *                               template
+     */
+    public SparqlBuildingVisitor(QueryTemplate template, boolean addValues, QueryTemplate filterTemplate,
+            BiConsumer<QueryTemplate, String> markedPositionRenderer) {
+        super();
+        this.template = template;
+        this.addValues = addValues;
+        this.filterTemplate = filterTemplate;
+        this.markedPositionRenderer = markedPositionRenderer;
+        variables.addFirst(QueryTemplate.ROOT_VARIABLE);
+    }
+
+    protected String getNextVariable() {
+        return intermediateVariableName + nextVariableId++;
+    }
+
+    @Override
+    public void visitNamedClass(NamedClass node) {
+        // If this is the root node, we can simply add the values
+        if (isRoot) {
+            if (addValues) {
+                template.appendValues();
+            }
+        }
+        // Check if this is the marked position
+        if (Suggestor.CONTEXT_POSITION_MARKER.equals(node)) {
+            template.append("        ");
+            markedPositionRenderer.accept(template, variables.peek());
+            template.append('\n');
+            if (filterTemplate != null) {
+                template.append("        ");
+                template.append(filterTemplate);
+                template.append('\n');
+            }
+        } else if (NamedClass.TOP.equals(node)) {
+            // Nothing to do
+        } else if (NamedClass.BOTTOM.equals(node)) {
+            template.append("        ");
+            template.appendVariable(variables.peek());
+            template.append(" a <");
+            template.append(OWL2.Nothing.getURI());
+            template.append("> .\n");
+        } else {
+            if (node.isNegated()) {
+                template.append("        FILTER NOT EXISTS { ");
+                template.appendVariable(variables.peek());
+                template.append(" a <");
+                template.append(node.getName());
+                template.append("> . }\n");
+            } else {
+                template.append("        ");
+                template.appendVariable(variables.peek());
+                template.append(" a <");
+                template.append(node.getName());
+                template.append("> .\n");
+            }
+        }
+    }
+
+    @Override
+    public void visitJunction(Junction node) {
+        // If this is a conjunction, we can simply visit all children and let them add
+        // their triple patterns
+        if (node.isConjunction()) {
+            // If this is the root node, we can simply add the values
+            if (isRoot) {
+                if (addValues) {
+                    template.appendValues();
+                }
+            }
+            boolean oldRoot = isRoot;
+            isRoot = false;
+            for (ClassExpression child : node.getChildren()) {
+                child.accept(this);
+            }
+            isRoot = oldRoot;
+        } else {
+            // This is a disjunction, so we have to create UNION statements. If the
+            // disjunction is not the root and does not contain the marked position, it
+            // has been kept in place by the normalization. In this case, we wrap the
+            // UNION into a FILTER EXISTS statement to avoid multiplying the solutions.
+            boolean asFilter = !isRoot && !UnionNormalizer.containsMarker(node);
+            if (asFilter) {
+                template.append("        FILTER EXISTS {\n");
+            }
+            boolean first = true;
+            template.append("        {\n");
+            for (ClassExpression child : node.getChildren()) {
+                if (first) {
+                    first = false;
+                } else {
+                    template.append("        } UNION {\n");
+                }
+                // Note: we do not change the isRoot flag, because if the disjunction is the
+                // root node, the children of the disjunction need to know the VALUES
+                // restriction.
+                child.accept(this);
+            }
+            template.append("        }\n");
+            if (asFilter) {
+                template.append("        }\n");
+            }
+        }
+    }
+
+    @Override
+    public void visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
+        // If this is the root node, we can simply add the values
+        if (isRoot) {
+            if (addValues) {
+                template.appendValues();
+            }
+        }
+        if (node.isExists()) {
+            String nextVariable = getNextVariable();
+            // Ensure that there is a connection to at least one node that fulfills the tail
+            // node
+            template.append("        ");
+            template.appendVariable(node.isInverted() ? nextVariable : variables.peek());
+            template.append(" <");
+            template.append(node.getRole());
+            template.append("> ");
+            template.appendVariable(node.isInverted() ? variables.peek() : nextVariable);
+            template.append(" .\n");
+            boolean oldRoot = isRoot;
+            isRoot = false;
+            variables.addFirst(nextVariable);
+            node.getTailExpression().accept(this);
+            variables.removeFirst();
+            isRoot = oldRoot;
+        } else {
+            // Ensure that for all possible instantiations of the tail node, they do not
+            // fulfill the negation of the tail node expression.
+            template.append("        FILTER NOT EXISTS {\n");
+            ClassExpression negation = negator.negateExpression(node);
+            boolean oldRoot = isRoot;
+            isRoot = false;
+            negation.accept(this);
+            isRoot = oldRoot;
+            // Close the bracket of the FILTER statement
+            template.append("        }\n");
+        }
+    }
+
+    /**
+     * @param intermediateVariableName the intermediateVariableName to set
+     */
+    public void setIntermediateVariableName(String intermediateVariableName) {
+        this.intermediateVariableName = intermediateVariableName;
+    }
+
+}
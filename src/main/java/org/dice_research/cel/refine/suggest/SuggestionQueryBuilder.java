@@ -0,0 +1,491 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.vocabulary.OWL;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.sparql.QueryTemplate;
+
+/**
+ * Generates the SPARQL queries that the {@link SparqlBasedSuggestor} sends for
+ * a single context or expression. The shape of a query depends on the
+ * description logic and on whether the query is generated for the shard of a
+ * larger learning problem (see {@link LearningProblemSession#isShard()}).
+ * Properties can be suggested in a single direction or in both directions at
+ * once (see
+ * {@link #generateBidirectionalPropertySuggestionQuery(LearningProblemSession, ClassExpression, ScoreBound)}).
+ * The combination of several queries into a single request is done by the
+ * {@link BatchQueryBuilder}.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class SuggestionQueryBuilder {
+
+    /**
+     * The description logic that the suggestions have to fit.
+     */
+    protected DescriptionLogic logic;
+    /**
+     * The maximum number of suggestions that are retrieved per context and query
+     * type. A value of 0 means that all suggestions are retrieved.
+     */
+    protected int maxSuggestionsPerContext = 0;
+
+    public SuggestionQueryBuilder(DescriptionLogic logic) {
+        super();
+        this.logic = logic;
+    }
+
+    /**
+     * Generates the query that is used to suggest classes for the given
+     * (prepared) context. The query depends on the description logic.
+     *
+     * @param session  the session of the current learning problem
+     * @param context  a prepared class expression that marks a position with the
+     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
+     * @param bound    an optional bound that the suggestions should fulfill or
+     *                 {@code null}
+     * @return a SPARQL query that can be used to suggest classes
+     */
+    public String generateClassSuggestionQuery(LearningProblemSession session, ClassExpression context,
+            ScoreBound bound) {
+        // The class query without negation only counts negatives of classes that
+        // select positives of the same shard. Hence, shards have to count all classes.
+        if (logic.supportsComplexConceptNegation() || session.isShard()) {
+            return generateClassQueryForGeneralNegation(session, context, bound);
+        } else {
+            return generateClassQuery(session, context, bound);
+        }
+    }
+
+    /**
+     * A class query that retrieves all classes that select at least one positive
+     * examples within the given context together with the number of the selected
+     * examples.
+     * 
+     * @param session  the session of the current learning problem
+     * @param context  a class expression that marks a position with the
+     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
+     * @param bound    an optional bound that the suggestions should fulfill or
+     *                 {@code null}
+     * @return a SPARQL query that can be used to select the IRIs described above
+     */
+    public String generateClassQuery(LearningProblemSession session, ClassExpression context,
+            ScoreBound bound) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ?class (MAX(?tp) AS ?posHits) (COUNT(DISTINCT ?neg) AS ?negHits) WHERE {\n");
+        queryBuilder.append("    { SELECT ?class (COUNT(DISTINCT ?pos) AS ?tp) WHERE {\n        ");
+        QueryTemplate contextTemplate = createContextTemplate(context, createNotExistsFilter(context),
+                (t, v) -> t.appendVariable(v).append(" a ?class ."));
+        contextTemplate.render(queryBuilder, "?pos", session.getPositiveValues());
+        queryBuilder.append("    } GROUP BY ?class }\n");
+        queryBuilder.append("    OPTIONAL {\n        ");
+        contextTemplate.render(queryBuilder, "?neg", session.getNegativeValues());
+        queryBuilder.append("    }} GROUP BY ?class");
+        appendSolutionModifiers(queryBuilder, session, context, bound, "MAX(?tp)", "COUNT(DISTINCT ?neg)");
+        return queryBuilder.toString();
+    }
+
+    /**
+     * A class query that retrieves all classes that select at least one positive
+     * example when the class is negated within the given context together with the
+     * number of the selected examples.
+     * 
+     * @param session  the session of the current learning problem
+     * @param context  a class expression that marks a position with the
+     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
+     * @param bound    an optional bound that the suggestions should fulfill or
+     *                 {@code null}
+     * @return a SPARQL query that can be used to select the IRIs described above
+     */
+    public String generateNegatedClassQuery(LearningProblemSession session, ClassExpression context,
+            ScoreBound bound) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ?class (MAX(?tp) AS ?posHits) (MAX(?fp) AS ?negHits) WHERE {\n");
+        queryBuilder.append("    { SELECT ?class (COUNT(DISTINCT ?pos) AS ?tp) (0 AS ?fp) WHERE {\n        ");
+        QueryTemplate contextTemplate = createContextTemplate(context, createNotExistsFilter(context),
+                (t, v) -> t.append("?class a <").append(OWL.Class.getURI())
+                        .append("> .        \nFILTER NOT EXISTS { ").appendVariable(v).append(" a ?class . }"));
+        contextTemplate.render(queryBuilder, "?pos", session.getPositiveValues());
+        queryBuilder.append("      } GROUP BY ?class\n");
+        queryBuilder.append("    } UNION {\n");
+        queryBuilder.append("      SELECT ?class (0 AS ?tp) (COUNT(DISTINCT ?neg) AS ?fp) WHERE {\n        ");
+        contextTemplate.render(queryBuilder, "?neg", session.getNegativeValues());
+        queryBuilder.append("      } GROUP BY ?class\n    }\n");
+        queryBuilder.append("} GROUP BY ?class");
+        appendSolutionModifiers(queryBuilder, session, context, bound, "MAX(?tp)", "MAX(?fp)");
+        return queryBuilder.toString();
+    }
+
+    /**
+     * A class query that retrieves all classes that select any positive and
+     * negative examples within the given context together with the number of the
+     * selected examples. These counts can be used to extend the context with the
+     * retrieved classes but also to create the negation of the given context and
+     * the retrieved classes.
+     * 
+     * @param session  the session of the current learning problem
+     * @param context  a class expression that marks a position with the
+     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
+     * @param bound    an optional bound that the suggestions should fulfill or
+     *                 {@code null}
+     * @return a SPARQL query that can be used to select the IRIs described above
+     */
+    public String generateClassQueryForGeneralNegation(LearningProblemSession session, ClassExpression context,
+            ScoreBound bound) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ?class (MAX(?tp) AS ?posHits) (MAX(?fp) AS ?negHits) WHERE {\n");
+        queryBuilder.append("    { SELECT ?class (COUNT(DISTINCT ?pos) AS ?tp) (0 AS ?fp) WHERE {\n        ");
+        QueryTemplate contextTemplate = createContextTemplate(context, createNotExistsFilter(context),
+                (t, v) -> t.appendVariable(v).append(" a ?class ."));
+        contextTemplate.render(queryBuilder, "?pos", session.getPositiveValues());
+        queryBuilder.append("      } GROUP BY ?class\n");
+        queryBuilder.append("    } UNION {\n");
+        queryBuilder.append("      SELECT ?class (0 AS ?tp) (COUNT(DISTINCT ?neg) AS ?fp) WHERE {\n        ");
+        contextTemplate.render(queryBuilder, "?neg", session.getNegativeValues());
+        queryBuilder.append("      } GROUP BY ?class\n    }\n");
+        queryBuilder.append("} GROUP BY ?class");
+        appendSolutionModifiers(queryBuilder, session, context, bound, "MAX(?tp)", "MAX(?fp)");
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Generates the query that is used to suggest properties for the given
+     * (prepared) context. The query depends on the description logic.
+     *
+     * @param session  the session of the current learning problem
+     * @param context  a prepared class expression that marks a position with the
+     *                 {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
+     * @param inverted flag indicating whether inverted properties should be
+     *                 suggested
+     * @param bound    an optional bound that the suggestions should fulfill or
+     *                 {@code null}
+     * @return a SPARQL query that can be used to suggest properties
+     */
+    public String generatePropertySuggestionQuery(LearningProblemSession session, ClassExpression context,
+            boolean inverted, ScoreBound bound) {
+        // Shards have to count properties that do not select positives as well (see
+        // generateClassSuggestionQuery)
+        if (logic.supportsAtomicNegation() || session.isShard()) {
+            return generatePropertyQuery(session, context, inverted, bound);
+        } else {
+            return generatePropertyQueryWithoutNegation(session, context, inverted, bound);
+        }
+    }
+
+    public String generatePropertyQuery(LearningProblemSession session, ClassExpression context, boolean inverted,
+            ScoreBound bound) {
+        return generatePropertyQuery(session, context, createPropertyRenderer(inverted), "?prop", bound);
+    }
+
+    /**
+     * Generates a property query for logics with atomic negation.
+     *
+     * @param session        the session of the current learning problem
+     * @param context        a prepared class expression that marks a position
+     *                       with the {@link Suggestor#CONTEXT_POSITION_MARKER}
+     *                       instance.
+     * @param renderer       the renderer of the marked position
+     * @param groupVariables the variables the results are grouped by
+     * @param bound          an optional bound that the suggestions should
+     *                       fulfill or {@code null}
+     * @return the generated query
+     */
+    public String generatePropertyQuery(LearningProblemSession session, ClassExpression context,
+            BiConsumer<QueryTemplate, String> renderer, String groupVariables, ScoreBound bound) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append(" (MAX(?tp) AS ?posHits) (MAX(?fp) AS ?negHits) WHERE {\n");
+        queryBuilder.append("    { SELECT ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append(" (COUNT(DISTINCT ?pos) AS ?tp) (0 AS ?fp) WHERE {\n        ");
+        QueryTemplate contextTemplate = createContextTemplate(context, createNotExistsFilter(context), renderer);
+        contextTemplate.render(queryBuilder, "?pos", session.getPositiveValues());
+        queryBuilder.append("      } GROUP BY ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append("\n    } UNION {\n");
+        queryBuilder.append("      SELECT ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append(" (0 AS ?tp) (COUNT(DISTINCT ?neg) AS ?fp) WHERE {\n        ");
+        contextTemplate.render(queryBuilder, "?neg", session.getNegativeValues());
+        queryBuilder.append("      } GROUP BY ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append("\n    }\n");
+        queryBuilder.append("} GROUP BY ");
+        queryBuilder.append(groupVariables);
+        appendSolutionModifiers(queryBuilder, session, context, bound, "MAX(?tp)", "MAX(?fp)");
+        return queryBuilder.toString();
+    }
+
+    public String generatePropertyQueryWithoutNegation(LearningProblemSession session, ClassExpression context,
+            boolean inverted, ScoreBound bound) {
+        return generatePropertyQueryWithoutNegation(session, context, createPropertyRenderer(inverted), "?prop",
+                bound);
+    }
+
+    /**
+     * Generates a property query for logics without negation.
+     *
+     * @param session        the session of the current learning problem
+     * @param context        a prepared class expression that marks a position
+     *                       with the {@link Suggestor#CONTEXT_POSITION_MARKER}
+     *                       instance.
+     * @param renderer       the renderer of the marked position
+     * @param groupVariables the variables the results are grouped by
+     * @param bound          an optional bound that the suggestions should
+     *                       fulfill or {@code null}
+     * @return the generated query
+     */
+    public String generatePropertyQueryWithoutNegation(LearningProblemSession session, ClassExpression context,
+            BiConsumer<QueryTemplate, String> renderer, String groupVariables, ScoreBound bound) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append(" (MAX(?pc) AS ?posHits) (COUNT(DISTINCT ?negId) AS ?negHits) WHERE {\n");
+        queryBuilder.append("    { SELECT ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append(" (COUNT(DISTINCT ?pos) AS ?pc) WHERE {\n        ");
+        QueryTemplate contextTemplate = createContextTemplate(context, null, renderer);
+        contextTemplate.render(queryBuilder, "?pos", session.getPositiveValues());
+        queryBuilder.append("    } GROUP BY ");
+        queryBuilder.append(groupVariables);
+        queryBuilder.append(" }\n");
+        queryBuilder.append("    OPTIONAL {\n        ");
+        contextTemplate.render(queryBuilder, "?neg", session.getNegativeValues());
+        queryBuilder.append("        BIND (CONCAT(STR(?neg),STR(?prop)) as ?negId)}\n");
+        queryBuilder.append("    } GROUP BY ");
+        queryBuilder.append(groupVariables);
+        appendSolutionModifiers(queryBuilder, session, context, bound, "MAX(?pc)", "COUNT(DISTINCT ?negId)");
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Generates a query that suggests properties and inverted properties for the
+     * given (prepared) context at once. The context is evaluated only once and the
+     * direction of the properties is marked with the
+     * {@link SparqlBasedSuggestor#DIRECTION_VARIABLE}.
+     *
+     * @param session the session of the current learning problem
+     * @param context a prepared class expression that marks a position with the
+     *                {@link Suggestor#CONTEXT_POSITION_MARKER} instance.
+     * @param bound   an optional bound that the suggestions should fulfill or
+     *                {@code null}
+     * @return a SPARQL query that can be used to suggest properties in both
+     *         directions
+     */
+    public String generateBidirectionalPropertySuggestionQuery(LearningProblemSession session,
+            ClassExpression context, ScoreBound bound) {
+        String groupVariables = "?prop ?" + SparqlBasedSuggestor.DIRECTION_VARIABLE;
+        if (logic.supportsAtomicNegation() || session.isShard()) {
+            return generatePropertyQuery(session, context, createBidirectionalPropertyRenderer(), groupVariables,
+                    bound);
+        } else {
+            return generatePropertyQueryWithoutNegation(session, context, createBidirectionalPropertyRenderer(),
+                    groupVariables, bound);
+        }
+    }
+
+    /**
+     * Appends the solution modifiers of a suggestion query, i.e., a HAVING clause
+     * that removes all suggestions that do not fulfill the given bound and an
+     * ORDER BY and LIMIT clause if the number of suggestions per context is
+     * limited (see {@link #maxSuggestionsPerContext}). Note that the HAVING
+     * clause has to repeat the aggregations since the projected variables are
+     * not bound at this point of the query evaluation.
+     *
+     * <p>
+     * If the given context is a disjunction (i.e., has UNION branches that do not
+     * contain the marked position), nothing is appended since the counts of the
+     * single suggestions are only complete after the base score has been added
+     * (see {@link SparqlBasedSuggestor#addBaseScore(List, ScoredIRI, int, int)}). The same holds for
+     * the queries of a shard since their counts are only complete after the counts
+     * of all shards have been summed up.
+     * </p>
+     *
+     * <p>
+     * The limited suggestions are ordered by the difference of their positive and
+     * negative hit rates, i.e., the balanced accuracy of the suggestion. If the
+     * logic supports the complex concept negation, the absolute difference is
+     * used since the negation of a suggestion with a large negative difference is
+     * a good suggestion as well.
+     * </p>
+     *
+     * @param queryBuilder the builder of the query ending with its GROUP BY
+     *                     clause
+     * @param session      the session of the current learning problem
+     * @param context      the prepared context of the query
+     * @param bound        an optional bound that the suggestions should fulfill
+     *                     or {@code null}
+     * @param posAggregate the aggregation that counts the positive hits
+     * @param negAggregate the aggregation that counts the negative hits
+     */
+    protected void appendSolutionModifiers(StringBuilder queryBuilder, LearningProblemSession session,
+            ClassExpression context, ScoreBound bound, String posAggregate, String negAggregate) {
+        if (session.isShard() || ((context instanceof Junction) && !((Junction) context).isConjunction())) {
+            return;
+        }
+        if ((bound != null) && !bound.isTrivial()) {
+            queryBuilder.append("\nHAVING ((");
+            queryBuilder.append(posAggregate);
+            queryBuilder.append(" >= ");
+            queryBuilder.append(bound.getMinPosCount());
+            queryBuilder.append(" && ");
+            queryBuilder.append(negAggregate);
+            queryBuilder.append(" <= ");
+            queryBuilder.append(bound.getMaxNegCount());
+            queryBuilder.append(')');
+            if (bound.isNegationIncluded()) {
+                queryBuilder.append(" || (");
+                queryBuilder.append(posAggregate);
+                queryBuilder.append(" <= ");
+                queryBuilder.append(bound.getNumPositives() - bound.getMinPosCount());
+                queryBuilder.append(" && ");
+                queryBuilder.append(negAggregate);
+                queryBuilder.append(" >= ");
+                queryBuilder.append(bound.getNumNegatives() - bound.getMaxNegCount());
+                queryBuilder.append(')');
+            }
+            queryBuilder.append(')');
+        }
+        if (maxSuggestionsPerContext > 0) {
+            boolean negation = logic.supportsComplexConceptNegation();
+            queryBuilder.append("\nORDER BY DESC(");
+            if (negation) {
+                queryBuilder.append("ABS(");
+            }
+            queryBuilder.append("(?posHits * ");
+            queryBuilder.append(Math.max(1, session.getNumNegatives()));
+            queryBuilder.append(") - (?negHits * ");
+            queryBuilder.append(Math.max(1, session.getNumPositives()));
+            queryBuilder.append(')');
+            if (negation) {
+                queryBuilder.append(')');
+            }
+            queryBuilder.append(")\nLIMIT ");
+            queryBuilder.append(maxSuggestionsPerContext);
+        }
+    }
+
+    public String generateScoreQueryForGeneralNegation(LearningProblemSession session, ClassExpression expression) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ?posHits ?negHits WHERE {\n");
+        queryBuilder.append("    { SELECT (COUNT(DISTINCT ?pos) AS ?posHits) WHERE {\n        ");
+        QueryTemplate contextTemplate = createContextTemplate(expression, null, (t, v) -> {
+        });
+        contextTemplate.render(queryBuilder, "?pos", session.getPositiveValues());
+        queryBuilder.append("    }}\n");
+        queryBuilder.append("    { SELECT (COUNT(DISTINCT ?neg) AS ?negHits) WHERE {\n        ");
+        contextTemplate.render(queryBuilder, "?neg", session.getNegativeValues());
+        queryBuilder.append("    }}\n");
+        queryBuilder.append("}");
+        return queryBuilder.toString();
+    }
+
+    public String generateSelectQueryForGeneralNegation(LearningProblemSession session, ClassExpression expression) {
+        StringBuilder queryBuilder = new StringBuilder();
+        queryBuilder.append("SELECT ?instance WHERE {\n");
+        QueryTemplate contextTemplate = createContextTemplate(expression, null, (t, v) -> {
+        });
+        contextTemplate.render(queryBuilder, "?instance", session.getInstanceValues());
+        queryBuilder.append("}");
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Creates a template of the given context that can be rendered for the
+     * positive and the negative examples.
+     *
+     * @param context                a prepared class expression
+     * @param filterTemplate         an additional filter that is added to the
+     *                               marked position (can be {@code null})
+     * @param markedPositionRenderer the function that adds the select statement
+     *                               that is expected at the marked position
+     * @return the template of the given context
+     */
+    public QueryTemplate createContextTemplate(ClassExpression context, QueryTemplate filterTemplate,
+            BiConsumer<QueryTemplate, String> markedPositionRenderer) {
+        QueryTemplate template = new QueryTemplate();
+        context.accept(new SparqlBuildingVisitor(template, true, filterTemplate, markedPositionRenderer));
+        return template;
+    }
+
+    protected BiConsumer<QueryTemplate, String> createPropertyRenderer(boolean inverted) {
+        if (inverted) {
+            return (t, v) -> t.append("[] ?prop ").appendVariable(v).append(" .");
+        } else {
+            return (t, v) -> t.appendVariable(v).append(" ?prop [] .");
+        }
+    }
+
+    /**
+     * Creates a renderer that selects outgoing and incoming properties of the
+     * marked position in two UNION branches. The direction is bound to the
+     * {@link SparqlBasedSuggestor#DIRECTION_VARIABLE} (0 = outgoing, 1 = incoming).
+     *
+     * @return the renderer of the marked position
+     */
+    protected BiConsumer<QueryTemplate, String> createBidirectionalPropertyRenderer() {
+        return (t, v) -> t.append("{ ").appendVariable(v).append(" ?prop [] . BIND(0 AS ?")
+                .append(SparqlBasedSuggestor.DIRECTION_VARIABLE).append(") } UNION { [] ?prop ").appendVariable(v)
+                .append(" . BIND(1 AS ?").append(SparqlBasedSuggestor.DIRECTION_VARIABLE).append(") }");
+    }
+
+    public QueryTemplate createNotExistsFilter(ClassExpression context) {
+        QueryTemplate filter = null;
+        if (context instanceof Junction) {
+            Junction junction = (Junction) context;
+            if (!junction.isConjunction()) {
+                // 1. Remove the part of the context that contains the marking
+                ClassExpression reducedExpression = context.accept(new SubExpressionDeleter());
+                List<ClassExpression> expressions = new ArrayList<>();
+                addUnionSubExpressionToFilter(reducedExpression, expressions);
+                // 2. Use the remaining part as filter
+                filter = new QueryTemplate();
+                for (ClassExpression expression : expressions) {
+                    SparqlBuildingVisitor visitor = new SparqlBuildingVisitor(filter, false, null, null);
+                    visitor.setIntermediateVariableName("?y");
+                    filter.append("FILTER NOT EXISTS { ");
+                    expression.accept(visitor);
+                    filter.append(" }\n");
+                }
+            }
+        }
+        return filter;
+    }
+
+    protected static void addUnionSubExpressionToFilter(ClassExpression expression, List<ClassExpression> expressions) {
+        if (expression instanceof Junction) {
+            Junction junction = (Junction) expression;
+            if (!junction.isConjunction()) {
+                for (ClassExpression child : junction.getChildren()) {
+                    addUnionSubExpressionToFilter(child, expressions);
+                }
+                return;
+            }
+        }
+        expressions.add(expression);
+    }
+
+    /**
+     * @return the maximum number of suggestions that are retrieved per context
+     *         and query type (0 means that there is no limit)
+     */
+    public int getMaxSuggestionsPerContext() {
+        return maxSuggestionsPerContext;
+    }
+
+    /**
+     * @param maxSuggestionsPerContext the maximum number of suggestions that are
+     *                                 retrieved per context and query type (0
+     *                                 means that there is no limit)
+     */
+    public void setMaxSuggestionsPerContext(int maxSuggestionsPerContext) {
+        this.maxSuggestionsPerContext = maxSuggestionsPerContext;
+    }
+}
@@ -62,4 +62,33 @@ public interface Suggestor {
     Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
             ClassExpression context);
 
+    /**
+     * Tells the suggestor that a learning problem with the given examples begins.
+     * The returned handle has to be closed when the learning problem ends, which
+     * gives the suggestor the chance to free the resources it has allocated for
+     * this problem. The default implementation does nothing.
+     * 
+     * @param positive positive examples
+     * @param negative negative examples
+     * @return a handle that ends the learning problem when it is closed
+     */
+    default LearningProblemHandle beginProblem(Collection<String> positive, Collection<String> negative) {
+        return LearningProblemHandle.NONE;
+    }
+
+    /**
+     * Returns the maximum number of suggestions that this suggestor returns per
+     * context and type of suggestion. If a list of suggestions is limited, it
+     * contains the highest ranked suggestions, i.e., the suggestions with the
+     * largest difference between their positive and negative hit rates (see
+     * {@link SparqlBasedSuggestor#setMaxSuggestionsPerContext(int)}). The default
+     * implementation returns 0.
+     * 
+     * @return the maximum number of suggestions per context and type or 0 if the
+     *         number of suggestions is not limited
+     */
+    default int getMaxSuggestionsPerContext() {
+        return 0;
+    }
+
 }
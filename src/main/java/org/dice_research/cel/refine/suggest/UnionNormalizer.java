@@ -0,0 +1,338 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.ClassExpressionVisitingCreator;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class moves disjunctions of a class expression up to its root before it
+ * is transformed into a SPARQL query. Lifting all disjunctions (i.e., creating
+ * the disjunctive normal form) can lead to an exponential number of UNION
+ * branches. Hence, this class estimates the number of branches and only lifts
+ * as many disjunctions as possible without exceeding the given maximum number
+ * of branches. The remaining disjunctions are kept at their position and are
+ * rendered as {@code FILTER EXISTS} statements (see
+ * {@link SparqlBuildingVisitor}).
+ *
+ * <p>
+ * Disjunctions that contain the {@link Suggestor#CONTEXT_POSITION_MARKER} are
+ * always lifted since the suggestion queries rely on the marked position being
+ * part of a single UNION branch. Since these disjunctions are located on a
+ * single path, they add only a linear number of branches. If the number of
+ * disjunctions on this path alone exceeds the maximum number of branches, the
+ * branches without the marked position are merged into a single branch that
+ * contains their disjunction, which is rendered as {@code FILTER EXISTS}
+ * statement. Hence, the maximum number of branches is never exceeded.
+ * </p>
+ *
+ * <p>
+ * Note that disjunctions are not lifted out of universal restrictions since
+ * ∀r.(A⊔B) is not equivalent to ∀r.A⊔∀r.B.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class UnionNormalizer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnionNormalizer.class);
+
+    /**
+     * The default maximum number of UNION branches.
+     */
+    public static final int DEFAULT_MAX_BRANCHES = 16;
+    /**
+     * The minimum value of the maximum number of UNION branches. One branch is
+     * needed for the marked position and one for the remaining branches.
+     */
+    public static final int MIN_MAX_BRANCHES = 2;
+
+    /**
+     * The maximum number of branches that the normalized expression should have.
+     */
+    protected int maxBranches;
+
+    /**
+     * Constructor.
+     */
+    public UnionNormalizer() {
+        this(DEFAULT_MAX_BRANCHES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxBranches the maximum number of branches that the normalized
+     *                    expression should have
+     * @throws IllegalArgumentException if the maximum is lower than
+     *                                  {@link #MIN_MAX_BRANCHES}
+     */
+    public UnionNormalizer(int maxBranches) {
+        super();
+        setMaxBranches(maxBranches);
+    }
+
+    /**
+     * Normalizes the given expression. The result is either a disjunction, the
+     * children of which will be transformed into UNION branches, or a single
+     * branch. The number of branches does not exceed the maximum number of
+     * branches.
+     *
+     * @param ce the class expression that should be normalized
+     * @return the normalized class expression
+     */
+    public ClassExpression normalize(ClassExpression ce) {
+        Set<Junction> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        long branches = countBranches(ce, kept);
+        if (branches > maxBranches) {
+            // Keep the disjunctions with the most branches first
+            List<Junction> candidates = new ArrayList<>();
+            collectCandidates(ce, candidates);
+            // Keeping the root would not reduce the number of branches since a root
+            // disjunction is rendered as UNION branches anyway
+            candidates.removeIf(candidate -> candidate == ce);
+            Collections.sort(candidates, Comparator.comparingLong(j -> -countBranches(j, kept)));
+            for (Junction candidate : candidates) {
+                kept.add(candidate);
+                branches = countBranches(ce, kept);
+                if (branches <= maxBranches) {
+                    break;
+                }
+            }
+        }
+        ClassExpression[] subExpressions = ce.accept(new LiftingVisitor(kept));
+        if (subExpressions.length > maxBranches) {
+            LOGGER.debug("The expression {} still has {} branches after keeping all disjunctions that can be kept. "
+                    + "Merging the branches without the marked position.", ce, subExpressions.length);
+            subExpressions = mergeBranches(subExpressions);
+        }
+        if (subExpressions.length == 1) {
+            return subExpressions[0];
+        } else {
+            return new Junction(false, subExpressions);
+        }
+    }
+
+    /**
+     * Reduces the given branches to the maximum number of branches by merging
+     * the branches that do not contain the marked position. The merged branches
+     * are combined in a disjunction that is wrapped into a conjunction. Since
+     * this disjunction is not the root of the expression, it is rendered as a
+     * {@code FILTER EXISTS} statement instead of further UNION branches.
+     *
+     * @param branches the branches of the lifted expression
+     * @return at most {@link #maxBranches} branches
+     */
+    protected ClassExpression[] mergeBranches(ClassExpression[] branches) {
+        List<ClassExpression> result = new ArrayList<>(maxBranches);
+        List<ClassExpression> merged = new ArrayList<>();
+        // All disjunctions without the marker are kept, i.e., there is only one branch
+        // with the marker
+        int remaining = maxBranches - 1;
+        for (ClassExpression branch : branches) {
+            if (containsMarker(branch)) {
+                result.add(branch);
+                --remaining;
+            }
+        }
+        for (ClassExpression branch : branches) {
+            if (!containsMarker(branch)) {
+                if (remaining > 0) {
+                    result.add(branch);
+                    --remaining;
+                } else {
+                    merged.add(branch);
+                }
+            }
+        }
+        if (merged.size() == 1) {
+            result.add(merged.get(0));
+        } else if (merged.size() > 1) {
+            result.add(new Junction(true, new Junction(false, merged)));
+        }
+        return result.toArray(ClassExpression[]::new);
+    }
+
+    /**
+     * Estimates the number of branches that the given expression would have if
+     * all disjunctions except the given ones are lifted.
+     *
+     * @param ce   the class expression
+     * @param kept the disjunctions that are not lifted
+     * @return the number of branches (saturated at {@link Long#MAX_VALUE})
+     */
+    public static long countBranches(ClassExpression ce, Set<Junction> kept) {
+        if (ce instanceof Junction) {
+            Junction junction = (Junction) ce;
+            if (kept.contains(junction)) {
+                return 1;
+            }
+            long count = junction.isConjunction() ? 1 : 0;
+            for (ClassExpression child : junction.getChildren()) {
+                long childCount = countBranches(child, kept);
+                if (junction.isConjunction()) {
+                    count = (childCount > (Long.MAX_VALUE / count)) ? Long.MAX_VALUE : count * childCount;
+                } else {
+                    count = (childCount > (Long.MAX_VALUE - count)) ? Long.MAX_VALUE : count + childCount;
+                }
+            }
+            return count;
+        } else if (ce instanceof SimpleQuantifiedRole) {
+            SimpleQuantifiedRole role = (SimpleQuantifiedRole) ce;
+            return role.isExists() ? countBranches(role.getTailExpression(), kept) : 1;
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * Collects all disjunctions that do not contain the marked position and that
+     * would be lifted. Note that this includes the given expression itself if it
+     * is such a disjunction.
+     */
+    protected static void collectCandidates(ClassExpression ce, List<Junction> candidates) {
+        if (ce instanceof Junction) {
+            Junction junction = (Junction) ce;
+            if (!junction.isConjunction() && !containsMarker(junction)) {
+                candidates.add(junction);
+            }
+            for (ClassExpression child : junction.getChildren()) {
+                collectCandidates(child, candidates);
+            }
+        } else if ((ce instanceof SimpleQuantifiedRole) && ((SimpleQuantifiedRole) ce).isExists()) {
+            collectCandidates(((SimpleQuantifiedRole) ce).getTailExpression(), candidates);
+        }
+    }
+
+    /**
+     * Checks whether the given expression contains the
+     * {@link Suggestor#CONTEXT_POSITION_MARKER}.
+     *
+     * @param ce the class expression that should be checked
+     * @return {@code true} if the expression contains the marker
+     */
+    public static boolean containsMarker(ClassExpression ce) {
+        if (ce instanceof Junction) {
+            for (ClassExpression child : ((Junction) ce).getChildren()) {
+                if (containsMarker(child)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (ce instanceof SimpleQuantifiedRole) {
+            return containsMarker(((SimpleQuantifiedRole) ce).getTailExpression());
+        } else {
+            return Suggestor.CONTEXT_POSITION_MARKER.equals(ce);
+        }
+    }
+
+    /**
+     * @return the maximum number of branches
+     */
+    public int getMaxBranches() {
+        return maxBranches;
+    }
+
+    /**
+     * @param maxBranches the maximum number of branches to set
+     * @throws IllegalArgumentException if the maximum is lower than
+     *                                  {@link #MIN_MAX_BRANCHES}
+     */
+    public void setMaxBranches(int maxBranches) {
+        if (maxBranches < MIN_MAX_BRANCHES) {
+            throw new IllegalArgumentException("The maximum number of branches has to be at least "
+                    + MIN_MAX_BRANCHES + ". Got " + maxBranches + ".");
+        }
+        this.maxBranches = maxBranches;
+    }
+
+    /**
+     * A visitor that lifts all disjunctions except the given ones and returns the
+     * branches of the resulting root disjunction.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class LiftingVisitor implements ClassExpressionVisitingCreator<ClassExpression[]> {
+
+        protected Set<Junction> kept;
+
+        public LiftingVisitor(Set<Junction> kept) {
+            super();
+            this.kept = kept;
+        }
+
+        @Override
+        public ClassExpression[] visitNamedClass(NamedClass node) {
+            return new ClassExpression[] { node };
+        }
+
+        @Override
+        public ClassExpression[] visitJunction(Junction node) {
+            if (kept.contains(node)) {
+                return new ClassExpression[] { node };
+            }
+            List<ClassExpression> expressions = new ArrayList<>(node.getChildren().size());
+            if (node.isConjunction()) {
+                // Create all possible combinations of the arrays that we get.
+                ClassExpression[][] arrays = new ClassExpression[node.getChildren().size()][];
+                int pos = 0;
+                for (ClassExpression child : node.getChildren()) {
+                    arrays[pos] = child.accept(this);
+                    ++pos;
+                }
+                int indexes[] = new int[arrays.length];
+                ClassExpression[] combination = new ClassExpression[arrays.length];
+                boolean moreCombinations = true;
+                while (moreCombinations) {
+                    for (int i = 0; i < indexes.length; ++i) {
+                        combination[i] = arrays[i][indexes[i]];
+                    }
+                    expressions.add(new Junction(true, combination));
+                    // increase indexes (works like a clock / counter)
+                    pos = 0;
+                    ++indexes[0];
+                    while ((pos < indexes.length) && (indexes[pos] >= arrays[pos].length)) {
+                        indexes[pos] = 0;
+                        ++pos;
+                        if (pos < indexes.length) {
+                            ++indexes[pos];
+                        } else {
+                            moreCombinations = false;
+                        }
+                    }
+                }
+            } else {
+                for (ClassExpression child : node.getChildren()) {
+                    Collections.addAll(expressions, child.accept(this));
+                }
+            }
+            return expressions.toArray(ClassExpression[]::new);
+        }
+
+        @Override
+        public ClassExpression[] visitSimpleQuantificationRole(SimpleQuantifiedRole node) {
+            if (!node.isExists()) {
+                // Disjunctions cannot be lifted out of universal restrictions
+                return new ClassExpression[] { node };
+            }
+            ClassExpression[] tailExpressions = node.getTailExpression().accept(this);
+            for (int i = 0; i < tailExpressions.length; ++i) {
+                tailExpressions[i] = new SimpleQuantifiedRole(node.isExists(), node.getRole(), node.isInverted(),
+                        tailExpressions[i]);
+            }
+            return tailExpressions;
+        }
+    }
+}
@@ -19,4 +19,60 @@ public interface ScoreCalculator {
     }
 
     double getPerfectScore();
+
+    /**
+     * Determines the minimum number of positive examples that an expression has
+     * to select to reach the given classification score. It is assumed that the
+     * score does not decrease with the number of selected positives and does not
+     * increase with the number of selected negatives. Hence, the bound is
+     * optimistic, i.e., it assumes that the expression selects no negative
+     * example.
+     * 
+     * @param score          the classification score that should be reached
+     * @param numOfPositives the number of positive examples
+     * @param numOfNegatives the number of negative examples
+     * @return the minimum number of selected positives or
+     *         {@code numOfPositives + 1} if the score cannot be reached
+     */
+    default int calculateMinPosCount(double score, int numOfPositives, int numOfNegatives) {
+        int low = 0;
+        int high = numOfPositives + 1;
+        // Search the first count that reaches the score
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (calculateClassificationScore(mid, 0) >= score) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Determines the maximum number of negative examples that an expression may
+     * select and still reach the given classification score. Similar to
+     * {@link #calculateMinPosCount(double, int, int)}, the bound is optimistic,
+     * i.e., it assumes that the expression selects all positive examples.
+     * 
+     * @param score          the classification score that should be reached
+     * @param numOfPositives the number of positive examples
+     * @param numOfNegatives the number of negative examples
+     * @return the maximum number of selected negatives or {@code -1} if the score
+     *         cannot be reached
+     */
+    default int calculateMaxNegCount(double score, int numOfPositives, int numOfNegatives) {
+        int low = -1;
+        int high = numOfNegatives;
+        // Search the last count that reaches the score
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (calculateClassificationScore(numOfPositives, mid) >= score) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
 }
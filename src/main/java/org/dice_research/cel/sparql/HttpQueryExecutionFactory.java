@@ -0,0 +1,203 @@
+package org.dice_research.cel.sparql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.apache.jena.sparql.exec.http.QueryExecutionHTTP;
+import org.apache.jena.sparql.exec.http.QueryExecutionHTTPBuilder;
+import org.apache.jena.sparql.exec.http.QuerySendMode;
+
+/**
+ * A {@link QueryExecutionFactory} that sends queries to a SPARQL endpoint via
+ * HTTP using the settings of a {@link HttpTransportConfig}. All queries share
+ * the same {@link HttpClient} and, hence, its connections.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class HttpQueryExecutionFactory implements QueryExecutionFactory {
+
+    /**
+     * The media type of SELECT results in the TSV format.
+     */
+    public static final String TSV_CONTENT_TYPE = "text/tab-separated-values";
+
+    /**
+     * The URL of the SPARQL endpoint.
+     */
+    protected String endpoint;
+    /**
+     * The client that is used for all queries.
+     */
+    protected HttpClient client;
+    /**
+     * The dedicated executor of the client (or {@code null}). It is shut down
+     * when this factory is closed.
+     */
+    protected ExecutorService executor;
+    /**
+     * The configuration of the transport.
+     */
+    protected HttpTransportConfig config;
+
+    /**
+     * Constructor.
+     *
+     * @param endpoint the URL of the SPARQL endpoint
+     * @param client   the client that is used for all queries
+     * @param executor the dedicated executor of the client that should be shut
+     *                 down when this factory is closed or {@code null}
+     * @param config   the configuration of the transport
+     */
+    public HttpQueryExecutionFactory(String endpoint, HttpClient client, ExecutorService executor,
+            HttpTransportConfig config) {
+        super();
+        this.endpoint = endpoint;
+        this.client = client;
+        this.executor = executor;
+        this.config = config;
+    }
+
+    @Override
+    public QueryExecution createQueryExecution(String queryString) {
+        return createBuilder().query(queryString).build();
+    }
+
+    @Override
+    public QueryExecution createQueryExecution(Query query) {
+        return createBuilder().query(query).build();
+    }
+
+    /**
+     * Creates a builder for a query execution that has all settings of the
+     * configuration except the query itself.
+     *
+     * @return the builder
+     */
+    protected QueryExecutionHTTPBuilder createBuilder() {
+        QueryExecutionHTTPBuilder builder = QueryExecutionHTTP.service(endpoint).httpClient(client);
+        if (config.isAlwaysPost()) {
+            builder.sendMode(QuerySendMode.asPost);
+        } else {
+            builder.sendMode(QuerySendMode.asGetWithLimitBody);
+            builder.urlGetLimit(config.getUrlGetLimit());
+        }
+        if (config.isCompression()) {
+            builder.httpHeader("Accept-Encoding", "gzip");
+        }
+        if (config.getReadTimeout() > 0) {
+            builder.timeout(config.getReadTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return builder;
+    }
+
+    /**
+     * Sends the given SELECT query to the endpoint and requests the result in
+     * the TSV format. In contrast to {@link #createQueryExecution(String)}, the
+     * result is not parsed into bindings but handed over as a stream to the
+     * returned decoder, which has to be closed by the caller.
+     *
+     * @param query the SELECT query
+     * @return a decoder for the result of the query
+     * @throws QueryExceptionHTTP if the request fails or the endpoint does not
+     *                            answer with status 200
+     */
+    public TsvResultDecoder execSelectTsv(String query) {
+        HttpRequest.Builder builder;
+        String getUri = endpoint + (endpoint.contains("?") ? "&" : "?") + "query="
+                + URLEncoder.encode(query, StandardCharsets.UTF_8);
+        if (config.isAlwaysPost() || (getUri.length() > config.getUrlGetLimit())) {
+            builder = HttpRequest.newBuilder(URI.create(endpoint))
+                    .POST(HttpRequest.BodyPublishers.ofString(query, StandardCharsets.UTF_8))
+                    .header("Content-Type", "application/sparql-query");
+        } else {
+            builder = HttpRequest.newBuilder(URI.create(getUri)).GET();
+        }
+        builder.header("Accept", TSV_CONTENT_TYPE);
+        if (config.isCompression()) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        if (config.getReadTimeout() > 0) {
+            builder.timeout(Duration.ofMillis(config.getReadTimeout()));
+        }
+        try {
+            HttpResponse<InputStream> response = client.send(builder.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            InputStream in = response.body();
+            if (response.headers().firstValue("Content-Encoding").map(e -> e.contains("gzip")).orElse(false)) {
+                in = new GZIPInputStream(in);
+            }
+            if (response.statusCode() != 200) {
+                String message;
+                try (InputStream body = in) {
+                    message = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                throw new QueryExceptionHTTP(response.statusCode(), message);
+            }
+            return new TsvResultDecoder(in);
+        } catch (IOException e) {
+            throw new QueryExceptionHTTP(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryExceptionHTTP(e);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return endpoint;
+    }
+
+    @Override
+    public String getState() {
+        return config.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        return clazz.isAssignableFrom(getClass()) ? (T) this : null;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the URL of the SPARQL endpoint
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the client that is used for all queries
+     */
+    public HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return the configuration of the transport
+     */
+    public HttpTransportConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,279 @@
+package org.dice_research.cel.sparql;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The configuration of the HTTP transport that is used to send SPARQL queries
+ * to an endpoint (see {@link HttpQueryExecutionFactory}). The default values
+ * correspond to the behavior of a plain {@link HttpClient}.
+ *
+ * <p>
+ * Note that the {@link HttpClient} keeps the connections to an endpoint alive
+ * and reuses them for subsequent requests. Hence, a single client (i.e., a
+ * single factory) should be used for all queries to the same endpoint. The
+ * size of the connection pool can be limited with the
+ * {@code jdk.httpclient.connectionPoolSize} system property.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class HttpTransportConfig {
+
+    /**
+     * The maximum length of a GET request URL that Jena uses by default. Longer
+     * queries are sent via POST.
+     */
+    public static final int DEFAULT_URL_GET_LIMIT = 2 * 1024;
+
+    /**
+     * Flag indicating whether HTTP/2 should be used. Over plain HTTP, the client
+     * tries to upgrade the connection and falls back to HTTP/1.1 if the endpoint
+     * does not support it. Via HTTP/2, several queries are multiplexed over a
+     * single connection.
+     */
+    protected boolean http2 = false;
+    /**
+     * Flag indicating whether the endpoint should be asked to compress its
+     * responses with gzip. Jena decompresses the responses transparently.
+     */
+    protected boolean compression = false;
+    /**
+     * Flag indicating whether all queries should be sent via POST.
+     */
+    protected boolean alwaysPost = false;
+    /**
+     * The maximum length of a GET request URL. Longer queries are sent via POST.
+     * This value is ignored if {@link #alwaysPost} is set.
+     */
+    protected int urlGetLimit = DEFAULT_URL_GET_LIMIT;
+    /**
+     * The number of threads of a dedicated executor of the HTTP client. A value
+     * of 0 means that the default executor of the client is used.
+     */
+    protected int executorThreads = 0;
+    /**
+     * The timeout for establishing a connection in milliseconds. A value of 0
+     * means that there is no timeout.
+     */
+    protected long connectTimeout = 0;
+    /**
+     * The timeout for receiving the response of a query in milliseconds. A value
+     * of 0 means that there is no timeout.
+     */
+    protected long readTimeout = 0;
+    /**
+     * Flag indicating whether SELECT results should be requested in the compact
+     * TSV format and decoded with a {@link TsvResultDecoder} wherever the caller
+     * supports it (see {@link HttpQueryExecutionFactory#execSelectTsv(String)}).
+     */
+    protected boolean tsvResults = false;
+
+    /**
+     * Creates a configuration that is tuned for sending a large number of
+     * queries to a single endpoint, i.e., it uses HTTP/2, gzip compression, POST
+     * requests, TSV results and a dedicated executor with the given number of
+     * threads.
+     *
+     * @param executorThreads the number of threads of the dedicated executor
+     * @return the created configuration
+     */
+    public static HttpTransportConfig createHighVolumeConfig(int executorThreads) {
+        HttpTransportConfig config = new HttpTransportConfig();
+        config.setHttp2(true);
+        config.setCompression(true);
+        config.setAlwaysPost(true);
+        config.setExecutorThreads(executorThreads);
+        config.setTsvResults(true);
+        return config;
+    }
+
+    /**
+     * Creates a new HTTP client based on this configuration.
+     *
+     * @param executor the dedicated executor of the client or {@code null} if the
+     *                 default executor should be used
+     * @return the created client
+     */
+    public HttpClient createHttpClient(ExecutorService executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder();
+        builder.version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        if (connectTimeout > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeout));
+        }
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the dedicated executor of an HTTP client based on this
+     * configuration.
+     *
+     * @return the created executor or {@code null} if the default executor of
+     *         the client should be used
+     */
+    public ExecutorService createExecutor() {
+        if (executorThreads <= 0) {
+            return null;
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        return Executors.newFixedThreadPool(executorThreads, r -> {
+            Thread thread = new Thread(r, "sparql-http-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a query execution factory that sends queries to the given endpoint
+     * based on this configuration.
+     *
+     * @param endpoint the URL of the SPARQL endpoint
+     * @return the created factory
+     */
+    public HttpQueryExecutionFactory createQueryExecutionFactory(String endpoint) {
+        ExecutorService executor = createExecutor();
+        return new HttpQueryExecutionFactory(endpoint, createHttpClient(executor), executor, this);
+    }
+
+    /**
+     * @return the http2
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * @param http2 the http2 to set
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    /**
+     * @return the compression
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression the compression to set
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return the alwaysPost
+     */
+    public boolean isAlwaysPost() {
+        return alwaysPost;
+    }
+
+    /**
+     * @param alwaysPost the alwaysPost to set
+     */
+    public void setAlwaysPost(boolean alwaysPost) {
+        this.alwaysPost = alwaysPost;
+    }
+
+    /**
+     * @return the urlGetLimit
+     */
+    public int getUrlGetLimit() {
+        return urlGetLimit;
+    }
+
+    /**
+     * @param urlGetLimit the urlGetLimit to set
+     */
+    public void setUrlGetLimit(int urlGetLimit) {
+        this.urlGetLimit = urlGetLimit;
+    }
+
+    /**
+     * @return the executorThreads
+     */
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    /**
+     * @param executorThreads the executorThreads to set
+     */
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    /**
+     * @return the connectTimeout in milliseconds
+     */
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout the connectTimeout in milliseconds to set
+     */
+    public void setConnectTimeout(long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return the readTimeout in milliseconds
+     */
+    public long getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @param readTimeout the readTimeout in milliseconds to set
+     */
+    public void setReadTimeout(long readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the tsvResults
+     */
+    public boolean isTsvResults() {
+        return tsvResults;
+    }
+
+    /**
+     * @param tsvResults the tsvResults to set
+     */
+    public void setTsvResults(boolean tsvResults) {
+        this.tsvResults = tsvResults;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("HttpTransportConfig [http2=");
+        builder.append(http2);
+        builder.append(", compression=");
+        builder.append(compression);
+        builder.append(", alwaysPost=");
+        builder.append(alwaysPost);
+        builder.append(", urlGetLimit=");
+        builder.append(urlGetLimit);
+        builder.append(", executorThreads=");
+        builder.append(executorThreads);
+        builder.append(", connectTimeout=");
+        builder.append(connectTimeout);
+        builder.append(", readTimeout=");
+        builder.append(readTimeout);
+        builder.append(", tsvResults=");
+        builder.append(tsvResults);
+        builder.append("]");
+        return builder.toString();
+    }
+}
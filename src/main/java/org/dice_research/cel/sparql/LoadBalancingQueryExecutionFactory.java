@@ -0,0 +1,459 @@
+package org.dice_research.cel.sparql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link QueryExecutionFactory} that distributes the queries over several
+ * replicas of the same (read-only) dataset. A query is sent to the replica with
+ * the lowest number of queries in flight. Each replica has a limit of queries
+ * in flight; if all replicas reached their limit, the creation of a query
+ * execution waits until a replica becomes free.
+ *
+ * <p>
+ * If the execution of a query fails on a replica, the replica is marked as
+ * failed for {@link #failureBackoff} ms and the query is executed on the next
+ * replica that has not been tried for this query. Failed replicas are only
+ * used if all other replicas have failed as well. Errors that are caused by the
+ * query itself (i.e., parse errors and HTTP 4xx responses) are not retried.
+ * Note that the failover only covers the {@code exec*} methods of a query
+ * execution, i.e., errors that occur while a streamed result is consumed are
+ * not retried.
+ * </p>
+ *
+ * <p>
+ * The returned query executions are dynamic proxies that hold their replica
+ * until they are closed. Hence, query executions should always be closed.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class LoadBalancingQueryExecutionFactory implements QueryExecutionFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadBalancingQueryExecutionFactory.class);
+
+    /**
+     * The default time (in ms) for which a replica is avoided after a failure.
+     */
+    public static final long DEFAULT_FAILURE_BACKOFF = 5000;
+    /**
+     * The maximum time (in ms) a thread waits for a free replica before it checks
+     * the replicas again.
+     */
+    protected static final long MAX_WAITING_TIME = 1000;
+
+    protected List<Replica> replicas = new ArrayList<>();
+    /**
+     * The time (in ms) for which a replica is avoided after a failure.
+     */
+    protected long failureBackoff = DEFAULT_FAILURE_BACKOFF;
+    /**
+     * The lock that guards the states of the replicas.
+     */
+    protected final Object lock = new Object();
+
+    /**
+     * Constructor.
+     *
+     * @param factories             the factories of the single replicas
+     * @param maxInFlightPerReplica the maximum number of queries in flight per
+     *                              replica
+     */
+    public LoadBalancingQueryExecutionFactory(Collection<? extends QueryExecutionFactory> factories,
+            int maxInFlightPerReplica) {
+        if (factories.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is necessary.");
+        }
+        if (maxInFlightPerReplica < 1) {
+            throw new IllegalArgumentException("The maximum number of queries in flight has to be at least 1.");
+        }
+        for (QueryExecutionFactory factory : factories) {
+            replicas.add(new Replica(factory, maxInFlightPerReplica));
+        }
+    }
+
+    @Override
+    public QueryExecution createQueryExecution(String queryString) {
+        return createBalancedExecution(f -> f.createQueryExecution(queryString));
+    }
+
+    @Override
+    public QueryExecution createQueryExecution(Query query) {
+        return createBalancedExecution(f -> f.createQueryExecution(query));
+    }
+
+    protected QueryExecution createBalancedExecution(Function<QueryExecutionFactory, QueryExecution> creator) {
+        return (QueryExecution) Proxy.newProxyInstance(QueryExecution.class.getClassLoader(),
+                new Class<?>[] { QueryExecution.class }, new BalancedExecution(creator));
+    }
+
+    /**
+     * Selects the replica for the next query and increases its number of queries
+     * in flight. If all replicas have reached their limit, this method waits
+     * until one of them becomes free.
+     *
+     * @param excluded the replicas that should not be selected
+     * @return the selected replica or {@code null} if all replicas are excluded
+     */
+    protected Replica acquireReplica(Set<Replica> excluded) {
+        synchronized (lock) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                boolean candidateExists = false;
+                boolean healthyExists = false;
+                for (Replica replica : replicas) {
+                    if (!excluded.contains(replica)) {
+                        candidateExists = true;
+                        healthyExists |= replica.isHealthy(now);
+                    }
+                }
+                if (!candidateExists) {
+                    return null;
+                }
+                Replica best = null;
+                for (Replica replica : replicas) {
+                    // Failed replicas are only used if there is no healthy replica left
+                    if (!excluded.contains(replica) && (replica.inFlight < replica.maxInFlight)
+                            && (replica.isHealthy(now) || !healthyExists) && ((best == null)
+                                    || (replica.inFlight < best.inFlight) || ((replica.inFlight == best.inFlight)
+                                            && (replica.failedUntil < best.failedUntil)))) {
+                        best = replica;
+                    }
+                }
+                if (best != null) {
+                    ++best.inFlight;
+                    ++best.queries;
+                    return best;
+                }
+                try {
+                    lock.wait(MAX_WAITING_TIME);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a free replica.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decreases the number of queries in flight of the given replica.
+     *
+     * @param replica the replica that has been used
+     */
+    protected void releaseReplica(Replica replica) {
+        synchronized (lock) {
+            --replica.inFlight;
+            lock.notifyAll();
+        }
+    }
+
+    protected void markSuccess(Replica replica) {
+        synchronized (lock) {
+            replica.failedUntil = 0;
+        }
+    }
+
+    protected void markFailure(Replica replica, RuntimeException error) {
+        LOGGER.warn("Query failed on replica " + replica.factory.getId() + ". Trying the next replica.", error);
+        synchronized (lock) {
+            ++replica.failures;
+            replica.failedUntil = System.currentTimeMillis() + failureBackoff;
+        }
+    }
+
+    /**
+     * Checks whether the given error is caused by the replica (e.g., because it
+     * is not reachable or overloaded) and, hence, the query should be retried on
+     * another replica.
+     *
+     * @param error the error that occurred while executing a query
+     * @return {@code true} if the query should be retried on another replica
+     */
+    protected boolean isReplicaFailure(RuntimeException error) {
+        if (error instanceof QueryParseException) {
+            return false;
+        }
+        if (error instanceof QueryExceptionHTTP) {
+            int status = ((QueryExceptionHTTP) error).getStatusCode();
+            return (status < 400) || (status >= 500);
+        }
+        return true;
+    }
+
+    @Override
+    public String getId() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("balanced[");
+        for (int i = 0; i < replicas.size(); ++i) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(replicas.get(i).factory.getId());
+        }
+        builder.append(']');
+        return builder.toString();
+    }
+
+    @Override
+    public String getState() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (lock) {
+            for (Replica replica : replicas) {
+                builder.append(replica.factory.getId());
+                builder.append(": inFlight=").append(replica.inFlight);
+                builder.append(", queries=").append(replica.queries);
+                builder.append(", failures=").append(replica.failures);
+                builder.append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        return clazz.isAssignableFrom(getClass()) ? (T) this : null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception error = null;
+        for (Replica replica : replicas) {
+            try {
+                replica.factory.close();
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return the number of queries that have been sent to the single replicas
+     *         (in the order of the given factories)
+     */
+    public long[] getQueriesPerReplica() {
+        synchronized (lock) {
+            return replicas.stream().mapToLong(r -> r.queries).toArray();
+        }
+    }
+
+    /**
+     * @return the number of failed queries of the single replicas (in the order
+     *         of the given factories)
+     */
+    public long[] getFailuresPerReplica() {
+        synchronized (lock) {
+            return replicas.stream().mapToLong(r -> r.failures).toArray();
+        }
+    }
+
+    /**
+     * @return the time (in ms) for which a replica is avoided after a failure
+     */
+    public long getFailureBackoff() {
+        return failureBackoff;
+    }
+
+    /**
+     * @param failureBackoff the time (in ms) for which a replica is avoided after
+     *                       a failure
+     */
+    public void setFailureBackoff(long failureBackoff) {
+        this.failureBackoff = failureBackoff;
+    }
+
+    /**
+     * The state of a single replica. All fields except the factory are guarded
+     * by the {@link LoadBalancingQueryExecutionFactory#lock}.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class Replica {
+        protected QueryExecutionFactory factory;
+        protected int maxInFlight;
+        protected int inFlight = 0;
+        protected long queries = 0;
+        protected long failures = 0;
+        /**
+         * The time until which the replica should be avoided because of a failure.
+         */
+        protected long failedUntil = 0;
+
+        public Replica(QueryExecutionFactory factory, int maxInFlight) {
+            super();
+            this.factory = factory;
+            this.maxInFlight = maxInFlight;
+        }
+
+        public boolean isHealthy(long now) {
+            return failedUntil <= now;
+        }
+    }
+
+    /**
+     * The handler of a query execution proxy. The query execution of a replica
+     * is created lazily. The {@code exec*} methods are retried on other replicas
+     * if they fail. Calls of {@code set*} methods (e.g., timeouts) are recorded
+     * and replayed on the query execution of the next replica.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected class BalancedExecution implements InvocationHandler {
+        protected Function<QueryExecutionFactory, QueryExecution> creator;
+        protected QueryExecution delegate = null;
+        protected Replica replica = null;
+        protected Set<Replica> triedReplicas = new HashSet<>();
+        protected List<Method> settingMethods = new ArrayList<>();
+        protected List<Object[]> settingArgs = new ArrayList<>();
+        protected boolean closed = false;
+
+        public BalancedExecution(Function<QueryExecutionFactory, QueryExecution> creator) {
+            super();
+            this.creator = creator;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "BalancedExecution[" + ((replica == null) ? "" : replica.factory.getId()) + "]";
+                }
+            }
+            String name = method.getName();
+            if ("close".equals(name)) {
+                closeDelegate();
+                closed = true;
+                return null;
+            }
+            if ("isClosed".equals(name) && (delegate == null)) {
+                return closed;
+            }
+            if ("abort".equals(name)) {
+                return (delegate == null) ? null : call(method, args);
+            }
+            if (closed) {
+                throw new IllegalStateException("The query execution has already been closed.");
+            }
+            if (name.startsWith("exec")) {
+                return executeWithFailover(method, args);
+            }
+            if (name.startsWith("set")) {
+                settingMethods.add(method);
+                settingArgs.add(args);
+            }
+            if ((delegate == null) && !openDelegate()) {
+                throw new IllegalStateException("There is no replica to execute the query.");
+            }
+            return call(method, args);
+        }
+
+        /**
+         * Calls the given {@code exec*} method and retries it on the next replica if
+         * it fails because of the current replica. Note that the failover only covers
+         * the call itself. Errors that occur later on, e.g., while the returned
+         * {@link org.apache.jena.query.ResultSet} is streamed, are not retried.
+         * Errors that are not caused by a replica (e.g., an interruption while
+         * waiting for a free replica) are forwarded directly.
+         */
+        protected Object executeWithFailover(Method method, Object[] args) throws Throwable {
+            RuntimeException lastError = null;
+            while (true) {
+                try {
+                    if ((delegate == null) && !openDelegate()) {
+                        break;
+                    }
+                    Object result = call(method, args);
+                    markSuccess(replica);
+                    return result;
+                } catch (RuntimeException e) {
+                    if (e.getCause() instanceof InterruptedException) {
+                        // Restore the interrupt flag that has been cleared by the cause
+                        Thread.currentThread().interrupt();
+                    }
+                    // If there is no replica, the error occurred while waiting for one
+                    if ((replica == null) || Thread.currentThread().isInterrupted() || !isReplicaFailure(e)) {
+                        throw e;
+                    }
+                    lastError = e;
+                    markFailure(replica, e);
+                    closeDelegate();
+                }
+            }
+            if (lastError != null) {
+                throw lastError;
+            } else {
+                throw new IllegalStateException("There is no replica to execute the query.");
+            }
+        }
+
+        /**
+         * Creates the query execution on the next replica.
+         *
+         * @return {@code false} if all replicas have been tried
+         */
+        protected boolean openDelegate() throws Throwable {
+            replica = acquireReplica(triedReplicas);
+            if (replica == null) {
+                return false;
+            }
+            triedReplicas.add(replica);
+            // If the creation fails, the replica is released when the execution is
+            // closed or the next replica is tried
+            delegate = creator.apply(replica.factory);
+            for (int i = 0; i < settingMethods.size(); ++i) {
+                call(settingMethods.get(i), settingArgs.get(i));
+            }
+            return true;
+        }
+
+        protected Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        protected void closeDelegate() {
+            if (delegate != null) {
+                try {
+                    delegate.close();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Exception while closing a query execution. It will be ignored.", e);
+                }
+                delegate = null;
+            }
+            if (replica != null) {
+                releaseReplica(replica);
+                replica = null;
+            }
+        }
+    }
+}
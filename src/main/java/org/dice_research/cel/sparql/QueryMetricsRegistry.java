@@ -0,0 +1,186 @@
+package org.dice_research.cel.sparql;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.jena.query.QueryCancelledException;
+
+/**
+ * A thread-safe registry of the metrics of the queries that are sent to a
+ * SPARQL endpoint. For each {@link QueryType}, it counts the queries, the
+ * returned rows, the bytes of the query texts, the errors and the timeouts and
+ * it collects the latencies in a histogram (see {@link #LATENCY_BUCKETS}).
+ *
+ * <p>
+ * The registry only counts up. The metrics of a single learning problem can be
+ * determined by taking a {@link #snapshot()} before and after solving the
+ * problem and subtracting them (see
+ * {@link QueryMetricsSnapshot#subtract(QueryMetricsSnapshot)}).
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class QueryMetricsRegistry {
+
+    /**
+     * The (inclusive) upper bounds of the latency histogram buckets in
+     * milliseconds. Longer latencies are counted in an additional last bucket.
+     */
+    public static final long[] LATENCY_BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000,
+            30000, 60000 };
+
+    protected TypeMetrics[] metrics;
+
+    public QueryMetricsRegistry() {
+        QueryType[] types = QueryType.values();
+        metrics = new TypeMetrics[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            metrics[i] = new TypeMetrics();
+        }
+    }
+
+    /**
+     * Records a successfully executed query.
+     *
+     * @param type         the type of the query
+     * @param latencyNanos the time (in ns) from sending the query until its
+     *                     result has been consumed completely
+     * @param rows         the number of rows of the result
+     * @param query        the text of the query
+     */
+    public void recordSuccess(QueryType type, long latencyNanos, long rows, String query) {
+        TypeMetrics m = metrics[type.ordinal()];
+        m.record(latencyNanos, query);
+        m.rows.addAndGet(rows);
+    }
+
+    /**
+     * Records a query that failed with the given error.
+     *
+     * @param type         the type of the query
+     * @param latencyNanos the time (in ns) from sending the query until the error
+     *                     occurred
+     * @param query        the text of the query
+     * @param error        the error
+     */
+    public void recordFailure(QueryType type, long latencyNanos, String query, Throwable error) {
+        TypeMetrics m = metrics[type.ordinal()];
+        m.record(latencyNanos, query);
+        m.errors.incrementAndGet();
+        if (isTimeout(error)) {
+            m.timeouts.incrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a snapshot of the current metrics.
+     *
+     * @return the snapshot
+     */
+    public QueryMetricsSnapshot snapshot() {
+        QueryType[] types = QueryType.values();
+        QueryMetricsSnapshot.Entry[] entries = new QueryMetricsSnapshot.Entry[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            entries[i] = metrics[i].snapshot(types[i]);
+        }
+        return new QueryMetricsSnapshot(entries);
+    }
+
+    /**
+     * Checks whether the given error (or one of its causes) is caused by a
+     * timeout.
+     *
+     * @param error the error that should be checked
+     * @return {@code true} if the error is a timeout
+     */
+    public static boolean isTimeout(Throwable error) {
+        Throwable t = error;
+        while (t != null) {
+            if ((t instanceof HttpTimeoutException) || (t instanceof SocketTimeoutException)
+                    || (t instanceof TimeoutException) || (t instanceof QueryCancelledException)) {
+                return true;
+            }
+            t = (t.getCause() == t) ? null : t.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Determines the number of bytes of the UTF-8 representation of the given
+     * text without encoding it.
+     *
+     * @param text the text
+     * @return the number of bytes
+     */
+    protected static long utf8Length(String text) {
+        long length = 0;
+        char c;
+        for (int i = 0; i < text.length(); ++i) {
+            c = text.charAt(i);
+            if (c < 0x80) {
+                ++length;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // A surrogate pair is encoded with 4 bytes
+                length += 4;
+                ++i;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Determines the histogram bucket of the given latency.
+     *
+     * @param latencyNanos the latency in ns
+     * @return the index of the bucket
+     */
+    protected static int getBucket(long latencyNanos) {
+        long millis = latencyNanos / 1000000L;
+        for (int i = 0; i < LATENCY_BUCKETS.length; ++i) {
+            if (millis <= LATENCY_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BUCKETS.length;
+    }
+
+    /**
+     * The counters of a single query type.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    protected static class TypeMetrics {
+        protected AtomicLong count = new AtomicLong();
+        protected AtomicLong rows = new AtomicLong();
+        protected AtomicLong queryBytes = new AtomicLong();
+        protected AtomicLong errors = new AtomicLong();
+        protected AtomicLong timeouts = new AtomicLong();
+        protected AtomicLong latencyNanos = new AtomicLong();
+        protected AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+        protected void record(long latency, String query) {
+            count.incrementAndGet();
+            queryBytes.addAndGet(utf8Length(query));
+            latencyNanos.addAndGet(latency);
+            latencyHistogram.incrementAndGet(getBucket(latency));
+        }
+
+        protected QueryMetricsSnapshot.Entry snapshot(QueryType type) {
+            long[] histogram = new long[latencyHistogram.length()];
+            for (int i = 0; i < histogram.length; ++i) {
+                histogram[i] = latencyHistogram.get(i);
+            }
+            return new QueryMetricsSnapshot.Entry(type, count.get(), rows.get(), queryBytes.get(), errors.get(),
+                    timeouts.get(), latencyNanos.get(), histogram);
+        }
+    }
+}
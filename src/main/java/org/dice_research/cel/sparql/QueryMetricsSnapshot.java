@@ -0,0 +1,185 @@
+package org.dice_research.cel.sparql;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the metrics of a {@link QueryMetricsRegistry} with
+ * one {@link Entry} per {@link QueryType}.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class QueryMetricsSnapshot {
+
+    protected Entry[] entries;
+
+    protected QueryMetricsSnapshot(Entry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param type the type of queries
+     * @return the metrics of the given query type
+     */
+    public Entry getEntry(QueryType type) {
+        return entries[type.ordinal()];
+    }
+
+    /**
+     * @return the metrics of all query types (in the order of
+     *         {@link QueryType#values()})
+     */
+    public List<Entry> getEntries() {
+        return Arrays.asList(entries);
+    }
+
+    /**
+     * Subtracts the given, earlier snapshot of the same registry from this
+     * snapshot, i.e., the result contains the metrics of the queries that have
+     * been executed between the two snapshots.
+     *
+     * @param earlier the earlier snapshot
+     * @return the difference of the two snapshots
+     */
+    public QueryMetricsSnapshot subtract(QueryMetricsSnapshot earlier) {
+        Entry[] difference = new Entry[entries.length];
+        for (int i = 0; i < entries.length; ++i) {
+            difference[i] = entries[i].subtract(earlier.entries[i]);
+        }
+        return new QueryMetricsSnapshot(difference);
+    }
+
+    /**
+     * The metrics of a single query type.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    public static class Entry {
+        protected QueryType type;
+        protected long count;
+        protected long rows;
+        protected long queryBytes;
+        protected long errors;
+        protected long timeouts;
+        protected long latencyNanos;
+        /**
+         * The number of queries per latency bucket (see
+         * {@link QueryMetricsRegistry#LATENCY_BUCKETS}).
+         */
+        protected long[] latencyHistogram;
+
+        public Entry(QueryType type, long count, long rows, long queryBytes, long errors, long timeouts,
+                long latencyNanos, long[] latencyHistogram) {
+            super();
+            this.type = type;
+            this.count = count;
+            this.rows = rows;
+            this.queryBytes = queryBytes;
+            this.errors = errors;
+            this.timeouts = timeouts;
+            this.latencyNanos = latencyNanos;
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        protected Entry subtract(Entry earlier) {
+            long[] histogram = new long[latencyHistogram.length];
+            for (int i = 0; i < histogram.length; ++i) {
+                histogram[i] = latencyHistogram[i] - earlier.latencyHistogram[i];
+            }
+            return new Entry(type, count - earlier.count, rows - earlier.rows, queryBytes - earlier.queryBytes,
+                    errors - earlier.errors, timeouts - earlier.timeouts, latencyNanos - earlier.latencyNanos,
+                    histogram);
+        }
+
+        /**
+         * Estimates the given percentile of the latencies based on the histogram.
+         * The result is the upper bound of the bucket that contains the percentile
+         * or {@link Long#MAX_VALUE} if it is in the last, unbounded bucket.
+         *
+         * @param percentile the percentile (in the range (0,1])
+         * @return the estimated latency in milliseconds or 0 if no query has been
+         *         recorded
+         */
+        public long getLatencyPercentile(double percentile) {
+            long total = Arrays.stream(latencyHistogram).sum();
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(percentile * total);
+            long sum = 0;
+            for (int i = 0; i < QueryMetricsRegistry.LATENCY_BUCKETS.length; ++i) {
+                sum += latencyHistogram[i];
+                if (sum >= threshold) {
+                    return QueryMetricsRegistry.LATENCY_BUCKETS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * @return the average latency in milliseconds
+         */
+        public double getAverageLatency() {
+            return (count == 0) ? 0 : (latencyNanos / 1e6) / count;
+        }
+
+        /**
+         * @return the type
+         */
+        public QueryType getType() {
+            return type;
+        }
+
+        /**
+         * @return the number of queries
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of returned rows
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the number of bytes of the query texts
+         */
+        public long getQueryBytes() {
+            return queryBytes;
+        }
+
+        /**
+         * @return the number of failed queries (including timeouts)
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the number of queries that failed because of a timeout
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return the sum of all latencies in ns
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * @return the number of queries per latency bucket (see
+         *         {@link QueryMetricsRegistry#LATENCY_BUCKETS})
+         */
+        public long[] getLatencyHistogram() {
+            return Arrays.copyOf(latencyHistogram, latencyHistogram.length);
+        }
+    }
+}
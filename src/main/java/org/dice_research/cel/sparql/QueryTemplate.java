@@ -0,0 +1,221 @@
+package org.dice_research.cel.sparql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A SPARQL fragment that is parameterized with a root variable and a VALUES
+ * statement. The fragment is generated once and can then be rendered for
+ * different variables (e.g., for {@code ?pos} and {@code ?neg}) without
+ * scanning or replacing parts of the generated String. The VALUES statements
+ * are handed to the rendering as they are, i.e., they can be reused for
+ * several fragments.
+ *
+ * <p>
+ * Internally, the template is a list of literal fragments. After each literal
+ * fragment, a placeholder may follow.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class QueryTemplate {
+
+    /**
+     * The variable that is used within class expression visitors to represent the
+     * root variable of a template. It is replaced by a placeholder when it is
+     * added with {@link #appendVariable(String)}.
+     */
+    public static final String ROOT_VARIABLE = "?root";
+
+    /**
+     * The placeholders that can be used within a template.
+     *
+     * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+     *
+     */
+    public static enum Placeholder {
+        /**
+         * The root variable of the template.
+         */
+        ROOT_VARIABLE,
+        /**
+         * The VALUES statement that binds the root variable.
+         */
+        VALUES
+    }
+
+    /**
+     * The literal fragments of the template.
+     */
+    protected List<String> fragments = new ArrayList<>();
+    /**
+     * The placeholders. The i-th placeholder follows the i-th fragment.
+     */
+    protected List<Placeholder> placeholders = new ArrayList<>();
+    /**
+     * The builder for the current fragment.
+     */
+    protected StringBuilder current = new StringBuilder();
+    /**
+     * The length of all fragments that are not part of the {@link #current}
+     * builder.
+     */
+    protected int fragmentsLength = 0;
+
+    /**
+     * Appends the given literal String.
+     *
+     * @param literal the String that should be added
+     * @return this template
+     */
+    public QueryTemplate append(String literal) {
+        current.append(literal);
+        return this;
+    }
+
+    /**
+     * Appends the given literal character.
+     *
+     * @param literal the character that should be added
+     * @return this template
+     */
+    public QueryTemplate append(char literal) {
+        current.append(literal);
+        return this;
+    }
+
+    /**
+     * Appends the given variable. If it is the {@link #ROOT_VARIABLE}, the
+     * placeholder for the root variable is added.
+     *
+     * @param variable the variable that should be added
+     * @return this template
+     */
+    public QueryTemplate appendVariable(String variable) {
+        if (ROOT_VARIABLE.equals(variable)) {
+            return appendPlaceholder(Placeholder.ROOT_VARIABLE);
+        } else {
+            return append(variable);
+        }
+    }
+
+    /**
+     * Appends the placeholder for the root variable.
+     *
+     * @return this template
+     */
+    public QueryTemplate appendRootVariable() {
+        return appendPlaceholder(Placeholder.ROOT_VARIABLE);
+    }
+
+    /**
+     * Appends the placeholder for the VALUES statement.
+     *
+     * @return this template
+     */
+    public QueryTemplate appendValues() {
+        return appendPlaceholder(Placeholder.VALUES);
+    }
+
+    protected QueryTemplate appendPlaceholder(Placeholder placeholder) {
+        String fragment = current.toString();
+        fragments.add(fragment);
+        fragmentsLength += fragment.length();
+        placeholders.add(placeholder);
+        current.setLength(0);
+        return this;
+    }
+
+    /**
+     * Appends the given template (including its placeholders) to this template.
+     *
+     * @param template the template that should be added
+     * @return this template
+     */
+    public QueryTemplate append(QueryTemplate template) {
+        for (int i = 0; i < template.placeholders.size(); ++i) {
+            current.append(template.fragments.get(i));
+            appendPlaceholder(template.placeholders.get(i));
+        }
+        current.append(template.current);
+        return this;
+    }
+
+    /**
+     * @return {@code true} if this template does not contain any content
+     */
+    public boolean isEmpty() {
+        return placeholders.isEmpty() && (current.length() == 0);
+    }
+
+    /**
+     * Renders this template into the given builder.
+     *
+     * @param builder      the builder to which the rendered template should be
+     *                     added
+     * @param rootVariable the variable that should replace the root variable
+     *                     placeholders
+     * @param values       the VALUES statement that should replace the VALUES
+     *                     placeholders (can be {@code null} if the VALUES
+     *                     placeholders should be removed)
+     */
+    public void render(StringBuilder builder, String rootVariable, CharSequence values) {
+        for (int i = 0; i < placeholders.size(); ++i) {
+            builder.append(fragments.get(i));
+            switch (placeholders.get(i)) {
+            case ROOT_VARIABLE:
+                builder.append(rootVariable);
+                break;
+            case VALUES:
+                if (values != null) {
+                    builder.append(values);
+                }
+                break;
+            }
+        }
+        builder.append(current);
+    }
+
+    /**
+     * Renders this template.
+     *
+     * @param rootVariable the variable that should replace the root variable
+     *                     placeholders
+     * @param values       the VALUES statement that should replace the VALUES
+     *                     placeholders (can be {@code null} if the VALUES
+     *                     placeholders should be removed)
+     * @return the rendered template
+     */
+    public String render(String rootVariable, CharSequence values) {
+        StringBuilder builder = new StringBuilder(estimateLength(rootVariable, values));
+        render(builder, rootVariable, values);
+        return builder.toString();
+    }
+
+    /**
+     * Returns the length of the rendered template for the given arguments.
+     *
+     * @param rootVariable the variable that should replace the root variable
+     *                     placeholders
+     * @param values       the VALUES statement that should replace the VALUES
+     *                     placeholders
+     * @return the length of the rendered template
+     */
+    public int estimateLength(String rootVariable, CharSequence values) {
+        int length = fragmentsLength + current.length();
+        for (Placeholder placeholder : placeholders) {
+            if (placeholder == Placeholder.ROOT_VARIABLE) {
+                length += rootVariable.length();
+            } else if (values != null) {
+                length += values.length();
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return render(ROOT_VARIABLE, "VALUES " + ROOT_VARIABLE + " { ... }\n");
+    }
+}
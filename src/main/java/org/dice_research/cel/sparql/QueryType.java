@@ -0,0 +1,42 @@
+package org.dice_research.cel.sparql;
+
+/**
+ * The types of queries that are sent to a SPARQL endpoint during the search.
+ * They are used to group the metrics of the queries (see
+ * {@link QueryMetricsRegistry}).
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public enum QueryType {
+    /**
+     * Queries that suggest classes.
+     */
+    CLASS,
+    /**
+     * Queries that suggest negated classes.
+     */
+    NEGATED_CLASS,
+    /**
+     * Queries that suggest properties (in one or both directions).
+     */
+    PROPERTY,
+    /**
+     * Queries that count the examples selected by the context of a request in
+     * order to derive its negated class suggestions.
+     */
+    CONTEXT,
+    /**
+     * Queries that score a complete class expression (including expressions with
+     * universal quantifiers).
+     */
+    SCORE,
+    /**
+     * Queries that retrieve the instances of a class expression.
+     */
+    INSTANCES,
+    /**
+     * Batch queries that combine queries of different types.
+     */
+    MIXED_BATCH;
+}
@@ -0,0 +1,276 @@
+package org.dice_research.cel.sparql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A streaming decoder of SPARQL SELECT results in the TSV format
+ * ({@code text/tab-separated-values}). In contrast to a Jena result set, it
+ * does not create bindings or nodes. Instead, the current row is kept in a
+ * reusable character buffer together with the positions of its cells and the
+ * values are parsed on request. Integer values are parsed directly from the
+ * buffer without creating any objects.
+ *
+ * <p>
+ * The decoder only supports the subset of the format that the suggestion
+ * queries produce, i.e., IRIs, blank nodes and integer literals (written
+ * either as plain numbers or as typed literals like
+ * {@code "12"^^<http://www.w3.org/2001/XMLSchema#integer>}). Unbound values
+ * are represented by empty cells.
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class TsvResultDecoder implements Closeable {
+
+    protected static final int BUFFER_SIZE = 8192;
+
+    protected Reader reader;
+    /**
+     * The buffer of the underlying reader.
+     */
+    protected char[] buffer = new char[BUFFER_SIZE];
+    protected int bufferPos = 0;
+    protected int bufferEnd = 0;
+    /**
+     * The characters of the current row.
+     */
+    protected char[] line = new char[256];
+    protected int lineLength = 0;
+    /**
+     * The variable names of the columns (without the leading {@code ?}).
+     */
+    protected String[] variables;
+    /**
+     * The start positions of the cells of the current row within
+     * {@link #line}.
+     */
+    protected int[] cellStarts;
+    /**
+     * The end positions (exclusive) of the cells of the current row within
+     * {@link #line}.
+     */
+    protected int[] cellEnds;
+
+    /**
+     * Constructor. Reads the header of the given result.
+     *
+     * @param in the stream of the TSV result
+     * @throws IOException if the header cannot be read
+     */
+    public TsvResultDecoder(InputStream in) throws IOException {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Constructor. Reads the header of the given result.
+     *
+     * @param reader the reader of the TSV result
+     * @throws IOException if the header cannot be read
+     */
+    public TsvResultDecoder(Reader reader) throws IOException {
+        this.reader = reader;
+        if (!readLine()) {
+            throw new IOException("The result does not contain a header.");
+        }
+        int columns = 1;
+        for (int i = 0; i < lineLength; ++i) {
+            if (line[i] == '\t') {
+                ++columns;
+            }
+        }
+        cellStarts = new int[columns];
+        cellEnds = new int[columns];
+        splitLine();
+        variables = new String[columns];
+        for (int i = 0; i < columns; ++i) {
+            int start = cellStarts[i];
+            if ((start < cellEnds[i]) && ((line[start] == '?') || (line[start] == '$'))) {
+                ++start;
+            }
+            variables[i] = new String(line, start, cellEnds[i] - start);
+        }
+    }
+
+    /**
+     * Returns the column of the given variable.
+     *
+     * @param variable the name of the variable (with or without a leading
+     *                 {@code ?})
+     * @return the index of the column or -1 if the result does not contain the
+     *         variable
+     */
+    public int getColumn(String variable) {
+        int offset = variable.startsWith("?") ? 1 : 0;
+        for (int i = 0; i < variables.length; ++i) {
+            if (variables[i].length() == (variable.length() - offset)
+                    && variable.regionMatches(offset, variables[i], 0, variables[i].length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves to the next row of the result.
+     *
+     * @return {@code true} if there is a next row, {@code false} if the end of the
+     *         result has been reached
+     * @throws IOException if the result cannot be read
+     */
+    public boolean next() throws IOException {
+        while (readLine()) {
+            // Skip empty lines (e.g., at the end of the result)
+            if (lineLength > 0) {
+                splitLine();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param column the index of the column
+     * @return {@code true} if the column has a value in the current row
+     */
+    public boolean isBound(int column) {
+        return (column >= 0) && (cellStarts[column] < cellEnds[column]);
+    }
+
+    /**
+     * @param column the index of the column
+     * @return {@code true} if the value of the column in the current row is an
+     *         IRI
+     */
+    public boolean isIri(int column) {
+        return isBound(column) && (line[cellStarts[column]] == '<');
+    }
+
+    /**
+     * Returns the IRI of the given column in the current row.
+     *
+     * @param column the index of the column
+     * @return the IRI (without angle brackets)
+     * @throws IllegalStateException if the value is not an IRI
+     */
+    public String getIri(int column) {
+        if (!isIri(column)) {
+            throw new IllegalStateException("The value of column " + variables[column] + " is not an IRI: "
+                    + new String(line, cellStarts[column], cellEnds[column] - cellStarts[column]));
+        }
+        return new String(line, cellStarts[column] + 1, cellEnds[column] - cellStarts[column] - 2);
+    }
+
+    /**
+     * Parses the integer value of the given column in the current row.
+     *
+     * @param column the index of the column
+     * @return the value
+     * @throws NumberFormatException if the value is not an integer
+     */
+    public int getInt(int column) {
+        if (!isBound(column)) {
+            throw new NumberFormatException("Column " + column + " is not bound.");
+        }
+        int pos = cellStarts[column];
+        int end = cellEnds[column];
+        if (line[pos] == '"') {
+            ++pos;
+        }
+        boolean negative = false;
+        if ((pos < end) && ((line[pos] == '-') || (line[pos] == '+'))) {
+            negative = line[pos] == '-';
+            ++pos;
+        }
+        int start = pos;
+        int value = 0;
+        while ((pos < end) && (line[pos] >= '0') && (line[pos] <= '9')) {
+            value = (value * 10) + (line[pos] - '0');
+            ++pos;
+        }
+        if (pos == start) {
+            throw new NumberFormatException("The value of column " + variables[column] + " is not an integer: "
+                    + new String(line, cellStarts[column], cellEnds[column] - cellStarts[column]));
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the variable names of the columns (without the leading {@code ?})
+     */
+    public String[] getVariables() {
+        return Arrays.copyOf(variables, variables.length);
+    }
+
+    /**
+     * Reads the next line into {@link #line}.
+     *
+     * @return {@code false} if the end of the stream has been reached before
+     *         any character could be read
+     */
+    protected boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean read = false;
+        while (true) {
+            if (bufferPos >= bufferEnd) {
+                bufferEnd = reader.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferEnd <= 0) {
+                    bufferEnd = 0;
+                    return read;
+                }
+            }
+            read = true;
+            char c = buffer[bufferPos++];
+            if (c == '\n') {
+                // Remove a trailing carriage return
+                if ((lineLength > 0) && (line[lineLength - 1] == '\r')) {
+                    --lineLength;
+                }
+                return true;
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = c;
+        }
+    }
+
+    /**
+     * Determines the positions of the cells of the current line.
+     */
+    protected void splitLine() {
+        int column = 0;
+        cellStarts[0] = 0;
+        for (int i = 0; i < lineLength; ++i) {
+            if (line[i] == '\t') {
+                if (column < cellEnds.length) {
+                    cellEnds[column] = i;
+                }
+                ++column;
+                if (column < cellStarts.length) {
+                    cellStarts[column] = i + 1;
+                }
+            }
+        }
+        if (column < cellEnds.length) {
+            cellEnds[column] = lineLength;
+        }
+        // Missing cells at the end of the line are unbound
+        for (++column; column < cellStarts.length; ++column) {
+            cellStarts[column] = lineLength;
+            cellEnds[column] = lineLength;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
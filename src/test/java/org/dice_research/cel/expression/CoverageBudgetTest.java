@@ -0,0 +1,113 @@
+package org.dice_research.cel.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CoverageBudgetTest {
+
+    private static final List<String> POSITIVES = Arrays.asList("http://example.org/p1", "http://example.org/p2");
+    private static final List<String> NEGATIVES = Arrays.asList("http://example.org/n1");
+
+    @Test
+    public void testBudget() {
+        long size = createExpression(0).getCoverage().getSizeInBytes();
+        CoverageBudget budget = new CoverageBudget(3 * size, new ScoredCEComparatorForRefinement());
+        List<ScoredClassExpression> expressions = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            expressions.add(createExpression(i));
+            budget.add(expressions.get(i));
+            Assert.assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+        }
+        // Only the coverages of the three best expressions are kept
+        for (int i = 0; i < 5; ++i) {
+            Assert.assertEquals(i >= 2, expressions.get(i).getCoverage() != null);
+        }
+        Assert.assertEquals(2, budget.getDroppedCoverages());
+
+        // Releasing an expression frees its memory and its coverage
+        budget.release(expressions.get(4));
+        Assert.assertNull(expressions.get(4).getCoverage());
+        Assert.assertEquals(2 * size, budget.getUsedBytes());
+        // Releasing an expression twice or an expression that has been dropped has
+        // no effect
+        budget.release(expressions.get(4));
+        budget.release(expressions.get(0));
+        Assert.assertEquals(2 * size, budget.getUsedBytes());
+
+        // The released expression is skipped when the budget has to drop coverages
+        expressions.add(createExpression(5));
+        budget.add(expressions.get(5));
+        expressions.add(createExpression(6));
+        budget.add(expressions.get(6));
+        Assert.assertEquals(3 * size, budget.getUsedBytes());
+        Assert.assertNull(expressions.get(2).getCoverage());
+        Assert.assertNotNull(expressions.get(3).getCoverage());
+        Assert.assertEquals(3, budget.getDroppedCoverages());
+    }
+
+    @Test
+    public void testManyReleases() {
+        long size = createExpression(0).getCoverage().getSizeInBytes();
+        CoverageBudget budget = new CoverageBudget(10 * size, new ScoredCEComparatorForRefinement());
+        List<ScoredClassExpression> queue = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            ScoredClassExpression expression = createExpression(i);
+            budget.add(expression);
+            queue.add(expression);
+            // Refine the best expression of every second step
+            if ((i % 2) == 1) {
+                Collections.sort(queue, new ScoredCEComparatorForRefinement());
+                budget.release(queue.remove(0));
+            }
+            Assert.assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+        }
+        long used = 0;
+        for (ScoredClassExpression expression : queue) {
+            if (expression.getCoverage() != null) {
+                used += expression.getCoverage().getSizeInBytes();
+            }
+        }
+        Assert.assertEquals(used, budget.getUsedBytes());
+        Assert.assertTrue(budget.expressions.size() <= 2 * budget.accounted.size() + 1);
+    }
+
+    @Test
+    public void testReservedBytes() {
+        long size = createExpression(0).getCoverage().getSizeInBytes();
+        CoverageBudget budget = new CoverageBudget(3 * size, new ScoredCEComparatorForRefinement());
+        List<ScoredClassExpression> expressions = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            expressions.add(createExpression(i));
+            budget.add(expressions.get(i));
+        }
+        Assert.assertEquals(0, budget.getDroppedCoverages());
+        // Reserving memory drops the coverage of the worst expression
+        budget.reserve(size);
+        Assert.assertEquals(size, budget.getReservedBytes());
+        Assert.assertEquals(3 * size, budget.getUsedBytes());
+        Assert.assertNull(expressions.get(0).getCoverage());
+        Assert.assertEquals(1, budget.getDroppedCoverages());
+        // Reserved memory is not freed when expressions are released
+        budget.release(expressions.get(1));
+        budget.release(expressions.get(2));
+        Assert.assertEquals(size, budget.getUsedBytes());
+        // Reserving more than the budget drops all coverages but does not fail
+        expressions.add(createExpression(3));
+        budget.add(expressions.get(3));
+        budget.reserve(3 * size);
+        Assert.assertNull(expressions.get(3).getCoverage());
+        Assert.assertEquals(4 * size, budget.getUsedBytes());
+    }
+
+    protected static ScoredClassExpression createExpression(int rank) {
+        ScoredClassExpression expression = new ScoredClassExpression(
+                new NamedClass("http://example.org/class" + rank), rank, rank, 1, 0, false);
+        expression.setCoverage(ExampleCoverage.create(Collections.singleton(POSITIVES.get(0)), POSITIVES, NEGATIVES));
+        return expression;
+    }
+}
@@ -0,0 +1,69 @@
+package org.dice_research.cel.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IriDictionaryTest {
+
+    private static final int NUMBER_OF_THREADS = 8;
+    private static final int NUMBER_OF_IRIS = 5000;
+
+    @Test
+    public void testEncodeDecode() {
+        IriDictionary dictionary = new IriDictionary();
+        int id = dictionary.encode("http://example.org/classA");
+        Assert.assertEquals(id, dictionary.encode("http://example.org/classA"));
+        Assert.assertEquals(id, dictionary.getId("http://example.org/classA"));
+        Assert.assertEquals("http://example.org/classA", dictionary.decode(id));
+        Assert.assertNotEquals(id, dictionary.encode("http://example.org/classB"));
+        Assert.assertEquals(IriDictionary.NULL_ID, dictionary.getId("http://example.org/classC"));
+        Assert.assertEquals(IriDictionary.NULL_ID, dictionary.encode(null));
+        Assert.assertNull(dictionary.decode(IriDictionary.NULL_ID));
+        Assert.assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testConcurrentEncoding() throws Exception {
+        IriDictionary dictionary = new IriDictionary();
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int t = 0; t < NUMBER_OF_THREADS; ++t) {
+                futures.add(executor.submit(() -> {
+                    int[] ids = new int[NUMBER_OF_IRIS];
+                    for (int i = 0; i < NUMBER_OF_IRIS; ++i) {
+                        ids[i] = dictionary.encode("http://example.org/iri" + i);
+                    }
+                    return ids;
+                }));
+            }
+            int[] expected = futures.get(0).get();
+            for (Future<int[]> future : futures) {
+                Assert.assertArrayEquals(expected, future.get());
+            }
+            for (int i = 0; i < NUMBER_OF_IRIS; ++i) {
+                Assert.assertEquals("http://example.org/iri" + i, dictionary.decode(expected[i]));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(NUMBER_OF_IRIS, dictionary.size());
+    }
+
+    @Test
+    public void testExpressionsUseIds() {
+        NamedClass classA = new NamedClass("http://example.org/classA");
+        Assert.assertEquals(IriDictionary.getInstance().getId("http://example.org/classA"), classA.getNameId());
+        Assert.assertEquals(classA, new NamedClass(new String("http://example.org/classA")));
+        Assert.assertEquals("http://example.org/classA", classA.getName());
+        SimpleQuantifiedRole role = new SimpleQuantifiedRole(true, "http://example.org/role1", false, classA);
+        Assert.assertEquals(role, role.deepCopy());
+        Assert.assertEquals("∃http://example.org/role1.http://example.org/classA", role.toString());
+    }
+}
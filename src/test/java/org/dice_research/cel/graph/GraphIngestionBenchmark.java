@@ -0,0 +1,117 @@
+package org.dice_research.cel.graph;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+
+/**
+ * A benchmark that compares the single-threaded loading of an N-Triples file
+ * ({@link InMemoryGraph#load(String)}) with the {@link ParallelGraphLoader}.
+ * The benchmark generates a file with random instances, classes and
+ * properties. By default, the file has 10M triples.
+ *
+ * <p>
+ * Usage: {@code GraphIngestionBenchmark [triples] [threads] [file]}
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class GraphIngestionBenchmark {
+
+    protected static final String NS = "http://example.org/";
+    protected static final int NUMBER_OF_CLASSES = 200;
+    protected static final int NUMBER_OF_PROPERTIES = 50;
+    /**
+     * The share of the triples that are type statements.
+     */
+    protected static final double TYPE_RATIO = 0.2;
+    /**
+     * The share of the triples that have a literal as object.
+     */
+    protected static final double LITERAL_RATIO = 0.1;
+
+    public static void main(String[] args) throws Exception {
+        long triples = (args.length > 0) ? Long.parseLong(args[0]) : 10000000L;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        File file;
+        if (args.length > 2) {
+            file = new File(args[2]);
+        } else {
+            file = File.createTempFile("ingestion", ".nt");
+            file.deleteOnExit();
+        }
+        if (!file.exists() || (file.length() == 0)) {
+            long start = System.currentTimeMillis();
+            writeTriples(file.toPath(), triples, new Random(42));
+            System.out.println(String.format("Generated %d triples (%d MiB) in %.2f s", triples,
+                    file.length() / (1024 * 1024), (System.currentTimeMillis() - start) / 1000.0));
+        }
+        System.out.println("triples=" + triples + ", threads=" + threads + ", file=" + file);
+
+        System.gc();
+        long start = System.currentTimeMillis();
+        InMemoryGraph graph = InMemoryGraph.load(file.getAbsolutePath());
+        print("single thread", graph, triples, System.currentTimeMillis() - start);
+        graph = null;
+
+        System.gc();
+        ParallelGraphLoader loader = new ParallelGraphLoader(threads);
+        graph = loader.load(file.getAbsolutePath());
+        print("parallel", graph, triples, loader.getParsingTime() + loader.getBuildingTime());
+        System.out.println(String.format("%-15s parsing: %.2f s, building: %.2f s", "",
+                loader.getParsingTime() / 1000.0, loader.getBuildingTime() / 1000.0));
+    }
+
+    protected static void print(String name, InMemoryGraph graph, long triples, long time) {
+        double seconds = time / 1000.0;
+        System.out.println(String.format("%-15s %10.0f triples/s (%d nodes, %d edges in %.2f s, heap: %d MiB)", name,
+                triples / seconds, graph.getNumberOfNodes(), graph.getNumberOfEdges(), seconds,
+                ParallelGraphLoader.getUsedHeap() / (1024 * 1024)));
+    }
+
+    /**
+     * Writes the given number of random triples as N-Triples into the given
+     * file. The number of instances grows with the number of triples.
+     */
+    public static void writeTriples(Path file, long numberOfTriples, Random random) throws IOException {
+        int numberOfInstances = (int) Math.max(10, numberOfTriples / 10);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int c = 0; c < NUMBER_OF_CLASSES; ++c) {
+                writeTriple(writer, "<" + NS + "class" + c + ">", RDF.type.getURI(), "<" + OWL.Class.getURI() + ">");
+            }
+            double choice;
+            String subject;
+            for (long i = NUMBER_OF_CLASSES; i < numberOfTriples; ++i) {
+                subject = "<" + NS + "instance" + random.nextInt(numberOfInstances) + ">";
+                choice = random.nextDouble();
+                if (choice < TYPE_RATIO) {
+                    writeTriple(writer, subject, RDF.type.getURI(),
+                            "<" + NS + "class" + random.nextInt(NUMBER_OF_CLASSES) + ">");
+                } else if (choice < TYPE_RATIO + LITERAL_RATIO) {
+                    writeTriple(writer, subject, NS + "value", "\"" + random.nextInt(1000) + "\"");
+                } else {
+                    writeTriple(writer, subject, NS + "property" + random.nextInt(NUMBER_OF_PROPERTIES),
+                            "<" + NS + "instance" + random.nextInt(numberOfInstances) + ">");
+                }
+            }
+        }
+    }
+
+    protected static void writeTriple(BufferedWriter writer, String subject, String property, String object)
+            throws IOException {
+        writer.write(subject);
+        writer.write(" <");
+        writer.write(property);
+        writer.write("> ");
+        writer.write(object);
+        writer.write(" .\n");
+    }
+}
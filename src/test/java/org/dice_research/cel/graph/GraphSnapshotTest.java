@@ -0,0 +1,86 @@
+package org.dice_research.cel.graph;
+
+import java.io.File;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Writes a small graph into a {@link GraphSnapshot}, loads it again and
+ * compares the loaded graph with the original graph.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class GraphSnapshotTest {
+
+    private static final String NS = "http://example.org/";
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Node type = NodeFactory.createURI(RDF.type.getURI());
+        Node owlClass = NodeFactory.createURI(OWL.Class.getURI());
+        Node classA = NodeFactory.createURI(NS + "classA");
+        Node classB = NodeFactory.createURI(NS + "classB");
+        Node role1 = NodeFactory.createURI(NS + "role1");
+        Node role2 = NodeFactory.createURI(NS + "role2");
+        Node[] individuals = new Node[] { NodeFactory.createURI(NS + "i1"), NodeFactory.createURI(NS + "i2"),
+                NodeFactory.createURI(NS + "i3"), NodeFactory.createBlankNode("b1") };
+        Node label = NodeFactory.createLiteral("Individual 1", "en");
+        Node value = NodeFactory.createLiteral("42",
+                TypeMapper.getInstance().getSafeTypeByName("http://www.w3.org/2001/XMLSchema#int"));
+
+        InMemoryGraphBuilder builder = new InMemoryGraphBuilder();
+        builder.add(classA, type, owlClass);
+        builder.add(individuals[0], type, classA);
+        builder.add(individuals[1], type, classA);
+        builder.add(individuals[1], type, classB);
+        builder.add(individuals[0], role1, individuals[1]);
+        builder.add(individuals[0], role1, individuals[2]);
+        builder.add(individuals[3], role1, individuals[0]);
+        builder.add(individuals[2], role2, individuals[3]);
+        builder.add(individuals[0], role2, label);
+        builder.add(individuals[1], role2, value);
+        InMemoryGraph expected = builder.build();
+
+        File file = File.createTempFile("graph", GraphSnapshot.FILE_EXTENSION);
+        file.deleteOnExit();
+        GraphSnapshot.write(expected, file.getAbsolutePath());
+        InMemoryGraph loaded = InMemoryGraph.load(file.getAbsolutePath());
+
+        Assert.assertTrue(loaded.getNodeTable() instanceof MappedNodeTable);
+        Assert.assertEquals(expected.getNumberOfNodes(), loaded.getNumberOfNodes());
+        Assert.assertEquals(expected.getNumberOfEdges(), loaded.getNumberOfEdges());
+        for (int i = 0; i < expected.getNumberOfNodes(); ++i) {
+            Assert.assertEquals(expected.getNode(i), loaded.getNode(i));
+            Assert.assertEquals(i, loaded.getNodeId(expected.getNode(i)));
+        }
+        Assert.assertEquals(-1, loaded.getNodeId(NS + "unknown"));
+        Assert.assertEquals(expected.getNodeId(label), loaded.getNodeId(label));
+
+        Assert.assertEquals(expected.getNumberOfProperties(), loaded.getNumberOfProperties());
+        RoaringBitmap allNodes = RoaringBitmap.bitmapOfRange(0, expected.getNumberOfNodes());
+        for (int p = 0; p < expected.getNumberOfProperties(); ++p) {
+            Assert.assertEquals(expected.getProperty(p), loaded.getProperty(p));
+            Assert.assertEquals(expected.getSubjects(p), loaded.getSubjects(p));
+            Assert.assertEquals(expected.getObjects(p), loaded.getObjects(p));
+            Assert.assertEquals(expected.getNeighbors(allNodes, p, false), loaded.getNeighbors(allNodes, p, false));
+            Assert.assertEquals(expected.getNeighbors(allNodes, p, true), loaded.getNeighbors(allNodes, p, true));
+        }
+
+        Assert.assertEquals(expected.getNumberOfClasses(), loaded.getNumberOfClasses());
+        for (int c = 0; c < expected.getNumberOfClasses(); ++c) {
+            Assert.assertEquals(expected.getClassNode(c), loaded.getClassNode(c));
+            Assert.assertEquals(expected.getClassExtension(c), loaded.getClassExtension(c));
+            Assert.assertEquals(expected.isDeclaredClass(c), loaded.isDeclaredClass(c));
+        }
+        Assert.assertEquals(expected.getClassId(NS + "classB"), loaded.getClassId(NS + "classB"));
+        Assert.assertEquals(expected.getTypes(), loaded.getTypes());
+    }
+}
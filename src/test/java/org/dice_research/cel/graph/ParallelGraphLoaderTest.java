@@ -0,0 +1,84 @@
+package org.dice_research.cel.graph;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Loads a generated N-Triples file in small chunks with the
+ * {@link ParallelGraphLoader} and compares the graph with the graph of a
+ * single-threaded parser. Since the ids of the nodes depend on the order in
+ * which the chunks are parsed, the graphs are compared based on their nodes.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class ParallelGraphLoaderTest {
+
+    @Test
+    public void testLoad() throws Exception {
+        File file = File.createTempFile("graph", ".nt");
+        file.deleteOnExit();
+        GraphIngestionBenchmark.writeTriples(file.toPath(), 20000, new Random(123));
+        Files.writeString(file.toPath(), "_:b1 <http://example.org/property0> _:b2 .\n"
+                + "_:b2 <http://example.org/property0> _:b1 .\n", StandardOpenOption.APPEND);
+
+        InMemoryGraphBuilder builder = new InMemoryGraphBuilder();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            RDFParser.create().source(in).lang(Lang.NTRIPLES).labelToNode(LabelToNode.createUseLabelAsGiven())
+                    .parse(builder);
+        }
+        InMemoryGraph expected = builder.build();
+
+        ParallelGraphLoader loader = new ParallelGraphLoader(4);
+        loader.setChunkSize(16 * 1024);
+        InMemoryGraph loaded = loader.load(file.getAbsolutePath());
+
+        Assert.assertEquals(builder.getNumberOfTriples(), loader.getParsedTriples());
+        Assert.assertEquals(expected.getNumberOfNodes(), loaded.getNumberOfNodes());
+        Assert.assertEquals(expected.getNumberOfEdges(), loaded.getNumberOfEdges());
+        Assert.assertEquals(expected.getNumberOfProperties(), loaded.getNumberOfProperties());
+        Assert.assertEquals(expected.getNumberOfClasses(), loaded.getNumberOfClasses());
+
+        for (int p = 0; p < expected.getNumberOfProperties(); ++p) {
+            int loadedP = loaded.getPropertyId(expected.getProperty(p));
+            Assert.assertTrue(loadedP >= 0);
+            for (int node = 0; node < expected.getNumberOfNodes(); ++node) {
+                RoaringBitmap expectedNode = RoaringBitmap.bitmapOf(node);
+                RoaringBitmap loadedNode = RoaringBitmap.bitmapOf(loaded.getNodeId(expected.getNode(node)));
+                assertSameNodes(expected, expected.getNeighbors(expectedNode, p, false), loaded,
+                        loaded.getNeighbors(loadedNode, loadedP, false));
+                assertSameNodes(expected, expected.getNeighbors(expectedNode, p, true), loaded,
+                        loaded.getNeighbors(loadedNode, loadedP, true));
+            }
+        }
+        for (int c = 0; c < expected.getNumberOfClasses(); ++c) {
+            int loadedC = loaded.getClassId(expected.getClassNode(c).getURI());
+            Assert.assertTrue(loadedC >= 0);
+            assertSameNodes(expected, expected.getClassExtension(c), loaded, loaded.getClassExtension(loadedC));
+            Assert.assertEquals(expected.isDeclaredClass(c), loaded.isDeclaredClass(loadedC));
+        }
+    }
+
+    protected static void assertSameNodes(InMemoryGraph expectedGraph, RoaringBitmap expected,
+            InMemoryGraph loadedGraph, RoaringBitmap loaded) {
+        Assert.assertEquals(expected.getCardinality(), loaded.getCardinality());
+        IntIterator iterator = expected.getIntIterator();
+        Node node;
+        while (iterator.hasNext()) {
+            node = expectedGraph.getNode(iterator.next());
+            Assert.assertTrue("Missing node " + node, loaded.contains(loadedGraph.getNodeId(node)));
+        }
+    }
+}
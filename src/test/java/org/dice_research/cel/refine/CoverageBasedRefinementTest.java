@@ -0,0 +1,80 @@
+package org.dice_research.cel.refine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.vocabulary.RDF;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.ScoredClassExpression;
+import org.dice_research.cel.graph.InMemoryGraph;
+import org.dice_research.cel.refine.suggest.AbstractLearningProblemTest;
+import org.dice_research.cel.refine.suggest.BatchSuggestionTest;
+import org.dice_research.cel.refine.suggest.BitsetSuggestor;
+import org.dice_research.cel.score.BalancedAccuracyCalculator;
+import org.dice_research.cel.score.ScoreCalculator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks that the refinements that are scored based on example coverages are
+ * the same as the refinements that are scored by the suggestor.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+@RunWith(Parameterized.class)
+public class CoverageBasedRefinementTest extends AbstractLearningProblemTest {
+
+    @Parameters
+    public static List<Object[]> parameters() {
+        return BatchSuggestionTest.parameters();
+    }
+
+    public CoverageBasedRefinementTest(Model model, String[] positives, String[] negatives, String logicName) {
+        super(model, positives, negatives, logicName);
+    }
+
+    @Test
+    public void test() {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        BitsetSuggestor suggestor = new BitsetSuggestor(InMemoryGraph.create(model), logic);
+        suggestor.addToClassBlackList(OWL2.NamedIndividual.getURI());
+        suggestor.addToPropertyBlackList(RDF.type.getURI());
+        ScoreCalculator calculator = new BalancedAccuracyCalculator(pos.size(), neg.size());
+
+        SuggestorBasedRefinementOperator expected = new SuggestorBasedRefinementOperator(suggestor, logic,
+                calculator, pos, neg);
+        SuggestorBasedRefinementOperator operator = new SuggestorBasedRefinementOperator(suggestor, logic,
+                calculator, pos, neg);
+        operator.setCoverageRetriever(suggestor);
+
+        ScoredClassExpression top = calculator.score(NamedClass.TOP, pos.size(), neg.size(), false);
+        Set<ScoredClassExpression> firstLevel = operator.refine(top);
+        Assert.assertFalse(firstLevel.isEmpty());
+        Assert.assertEquals(expected.refine(top), firstLevel);
+        for (ScoredClassExpression expression : firstLevel) {
+            // The first refinement has to retrieve the coverage
+            Set<ScoredClassExpression> secondLevel = operator.refine(expression);
+            Assert.assertEquals("Refinements of " + expression + " differ.", expected.refine(expression),
+                    secondLevel);
+            // The refinements of the second level carry their coverage
+            for (ScoredClassExpression child : secondLevel) {
+                if (child.getCoverage() != null) {
+                    Assert.assertEquals(child.getPosCount(), child.getCoverage().getPosCount());
+                    Assert.assertEquals(child.getNegCount(), child.getCoverage().getNegCount());
+                    Assert.assertEquals("Refinements of " + child + " differ.", expected.refine(child),
+                            operator.refine(child));
+                }
+            }
+        }
+    }
+}
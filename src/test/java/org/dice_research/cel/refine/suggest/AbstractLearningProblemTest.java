@@ -0,0 +1,48 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.rdf.model.Model;
+
+/**
+ * Abstract class of parameterized tests that run a single learning problem
+ * (i.e., a model with positive and negative examples) with a given description
+ * logic.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public abstract class AbstractLearningProblemTest {
+
+    /**
+     * Transforms the given test cases of a class expression learning test (e.g.,
+     * {@link org.dice_research.cel.ALCTest#parameters()}) into test cases of this
+     * class. Each learning problem is used once with ALC and once with EL.
+     *
+     * @param testCases the test cases with a model, the positive and the negative
+     *                  examples as first three elements
+     * @return the test cases of this class
+     */
+    public static List<Object[]> createParameters(List<Object[]> testCases) {
+        List<Object[]> parameters = new ArrayList<>();
+        for (Object[] testCase : testCases) {
+            parameters.add(new Object[] { testCase[0], testCase[1], testCase[2], "ALC" });
+            parameters.add(new Object[] { testCase[0], testCase[1], testCase[2], "EL" });
+        }
+        return parameters;
+    }
+
+    protected Model model;
+    protected String[] positives;
+    protected String[] negatives;
+    protected String logicName;
+
+    public AbstractLearningProblemTest(Model model, String[] positives, String[] negatives, String logicName) {
+        super();
+        this.model = model;
+        this.positives = positives;
+        this.negatives = negatives;
+        this.logicName = logicName;
+    }
+}
@@ -0,0 +1,80 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.aksw.jenax.connection.query.QueryExecutionFactoryDataset;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.vocabulary.RDF;
+import org.dice_research.cel.ALCTest;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.NamedClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Cross-checks the counts of the {@link AlgebraBasedSuggestor} with the counts
+ * of the String-based queries of the {@link SparqlBasedSuggestor}.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+@RunWith(Parameterized.class)
+public class AlgebraBasedSuggestorTest extends AbstractLearningProblemTest {
+
+    @Parameters
+    public static List<Object[]> parameters() {
+        return BatchSuggestionTest.parameters();
+    }
+
+    public AlgebraBasedSuggestorTest(Model model, String[] positives, String[] negatives, String logicName) {
+        super(model, positives, negatives, logicName);
+    }
+
+    @Test
+    public void test() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        Dataset dataset = DatasetFactory.create(model);
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(dataset);
+                SparqlBasedSuggestor expected = new SparqlBasedSuggestor(qef, logic);
+                AlgebraBasedSuggestor suggestor = new AlgebraBasedSuggestor(dataset, logic)) {
+            for (SparqlBasedSuggestor s : Arrays.asList(expected, suggestor)) {
+                s.addToClassBlackList(OWL2.NamedIndividual.getURI());
+                s.addToPropertyBlackList(RDF.type.getURI());
+            }
+            List<ClassExpression> contexts = new ArrayList<>(BatchSuggestionTest.createContexts());
+            for (ClassExpression context : contexts) {
+                String message = "Suggestions for " + context + " differ.";
+                Assert.assertEquals(message, BatchSuggestionTest.toMap(expected.suggestClass(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestClass(pos, neg, context)));
+                if (logic.supportsAtomicNegation()) {
+                    Assert.assertEquals(message,
+                            BatchSuggestionTest.toMap(expected.suggestNegatedClass(pos, neg, context)),
+                            BatchSuggestionTest.toMap(suggestor.suggestNegatedClass(pos, neg, context)));
+                }
+                Assert.assertEquals(message, BatchSuggestionTest.toMap(expected.suggestProperty(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestProperty(pos, neg, context)));
+
+                ClassExpression expression = ClassExpressionUpdater.update(context, Suggestor.CONTEXT_POSITION_MARKER,
+                        new NamedClass("http://example.org/classA"));
+                SelectionScores expectedScores = expected.scoreExpression(expression, pos, neg);
+                SelectionScores scores = suggestor.scoreExpression(expression, pos, neg);
+                Assert.assertEquals(expectedScores.getPosCount(), scores.getPosCount());
+                Assert.assertEquals(expectedScores.getNegCount(), scores.getNegCount());
+                Assert.assertEquals(expected.retrieveInstances(expression, pos, neg),
+                        suggestor.retrieveInstances(expression, pos, neg));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dice_research.cel.sparql.QueryType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchQueryBuilderTest {
+
+    @Test
+    public void testChunks() {
+        BatchQueryBuilder builder = new BatchQueryBuilder();
+        List<BatchBranch> branches = createBranches(5);
+        builder.setMaxContextsPerQuery(2);
+        List<List<BatchBranch>> chunks = builder.createChunks(branches);
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(branches.subList(0, 2), chunks.get(0));
+        Assert.assertEquals(branches.subList(2, 4), chunks.get(1));
+        Assert.assertEquals(branches.subList(4, 5), chunks.get(2));
+
+        // A maximum below 1 leads to a single branch per chunk
+        builder.setMaxContextsPerQuery(0);
+        Assert.assertEquals(5, builder.createChunks(branches).size());
+    }
+
+    @Test
+    public void testBatchQueryMarksBranches() {
+        BatchQueryBuilder builder = new BatchQueryBuilder();
+        List<BatchBranch> branches = createBranches(2);
+        String query = builder.generateBatchQuery(branches);
+        Assert.assertTrue(query.contains("SELECT * WHERE { ?x a ?class }"));
+        Assert.assertTrue(query.contains("BIND(0 AS ?" + SparqlBasedSuggestor.BRANCH_VARIABLE + ")"));
+        Assert.assertTrue(query.contains("BIND(1 AS ?" + SparqlBasedSuggestor.BRANCH_VARIABLE + ")"));
+        Assert.assertTrue(query.indexOf("BIND(0") < query.indexOf("UNION"));
+        Assert.assertTrue(query.indexOf("UNION") < query.indexOf("BIND(1"));
+    }
+
+    protected static List<BatchBranch> createBranches(int count) {
+        List<BatchBranch> branches = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            BatchBranch branch = new BatchBranch(QueryType.CLASS, null, s -> null, null, null);
+            branch.query = "SELECT * WHERE { ?x a ?class }";
+            branches.add(branch);
+        }
+        return branches;
+    }
+}
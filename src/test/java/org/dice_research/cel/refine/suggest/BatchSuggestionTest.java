@@ -0,0 +1,390 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.aksw.jenax.connection.query.QueryExecutionFactoryDataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.vocabulary.RDF;
+import org.dice_research.cel.ALCTest;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.score.BalancedAccuracyCalculator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks that the combined suggestion queries of the
+ * {@link SparqlBasedSuggestor} lead to the same suggestions as the single
+ * queries.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+@RunWith(Parameterized.class)
+public class BatchSuggestionTest extends AbstractLearningProblemTest {
+
+    @Parameters
+    public static List<Object[]> parameters() {
+        return createParameters(ALCTest.parameters());
+    }
+
+    /**
+     * Creates a list of contexts that cover the different kinds of positions at
+     * which the marker can occur.
+     */
+    public static List<ClassExpression> createContexts() {
+        NamedClass classA = new NamedClass("http://example.org/classA");
+        String role1 = "http://example.org/role1";
+        return Arrays.asList(Suggestor.CONTEXT_POSITION_MARKER,
+                new Junction(true, classA, Suggestor.CONTEXT_POSITION_MARKER),
+                new Junction(false, classA, Suggestor.CONTEXT_POSITION_MARKER),
+                new SimpleQuantifiedRole(true, role1, false, Suggestor.CONTEXT_POSITION_MARKER),
+                new Junction(false, new SimpleQuantifiedRole(true, role1, false, classA),
+                        new Junction(true, classA, Suggestor.CONTEXT_POSITION_MARKER)));
+    }
+
+    /**
+     * Transforms the given suggestions into a map that can be compared with other
+     * suggestions independent of their order.
+     */
+    public static Map<String, String> toMap(Collection<ScoredIRI> suggestions) {
+        Map<String, String> map = new HashMap<>();
+        if (suggestions != null) {
+            for (ScoredIRI suggestion : suggestions) {
+                map.put((suggestion.isInverted() ? "^" : "") + suggestion.getIri(),
+                        suggestion.getPosCount() + "/" + suggestion.getNegCount());
+            }
+        }
+        return map;
+    }
+
+    public BatchSuggestionTest(Model model, String[] positives, String[] negatives, String logicName) {
+        super(model, positives, negatives, logicName);
+    }
+
+    @Test
+    public void test() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic)) {
+            suggestor.addToClassBlackList(OWL2.NamedIndividual.getURI());
+            suggestor.addToPropertyBlackList(RDF.type.getURI());
+
+            List<ContextSuggestions> requests = new ArrayList<>();
+            for (ClassExpression context : createContexts()) {
+                requests.add(new ContextSuggestions(context, true, logic.supportsAtomicNegation(), true));
+            }
+            // Use two contexts per query to also check the splitting of the requests
+            suggestor.setMaxContextsPerQuery(2);
+            // The combined class suggestions are checked separately
+            suggestor.setCombineClassSuggestions(false);
+            suggestor.suggest(pos, neg, requests);
+
+            for (ContextSuggestions request : requests) {
+                String message = "Suggestions for " + request.getContext() + " differ.";
+                Assert.assertEquals(message, toMap(suggestor.suggestClass(pos, neg, request.getContext())),
+                        toMap(request.getClasses()));
+                if (logic.supportsAtomicNegation()) {
+                    Assert.assertEquals(message,
+                            toMap(suggestor.suggestNegatedClass(pos, neg, request.getContext())),
+                            toMap(request.getNegatedClasses()));
+                }
+                Assert.assertEquals(message, toMap(suggestor.suggestProperty(pos, neg, request.getContext())),
+                        toMap(request.getProperties()));
+            }
+        }
+    }
+
+    @Test
+    public void testCombinedClassSuggestions() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic)) {
+            suggestor.addToClassBlackList(OWL2.NamedIndividual.getURI());
+            suggestor.addToPropertyBlackList(RDF.type.getURI());
+
+            List<ContextSuggestions> requests = new ArrayList<>();
+            for (ClassExpression context : createContexts()) {
+                requests.add(new ContextSuggestions(context, true, logic.supportsAtomicNegation(), false));
+            }
+            suggestor.suggest(pos, neg, requests);
+
+            for (ContextSuggestions request : requests) {
+                Assert.assertEquals("Suggestions for " + request.getContext() + " differ.",
+                        toMap(suggestor.suggestClass(pos, neg, request.getContext())), toMap(request.getClasses()));
+                if (!logic.supportsAtomicNegation()) {
+                    continue;
+                }
+                // Compare the negated classes with the scores of the complete expressions
+                for (ScoredIRI suggestion : request.getNegatedClasses()) {
+                    ClassExpression expression = ClassExpressionUpdater.update(request.getContext(),
+                            Suggestor.CONTEXT_POSITION_MARKER, new NamedClass(suggestion.getIri(), true));
+                    SelectionScores scores = suggestor.scoreExpression(expression, pos, neg);
+                    Assert.assertEquals("Wrong positive count for " + expression, scores.getPosCount(),
+                            suggestion.getPosCount());
+                    Assert.assertEquals("Wrong negative count for " + expression, scores.getNegCount(),
+                            suggestion.getNegCount());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMergedPropertyQueries() throws Exception {
+        // Use the same logic with inverse properties
+        DescriptionLogic logic = DescriptionLogic.parse(logicName + "I");
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic)) {
+            suggestor.addToClassBlackList(OWL2.NamedIndividual.getURI());
+            suggestor.addToPropertyBlackList(RDF.type.getURI());
+
+            List<ContextSuggestions> requests = new ArrayList<>();
+            for (ClassExpression context : createContexts()) {
+                requests.add(new ContextSuggestions(context, false, false, true));
+            }
+            suggestor.suggest(pos, neg, requests);
+
+            for (ContextSuggestions request : requests) {
+                Map<String, String> merged = toMap(suggestor.suggestProperty(pos, neg, request.getContext()));
+                Assert.assertEquals("Batch suggestions for " + request.getContext() + " differ.", merged,
+                        toMap(request.getProperties()));
+                suggestor.setMergePropertyQueries(false);
+                Assert.assertEquals("Merged suggestions for " + request.getContext() + " differ.",
+                        toMap(suggestor.suggestProperty(pos, neg, request.getContext())), merged);
+                suggestor.setMergePropertyQueries(true);
+            }
+        }
+    }
+
+    /**
+     * Checks that the suggestions are the same if the queries are sent
+     * concurrently and that the number of queries in flight does not exceed the
+     * configured limit.
+     */
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        int maxInFlight = 2;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxObservedInFlight = new AtomicInteger();
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic);
+                SparqlBasedSuggestor concurrentSuggestor = new SparqlBasedSuggestor(
+                        new QueryExecutionFactoryDataset(DatasetFactory.create(model)), logic) {
+                    @Override
+                    protected void performBatchQuery(List<BatchBranch> branches) {
+                        maxObservedInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        try {
+                            // Give the other queries the chance to overlap with this query
+                            Thread.sleep(20);
+                            super.performBatchQuery(branches);
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                }) {
+            for (SparqlBasedSuggestor s : Arrays.asList(suggestor, concurrentSuggestor)) {
+                s.addToClassBlackList(OWL2.NamedIndividual.getURI());
+                s.addToPropertyBlackList(RDF.type.getURI());
+                // Send one query per context to get several queries per request
+                s.setMaxContextsPerQuery(1);
+            }
+            concurrentSuggestor.enableConcurrentQueries(maxInFlight);
+
+            List<ContextSuggestions> requests = new ArrayList<>();
+            List<ContextSuggestions> concurrentRequests = new ArrayList<>();
+            for (ClassExpression context : createContexts()) {
+                requests.add(new ContextSuggestions(context, true, logic.supportsAtomicNegation(), true));
+                concurrentRequests.add(new ContextSuggestions(context, true, logic.supportsAtomicNegation(), true));
+            }
+            suggestor.suggest(pos, neg, requests);
+            concurrentSuggestor.suggest(pos, neg, concurrentRequests);
+
+            for (int i = 0; i < requests.size(); ++i) {
+                String message = "Concurrent suggestions for " + requests.get(i).getContext() + " differ.";
+                Assert.assertEquals(message, toMap(requests.get(i).getClasses()),
+                        toMap(concurrentRequests.get(i).getClasses()));
+                Assert.assertEquals(message, toMap(requests.get(i).getNegatedClasses()),
+                        toMap(concurrentRequests.get(i).getNegatedClasses()));
+                Assert.assertEquals(message, toMap(requests.get(i).getProperties()),
+                        toMap(concurrentRequests.get(i).getProperties()));
+            }
+            Assert.assertTrue("The queries have not been sent concurrently.", maxObservedInFlight.get() > 1);
+            Assert.assertTrue("Got " + maxObservedInFlight.get() + " queries in flight.",
+                    maxObservedInFlight.get() <= maxInFlight);
+        }
+    }
+
+    @Test
+    public void testSharding() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic);
+                SparqlBasedSuggestor shardedSuggestor = new SparqlBasedSuggestor(
+                        new QueryExecutionFactoryDataset(DatasetFactory.create(model)), logic)) {
+            for (SparqlBasedSuggestor s : Arrays.asList(suggestor, shardedSuggestor)) {
+                s.addToClassBlackList(OWL2.NamedIndividual.getURI());
+                s.addToPropertyBlackList(RDF.type.getURI());
+            }
+            // Use shards with a single positive and negative example
+            shardedSuggestor.setMaxExamplesPerShard(1);
+            shardedSuggestor.enableConcurrentQueries(2);
+
+            List<ContextSuggestions> requests = new ArrayList<>();
+            List<ContextSuggestions> shardedRequests = new ArrayList<>();
+            for (ClassExpression context : createContexts()) {
+                requests.add(new ContextSuggestions(context, true, logic.supportsAtomicNegation(), true));
+                shardedRequests.add(new ContextSuggestions(context, true, logic.supportsAtomicNegation(), true));
+            }
+            suggestor.suggest(pos, neg, requests);
+            shardedSuggestor.suggest(pos, neg, shardedRequests);
+            Assert.assertNotNull(shardedSuggestor.getSession(pos, neg).getShards());
+
+            for (int i = 0; i < requests.size(); ++i) {
+                ClassExpression context = requests.get(i).getContext();
+                String message = "Sharded suggestions for " + context + " differ.";
+                Assert.assertEquals(message, toMap(requests.get(i).getClasses()),
+                        toMap(shardedRequests.get(i).getClasses()));
+                Assert.assertEquals(message, toMap(requests.get(i).getNegatedClasses()),
+                        toMap(shardedRequests.get(i).getNegatedClasses()));
+                Assert.assertEquals(message, toMap(requests.get(i).getProperties()),
+                        toMap(shardedRequests.get(i).getProperties()));
+                Assert.assertEquals(message, toMap(suggestor.suggestClass(pos, neg, context)),
+                        toMap(shardedSuggestor.suggestClass(pos, neg, context)));
+                Assert.assertEquals(message, toMap(suggestor.suggestProperty(pos, neg, context)),
+                        toMap(shardedSuggestor.suggestProperty(pos, neg, context)));
+                ClassExpression expression = ClassExpressionUpdater.update(context,
+                        Suggestor.CONTEXT_POSITION_MARKER, new NamedClass("http://example.org/classA"));
+                SelectionScores expected = suggestor.scoreExpression(expression, pos, neg);
+                SelectionScores scores = shardedSuggestor.scoreExpression(expression, pos, neg);
+                Assert.assertEquals(message, expected.getPosCount(), scores.getPosCount());
+                Assert.assertEquals(message, expected.getNegCount(), scores.getNegCount());
+            }
+        }
+    }
+
+    /**
+     * Checks that a session that is still used is not closed when it is evicted
+     * and that the session of a learning problem is closed when the problem ends.
+     */
+    @Test
+    public void testSessionLifecycle() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        Set<LearningProblemSession> closedSessions = new HashSet<>();
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic) {
+                    @Override
+                    protected void closeSession(LearningProblemSession session) {
+                        closedSessions.add(session);
+                        super.closeSession(session);
+                    }
+                }) {
+            LearningProblemSession session = suggestor.acquireSession(pos, neg);
+            // Evict the session while it is still in use
+            for (int i = 0; i < SparqlBasedSuggestor.MAX_NUMBER_OF_SESSIONS; ++i) {
+                suggestor.getSession(new ArrayList<>(pos), new ArrayList<>(neg));
+            }
+            Assert.assertNotSame(session, suggestor.getSession(pos, neg));
+            Assert.assertFalse(closedSessions.contains(session));
+            suggestor.releaseSession(session);
+            Assert.assertTrue(closedSessions.contains(session));
+
+            List<String> problemPos = new ArrayList<>(pos);
+            try (LearningProblemHandle problem = suggestor.beginProblem(problemPos, neg)) {
+                session = suggestor.getSession(problemPos, neg);
+                Assert.assertSame(session, suggestor.getSession(problemPos, neg));
+                Assert.assertFalse(closedSessions.contains(session));
+            }
+            Assert.assertTrue(closedSessions.contains(session));
+            Assert.assertNotSame(session, suggestor.getSession(problemPos, neg));
+        }
+    }
+
+    @Test
+    public void testBound() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        ScoreBound bound = ScoreBound.create(new BalancedAccuracyCalculator(pos.size(), neg.size()), 0.6,
+                pos.size(), neg.size(), logic.supportsComplexConceptNegation());
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(qef, logic)) {
+            suggestor.addToClassBlackList(OWL2.NamedIndividual.getURI());
+            suggestor.addToPropertyBlackList(RDF.type.getURI());
+
+            List<ContextSuggestions> requests = new ArrayList<>();
+            for (ClassExpression context : createContexts()) {
+                ContextSuggestions request = new ContextSuggestions(context, true, logic.supportsAtomicNegation(),
+                        true);
+                request.setBound(bound);
+                requests.add(request);
+            }
+            // The bounded suggestions are compared with the suggestions of the single queries
+            suggestor.setCombineClassSuggestions(false);
+            suggestor.suggest(pos, neg, requests);
+
+            for (ContextSuggestions request : requests) {
+                checkBoundedSuggestions(request, bound, suggestor.suggestClass(pos, neg, request.getContext()),
+                        request.getClasses());
+                if (logic.supportsAtomicNegation()) {
+                    checkBoundedSuggestions(request, bound,
+                            suggestor.suggestNegatedClass(pos, neg, request.getContext()),
+                            request.getNegatedClasses());
+                }
+                checkBoundedSuggestions(request, bound, suggestor.suggestProperty(pos, neg, request.getContext()),
+                        request.getProperties());
+            }
+        }
+    }
+
+    /**
+     * Checks that the bounded suggestions are a subset of the unbounded
+     * suggestions that contains at least all suggestions fulfilling the bound.
+     */
+    protected void checkBoundedSuggestions(ContextSuggestions request, ScoreBound bound,
+            Collection<ScoredIRI> unbounded, Collection<ScoredIRI> bounded) {
+        Map<String, String> unboundedMap = toMap(unbounded);
+        Map<String, String> boundedMap = toMap(bounded);
+        for (Map.Entry<String, String> entry : boundedMap.entrySet()) {
+            Assert.assertEquals("Unexpected suggestion for " + request.getContext(), entry.getValue(),
+                    unboundedMap.get(entry.getKey()));
+        }
+        for (ScoredIRI suggestion : unbounded) {
+            if (bound.isFulfilled(suggestion.getPosCount(), suggestion.getNegCount())) {
+                Assert.assertTrue("Missing suggestion " + suggestion + " for " + request.getContext(),
+                        boundedMap.containsKey((suggestion.isInverted() ? "^" : "") + suggestion.getIri()));
+            }
+        }
+    }
+}
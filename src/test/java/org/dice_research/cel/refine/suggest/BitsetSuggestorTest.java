@@ -0,0 +1,103 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.aksw.jenax.connection.query.QueryExecutionFactoryDataset;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.vocabulary.RDF;
+import org.dice_research.cel.ALCTest;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.ELTest;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.graph.InMemoryGraph;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Cross-checks the counts of the {@link BitsetSuggestor} with the counts of the
+ * {@link SparqlBasedSuggestor}.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+@RunWith(Parameterized.class)
+public class BitsetSuggestorTest extends AbstractLearningProblemTest {
+
+    @Parameters
+    public static List<Object[]> parameters() {
+        List<Object[]> testCases = createParameters(ALCTest.parameters());
+        testCases.addAll(createParameters(ELTest.parameters()));
+        return testCases;
+    }
+
+    public BitsetSuggestorTest(Model model, String[] positives, String[] negatives, String logicName) {
+        super(model, positives, negatives, logicName);
+    }
+
+    /**
+     * Adds contexts with inverted and universal roles as well as negated classes
+     * to the contexts of the {@link BatchSuggestionTest}.
+     */
+    public static List<ClassExpression> createContexts() {
+        NamedClass classA = new NamedClass("http://example.org/classA");
+        NamedClass notClassB = new NamedClass("http://example.org/classB", true);
+        String role1 = "http://example.org/role1";
+        List<ClassExpression> contexts = new ArrayList<>(BatchSuggestionTest.createContexts());
+        contexts.add(new SimpleQuantifiedRole(true, role1, true, Suggestor.CONTEXT_POSITION_MARKER));
+        contexts.add(new SimpleQuantifiedRole(false, role1, false, Suggestor.CONTEXT_POSITION_MARKER));
+        contexts.add(new Junction(true, notClassB, Suggestor.CONTEXT_POSITION_MARKER));
+        contexts.add(new Junction(true, new SimpleQuantifiedRole(false, role1, false, classA),
+                new SimpleQuantifiedRole(true, role1, false, Suggestor.CONTEXT_POSITION_MARKER)));
+        contexts.add(new Junction(false, NamedClass.BOTTOM, Suggestor.CONTEXT_POSITION_MARKER));
+        return contexts;
+    }
+
+    @Test
+    public void test() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse(logicName);
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        Dataset dataset = DatasetFactory.create(model);
+        BitsetSuggestor suggestor = new BitsetSuggestor(InMemoryGraph.create(model), logic);
+        suggestor.addToClassBlackList(OWL2.NamedIndividual.getURI());
+        suggestor.addToPropertyBlackList(RDF.type.getURI());
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(dataset);
+                SparqlBasedSuggestor expected = new SparqlBasedSuggestor(qef, logic)) {
+            expected.addToClassBlackList(OWL2.NamedIndividual.getURI());
+            expected.addToPropertyBlackList(RDF.type.getURI());
+            for (ClassExpression context : createContexts()) {
+                String message = "Suggestions for " + context + " differ.";
+                Assert.assertEquals(message, BatchSuggestionTest.toMap(expected.suggestClass(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestClass(pos, neg, context)));
+                if (logic.supportsAtomicNegation()) {
+                    Assert.assertEquals(message,
+                            BatchSuggestionTest.toMap(expected.suggestNegatedClass(pos, neg, context)),
+                            BatchSuggestionTest.toMap(suggestor.suggestNegatedClass(pos, neg, context)));
+                }
+                Assert.assertEquals(message, BatchSuggestionTest.toMap(expected.suggestProperty(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestProperty(pos, neg, context)));
+
+                ClassExpression expression = ClassExpressionUpdater.update(context, Suggestor.CONTEXT_POSITION_MARKER,
+                        new NamedClass("http://example.org/classA"));
+                SelectionScores expectedScores = expected.scoreExpression(expression, pos, neg);
+                SelectionScores scores = suggestor.scoreExpression(expression, pos, neg);
+                Assert.assertEquals(message, expectedScores.getPosCount(), scores.getPosCount());
+                Assert.assertEquals(message, expectedScores.getNegCount(), scores.getNegCount());
+                Assert.assertEquals(expected.retrieveInstances(expression, pos, neg),
+                        suggestor.retrieveInstances(expression, pos, neg));
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.sparql.InstanceRetriever;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachingSuggestorTest {
+
+    private static final List<String> POSITIVES = Arrays.asList("http://example.org/pos1",
+            "http://example.org/pos2");
+    private static final List<String> NEGATIVES = Arrays.asList("http://example.org/neg1");
+
+    @Test
+    public void testOrderIndependentContexts() {
+        CountingSuggestor counter = new CountingSuggestor();
+        CachingSuggestor suggestor = new CachingSuggestor(counter);
+        NamedClass a = new NamedClass("http://example.org/A");
+        NamedClass b = new NamedClass("http://example.org/B");
+        ClassExpression context1 = new Junction(true, a, b, Suggestor.CONTEXT_POSITION_MARKER);
+        ClassExpression context2 = new Junction(true, Suggestor.CONTEXT_POSITION_MARKER, b, a);
+
+        Collection<ScoredIRI> first = suggestor.suggestClass(POSITIVES, NEGATIVES, context1);
+        Collection<ScoredIRI> second = suggestor.suggestClass(new ArrayList<>(POSITIVES),
+                new ArrayList<>(NEGATIVES), context2);
+        Assert.assertEquals(1, counter.calls);
+        Assert.assertEquals(BatchSuggestionTest.toMap(first), BatchSuggestionTest.toMap(second));
+        Assert.assertEquals(1, suggestor.getSuggestionCacheHits());
+        Assert.assertEquals(1, suggestor.getSuggestionCacheMisses());
+
+        // Changes of returned suggestions must not influence the cache
+        second.iterator().next().add(1, 1);
+        Assert.assertEquals(BatchSuggestionTest.toMap(first),
+                BatchSuggestionTest.toMap(suggestor.suggestClass(POSITIVES, NEGATIVES, context2)));
+
+        // Different examples or a different kind of suggestions lead to misses
+        suggestor.suggestClass(POSITIVES.subList(0, 1), NEGATIVES, context1);
+        suggestor.suggestProperty(POSITIVES, NEGATIVES, context1);
+        Assert.assertEquals(3, counter.calls);
+    }
+
+    @Test
+    public void testBatch() {
+        CountingSuggestor counter = new CountingSuggestor();
+        CachingSuggestor suggestor = new CachingSuggestor(counter);
+        ClassExpression context1 = Suggestor.CONTEXT_POSITION_MARKER;
+        ClassExpression context2 = new SimpleQuantifiedRole(true, "http://example.org/r", false,
+                Suggestor.CONTEXT_POSITION_MARKER);
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context1);
+        Assert.assertEquals(1, counter.calls);
+
+        List<ContextSuggestions> requests = Arrays.asList(new ContextSuggestions(context1, true, false, true),
+                new ContextSuggestions(context2, true, true, false));
+        suggestor.suggest(POSITIVES, NEGATIVES, requests);
+        // classes for context1 are cached, the remaining 3 lists have to be requested
+        Assert.assertEquals(4, counter.calls);
+        for (ContextSuggestions request : requests) {
+            Assert.assertNotNull(request.getClasses());
+            Assert.assertEquals(1, request.getClasses().size());
+        }
+        Assert.assertNotNull(requests.get(0).getProperties());
+        Assert.assertNull(requests.get(0).getNegatedClasses());
+        Assert.assertNotNull(requests.get(1).getNegatedClasses());
+        Assert.assertNull(requests.get(1).getProperties());
+    }
+
+    @Test
+    public void testBoundedRequests() {
+        CountingSuggestor counter = new CountingSuggestor();
+        CachingSuggestor suggestor = new CachingSuggestor(counter);
+        ClassExpression context = Suggestor.CONTEXT_POSITION_MARKER;
+        ContextSuggestions request = new ContextSuggestions(context, true, false, false);
+        request.setBound(new ScoreBound(1, 0, POSITIVES.size(), NEGATIVES.size(), false));
+        suggestor.suggest(POSITIVES, NEGATIVES, Arrays.asList(request));
+        Assert.assertEquals(1, counter.calls);
+        Assert.assertEquals(1, request.getClasses().size());
+
+        // Bounded suggestions are not cached
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context);
+        Assert.assertEquals(2, counter.calls);
+
+        // Bounded requests are answered by filtering the cached suggestions
+        request = new ContextSuggestions(context, true, false, false);
+        request.setBound(new ScoreBound(2, 0, POSITIVES.size(), NEGATIVES.size(), false));
+        suggestor.suggest(POSITIVES, NEGATIVES, Arrays.asList(request));
+        Assert.assertEquals(2, counter.calls);
+        Assert.assertEquals(0, request.getClasses().size());
+    }
+
+    /**
+     * Bounded requests that are answered from the cache get the same ranking and
+     * limit as the decorated suggestor. If the cached suggestions may have been
+     * cut off by the limit, the request has to be forwarded.
+     */
+    @Test
+    public void testBoundedRequestsWithLimit() {
+        List<ScoredIRI> suggestions = new ArrayList<>();
+        CountingSuggestor counter = new CountingSuggestor() {
+            @Override
+            protected Collection<ScoredIRI> createSuggestions(ClassExpression context) {
+                ++calls;
+                List<ScoredIRI> copies = new ArrayList<>();
+                for (ScoredIRI suggestion : suggestions) {
+                    copies.add(new ScoredIRI(suggestion.getIri(), suggestion.getPosCount(), suggestion.getNegCount()));
+                }
+                return copies;
+            }
+
+            @Override
+            public int getMaxSuggestionsPerContext() {
+                return 3;
+            }
+        };
+        CachingSuggestor suggestor = new CachingSuggestor(counter);
+        Assert.assertEquals(3, suggestor.getMaxSuggestionsPerContext());
+        ClassExpression context = Suggestor.CONTEXT_POSITION_MARKER;
+        ScoreBound bound = new ScoreBound(1, 1, POSITIVES.size(), NEGATIVES.size(), false);
+
+        // The cached list is below the limit, i.e., it is complete
+        suggestions.add(new ScoredIRI("http://example.org/A", 1, 1));
+        suggestions.add(new ScoredIRI("http://example.org/B", 2, 0));
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context);
+        Assert.assertEquals(1, counter.calls);
+        ContextSuggestions request = new ContextSuggestions(context, true, false, false);
+        request.setBound(bound);
+        suggestor.suggest(POSITIVES, NEGATIVES, Arrays.asList(request));
+        Assert.assertEquals(1, counter.calls);
+        // B has the better ratio of positive and negative hits
+        List<ScoredIRI> result = new ArrayList<>(request.getClasses());
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals("http://example.org/B", result.get(0).getIri());
+        Assert.assertEquals("http://example.org/A", result.get(1).getIri());
+
+        // The cached list reached the limit, i.e., suggestions may have been cut off
+        suggestions.add(new ScoredIRI("http://example.org/C", 2, 1));
+        context = new SimpleQuantifiedRole(true, "http://example.org/r", false, Suggestor.CONTEXT_POSITION_MARKER);
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context);
+        Assert.assertEquals(2, counter.calls);
+        request = new ContextSuggestions(context, true, false, false);
+        request.setBound(bound);
+        suggestor.suggest(POSITIVES, NEGATIVES, Arrays.asList(request));
+        Assert.assertEquals(3, counter.calls);
+        // Unbounded requests can still be answered from the cache
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context);
+        Assert.assertEquals(3, counter.calls);
+    }
+
+    @Test
+    public void testEviction() {
+        CountingSuggestor counter = new CountingSuggestor();
+        CachingSuggestor suggestor = new CachingSuggestor(counter, 1);
+        ClassExpression context1 = Suggestor.CONTEXT_POSITION_MARKER;
+        ClassExpression context2 = new Junction(false, new NamedClass("http://example.org/A"),
+                Suggestor.CONTEXT_POSITION_MARKER);
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context1);
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context2);
+        suggestor.suggestClass(POSITIVES, NEGATIVES, context1);
+        Assert.assertEquals(3, counter.calls);
+    }
+
+    @Test
+    public void testScoresAndInstances() {
+        CountingSuggestor counter = new CountingSuggestor();
+        CachingSuggestor suggestor = new CachingSuggestor(counter);
+        NamedClass a = new NamedClass("http://example.org/A");
+        NamedClass b = new NamedClass("http://example.org/B", true);
+        ClassExpression expression1 = new Junction(false, a, b);
+        ClassExpression expression2 = new Junction(false, b, a);
+
+        SelectionScores scores = suggestor.scoreExpression(expression1, POSITIVES, NEGATIVES);
+        Assert.assertEquals(2, scores.getPosCount());
+        Assert.assertEquals(1, scores.getNegCount());
+        scores = suggestor.scoreExpression(expression2, POSITIVES, NEGATIVES);
+        Assert.assertEquals(2, scores.getPosCount());
+        Assert.assertEquals(1, scores.getNegCount());
+        Assert.assertEquals(1, counter.calls);
+        Assert.assertEquals(1, suggestor.getScoreCacheHits());
+        suggestor.scoreExpression(a, POSITIVES, NEGATIVES);
+        suggestor.scoreExpression(expression1, NEGATIVES, POSITIVES);
+        Assert.assertEquals(3, counter.calls);
+
+        Set<String> instances = suggestor.retrieveInstances(expression1, POSITIVES, NEGATIVES);
+        Assert.assertEquals(3, instances.size());
+        instances.clear();
+        instances = suggestor.retrieveInstances(expression2, POSITIVES, NEGATIVES);
+        Assert.assertEquals(3, instances.size());
+        Assert.assertEquals(4, counter.calls);
+        Assert.assertEquals(1, suggestor.getInstanceCacheHits());
+    }
+
+    @Test
+    public void testBatchScores() {
+        CountingSuggestor counter = new CountingSuggestor();
+        CachingSuggestor suggestor = new CachingSuggestor(counter);
+        NamedClass a = new NamedClass("http://example.org/A");
+        NamedClass b = new NamedClass("http://example.org/B");
+        suggestor.scoreExpression(a, POSITIVES, NEGATIVES);
+        Assert.assertEquals(1, counter.calls);
+
+        List<SelectionScores> scores = suggestor.scoreExpressions(Arrays.asList(a, b, a), POSITIVES, NEGATIVES);
+        Assert.assertEquals(3, scores.size());
+        for (SelectionScores score : scores) {
+            Assert.assertEquals(2, score.getPosCount());
+            Assert.assertEquals(1, score.getNegCount());
+        }
+        // Only b has to be forwarded
+        Assert.assertEquals(2, counter.calls);
+        Assert.assertEquals(2, suggestor.getScoreCacheHits());
+    }
+
+    /**
+     * A simple suggestor that counts the calls of its methods and always returns
+     * the same suggestion.
+     */
+    public static class CountingSuggestor implements ExtendedSuggestor, InstanceRetriever {
+
+        protected int calls = 0;
+
+        protected Collection<ScoredIRI> createSuggestions(ClassExpression context) {
+            ++calls;
+            List<ScoredIRI> suggestions = new ArrayList<>();
+            suggestions.add(new ScoredIRI("http://example.org/C", 1, 0));
+            return suggestions;
+        }
+
+        @Override
+        public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
+                ClassExpression context) {
+            return createSuggestions(context);
+        }
+
+        @Override
+        public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
+                ClassExpression context) {
+            return createSuggestions(context);
+        }
+
+        @Override
+        public Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
+                ClassExpression context) {
+            return createSuggestions(context);
+        }
+
+        @Override
+        public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
+                Collection<String> negative) {
+            ++calls;
+            return new SelectionScores(positive.size(), negative.size());
+        }
+
+        @Override
+        public Set<String> retrieveInstances(ClassExpression expression, Collection<String> positive,
+                Collection<String> negative) {
+            ++calls;
+            Set<String> instances = new HashSet<>(positive);
+            instances.addAll(negative);
+            return instances;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.aksw.jenax.connection.query.QueryExecutionFactoryDataset;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.update.UpdateAction;
+import org.apache.jena.vocabulary.OWL2;
+import org.apache.jena.vocabulary.RDF;
+import org.dice_research.cel.ALCTest;
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.NamedClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks that the {@link SparqlBasedSuggestor} leads to the same results if the
+ * examples are uploaded into a temporary graph instead of being inlined into
+ * the queries. An in-memory dataset is used as endpoint.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+@RunWith(Parameterized.class)
+public class ExampleGraphTest {
+
+    @Parameters
+    public static List<Object[]> parameters() {
+        return ALCTest.parameters();
+    }
+
+    protected Model model;
+    protected String[] positives;
+    protected String[] negatives;
+
+    public ExampleGraphTest(Model model, String[] positives, String[] negatives) {
+        super();
+        this.model = model;
+        this.positives = positives;
+        this.negatives = negatives;
+    }
+
+    @Test
+    public void test() throws Exception {
+        DescriptionLogic logic = DescriptionLogic.parse("ALC");
+        List<String> pos = Arrays.asList(positives);
+        List<String> neg = Arrays.asList(negatives);
+        Dataset dataset = DatasetFactory.create(model);
+        try (QueryExecutionFactory qef = new QueryExecutionFactoryDataset(DatasetFactory.create(model));
+                SparqlBasedSuggestor expected = new SparqlBasedSuggestor(qef, logic);
+                QueryExecutionFactory graphQef = new QueryExecutionFactoryDataset(dataset);
+                SparqlBasedSuggestor suggestor = new SparqlBasedSuggestor(graphQef, logic)) {
+            for (SparqlBasedSuggestor s : Arrays.asList(expected, suggestor)) {
+                s.addToClassBlackList(OWL2.NamedIndividual.getURI());
+                s.addToPropertyBlackList(RDF.type.getURI());
+            }
+            suggestor.enableExampleGraphs(update -> UpdateAction.parseExecute(update, dataset));
+
+            List<ClassExpression> contexts = new ArrayList<>(BatchSuggestionTest.createContexts());
+            for (ClassExpression context : contexts) {
+                String message = "Suggestions for " + context + " differ.";
+                Assert.assertEquals(message, BatchSuggestionTest.toMap(expected.suggestClass(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestClass(pos, neg, context)));
+                Assert.assertEquals(message,
+                        BatchSuggestionTest.toMap(expected.suggestNegatedClass(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestNegatedClass(pos, neg, context)));
+                Assert.assertEquals(message, BatchSuggestionTest.toMap(expected.suggestProperty(pos, neg, context)),
+                        BatchSuggestionTest.toMap(suggestor.suggestProperty(pos, neg, context)));
+            }
+            // Replace the marker to get complete expressions
+            for (ClassExpression context : contexts) {
+                ClassExpression expression = ClassExpressionUpdater.update(context, Suggestor.CONTEXT_POSITION_MARKER,
+                        new NamedClass("http://example.org/classB"));
+                SelectionScores expectedScores = expected.scoreExpression(expression, pos, neg);
+                SelectionScores scores = suggestor.scoreExpression(expression, pos, neg);
+                Assert.assertEquals(expectedScores.getPosCount(), scores.getPosCount());
+                Assert.assertEquals(expectedScores.getNegCount(), scores.getNegCount());
+                Assert.assertEquals(expected.retrieveInstances(expression, pos, neg),
+                        suggestor.retrieveInstances(expression, pos, neg));
+            }
+            Assert.assertTrue("The temporary graph has not been created.", dataset.listNames().hasNext());
+        }
+        // After closing the suggestor, the temporary graph should have been removed
+        Assert.assertFalse("The temporary graph has not been removed.", dataset.listNames().hasNext());
+    }
+}
@@ -0,0 +1,42 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExampleSetFingerprinterTest {
+
+    @Test
+    public void testOrderIndependence() {
+        Assert.assertEquals(
+                ExampleSetFingerprinter.calculateFingerprint(
+                        Arrays.asList("http://example.org/a", "http://example.org/b", "http://example.org/c")),
+                ExampleSetFingerprinter.calculateFingerprint(
+                        new HashSet<>(Arrays.asList("http://example.org/c", "http://example.org/a",
+                                "http://example.org/b"))));
+    }
+
+    /**
+     * "Aa" and "BB" have the same {@link String#hashCode()} and length. Their
+     * fingerprints must differ nevertheless.
+     */
+    @Test
+    public void testEqualStringHashCodes() {
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+        Assert.assertNotEquals(ExampleSetFingerprinter.calculateFingerprint(Arrays.asList("http://example.org/Aa")),
+                ExampleSetFingerprinter.calculateFingerprint(Arrays.asList("http://example.org/BB")));
+        Assert.assertNotEquals(
+                ExampleSetFingerprinter
+                        .calculateFingerprint(Arrays.asList("http://example.org/Aa", "http://example.org/x")),
+                ExampleSetFingerprinter
+                        .calculateFingerprint(Arrays.asList("http://example.org/BB", "http://example.org/x")));
+    }
+
+    @Test
+    public void testDifferentSizes() {
+        Assert.assertNotEquals(ExampleSetFingerprinter.calculateFingerprint(Arrays.asList()),
+                ExampleSetFingerprinter.calculateFingerprint(Arrays.asList("")));
+    }
+}
@@ -0,0 +1,91 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the pre-rendered VALUES statements of a learning problem are
+ * reused for all queries of the problem and rendered again if the examples
+ * change.
+ */
+public class LearningProblemSessionTest {
+
+    private static final String POS1 = "http://example.org/pos1";
+    private static final String POS2 = "http://example.org/pos2";
+    private static final String NEG1 = "http://example.org/neg1";
+
+    @Test
+    public void testValuesAreReusedWithinProblem() throws Exception {
+        List<LearningProblemSession> createdSessions = new ArrayList<>();
+        SparqlBasedSuggestor suggestor = createSuggestor(createdSessions);
+        List<String> pos = Arrays.asList(POS1, POS2);
+        List<String> neg = Arrays.asList(NEG1);
+        ClassExpression context = suggestor.prepareClassExpression(
+                new Junction(true, new NamedClass("http://example.org/A"), Suggestor.CONTEXT_POSITION_MARKER));
+
+        LearningProblemSession session = suggestor.getSession(pos, neg);
+        String query = suggestor.getSuggestionQueryBuilder().generateClassSuggestionQuery(session, context, null);
+        Assert.assertTrue(query.contains(session.getPositiveValues()));
+        Assert.assertTrue(query.contains(session.getNegativeValues()));
+        for (int i = 0; i < 3; ++i) {
+            LearningProblemSession reused = suggestor.getSession(pos, neg);
+            Assert.assertSame(session, reused);
+            Assert.assertSame(session.getPositiveValues(), reused.getPositiveValues());
+            Assert.assertSame(session.getNegativeValues(), reused.getNegativeValues());
+            Assert.assertEquals(query,
+                    suggestor.getSuggestionQueryBuilder().generateClassSuggestionQuery(reused, context, null));
+        }
+        Assert.assertEquals(1, createdSessions.size());
+    }
+
+    @Test
+    public void testValuesAreRebuiltForNewExamples() throws Exception {
+        List<LearningProblemSession> createdSessions = new ArrayList<>();
+        SparqlBasedSuggestor suggestor = createSuggestor(createdSessions);
+        List<String> pos = Arrays.asList(POS1, POS2);
+        List<String> neg = Arrays.asList(NEG1);
+        LearningProblemSession session = suggestor.getSession(pos, neg);
+        Assert.assertTrue(session.getPositiveValues().contains(POS2));
+
+        // A sub problem with less positive examples
+        List<String> subPos = Arrays.asList(POS1);
+        LearningProblemSession subSession = suggestor.getSession(subPos, neg);
+        Assert.assertNotSame(session, subSession);
+        Assert.assertEquals(2, createdSessions.size());
+        Assert.assertTrue(subSession.getPositiveValues().contains(POS1));
+        Assert.assertFalse(subSession.getPositiveValues().contains(POS2));
+        Assert.assertFalse(subSession.getInstanceValues().contains(POS2));
+        Assert.assertEquals(1, subSession.getNumPositives());
+
+        // The session is identified by the identity of the collections
+        LearningProblemSession copySession = suggestor.getSession(new ArrayList<>(pos), neg);
+        Assert.assertNotSame(session, copySession);
+        Assert.assertEquals(3, createdSessions.size());
+
+        // The session of the first problem is still available
+        Assert.assertSame(session, suggestor.getSession(pos, neg));
+        Assert.assertEquals(3, createdSessions.size());
+    }
+
+    protected static SparqlBasedSuggestor createSuggestor(Collection<LearningProblemSession> createdSessions) {
+        // The query execution factory is not needed since no query is sent
+        return new SparqlBasedSuggestor(null, DescriptionLogic.parse("ALC")) {
+            @Override
+            protected LearningProblemSession createSession(Collection<String> positive,
+                    Collection<String> negative) {
+                LearningProblemSession session = super.createSession(positive, negative);
+                createdSessions.add(session);
+                return session;
+            }
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.NamedClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SamplingSuggestorTest {
+
+    private static final int NUMBER_OF_CLASSES = 20;
+
+    private static List<String> createExamples(int start, int end) {
+        List<String> examples = new ArrayList<>();
+        for (int i = start; i < end; ++i) {
+            examples.add("http://example.org/ex" + i);
+        }
+        return examples;
+    }
+
+    @Test
+    public void testShortlist() {
+        List<String> positives = createExamples(0, 400);
+        List<String> negatives = createExamples(400, 1000);
+        ModuloSuggestor modulo = new ModuloSuggestor();
+        SamplingSuggestor suggestor = new SamplingSuggestor(modulo, 100, 0.2, 3);
+
+        Collection<ScoredIRI> suggestions = suggestor.suggestClass(positives, negatives,
+                Suggestor.CONTEXT_POSITION_MARKER);
+        // 20% of the 20 classes are scored exactly
+        Assert.assertEquals(4, suggestions.size());
+        for (ScoredIRI suggestion : suggestions) {
+            SelectionScores exact = modulo.count(suggestion.getIri(), false, positives, negatives);
+            Assert.assertEquals(exact.getPosCount(), suggestion.getPosCount());
+            Assert.assertEquals(exact.getNegCount(), suggestion.getNegCount());
+        }
+        Assert.assertEquals(1, modulo.suggestCalls);
+        Assert.assertEquals(100, modulo.lastPositives.size());
+        Assert.assertEquals(100, modulo.lastNegatives.size());
+        Assert.assertEquals(NUMBER_OF_CLASSES, suggestor.getSampledSuggestions());
+        Assert.assertEquals(4, suggestor.getRescoredSuggestions());
+        Assert.assertEquals(6, suggestor.getComparedPairs());
+        Assert.assertTrue(suggestor.getMaxRateError() >= suggestor.getMeanPosRateError());
+
+        // The sample is reused for the same learning problem
+        Collection<String> sampledPositives = modulo.lastPositives;
+        suggestor.suggestNegatedClass(positives, negatives, Suggestor.CONTEXT_POSITION_MARKER);
+        Assert.assertSame(sampledPositives, modulo.lastPositives);
+    }
+
+    @Test
+    public void testBound() {
+        List<String> positives = createExamples(0, 400);
+        List<String> negatives = createExamples(400, 1000);
+        ModuloSuggestor modulo = new ModuloSuggestor();
+        SamplingSuggestor suggestor = new SamplingSuggestor(modulo, 100, 1.0, 3);
+        ContextSuggestions request = new ContextSuggestions(Suggestor.CONTEXT_POSITION_MARKER, true, false, false);
+        request.setBound(new ScoreBound(100, 600, 400, 600, false));
+        suggestor.suggest(positives, negatives, Collections.singletonList(request));
+        // Only the classes with a modulus up to 4 select at least 100 positives
+        Assert.assertEquals(4, request.getClasses().size());
+        for (ScoredIRI suggestion : request.getClasses()) {
+            Assert.assertTrue(suggestion.getPosCount() >= 100);
+        }
+    }
+
+    @Test
+    public void testSmallProblem() {
+        List<String> positives = createExamples(0, 50);
+        List<String> negatives = createExamples(50, 100);
+        ModuloSuggestor modulo = new ModuloSuggestor();
+        SamplingSuggestor suggestor = new SamplingSuggestor(modulo, 100, 0.2, 3);
+        Assert.assertEquals(NUMBER_OF_CLASSES,
+                suggestor.suggestClass(positives, negatives, Suggestor.CONTEXT_POSITION_MARKER).size());
+        Assert.assertSame(positives, modulo.lastPositives);
+        Assert.assertEquals(0, suggestor.getRescoredSuggestions());
+    }
+
+    /**
+     * A suggestor with the classes {@code http://example.org/C<k>} that select
+     * all examples {@code http://example.org/ex<i>} with {@code i % k == 0}.
+     * Expressions can only be scored if the context is the marker itself.
+     */
+    public static class ModuloSuggestor implements ExtendedSuggestor {
+
+        protected int suggestCalls = 0;
+        protected Collection<String> lastPositives;
+        protected Collection<String> lastNegatives;
+
+        protected int countMatches(int modulus, boolean negated, Collection<String> examples) {
+            int count = 0;
+            for (String example : examples) {
+                int id = Integer.parseInt(example.substring(example.lastIndexOf("ex") + 2));
+                if (((id % modulus) == 0) != negated) {
+                    ++count;
+                }
+            }
+            return count;
+        }
+
+        protected SelectionScores count(String iri, boolean negated, Collection<String> positive,
+                Collection<String> negative) {
+            int modulus = Integer.parseInt(iri.substring(iri.lastIndexOf('C') + 1));
+            return new SelectionScores(countMatches(modulus, negated, positive),
+                    countMatches(modulus, negated, negative));
+        }
+
+        protected Collection<ScoredIRI> createSuggestions(Collection<String> positive, Collection<String> negative,
+                boolean negated) {
+            ++suggestCalls;
+            lastPositives = positive;
+            lastNegatives = negative;
+            List<ScoredIRI> suggestions = new ArrayList<>();
+            for (int k = 1; k <= NUMBER_OF_CLASSES; ++k) {
+                SelectionScores scores = count("http://example.org/C" + k, negated, positive, negative);
+                suggestions.add(new ScoredIRI("http://example.org/C" + k, scores.getPosCount(),
+                        scores.getNegCount()));
+            }
+            return suggestions;
+        }
+
+        @Override
+        public Collection<ScoredIRI> suggestClass(Collection<String> positive, Collection<String> negative,
+                ClassExpression context) {
+            return createSuggestions(positive, negative, false);
+        }
+
+        @Override
+        public Collection<ScoredIRI> suggestNegatedClass(Collection<String> positive, Collection<String> negative,
+                ClassExpression context) {
+            return createSuggestions(positive, negative, true);
+        }
+
+        @Override
+        public Collection<ScoredIRI> suggestProperty(Collection<String> positive, Collection<String> negative,
+                ClassExpression context) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public SelectionScores scoreExpression(ClassExpression expression, Collection<String> positive,
+                Collection<String> negative) {
+            NamedClass namedClass = (NamedClass) expression;
+            return count(namedClass.getName(), namedClass.isNegated(), positive, negative);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+    private static final int NUMBER_OF_THREADS = 8;
+
+    /**
+     * Waits until all threads except the executing one wait for the result.
+     */
+    protected static void awaitWaitingThreads(SingleFlight<?, ?> flights, long expected) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (flights.getCoalesced() < expected) {
+            Assert.assertTrue("Threads did not join the running computation.",
+                    (System.currentTimeMillis() - start) < 10000);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testIdenticalKeysAreCoalesced() throws Exception {
+        SingleFlight<String, List<String>> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_THREADS; ++i) {
+                futures.add(executor.submit(() -> flights.execute("query", () -> {
+                    executions.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    List<String> result = new ArrayList<>();
+                    result.add("result");
+                    return result;
+                })));
+            }
+            awaitWaitingThreads(flights, NUMBER_OF_THREADS - 1);
+            release.countDown();
+            List<String> first = futures.get(0).get();
+            for (Future<List<String>> future : futures) {
+                Assert.assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, executions.get());
+        Assert.assertEquals(1, flights.getExecutions());
+        Assert.assertEquals(0, flights.size());
+
+        // The key is released, i.e., a later request leads to a new execution
+        flights.execute("query", () -> new ArrayList<>());
+        Assert.assertEquals(2, flights.getExecutions());
+    }
+
+    @Test
+    public void testErrorsAreForwarded() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_THREADS; ++i) {
+                futures.add(executor.submit(() -> flights.execute("query", () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    throw new IllegalArgumentException("endpoint error");
+                })));
+            }
+            awaitWaitingThreads(flights, NUMBER_OF_THREADS - 1);
+            release.countDown();
+            for (Future<String> future : futures) {
+                try {
+                    future.get();
+                    Assert.fail("Expected an exception.");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+                    Assert.assertEquals("endpoint error", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, flights.getExecutions());
+        Assert.assertEquals(0, flights.size());
+        // A failed computation is not remembered
+        Assert.assertEquals("ok", flights.execute("query", () -> "ok"));
+    }
+
+    @Test
+    public void testDifferentKeysAreNotCoalesced() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        Assert.assertEquals("a", flights.execute("query1", () -> flights.execute("query2", () -> "a")));
+        Assert.assertEquals(2, flights.getExecutions());
+        Assert.assertEquals(0, flights.getCoalesced());
+    }
+}
@@ -0,0 +1,56 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.sparql.QueryType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SlowQueryLogTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testMarkerPosition() {
+        Assert.assertEquals("root", SlowQueryLog.getMarkerPosition(Suggestor.CONTEXT_POSITION_MARKER));
+        Assert.assertEquals("none", SlowQueryLog.getMarkerPosition(new NamedClass("A")));
+        Assert.assertEquals("none", SlowQueryLog.getMarkerPosition(null));
+        // A ⊓ ∃r.(B ⊓ ∀s⁻.⌖) ⊓ ∃t.C
+        ClassExpression expression = new Junction(true, new NamedClass("A"),
+                new SimpleQuantifiedRole(true, "r", false, new Junction(true, new NamedClass("B"),
+                        new SimpleQuantifiedRole(false, "s", true, Suggestor.CONTEXT_POSITION_MARKER))),
+                new SimpleQuantifiedRole(true, "t", false, new NamedClass("C")));
+        Assert.assertEquals("∃<r>/∀^<s>", SlowQueryLog.getMarkerPosition(expression));
+    }
+
+    @Test
+    public void testThreshold() {
+        SlowQueryLog log = new SlowQueryLog(100);
+        Assert.assertFalse(log.isSlow(99 * MS));
+        Assert.assertTrue(log.isSlow(100 * MS));
+        Assert.assertTrue(log.isSlow(60000 * MS));
+    }
+
+    @Test
+    public void testFormat() {
+        SlowQueryLog log = new SlowQueryLog(100);
+        ClassExpression context = new SimpleQuantifiedRole(true, "r", false, Suggestor.CONTEXT_POSITION_MARKER);
+        String query = "SELECT ?class WHERE {\n\t?x a ?class .\n}";
+        String line = log.format(QueryType.CLASS, Arrays.asList(context, NamedClass.TOP), query, 12, 2500 * MS);
+        Assert.assertFalse(line.contains("\n"));
+        Assert.assertTrue(line.startsWith("type=CLASS\telapsedMs=2500\trows=12\tmarkerPositions=∃<r> | none\t"));
+        Assert.assertTrue(line.endsWith("\tquery=SELECT ?class WHERE {\\n\\t?x a ?class .\\n}"));
+
+        log.setQueryHashed(true);
+        line = log.format(QueryType.SCORE, Collections.singletonList(context), query, -1, 2500 * MS);
+        Assert.assertTrue(line.contains("\trows=failed\t"));
+        Assert.assertTrue(line.endsWith("\tquerySha256=" + SlowQueryLog.hash(query)));
+        Assert.assertEquals(64, SlowQueryLog.hash(query).length());
+        Assert.assertFalse(line.contains("SELECT"));
+    }
+}
@@ -0,0 +1,210 @@
+package org.dice_research.cel.refine.suggest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UnionNormalizerTest {
+
+    private static final NamedClass A = new NamedClass("http://example.org/A");
+    private static final NamedClass B = new NamedClass("http://example.org/B");
+    private static final NamedClass C = new NamedClass("http://example.org/C");
+    private static final NamedClass D = new NamedClass("http://example.org/D");
+    private static final String ROLE = "http://example.org/r";
+
+    @Test
+    public void testFullLifting() {
+        UnionNormalizer normalizer = new UnionNormalizer();
+        // (A⊔B)⊓∃r.(C⊔D) --> 4 branches
+        ClassExpression ce = new Junction(true, new Junction(false, A, B),
+                new SimpleQuantifiedRole(true, ROLE, false, new Junction(false, C, D)));
+        ClassExpression expected = new Junction(false,
+                new Junction(true, A, new SimpleQuantifiedRole(true, ROLE, false, C)),
+                new Junction(true, A, new SimpleQuantifiedRole(true, ROLE, false, D)),
+                new Junction(true, B, new SimpleQuantifiedRole(true, ROLE, false, C)),
+                new Junction(true, B, new SimpleQuantifiedRole(true, ROLE, false, D)));
+        Assert.assertEquals(4, UnionNormalizer.countBranches(ce, Collections.emptySet()));
+        Assert.assertEquals(expected, normalizer.normalize(ce));
+    }
+
+    @Test
+    public void testUniversalRestriction() {
+        UnionNormalizer normalizer = new UnionNormalizer();
+        // ∀r.(A⊔B) must not be changed
+        ClassExpression ce = new SimpleQuantifiedRole(false, ROLE, false, new Junction(false, A, B));
+        Assert.assertEquals(ce, normalizer.normalize(ce));
+        // C⊓(∀r.(A⊔B)⊔D) --> (C⊓∀r.(A⊔B))⊔(C⊓D)
+        ce = new Junction(true, C, new Junction(false, ce, D));
+        ClassExpression expected = new Junction(false,
+                new Junction(true, C, new SimpleQuantifiedRole(false, ROLE, false, new Junction(false, A, B))),
+                new Junction(true, C, D));
+        Assert.assertEquals(expected, normalizer.normalize(ce));
+    }
+
+    @Test
+    public void testPartialLifting() {
+        UnionNormalizer normalizer = new UnionNormalizer(4);
+        // (A⊔B)⊓(C⊔D)⊓∃r.(A⊔C)⊓(⌖⊔D) would have 16 branches
+        ClassExpression ce = new Junction(true, new Junction(false, A, B), new Junction(false, C, D),
+                new SimpleQuantifiedRole(true, ROLE, false, new Junction(false, A, C)),
+                new Junction(false, Suggestor.CONTEXT_POSITION_MARKER, D));
+        Assert.assertEquals(16, UnionNormalizer.countBranches(ce, Collections.emptySet()));
+
+        ClassExpression normalized = normalizer.normalize(ce);
+        Assert.assertTrue(normalized instanceof Junction);
+        Junction root = (Junction) normalized;
+        Assert.assertFalse(root.isConjunction());
+        Assert.assertTrue(root.getChildren().size() <= 4);
+        // The disjunction that contains the marker has to be lifted
+        boolean markerFound = false;
+        for (ClassExpression branch : root.getChildren()) {
+            markerFound |= UnionNormalizer.containsMarker(branch);
+            Assert.assertFalse("The marker is still part of a disjunction in " + branch,
+                    containsMarkerDisjunction(branch));
+        }
+        Assert.assertTrue(markerFound);
+    }
+
+    @Test
+    public void testRootDisjunctionIsNotKept() {
+        UnionNormalizer normalizer = new UnionNormalizer(2);
+        // A⊔B⊔C has 3 branches and the root itself is the only disjunction without
+        // the marker
+        ClassExpression ce = new Junction(false, A, B, C);
+        ClassExpression normalized = normalizer.normalize(ce);
+        Assert.assertNotSame(ce, normalized);
+        Assert.assertTrue(normalized instanceof Junction);
+        Junction root = (Junction) normalized;
+        Assert.assertFalse(root.isConjunction());
+        Assert.assertEquals(2, root.getChildren().size());
+    }
+
+    @Test
+    public void testHardCap() {
+        UnionNormalizer normalizer = new UnionNormalizer(8);
+        // A chain of 12 conjunctions of disjunctions would have 4096 branches
+        ClassExpression ce = new Junction(false, A, B);
+        for (int i = 0; i < 11; ++i) {
+            ce = new Junction(true, new Junction(false, C, D),
+                    new SimpleQuantifiedRole(true, ROLE + i, false, ce));
+        }
+        Assert.assertEquals(4096, UnionNormalizer.countBranches(ce, Collections.emptySet()));
+        ClassExpression normalized = normalizer.normalize(ce);
+        int branches = ((normalized instanceof Junction) && !((Junction) normalized).isConjunction())
+                ? ((Junction) normalized).getChildren().size()
+                : 1;
+        Assert.assertTrue("Got " + branches + " branches.", branches <= 8);
+    }
+
+    @Test
+    public void testHardCapOnMarkerPath() {
+        UnionNormalizer normalizer = new UnionNormalizer(2);
+        // A⊔∃r.(B⊔∃r.(C⊔∃r.(D⊔⌖))) has 5 branches, all of them on the path to the
+        // marker
+        ClassExpression ce = new Junction(false, D, Suggestor.CONTEXT_POSITION_MARKER);
+        for (NamedClass namedClass : new NamedClass[] { C, B, A }) {
+            ce = new Junction(false, namedClass, new SimpleQuantifiedRole(true, ROLE, false, ce));
+        }
+        Assert.assertEquals(5, UnionNormalizer.countBranches(ce, Collections.emptySet()));
+        // The branches without the marker are merged into a single branch
+        ClassExpression expected = new Junction(false,
+                new Junction(true, new Junction(false, A, new SimpleQuantifiedRole(true, ROLE, false, B),
+                        new SimpleQuantifiedRole(true, ROLE, false, new SimpleQuantifiedRole(true, ROLE, false, C)),
+                        new SimpleQuantifiedRole(true, ROLE, false, new SimpleQuantifiedRole(true, ROLE, false,
+                                new SimpleQuantifiedRole(true, ROLE, false, D))))),
+                new SimpleQuantifiedRole(true, ROLE, false, new SimpleQuantifiedRole(true, ROLE, false,
+                        new SimpleQuantifiedRole(true, ROLE, false, Suggestor.CONTEXT_POSITION_MARKER))));
+        Assert.assertEquals(expected, normalizer.normalize(ce));
+    }
+
+    @Test
+    public void testBranchCountNeverExceedsMax() {
+        Random random = new Random(42);
+        NamedClass[] classes = new NamedClass[] { A, B, C, D };
+        for (int i = 0; i < 500; ++i) {
+            ClassExpression ce = createRandomExpression(random, classes, 4, true);
+            for (int maxBranches = UnionNormalizer.MIN_MAX_BRANCHES; maxBranches <= 8; ++maxBranches) {
+                ClassExpression normalized = new UnionNormalizer(maxBranches).normalize(ce);
+                int branches = 1;
+                if ((normalized instanceof Junction) && !((Junction) normalized).isConjunction()) {
+                    branches = ((Junction) normalized).getChildren().size();
+                }
+                Assert.assertTrue("Got " + branches + " branches for " + ce + " with max=" + maxBranches,
+                        branches <= maxBranches);
+                for (ClassExpression branch : getBranches(normalized)) {
+                    Assert.assertFalse("The marker is still part of a disjunction in " + branch,
+                            containsMarkerDisjunction(branch));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLowMax() {
+        new UnionNormalizer(1);
+    }
+
+    /**
+     * Creates a random class expression. If {@code addMarker} is set, exactly one
+     * leaf is the marker, which is never placed within a universal restriction.
+     */
+    protected static ClassExpression createRandomExpression(Random random, NamedClass[] classes, int depth,
+            boolean addMarker) {
+        int choice = (depth == 0) ? 0 : random.nextInt(5);
+        switch (choice) {
+        case 1: // fall through
+        case 2: {
+            int numberOfChildren = 2 + random.nextInt(2);
+            int markerChild = addMarker ? random.nextInt(numberOfChildren) : -1;
+            ClassExpression[] children = new ClassExpression[numberOfChildren];
+            for (int i = 0; i < numberOfChildren; ++i) {
+                children[i] = createRandomExpression(random, classes, depth - 1, i == markerChild);
+            }
+            return new Junction(choice == 1, children);
+        }
+        case 3:
+            return new SimpleQuantifiedRole(true, ROLE, false,
+                    createRandomExpression(random, classes, depth - 1, addMarker));
+        case 4:
+            if (!addMarker) {
+                return new SimpleQuantifiedRole(false, ROLE, false,
+                        createRandomExpression(random, classes, depth - 1, false));
+            }
+            // fall through
+        default:
+            return addMarker ? Suggestor.CONTEXT_POSITION_MARKER : classes[random.nextInt(classes.length)];
+        }
+    }
+
+    protected static Collection<ClassExpression> getBranches(ClassExpression ce) {
+        if ((ce instanceof Junction) && !((Junction) ce).isConjunction()) {
+            return ((Junction) ce).getChildren();
+        } else {
+            return Collections.singleton(ce);
+        }
+    }
+
+    protected static boolean containsMarkerDisjunction(ClassExpression ce) {
+        if (ce instanceof Junction) {
+            Junction junction = (Junction) ce;
+            if (!junction.isConjunction() && UnionNormalizer.containsMarker(junction)) {
+                return true;
+            }
+            for (ClassExpression child : junction.getChildren()) {
+                if (containsMarkerDisjunction(child)) {
+                    return true;
+                }
+            }
+        } else if (ce instanceof SimpleQuantifiedRole) {
+            return containsMarkerDisjunction(((SimpleQuantifiedRole) ce).getTailExpression());
+        }
+        return false;
+    }
+}
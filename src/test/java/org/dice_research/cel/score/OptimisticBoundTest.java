@@ -0,0 +1,90 @@
+package org.dice_research.cel.score;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dice_research.cel.refine.suggest.ScoreBound;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks the optimistic bounds of the {@link ScoreCalculator} implementations
+ * against a brute force search over all possible counts.
+ */
+@RunWith(Parameterized.class)
+public class OptimisticBoundTest {
+
+    @Parameters
+    public static List<Object[]> parameters() {
+        List<Object[]> testCases = new ArrayList<>();
+        for (ScoreCalculatorFactory factory : new ScoreCalculatorFactory[] { new AccuracyCalculator.Factory(),
+                new BalancedAccuracyCalculator.Factory(), new F1MeasureCalculator.Factory() }) {
+            testCases.add(new Object[] { factory, 1, 1 });
+            testCases.add(new Object[] { factory, 10, 20 });
+            testCases.add(new Object[] { factory, 10, 100 });
+            testCases.add(new Object[] { factory, 37, 5 });
+        }
+        return testCases;
+    }
+
+    private ScoreCalculatorFactory factory;
+    private int numPositives;
+    private int numNegatives;
+
+    public OptimisticBoundTest(ScoreCalculatorFactory factory, int numPositives, int numNegatives) {
+        super();
+        this.factory = factory;
+        this.numPositives = numPositives;
+        this.numNegatives = numNegatives;
+    }
+
+    @Test
+    public void test() {
+        ScoreCalculator calculator = factory.create(numPositives, numNegatives);
+        for (double score : new double[] { 0.0, 0.3, 0.5, 0.55, 0.75, 0.9, 1.0, 1.1 }) {
+            int minPos = calculator.calculateMinPosCount(score, numPositives, numNegatives);
+            int maxNeg = calculator.calculateMaxNegCount(score, numPositives, numNegatives);
+            ScoreBound bound = new ScoreBound(minPos, maxNeg, numPositives, numNegatives, false);
+            for (int pos = 0; pos <= numPositives; ++pos) {
+                for (int neg = 0; neg <= numNegatives; ++neg) {
+                    // Every pair of counts that reaches the score has to fulfill the bound
+                    if (calculator.calculateClassificationScore(pos, neg) >= score) {
+                        Assert.assertTrue("pos=" + pos + ", neg=" + neg + ", score=" + score + ", " + bound,
+                                bound.isFulfilled(pos, neg));
+                    }
+                }
+            }
+            // The bounds have to be tight
+            if (minPos <= numPositives) {
+                Assert.assertTrue(calculator.calculateClassificationScore(minPos, 0) >= score);
+                if (minPos > 0) {
+                    Assert.assertTrue(calculator.calculateClassificationScore(minPos - 1, 0) < score);
+                }
+            }
+            if (maxNeg >= 0) {
+                Assert.assertTrue(calculator.calculateClassificationScore(numPositives, maxNeg) >= score);
+                if (maxNeg < numNegatives) {
+                    Assert.assertTrue(calculator.calculateClassificationScore(numPositives, maxNeg + 1) < score);
+                }
+            } else {
+                Assert.assertTrue(minPos > numPositives);
+            }
+        }
+    }
+
+    @Test
+    public void testNegation() {
+        ScoreBound bound = new ScoreBound(8, 2, 10, 20, true);
+        Assert.assertTrue(bound.isFulfilled(9, 1));
+        Assert.assertFalse(bound.isFulfilled(7, 1));
+        Assert.assertFalse(bound.isFulfilled(9, 3));
+        // The negation selects 9 positives and 1 negative
+        Assert.assertTrue(bound.isFulfilled(1, 19));
+        Assert.assertFalse(new ScoreBound(8, 2, 10, 20, false).isFulfilled(1, 19));
+        Assert.assertFalse(bound.isTrivial());
+        Assert.assertTrue(new ScoreBound(0, 20, 10, 20, true).isTrivial());
+    }
+}
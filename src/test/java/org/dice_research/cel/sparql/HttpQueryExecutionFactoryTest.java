@@ -0,0 +1,49 @@
+package org.dice_research.cel.sparql;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpQueryExecutionFactoryTest {
+
+    private static final String QUERY = "SELECT ?s ?p ?o WHERE { ?s ?p ?o }";
+
+    protected int countRows(HttpQueryExecutionFactory factory) {
+        int rows = 0;
+        try (QueryExecution qe = factory.createQueryExecution(QUERY)) {
+            ResultSet result = qe.execSelect();
+            while (result.hasNext()) {
+                result.next();
+                ++rows;
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void testDefaultConfig() throws Exception {
+        try (SparqlEndpointStandIn endpoint = new SparqlEndpointStandIn(100, 0, 2);
+                HttpQueryExecutionFactory factory = new HttpTransportConfig()
+                        .createQueryExecutionFactory(endpoint.getEndpoint())) {
+            Assert.assertEquals(100, countRows(factory));
+            Assert.assertEquals(1, endpoint.getRequests());
+            // The short query is sent via GET without compression
+            Assert.assertEquals(0, endpoint.getPostRequests());
+            Assert.assertEquals(0, endpoint.getCompressedResponses());
+        }
+    }
+
+    @Test
+    public void testHighVolumeConfig() throws Exception {
+        try (SparqlEndpointStandIn endpoint = new SparqlEndpointStandIn(100, 0, 2);
+                HttpQueryExecutionFactory factory = HttpTransportConfig.createHighVolumeConfig(2)
+                        .createQueryExecutionFactory(endpoint.getEndpoint())) {
+            Assert.assertEquals(100, countRows(factory));
+            Assert.assertEquals(100, countRows(factory));
+            Assert.assertEquals(2, endpoint.getRequests());
+            Assert.assertEquals(2, endpoint.getPostRequests());
+            Assert.assertEquals(2, endpoint.getCompressedResponses());
+        }
+    }
+}
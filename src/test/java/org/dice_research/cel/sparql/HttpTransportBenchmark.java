@@ -0,0 +1,152 @@
+package org.dice_research.cel.sparql;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
+import org.aksw.jenax.arq.connection.core.QueryExecutionFactory;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.sparql.core.DatasetDescription;
+
+/**
+ * A micro-benchmark that compares the throughput of the default HTTP transport
+ * of the {@code SparqlBasedSuggestor} with a tuned transport (see
+ * {@link HttpTransportConfig#createHighVolumeConfig(int)}), with Jena parsing
+ * or with the streaming {@link TsvResultDecoder}, against a local
+ * {@link SparqlEndpointStandIn}. The queries have the size of typical
+ * suggestion queries, i.e., they contain a VALUES statement with the examples
+ * of a learning problem.
+ *
+ * <p>
+ * Usage: {@code HttpTransportBenchmark [queries] [threads] [rows] [examples]
+ * [latency]}
+ * </p>
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class HttpTransportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int queries = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        int rows = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+        int examples = (args.length > 3) ? Integer.parseInt(args[3]) : 200;
+        long latency = (args.length > 4) ? Long.parseLong(args[4]) : 0;
+        String query = createQuery(examples);
+        System.out.println("queries=" + queries + ", threads=" + threads + ", rows=" + rows + ", queryLength="
+                + query.length() + ", latency=" + latency);
+
+        try (SparqlEndpointStandIn endpoint = new SparqlEndpointStandIn(rows, latency, threads)) {
+            try (QueryExecutionFactory factory = new QueryExecutionFactoryHttp(endpoint.getEndpoint(),
+                    new DatasetDescription(), HttpClient.newHttpClient())) {
+                run("default", factory, query, queries, threads);
+            }
+            try (QueryExecutionFactory factory = new HttpTransportConfig()
+                    .createQueryExecutionFactory(endpoint.getEndpoint())) {
+                run("plain config", factory, query, queries, threads);
+            }
+            try (QueryExecutionFactory factory = HttpTransportConfig.createHighVolumeConfig(threads)
+                    .createQueryExecutionFactory(endpoint.getEndpoint())) {
+                run("high volume config", factory, query, queries, threads);
+            }
+            try (HttpQueryExecutionFactory factory = HttpTransportConfig.createHighVolumeConfig(threads)
+                    .createQueryExecutionFactory(endpoint.getEndpoint())) {
+                runTsv("high volume TSV", factory, query, queries, threads);
+            }
+        }
+    }
+
+    protected static String createQuery(int examples) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SELECT ?s ?p ?o WHERE {\n  VALUES ?s {");
+        for (int i = 0; i < examples; ++i) {
+            builder.append(" <http://example.org/example");
+            builder.append(i);
+            builder.append('>');
+        }
+        builder.append(" }\n  ?s ?p ?o .\n}");
+        return builder.toString();
+    }
+
+    protected static void run(String name, QueryExecutionFactory factory, String query, int queries, int threads)
+            throws Exception {
+        // warm up
+        execute(factory, query, Math.max(1, queries / 10), threads);
+        long start = System.nanoTime();
+        long resultRows = execute(factory, query, queries, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%-20s %8.1f queries/s (%d rows in %.2f s)", name, queries / seconds,
+                resultRows, seconds));
+    }
+
+    protected static void runTsv(String name, HttpQueryExecutionFactory factory, String query, int queries,
+            int threads) throws Exception {
+        // warm up
+        executeTsv(factory, query, Math.max(1, queries / 10), threads);
+        long start = System.nanoTime();
+        long resultRows = executeTsv(factory, query, queries, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%-20s %8.1f queries/s (%d rows in %.2f s)", name, queries / seconds,
+                resultRows, seconds));
+    }
+
+    protected static long executeTsv(HttpQueryExecutionFactory factory, String query, int queries, int threads)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(queries);
+            for (int i = 0; i < queries; ++i) {
+                futures.add(executor.submit(() -> {
+                    long rows = 0;
+                    try (TsvResultDecoder decoder = factory.execSelectTsv(query)) {
+                        while (decoder.next()) {
+                            ++rows;
+                        }
+                    }
+                    return rows;
+                }));
+            }
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+            return rows;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    protected static long execute(QueryExecutionFactory factory, String query, int queries, int threads)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(queries);
+            for (int i = 0; i < queries; ++i) {
+                futures.add(executor.submit(() -> {
+                    long rows = 0;
+                    try (QueryExecution qe = factory.createQueryExecution(query)) {
+                        ResultSet result = qe.execSelect();
+                        while (result.hasNext()) {
+                            result.next();
+                            ++rows;
+                        }
+                    }
+                    return rows;
+                }));
+            }
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+            return rows;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
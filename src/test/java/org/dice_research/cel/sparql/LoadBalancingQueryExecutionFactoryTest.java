@@ -0,0 +1,129 @@
+package org.dice_research.cel.sparql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.aksw.jenax.connection.query.QueryExecutionFactoryDataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.ResultSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoadBalancingQueryExecutionFactoryTest {
+
+    private static final String QUERY = "SELECT ?s ?p ?o WHERE { ?s ?p ?o }";
+
+    protected int countRows(LoadBalancingQueryExecutionFactory factory) {
+        int rows = 0;
+        try (QueryExecution qe = factory.createQueryExecution(QUERY)) {
+            ResultSet result = qe.execSelect();
+            while (result.hasNext()) {
+                result.next();
+                ++rows;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return the URL of an endpoint that does not accept connections
+     */
+    protected String createDeadEndpoint() throws Exception {
+        try (SparqlEndpointStandIn endpoint = new SparqlEndpointStandIn(1, 0, 1)) {
+            return endpoint.getEndpoint();
+        }
+    }
+
+    @Test
+    public void testInFlightLimits() throws Exception {
+        HttpTransportConfig config = new HttpTransportConfig();
+        try (SparqlEndpointStandIn replica1 = new SparqlEndpointStandIn(10, 50, 4);
+                SparqlEndpointStandIn replica2 = new SparqlEndpointStandIn(10, 50, 4);
+                LoadBalancingQueryExecutionFactory factory = new LoadBalancingQueryExecutionFactory(
+                        Arrays.asList(config.createQueryExecutionFactory(replica1.getEndpoint()),
+                                config.createQueryExecutionFactory(replica2.getEndpoint())),
+                        2)) {
+            ExecutorService executor = Executors.newFixedThreadPool(6);
+            try {
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < 24; ++i) {
+                    futures.add(executor.submit(() -> countRows(factory)));
+                }
+                for (Future<Integer> future : futures) {
+                    Assert.assertEquals(10, future.get().intValue());
+                }
+            } finally {
+                executor.shutdown();
+            }
+            Assert.assertEquals(24, replica1.getRequests() + replica2.getRequests());
+            Assert.assertTrue(replica1.getRequests() > 0);
+            Assert.assertTrue(replica2.getRequests() > 0);
+            Assert.assertTrue(replica1.getMaxActiveRequests() <= 2);
+            Assert.assertTrue(replica2.getMaxActiveRequests() <= 2);
+        }
+    }
+
+    @Test
+    public void testFailover() throws Exception {
+        HttpTransportConfig config = new HttpTransportConfig();
+        String deadEndpoint = createDeadEndpoint();
+        try (SparqlEndpointStandIn replica = new SparqlEndpointStandIn(10, 0, 2);
+                LoadBalancingQueryExecutionFactory factory = new LoadBalancingQueryExecutionFactory(
+                        Arrays.asList(config.createQueryExecutionFactory(deadEndpoint),
+                                config.createQueryExecutionFactory(replica.getEndpoint())),
+                        2)) {
+            for (int i = 0; i < 5; ++i) {
+                Assert.assertEquals(10, countRows(factory));
+            }
+            // The dead replica is avoided after its first failure
+            Assert.assertArrayEquals(new long[] { 1, 0 }, factory.getFailuresPerReplica());
+            Assert.assertArrayEquals(new long[] { 1, 5 }, factory.getQueriesPerReplica());
+            Assert.assertEquals(5, replica.getRequests());
+        }
+    }
+
+    @Test
+    public void testInterruptWhileWaiting() throws Exception {
+        try (LoadBalancingQueryExecutionFactory factory = new LoadBalancingQueryExecutionFactory(
+                Arrays.asList(new QueryExecutionFactoryDataset(DatasetFactory.create())), 1)) {
+            // The first execution blocks the only replica until it is closed
+            try (QueryExecution blocking = factory.createQueryExecution(QUERY)) {
+                blocking.execSelect();
+                Thread.currentThread().interrupt();
+                try {
+                    countRows(factory);
+                    Assert.fail("Expected an exception.");
+                } catch (IllegalStateException e) {
+                    // expected, the interruption is not hidden by another error
+                    Assert.assertTrue(e.getCause() instanceof InterruptedException);
+                }
+                // The interrupt flag is still set
+                Assert.assertTrue(Thread.interrupted());
+            }
+            Assert.assertArrayEquals(new long[] { 0 }, factory.getFailuresPerReplica());
+            Assert.assertEquals(0, countRows(factory));
+        }
+    }
+
+    @Test
+    public void testAllReplicasFail() throws Exception {
+        HttpTransportConfig config = new HttpTransportConfig();
+        try (LoadBalancingQueryExecutionFactory factory = new LoadBalancingQueryExecutionFactory(
+                Arrays.asList(config.createQueryExecutionFactory(createDeadEndpoint()),
+                        config.createQueryExecutionFactory(createDeadEndpoint())),
+                1)) {
+            try {
+                countRows(factory);
+                Assert.fail("Expected an exception.");
+            } catch (RuntimeException e) {
+                // expected
+            }
+            Assert.assertArrayEquals(new long[] { 1, 1 }, factory.getFailuresPerReplica());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.dice_research.cel.sparql;
+
+import java.net.http.HttpTimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryMetricsRegistryTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testRecording() {
+        QueryMetricsRegistry registry = new QueryMetricsRegistry();
+        registry.recordSuccess(QueryType.CLASS, 3 * MS, 10, "SELECT");
+        registry.recordSuccess(QueryType.CLASS, 70 * MS, 5, "SELECT ä");
+        registry.recordFailure(QueryType.PROPERTY, 1500 * MS, "SELECT",
+                new RuntimeException(new HttpTimeoutException("timeout")));
+        registry.recordFailure(QueryType.PROPERTY, 1 * MS, "SELECT", new IllegalStateException());
+
+        QueryMetricsSnapshot snapshot = registry.snapshot();
+        QueryMetricsSnapshot.Entry classes = snapshot.getEntry(QueryType.CLASS);
+        Assert.assertEquals(2, classes.getCount());
+        Assert.assertEquals(15, classes.getRows());
+        // "ä" needs 2 bytes in UTF-8
+        Assert.assertEquals(15, classes.getQueryBytes());
+        Assert.assertEquals(0, classes.getErrors());
+        Assert.assertEquals(36.5, classes.getAverageLatency(), 0.001);
+        Assert.assertEquals(5, classes.getLatencyPercentile(0.5));
+        Assert.assertEquals(100, classes.getLatencyPercentile(0.99));
+
+        QueryMetricsSnapshot.Entry properties = snapshot.getEntry(QueryType.PROPERTY);
+        Assert.assertEquals(2, properties.getCount());
+        Assert.assertEquals(2, properties.getErrors());
+        Assert.assertEquals(1, properties.getTimeouts());
+        Assert.assertEquals(2000, properties.getLatencyPercentile(1.0));
+
+        Assert.assertEquals(0, snapshot.getEntry(QueryType.SCORE).getCount());
+        Assert.assertEquals(0, snapshot.getEntry(QueryType.SCORE).getLatencyPercentile(0.5));
+    }
+
+    @Test
+    public void testSubtract() {
+        QueryMetricsRegistry registry = new QueryMetricsRegistry();
+        registry.recordSuccess(QueryType.SCORE, 3 * MS, 1, "SELECT");
+        QueryMetricsSnapshot before = registry.snapshot();
+        registry.recordSuccess(QueryType.SCORE, 120000 * MS, 1, "SELECT");
+        registry.recordSuccess(QueryType.INSTANCES, 1 * MS, 7, "SELECT");
+        QueryMetricsSnapshot difference = registry.snapshot().subtract(before);
+
+        QueryMetricsSnapshot.Entry scores = difference.getEntry(QueryType.SCORE);
+        Assert.assertEquals(1, scores.getCount());
+        Assert.assertEquals(120000.0, scores.getAverageLatency(), 0.001);
+        Assert.assertEquals(Long.MAX_VALUE, scores.getLatencyPercentile(0.5));
+        long[] histogram = scores.getLatencyHistogram();
+        Assert.assertEquals(1, histogram[histogram.length - 1]);
+        Assert.assertEquals(0, histogram[2]);
+        Assert.assertEquals(7, difference.getEntry(QueryType.INSTANCES).getRows());
+    }
+}
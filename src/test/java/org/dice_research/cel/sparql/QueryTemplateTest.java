@@ -0,0 +1,88 @@
+package org.dice_research.cel.sparql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dice_research.cel.DescriptionLogic;
+import org.dice_research.cel.expression.ClassExpression;
+import org.dice_research.cel.expression.Junction;
+import org.dice_research.cel.expression.NamedClass;
+import org.dice_research.cel.expression.SimpleQuantifiedRole;
+import org.dice_research.cel.refine.suggest.BatchSuggestionTest;
+import org.dice_research.cel.refine.suggest.SparqlBasedSuggestor;
+import org.dice_research.cel.refine.suggest.SuggestionQueryBuilder;
+import org.dice_research.cel.refine.suggest.Suggestor;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that a {@link QueryTemplate} that is rendered for different variables
+ * leads to the same SPARQL as the former, regex-based replacement of the
+ * variables and VALUES statements.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class QueryTemplateTest {
+
+    @Test
+    public void testRendering() {
+        QueryTemplate filter = new QueryTemplate();
+        filter.append("FILTER(").appendRootVariable().append(" != <http://example.org/a>)");
+        QueryTemplate template = new QueryTemplate();
+        template.appendValues().append("        ").appendVariable(QueryTemplate.ROOT_VARIABLE).append(" a ")
+                .appendVariable("?class").append(" .\n        ").append(filter).append('\n');
+
+        String values = "VALUES ?neg { <http://example.org/n1> }\n";
+        String expected = values
+                + "        ?neg a ?class .\n        FILTER(?neg != <http://example.org/a>)\n";
+        Assert.assertEquals(expected, template.render("?neg", values));
+        Assert.assertEquals(expected.length(), template.estimateLength("?neg", values));
+        Assert.assertEquals(expected.substring(values.length()), template.render("?neg", null));
+        Assert.assertTrue(new QueryTemplate().isEmpty());
+        Assert.assertFalse(template.isEmpty());
+    }
+
+    @Test
+    public void testContexts() {
+        TemplateExposingSuggestor suggestor = new TemplateExposingSuggestor();
+        NamedClass classA = new NamedClass("http://example.org/classA");
+        NamedClass classB = new NamedClass("http://example.org/classB", true);
+        String role2 = "http://example.org/role2";
+        List<ClassExpression> contexts = new ArrayList<>(BatchSuggestionTest.createContexts());
+        contexts.add(new Junction(true, classB,
+                new SimpleQuantifiedRole(false, role2, true, new Junction(false, classA, classB)),
+                Suggestor.CONTEXT_POSITION_MARKER));
+        contexts.add(new Junction(false, new SimpleQuantifiedRole(true, role2, true, classA),
+                new SimpleQuantifiedRole(true, role2, false, Suggestor.CONTEXT_POSITION_MARKER)));
+
+        String posValues = "VALUES ?pos { <http://example.org/p1> <http://example.org/p2> }\n";
+        String negValues = "VALUES ?neg { <http://example.org/n1> }\n";
+        for (ClassExpression context : contexts) {
+            QueryTemplate template = suggestor.createTemplate(context);
+            String positive = template.render("?pos", posValues);
+            // This is how the negative side has been created before (the regex did not
+            // match the line break of the VALUES statement)
+            String expected = positive.replaceAll("VALUES[ ]+\\?pos[ ]+\\{[^}]*\\}\n", negValues)
+                    .replaceAll("\\?pos ", "?neg ");
+            Assert.assertEquals("Context: " + context, expected, template.render("?neg", negValues));
+        }
+    }
+
+    /**
+     * A suggestor that makes the template creation accessible for this test.
+     */
+    protected static class TemplateExposingSuggestor extends SparqlBasedSuggestor {
+
+        public TemplateExposingSuggestor() {
+            super(null, DescriptionLogic.parse("ALC"));
+        }
+
+        public QueryTemplate createTemplate(ClassExpression context) {
+            ClassExpression prepared = prepareClassExpression(context);
+            SuggestionQueryBuilder builder = getSuggestionQueryBuilder();
+            return builder.createContextTemplate(prepared, builder.createNotExistsFilter(prepared),
+                    (t, v) -> t.appendVariable(v).append(" a ?class ."));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.dice_research.cel.sparql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal local stand-in for a SPARQL endpoint (e.g., Fuseki) that answers
+ * every query with the same SELECT result of {@code ?s ?p ?o} bindings. It
+ * supports GET and POST requests, JSON and TSV results as well as gzip
+ * compressed responses and counts the requests it receives.
+ *
+ * @author Michael R&ouml;der (michael.roeder@uni-paderborn.de)
+ *
+ */
+public class SparqlEndpointStandIn implements AutoCloseable {
+
+    protected HttpServer server;
+    protected ExecutorService executor;
+    protected byte[] response;
+    protected byte[] compressedResponse;
+    protected byte[] tsvResponse;
+    protected byte[] compressedTsvResponse;
+    protected long latency;
+    protected AtomicInteger requests = new AtomicInteger();
+    protected AtomicInteger postRequests = new AtomicInteger();
+    protected AtomicInteger compressedResponses = new AtomicInteger();
+    protected AtomicInteger tsvRequests = new AtomicInteger();
+    protected AtomicInteger activeRequests = new AtomicInteger();
+    protected AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    /**
+     * Starts a new stand-in on a free local port.
+     *
+     * @param rows    the number of rows of the result
+     * @param latency the time (in ms) the stand-in waits before answering a
+     *                request
+     * @param threads the number of threads of the server
+     * @throws IOException if the server cannot be started
+     */
+    public SparqlEndpointStandIn(int rows, long latency, int threads) throws IOException {
+        this.latency = latency;
+        this.response = createResponse(rows);
+        this.compressedResponse = compress(response);
+        this.tsvResponse = createTsvResponse(rows);
+        this.compressedTsvResponse = compress(tsvResponse);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/sparql", this::handle);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    protected static byte[] createResponse(int rows) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{ \"head\": { \"vars\": [ \"s\", \"p\", \"o\" ] },\n  \"results\": { \"bindings\": [\n");
+        for (int i = 0; i < rows; ++i) {
+            if (i > 0) {
+                builder.append(",\n");
+            }
+            builder.append("    { \"s\": { \"type\": \"uri\", \"value\": \"http://example.org/subject");
+            builder.append(i);
+            builder.append("\" }, \"p\": { \"type\": \"uri\", \"value\": \"http://example.org/property");
+            builder.append(i % 10);
+            builder.append("\" }, \"o\": { \"type\": \"literal\", \"value\": \"");
+            builder.append(i);
+            builder.append("\", \"datatype\": \"http://www.w3.org/2001/XMLSchema#integer\" } }");
+        }
+        builder.append("\n  ] } }\n");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    protected static byte[] createTsvResponse(int rows) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("?s\t?p\t?o\n");
+        for (int i = 0; i < rows; ++i) {
+            builder.append("<http://example.org/subject");
+            builder.append(i);
+            builder.append(">\t<http://example.org/property");
+            builder.append(i % 10);
+            builder.append(">\t\"");
+            builder.append(i);
+            builder.append("\"^^<http://www.w3.org/2001/XMLSchema#integer>\n");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    protected static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (GZIPOutputStream gout = new GZIPOutputStream(bout)) {
+            gout.write(data);
+        }
+        return bout.toByteArray();
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+        try {
+            answer(exchange);
+        } finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    protected void answer(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        if ("POST".equals(exchange.getRequestMethod())) {
+            postRequests.incrementAndGet();
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<String> encodings = exchange.getRequestHeaders().get("Accept-Encoding");
+        boolean compress = (encodings != null) && encodings.stream().anyMatch(e -> e.contains("gzip"));
+        List<String> accepted = exchange.getRequestHeaders().get("Accept");
+        boolean tsv = (accepted != null)
+                && accepted.stream().anyMatch(a -> a.startsWith("text/tab-separated-values"));
+        byte[] body;
+        if (tsv) {
+            tsvRequests.incrementAndGet();
+            body = compress ? compressedTsvResponse : tsvResponse;
+        } else {
+            body = compress ? compressedResponse : response;
+        }
+        if (compress) {
+            compressedResponses.incrementAndGet();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().add("Content-Type",
+                tsv ? "text/tab-separated-values" : "application/sparql-results+json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * @return the URL of the SPARQL endpoint of this stand-in
+     */
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort() + "/sparql";
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public int getPostRequests() {
+        return postRequests.get();
+    }
+
+    public int getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * @return the maximum number of requests that have been handled at the same
+     *         time
+     */
+    public int getMaxActiveRequests() {
+        return maxActiveRequests.get();
+    }
+
+    public int getTsvRequests() {
+        return tsvRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,107 @@
+package org.dice_research.cel.sparql;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+import org.dice_research.cel.refine.suggest.ScoredIRI;
+import org.dice_research.cel.refine.suggest.SparqlBasedSuggestor.ScoredIriQuerySolutionMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TsvResultDecoderTest {
+
+    private static final String RESULT = "?prop\t?posHits\t?negHits\t?dir\t?branch\r\n"
+            + "<http://example.org/p1>\t3\t\"1\"^^<http://www.w3.org/2001/XMLSchema#integer>\t1\t0\r\n"
+            + "<http://example.org/p2>\t-2\t0\t0\t1\n"
+            + "\t5\t7\t\t1\n"
+            + "_:b0\t1\t1\t0\t0\n"
+            + "<http://example.org/blocked>\t1\t1\t0\t0\n"
+            + "\n";
+
+    @Test
+    public void testDecoding() throws IOException {
+        try (TsvResultDecoder decoder = new TsvResultDecoder(new StringReader(RESULT))) {
+            Assert.assertArrayEquals(new String[] { "prop", "posHits", "negHits", "dir", "branch" },
+                    decoder.getVariables());
+            Assert.assertEquals(0, decoder.getColumn("?prop"));
+            Assert.assertEquals(4, decoder.getColumn("branch"));
+            Assert.assertEquals(-1, decoder.getColumn("class"));
+
+            Assert.assertTrue(decoder.next());
+            Assert.assertTrue(decoder.isIri(0));
+            Assert.assertEquals("http://example.org/p1", decoder.getIri(0));
+            Assert.assertEquals(3, decoder.getInt(1));
+            Assert.assertEquals(1, decoder.getInt(2));
+            Assert.assertEquals(0, decoder.getInt(4));
+
+            Assert.assertTrue(decoder.next());
+            Assert.assertEquals(-2, decoder.getInt(1));
+            Assert.assertEquals(1, decoder.getInt(4));
+
+            Assert.assertTrue(decoder.next());
+            Assert.assertFalse(decoder.isBound(0));
+            Assert.assertFalse(decoder.isBound(3));
+            Assert.assertEquals(7, decoder.getInt(2));
+
+            Assert.assertTrue(decoder.next());
+            Assert.assertTrue(decoder.isBound(0));
+            Assert.assertFalse(decoder.isIri(0));
+
+            Assert.assertTrue(decoder.next());
+            Assert.assertFalse(decoder.next());
+            Assert.assertFalse(decoder.next());
+        }
+    }
+
+    @Test
+    public void testMapper() throws IOException {
+        ScoredIriQuerySolutionMapper mapper = new ScoredIriQuerySolutionMapper("?prop",
+                Collections.singleton("http://example.org/blocked"), "dir");
+        try (TsvResultDecoder decoder = new TsvResultDecoder(new StringReader(RESULT))) {
+            decoder.next();
+            ScoredIRI sIri = mapper.apply(decoder);
+            Assert.assertEquals("http://example.org/p1", sIri.getIri());
+            Assert.assertEquals(3, sIri.getPosCount());
+            Assert.assertEquals(1, sIri.getNegCount());
+            Assert.assertTrue(sIri.isInverted());
+
+            decoder.next();
+            sIri = mapper.apply(decoder);
+            Assert.assertEquals("http://example.org/p2", sIri.getIri());
+            Assert.assertFalse(sIri.isInverted());
+
+            // No IRI --> base score
+            decoder.next();
+            sIri = mapper.apply(decoder);
+            Assert.assertNull(sIri.getIri());
+            Assert.assertEquals(5, sIri.getPosCount());
+            Assert.assertEquals(7, sIri.getNegCount());
+
+            // Blank node and blacklisted IRI are ignored
+            decoder.next();
+            Assert.assertNull(mapper.apply(decoder));
+            decoder.next();
+            Assert.assertNull(mapper.apply(decoder));
+        }
+    }
+
+    @Test
+    public void testEndpoint() throws Exception {
+        HttpTransportConfig config = HttpTransportConfig.createHighVolumeConfig(2);
+        try (SparqlEndpointStandIn endpoint = new SparqlEndpointStandIn(100, 0, 2);
+                HttpQueryExecutionFactory factory = config.createQueryExecutionFactory(endpoint.getEndpoint());
+                TsvResultDecoder decoder = factory.execSelectTsv("SELECT ?s ?p ?o WHERE { ?s ?p ?o }")) {
+            int rows = 0;
+            int oColumn = decoder.getColumn("o");
+            while (decoder.next()) {
+                Assert.assertEquals("http://example.org/subject" + rows, decoder.getIri(0));
+                Assert.assertEquals(rows, decoder.getInt(oColumn));
+                ++rows;
+            }
+            Assert.assertEquals(100, rows);
+            Assert.assertEquals(1, endpoint.getTsvRequests());
+            Assert.assertEquals(1, endpoint.getCompressedResponses());
+        }
+    }
+}